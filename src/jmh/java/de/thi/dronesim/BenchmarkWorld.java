@@ -0,0 +1,129 @@
+package de.thi.dronesim;
+
+import com.jme3.math.Vector3f;
+import de.thi.dronesim.obstacle.dto.HitBoxDTO;
+import de.thi.dronesim.obstacle.dto.ObstacleDTO;
+import de.thi.dronesim.persistence.entity.ObstacleConfig;
+import de.thi.dronesim.persistence.entity.SensorConfig;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reproducible worlds for the benchmarks.
+ * <p>
+ * The obstacles are random boxes around the origin. The area close to the origin is kept free,
+ * so a drone at the origin never crashes and the benchmarks always measure the same work.
+ */
+public final class BenchmarkWorld {
+    /**
+     * Radius around the origin without obstacles [m]
+     */
+    public static final float FREE_RADIUS = 10;
+    /**
+     * Radius around the origin with obstacles [m]
+     */
+    public static final float WORLD_RADIUS = 150;
+
+    private BenchmarkWorld() {
+    }
+
+    /**
+     * @param count Number of obstacles
+     * @param seed  Seed of the random positions
+     * @return Obstacles with one random box each
+     */
+    public static List<ObstacleDTO> createObstacles(int count, long seed) {
+        Random random = new Random(seed);
+        List<ObstacleDTO> obstacles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double angle = random.nextDouble() * 2 * Math.PI;
+            float distance = FREE_RADIUS + 2 + random.nextFloat() * (WORLD_RADIUS - FREE_RADIUS);
+            Float[] position = {(float) Math.cos(angle) * distance, random.nextFloat() * 30 - 5, (float) Math.sin(angle) * distance};
+            Float[] rotation = {0f, random.nextFloat() * (float) Math.PI, 0f};
+            Float[] dimension = {1 + random.nextFloat() * 3, 1 + random.nextFloat() * 10, 1 + random.nextFloat() * 3};
+
+            HitBoxDTO hitBox = new HitBoxDTO();
+            hitBox.position = position;
+            hitBox.rotation = rotation;
+            hitBox.dimension = dimension;
+
+            ObstacleDTO obstacle = new ObstacleDTO();
+            obstacle.modelName = "box" + i;
+            obstacle.modelPath = "";
+            obstacle.id = (long) i;
+            obstacle.hitboxes = new HashSet<>();
+            obstacle.hitboxes.add(hitBox);
+            obstacle.position = position;
+            obstacle.rotation = rotation;
+            obstacle.scale = new Float[]{1f, 1f, 1f};
+            obstacles.add(obstacle);
+        }
+        return obstacles;
+    }
+
+    /**
+     * Creates a not yet prepared simulation with random obstacles
+     *
+     * @param obstacles  Number of obstacles
+     * @param rayDensity Ray density of the sensor checks
+     * @param seed       Seed of the random positions
+     */
+    public static Simulation createSimulation(int obstacles, int rayDensity, long seed) {
+        Simulation simulation = new Simulation();
+        ObstacleConfig obstacleConfig = new ObstacleConfig();
+        obstacleConfig.obstacles.addAll(createObstacles(obstacles, seed));
+        obstacleConfig.config.rayDensity = rayDensity;
+        LinkedList<ObstacleConfig> obstacleConfigs = new LinkedList<>();
+        obstacleConfigs.add(obstacleConfig);
+        simulation.getConfig().setObstacleConfigList(obstacleConfigs);
+        return simulation;
+    }
+
+    /**
+     * @param id   Sensor id
+     * @param form Sensor form, e.g. CONE
+     * @return Config of an infrared sensor looking horizontally into a direction depending on the id
+     */
+    public static SensorConfig createSensorConfig(int id, String form) {
+        double angle = id * 2.39996;
+        SensorConfig config = new SensorConfig();
+        config.setSensorId(id);
+        config.setClassName("InfraredSensor");
+        config.setSensorForm(form);
+        config.setCalcType("NEAREST");
+        config.setRange(30);
+        config.setSensorAngle(15);
+        config.setSensorRadius(0.5f);
+        config.setMeasurementAccuracy(0);
+        config.setDirectionX((float) Math.cos(angle));
+        config.setDirectionY(0);
+        config.setDirectionZ((float) Math.sin(angle));
+        return config;
+    }
+
+    /**
+     * Random rays starting in the free area around the origin
+     *
+     * @param count Number of rays
+     * @param seed  Seed of the random rays
+     * @return Triples of origin, direction and opening vector of a sensor with an opening angle of 20°
+     */
+    public static Vector3f[][] createRays(int count, long seed) {
+        Random random = new Random(seed);
+        Vector3f up = new Vector3f(0, 1, 0);
+        float tan = (float) Math.tan(Math.toRadians(10));
+        Vector3f[][] rays = new Vector3f[count][];
+        for (int i = 0; i < count; i++) {
+            Vector3f origin = new Vector3f(random.nextFloat() * 10 - 5, random.nextFloat() * 10, random.nextFloat() * 10 - 5);
+            Vector3f direction = new Vector3f(random.nextFloat() * 2 - 1, random.nextFloat() * 0.4f - 0.2f, random.nextFloat() * 2 - 1).normalizeLocal();
+            // A vector on the surface of the cone, as calculated by the sensors
+            Vector3f opening = direction.add(direction.cross(up).normalizeLocal().multLocal(tan));
+            rays[i] = new Vector3f[]{origin, direction, opening};
+        }
+        return rays;
+    }
+}
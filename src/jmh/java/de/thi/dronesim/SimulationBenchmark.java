@@ -0,0 +1,55 @@
+package de.thi.dronesim;
+
+import de.thi.dronesim.persistence.entity.SensorConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of a whole simulation tick with all listeners, sensors and obstacles
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationBenchmark {
+
+    @Param({"1", "8", "32"})
+    public int sensors;
+
+    @Param({"10", "100", "1000"})
+    public int obstacles;
+
+    @Param({"10"})
+    public int rayDensity;
+
+    private Simulation simulation;
+
+    @Setup
+    public void setup() {
+        simulation = BenchmarkWorld.createSimulation(obstacles, rayDensity, 42);
+        List<SensorConfig> sensorConfigs = new ArrayList<>();
+        String[] forms = {"CONE", "PYRAMID", "CUBOID", "CYLINDER"};
+        for (int i = 0; i < sensors; i++) {
+            sensorConfigs.add(BenchmarkWorld.createSensorConfig(i + 1, forms[i % forms.length]));
+        }
+        simulation.getConfig().setSensorConfigList(sensorConfigs);
+        simulation.prepare();
+        // The drone turns on the spot, so it never leaves the free area around the origin
+        simulation.getDrone().getLocation().requestDeltaHeading(Double.MAX_VALUE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        simulation.stop();
+    }
+
+    @Benchmark
+    public long tick() {
+        return simulation.runTicks(1);
+    }
+}
@@ -0,0 +1,48 @@
+package de.thi.dronesim;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of creating and preparing a simulation, including the discovery of the children.
+ * <p>
+ * {@link #coldStart()} runs once per fresh JVM, like a short-lived command line run or a test fork, so it includes
+ * loading the child registry and all classes. {@link #warmStart()} measures every following simulation of the JVM.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SimulationStartupBenchmark {
+
+    private Simulation simulation;
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        if (simulation != null) {
+            simulation.stop();
+            simulation = null;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(10)
+    public Simulation coldStart() {
+        simulation = new Simulation();
+        simulation.prepare();
+        return simulation;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public Simulation warmStart() {
+        simulation = new Simulation();
+        simulation.prepare();
+        return simulation;
+    }
+}
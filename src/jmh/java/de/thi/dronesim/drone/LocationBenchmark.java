@@ -0,0 +1,66 @@
+package de.thi.dronesim.drone;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the drone kinematics, for a single {@link Location} and a whole {@link DroneSwarm}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocationBenchmark {
+
+    @Param({"100", "10000"})
+    public int drones;
+
+    private Location location;
+    private DroneSwarm swarm;
+    private long ticks;
+
+    @Setup
+    public void setup() {
+        location = new Location(0, 10, 0);
+        swarm = new DroneSwarm(drones);
+        for (int i = 0; i < drones; i++) {
+            swarm.addDrone(i, 10, 0, .49f);
+        }
+    }
+
+    /**
+     * Keeps the drones turning and accelerating, otherwise the deltas are zero after a few ticks
+     */
+    private void requestInput() {
+        if (ticks++ % 64 == 0) {
+            double sign = (ticks & 64) == 0 ? 1 : -1;
+            location.requestDeltaHeading(sign * 90);
+            location.requestDeltaAirspeed(sign * 5);
+            location.requestDeltaVerticalSpeed(sign * 2);
+            for (int i = 0; i < swarm.size(); i++) {
+                swarm.requestDeltaHeading(i, sign * 90);
+                swarm.requestDeltaAirspeed(i, sign * 5);
+                swarm.requestDeltaVerticalSpeed(i, sign * 2);
+            }
+        }
+    }
+
+    @Benchmark
+    public Location locationUpdate() {
+        requestInput();
+        location.updateDelta(32);
+        location.updatePosition(32);
+        return location;
+    }
+
+    @Benchmark
+    public DroneSwarm swarmUpdate() {
+        requestInput();
+        swarm.updateDelta(32);
+        swarm.updatePosition(32);
+        return swarm;
+    }
+}
@@ -0,0 +1,98 @@
+package de.thi.dronesim.obstacle;
+
+import com.jme3.math.Vector3f;
+import de.thi.dronesim.BenchmarkWorld;
+import de.thi.dronesim.Simulation;
+import de.thi.dronesim.obstacle.entity.RayHitBuffer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the ray and collision checks of {@link UfoObjs}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UfoObjsBenchmark {
+    private static final int NUM_RAYS = 1024;
+
+    @Param({"10", "100", "1000"})
+    public int obstacles;
+
+    @Param({"5", "10", "20"})
+    public int rayDensity;
+
+    @Param({"false", "true"})
+    public boolean adaptiveSampling;
+
+    private Simulation simulation;
+    private UfoObjs ufoObjs;
+    private Vector3f[][] rays;
+    private final Vector3f dimension = new Vector3f(1, 1, 30);
+    private final RayHitBuffer buffer = new RayHitBuffer();
+    private int next;
+
+    @Setup
+    public void setup() {
+        simulation = BenchmarkWorld.createSimulation(obstacles, rayDensity, 42);
+        simulation.getConfig().getObstacleConfigList().get(0).config.adaptiveSampling = adaptiveSampling;
+        simulation.prepare();
+        ufoObjs = simulation.getChild(UfoObjs.class);
+        rays = BenchmarkWorld.createRays(NUM_RAYS, 7);
+    }
+
+    @TearDown
+    public void tearDown() {
+        simulation.stop();
+    }
+
+    /**
+     * @return the next random ray, so the benchmarks don't measure the same ray over and over
+     */
+    private Vector3f[] nextRay() {
+        next = (next + 1) & (NUM_RAYS - 1);
+        return rays[next];
+    }
+
+    @Benchmark
+    public Object checkSensorCone() {
+        Vector3f[] ray = nextRay();
+        return ufoObjs.checkSensorCone(ray[0], ray[1], 30, ray[2]);
+    }
+
+    @Benchmark
+    public Object checkSensorPyramid() {
+        Vector3f[] ray = nextRay();
+        return ufoObjs.checkSensorPyramid(ray[0], ray[1], 30, ray[2]);
+    }
+
+    @Benchmark
+    public Object checkSensorCuboid() {
+        Vector3f[] ray = nextRay();
+        return ufoObjs.checkSensorCuboid(ray[0], ray[1], dimension);
+    }
+
+    @Benchmark
+    public Object checkSensorCylinder() {
+        Vector3f[] ray = nextRay();
+        return ufoObjs.checkSensorCylinder(ray[0], ray[1], dimension);
+    }
+
+    @Benchmark
+    public void castSensorCone(Blackhole blackhole) {
+        Vector3f[] ray = nextRay();
+        ufoObjs.castSensorCone(ray[0], ray[1], 30, ray[2], buffer);
+        blackhole.consume(buffer.getHitCount());
+    }
+
+    @Benchmark
+    public boolean checkSphereHalfCollision() {
+        Vector3f[] ray = nextRay();
+        return ufoObjs.checkSphereHalfCollision(ray[0], 0.49f, 1);
+    }
+}
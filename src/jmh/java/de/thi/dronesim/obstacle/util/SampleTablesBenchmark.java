@@ -0,0 +1,73 @@
+package de.thi.dronesim.obstacle.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the golden angle samples of a ray fan, calculated per ray as before and read from {@link SampleTables}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SampleTablesBenchmark {
+
+    @Param({"1000", "30000"})
+    public int rayCount;
+
+    private final float radius = 2.5f;
+    private float[] out;
+
+    @Setup
+    public void setup() {
+        out = new float[2 * rayCount];
+        SampleTables.disk(rayCount);
+        SampleTables.sphere(300);
+    }
+
+    @Benchmark
+    public float[] diskCalculated() {
+        for (int l = 0; l < rayCount; l++) {
+            float dist = (float) Math.sqrt(l / (rayCount - 1f)) * radius;
+            out[2 * l] = dist * (float) Math.cos(SampleTables.GOLDEN_ANGLE * l);
+            out[2 * l + 1] = dist * (float) Math.sin(SampleTables.GOLDEN_ANGLE * l);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public float[] diskTable() {
+        float[] disk = SampleTables.disk(rayCount);
+        float scale = radius / (float) Math.sqrt(rayCount - 1f);
+        for (int l = 0; l < rayCount; l++) {
+            out[2 * l] = disk[2 * l] * scale;
+            out[2 * l + 1] = disk[2 * l + 1] * scale;
+        }
+        return out;
+    }
+
+    @Benchmark
+    public float sphereCalculated() {
+        float sum = 0;
+        for (int l = 0; l < 300; l++) {
+            float inclination = (float) Math.acos(1 - 2 * l / 300f);
+            float azimuth = SampleTables.GOLDEN_ANGLE * l;
+            float sin = (float) Math.sin(inclination);
+            sum += sin * (float) Math.cos(azimuth) + sin * (float) Math.sin(azimuth) + (float) Math.cos(inclination);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float sphereTable() {
+        float[] sphere = SampleTables.sphere(300);
+        float sum = 0;
+        for (int l = 0; l < 300; l++) {
+            sum += sphere[3 * l] + sphere[3 * l + 1] + sphere[3 * l + 2];
+        }
+        return sum;
+    }
+}
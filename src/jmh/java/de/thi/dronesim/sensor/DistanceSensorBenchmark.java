@@ -0,0 +1,60 @@
+package de.thi.dronesim.sensor;
+
+import com.jme3.math.Vector3f;
+import de.thi.dronesim.BenchmarkWorld;
+import de.thi.dronesim.Simulation;
+import de.thi.dronesim.sensor.dto.SensorResultDto;
+import de.thi.dronesim.sensor.types.DistanceSensor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link DistanceSensor#getSensorResult(Vector3f, Vector3f, float, Vector3f, SensorModule)}
+ * for every sensor form
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DistanceSensorBenchmark {
+    private static final int NUM_RAYS = 1024;
+
+    @Param({"10", "100", "1000"})
+    public int obstacles;
+
+    @Param({"10"})
+    public int rayDensity;
+
+    @Param({"CONE", "PYRAMID", "CUBOID", "CYLINDER"})
+    public String form;
+
+    private Simulation simulation;
+    private SensorModule sensorModule;
+    private DistanceSensor sensor;
+    private Vector3f[][] rays;
+    private int next;
+
+    @Setup
+    public void setup() {
+        simulation = BenchmarkWorld.createSimulation(obstacles, rayDensity, 42);
+        simulation.prepare();
+        sensorModule = simulation.getChild(SensorModule.class);
+        sensor = (DistanceSensor) sensorModule.createSensor(BenchmarkWorld.createSensorConfig(1, form));
+        rays = BenchmarkWorld.createRays(NUM_RAYS, 7);
+    }
+
+    @TearDown
+    public void tearDown() {
+        simulation.stop();
+    }
+
+    @Benchmark
+    public SensorResultDto getSensorResult() {
+        next = (next + 1) & (NUM_RAYS - 1);
+        Vector3f[] ray = rays[next];
+        return sensor.getSensorResult(ray[0], ray[1], 30, ray[2], sensorModule);
+    }
+}
@@ -0,0 +1,58 @@
+package de.thi.dronesim.wind;
+
+import de.thi.dronesim.Simulation;
+import de.thi.dronesim.drone.Location;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link Wind#applyWind(Location, double)}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WindBenchmark {
+
+    /**
+     * Number of layers on top of each other, every layer lasts ten minutes
+     */
+    @Param({"1", "10", "50"})
+    public int layers;
+
+    private Wind wind;
+    private Location location;
+    private double time;
+
+    @Setup
+    public void setup() {
+        List<WindLayer> windLayers = new ArrayList<>();
+        for (int t = 0; t < 6; t++) {
+            for (int a = 0; a < layers; a++) {
+                windLayers.add(new WindLayer(5 + a % 7, 8 + a % 7, t * 600, (t + 1) * 600, a * 20, (a + 1) * 20, (a * 37) % 360));
+            }
+        }
+        wind = new Wind(windLayers);
+        wind.initialize(new Simulation());
+        location = new Location(0, 0, 0);
+        location.setAirspeed(10);
+    }
+
+    @Benchmark
+    public Location applyWind() {
+        // Climb through all layers, after an hour of simulation time start over
+        time += 1000.0 / 32;
+        if (time >= 3_600_000) {
+            time = 0;
+            wind.onSimulationStop();
+        }
+        location.setY((float) ((time / 100) % (layers * 20)));
+        wind.applyWind(location, time);
+        return location;
+    }
+}
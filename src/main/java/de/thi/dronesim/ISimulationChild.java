@@ -1,7 +1,15 @@
 package de.thi.dronesim;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * The Interface every Simulation Child should Implement, automatically serves as a singleton Factory
+ * <p>
+ * Every simulation creates one instance of each class listed in {@code META-INF/services/de.thi.dronesim.ISimulationChild}.
+ * A listed class needs a public constructor without parameters. Other children can be added with
+ * {@link Simulation#addChild(ISimulationChild)}, listed ones can be left out with {@link Simulation#excludeChild(Class)}.
  *
  * @author Christian Schmied
  */
@@ -24,4 +32,21 @@ public interface ISimulationChild {
      * Handles the end of the simulation
      */
     default void onSimulationStop() {}
+
+    /**
+     * Writes the state, which changes while the simulation runs, into a snapshot.
+     * Everything that is loaded from the config is left out, so only children with a changing state need this.
+     * @param out Output of the child, separated from the other children
+     * @throws IOException Passed on from the output
+     * @see Simulation#snapshot()
+     */
+    default void writeState(DataOutput out) throws IOException {}
+
+    /**
+     * Restores the state written by {@link #writeState(DataOutput)}
+     * @param in Input with the state of this child
+     * @throws IOException When the state can't be read, e.g. because it doesn't match the config of the child
+     * @see Simulation#restore(SimulationSnapshot)
+     */
+    default void readState(DataInput in) throws IOException {}
 }
@@ -1,19 +1,26 @@
 package de.thi.dronesim;
 
 import de.thi.dronesim.drone.Drone;
+import de.thi.dronesim.drone.DroneSwarm;
+import de.thi.dronesim.drone.Integrator;
 import de.thi.dronesim.persistence.ConfigReader;
 import de.thi.dronesim.persistence.entity.LocationConfig;
 import de.thi.dronesim.persistence.entity.SimulationConfig;
+import de.thi.dronesim.profiling.SimulationProfiler;
+import de.thi.dronesim.recorder.FlightRecording;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
-import org.reflections.Reflections;
 import org.apache.logging.log4j.Logger;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Modifier;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Predicate;
 
 /**
  * Holds the whole Context of a Simulation
@@ -24,27 +31,38 @@ import java.util.concurrent.*;
 public class Simulation {
 
     private static final Logger logger = LogManager.getLogger(Simulation.class);
-    private static Set<Class<? extends ISimulationChild>> implementingChildren;
+    private static List<ServiceLoader.Provider<ISimulationChild>> childProviders;  // shared by all simulations, read-only
     private final SimulationConfig config;
     private final Map<Class<? extends ISimulationChild>, ISimulationChild> children;
+    private final Set<Class<? extends ISimulationChild>> excludedChildren = new HashSet<>();
     private final Drone drone;
+    private final DroneSwarm swarm = new DroneSwarm();
+    private final long randomSeed = new SplittableRandom().nextLong();      // used if the config has no seed
 
-    private SimulationState simState;
+    private volatile SimulationState simState;                         // may be changed by an autopilot thread
 
-    private double time = 0;                                           // elapsed simulation time since reset [ms]
+    private double time = 0;                                           // elapsed simulation time [ms], see getTime()
+    private long tickCount = 0;                                        // executed ticks, see getTickCount()
     private int tps = 32;
     private double speed = 1;
-    private final ScheduledExecutorService executorService;
+    private Integrator integrator = Integrator.SEMI_IMPLICIT;
+    private int physicsSubSteps = 1;
+    private ScheduledExecutorService executorService;                  // created on the first start, not needed to fast-forward
     private ScheduledFuture<?> status;
 
+    private FlightRecording replay;                                    // replayed instead of calculating the movement
+    private FlightRecording.Cursor replayCursor;
+
+    private long tickBudgetNanos = 0;                                  // period of a scheduled tick, 0 when fast-forwarding
+
     private final TreeMap<Integer, SimulationUpdateListener> updateListeners = new TreeMap<>();
+    private final SimulationProfiler profiler = new SimulationProfiler();
 
     /**
      * Constructor with empty SimulationConfig SimulationConfig
      */
     public Simulation() {
-        executorService = Executors.newScheduledThreadPool(1);
-        Simulation.scanForChildren();
+        Simulation.loadChildProviders();
         this.config = new SimulationConfig(); //Empty Config
         this.children = new HashMap<>();
         this.drone = new Drone();
@@ -52,23 +70,58 @@ public class Simulation {
     }
 
     public Simulation(String configPath) {
-        executorService = Executors.newScheduledThreadPool(1);
-        Simulation.scanForChildren();
-        this.config = ConfigReader.readConfig(configPath);
+        this(ConfigReader.readConfig(configPath));
+    }
+
+    /**
+     * Constructor with an already loaded config, e.g. to run the same config several times
+     * @param config Config of the simulation, must contain a location config
+     */
+    public Simulation(SimulationConfig config) {
+        Simulation.loadChildProviders();
+        this.config = config;
         this.children = new HashMap<>();
         LocationConfig locationConfig = config.getLocationConfig();
         this.drone = new Drone(locationConfig.getX(), locationConfig.getY(), locationConfig.getZ(), config.getDroneRadius());
+        if (config.getIntegrator() != null) {
+            setIntegrator(config.getIntegrator());
+        }
+        if (config.getPhysicsSubSteps() != null) {
+            setPhysicsSubSteps(config.getPhysicsSubSteps());
+        }
         this.simState = SimulationState.CREATED;
     }
 
     /**
-     *
+     * All random values of the simulation, the wind gusts and the orientation of the cylinder sensor samples, are
+     * derived from this seed, so two simulations with the same seed and the same inputs behave the same.
+     * <p>The seed is taken from {@link SimulationConfig#getSeed()}. Without a seed in the config, a random one is
+     * chosen once per simulation, which can be stored to repeat the run.</p>
+     * @return The seed of this simulation
+     */
+    public long getSeed() {
+        Long seed = config.getSeed();
+        return seed != null ? seed : randomSeed;
+    }
+
+    /**
+     * The time starts at 0 and advances with every tick. {@link #restore(SimulationSnapshot)} and
+     * {@link #seekReplay(double)} set it to the time of the snapshot or the record.
      * @return time Elapsed simulation time in ms
      */
     public double getTime() {
         return time;
     }
 
+    /**
+     * The count starts at 0 and increases with every tick. {@link #restore(SimulationSnapshot)} and
+     * {@link #seekReplay(double)} set it to the tick of the snapshot or the record.
+     * @return Number of executed ticks
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
     /**
      *
      * @return The amount of ticks happening each second
@@ -98,6 +151,7 @@ public class Simulation {
 
     /**
      * @param speed Speed of the simulation. A speed less that 1 causes the simulation to slow down.
+     *              This is also the speed of a replay, e.g. 0.1 or 1000.
      * @throws IllegalArgumentException When speedup is less than or equals zero
      */
     public void setSpeed(double speed) {
@@ -108,15 +162,80 @@ public class Simulation {
         }
     }
 
+    /**
+     * @return Integration of the drone movement
+     */
+    public Integrator getIntegrator() {
+        return integrator;
+    }
+
+    /**
+     * Sets how the movement of the drones is integrated, {@link Integrator#SEMI_IMPLICIT} by default.
+     * @param integrator Integration of the drone movement
+     * @see #setPhysicsSubSteps(int)
+     */
+    public void setIntegrator(Integrator integrator) {
+        if (integrator == null) throw new IllegalArgumentException("Integrator must not be null");
+        this.integrator = integrator;
+    }
+
+    /**
+     * @return Physics steps per tick
+     */
+    public int getPhysicsSubSteps() {
+        return physicsSubSteps;
+    }
+
+    /**
+     * Splits the movement of the drones into several steps per tick.
+     * <p>The drones move more accurately, while the wind, the sensors and all other listeners still run once per
+     * tick. This is much cheaper than raising the tps. With one step and {@link Integrator#SEMI_IMPLICIT} the
+     * classic update is used, see {@link de.thi.dronesim.drone.Location#integrate(int, int, Integrator)}.</p>
+     * @param physicsSubSteps Steps per tick, 1 by default
+     * @throws IllegalArgumentException When the number of steps is less than 1
+     */
+    public void setPhysicsSubSteps(int physicsSubSteps) {
+        if (physicsSubSteps < 1) throw new IllegalArgumentException("At least one physics step per tick is required");
+        this.physicsSubSteps = physicsSubSteps;
+    }
+
+    /**
+     * @return True if the classic update of {@link de.thi.dronesim.drone.Location} is used
+     */
+    private boolean isClassicPhysics() {
+        return physicsSubSteps == 1 && integrator == Integrator.SEMI_IMPLICIT;
+    }
+
     /**
      * Creates Child Instances and registers default update listeners
      */
     public void prepare() {
-        // Register location handlers
-        this.registerUpdateListener(event -> drone.getLocation().updateDelta(event.getTps()), 900);
-        this.registerUpdateListener(event -> drone.getLocation().updatePosition(event.getTps()), 800);
+        // Register location handlers, the swarm shares the priorities of the single drone
+        if (replay != null) {
+            // Overrides the wind as well, the sensors see the recorded state
+            this.registerUpdateListener(event -> replayCursor.applyTo(drone), 800);
+        } else {
+            // With sub-steps, the wind sees the speeds of the start of the tick and everything is updated at 800
+            this.registerUpdateListener(event -> {
+                if (isClassicPhysics()) {
+                    drone.getLocation().updateDelta(event.getTps());
+                    swarm.updateDelta(event.getTps());
+                }
+            }, 900);
+            this.registerUpdateListener(event -> {
+                if (isClassicPhysics()) {
+                    drone.getLocation().updatePosition(event.getTps());
+                    swarm.updatePosition(event.getTps());
+                } else {
+                    drone.getLocation().integrate(event.getTps(), physicsSubSteps, integrator);
+                    swarm.integrate(event.getTps(), physicsSubSteps, integrator);
+                }
+            }, 800);
+        }
 
         this.instantiateChildren();
+        // Children get notified on the first start
+        this.simState = SimulationState.PREPARED;
     }
 
     /**
@@ -138,34 +257,145 @@ public class Simulation {
         logger.info("Simulation started");
     }
 
+    /**
+     * Runs the simulation on the calling thread as fast as possible until the condition is met.
+     * <p>
+     * Ticks are executed back-to-back without any wall-clock pacing, so {@link #getSpeed()} has no effect.
+     * The simulation has the same state afterwards as if it was paused and can be continued by calling
+     * this method again or {@link #start()}. If the drone crashes, the simulation is stopped. A replay is paused
+     * after its last record.
+     * </p>
+     * @param condition Checked after every tick, the run ends as soon as it returns true
+     * @return The number of executed ticks
+     * @throws IllegalStateException When the simulation is already running on the scheduler
+     */
+    public long runUntil(Predicate<Simulation> condition) {
+        if (isRunning()) {
+            throw new IllegalStateException("Simulation is already running on the scheduler");
+        }
+        if (simState == SimulationState.STOPPED) {
+            return 0;
+        }
+        if (simState == SimulationState.PREPARED) {
+            // Notify all children that the simulation is about to start
+            children.forEach((key1, value1) -> value1.onSimulationStart());
+        }
+        if (isReplayFinished()) {
+            simState = SimulationState.PAUSED;
+            return 0;
+        }
+        simState = SimulationState.RUNNING;
+        tickBudgetNanos = 0;
+
+        long executed = 0;
+        // A listener might pause or stop the simulation, which ends the run as well
+        while (simState == SimulationState.RUNNING) {
+            executed++;
+            if (!tick()) {
+                stop();
+                break;
+            }
+            if (condition.test(this)) {
+                simState = SimulationState.PAUSED;
+            }
+        }
+        return executed;
+    }
+
+    /**
+     * Runs the simulation as fast as possible until the simulation time is reached.
+     * @param time Simulation time in ms
+     * @return The number of executed ticks
+     * @see Simulation#runUntil(Predicate)
+     */
+    public long runUntilTime(double time) {
+        if (this.time >= time) {
+            return 0;
+        }
+        return runUntil(simulation -> simulation.getTime() >= time);
+    }
+
+    /**
+     * Runs the given amount of ticks as fast as possible.
+     * @param ticks Number of ticks to execute
+     * @return The number of executed ticks
+     * @see Simulation#runUntil(Predicate)
+     */
+    public long runTicks(long ticks) {
+        if (ticks <= 0) {
+            return 0;
+        }
+        final long target = tickCount + ticks;
+        return runUntil(simulation -> simulation.getTickCount() >= target);
+    }
+
     /**
      * Schedules the task by the tps and speed
      */
     private void schedule() {
+        if (executorService == null || executorService.isShutdown()) {
+            executorService = Executors.newScheduledThreadPool(1);
+        }
         int period = (int) (1e6 / tps / speed);
+        tickBudgetNanos = period * 1000L;
         status = executorService.scheduleAtFixedRate(() -> {
-            // Create event
-            final SimulationUpdateEvent event = new SimulationUpdateEvent(drone, time, tps);
-            // Notify listeners
-            updateListeners.descendingMap().forEach((priority, listener) -> {
-                try {
-                    listener.onUpdate(event);
-                } catch (Throwable t) {
-                    logger.error( "Exception updating event listener");
-                    t.printStackTrace();
-                }
-            });
-            // Stop simulation if drone is crashed
-            if (drone.isCrashed()) {
+            if (!tick()) {
                 stop();
-                return;
             }
-            // Update time for next tick
-            time += 1000.0 / tps;
         }, 0, period, TimeUnit.MICROSECONDS);
         this.simState = SimulationState.RUNNING;
     }
 
+    /**
+     * Notifies all listeners once and advances the simulation time.
+     * @return False if the simulation has to be stopped, because the drone crashed
+     */
+    private boolean tick() {
+        if (replayCursor != null) {
+            if (tickCount >= replay.size()) {
+                // Seeked behind the last record
+                pauseReplay();
+                return true;
+            }
+            // Every tick shows the record with the same number
+            replayCursor.seek(tickCount);
+            time = replayCursor.getTime();
+        }
+        // Create event
+        final SimulationUpdateEvent event = new SimulationUpdateEvent(drone, swarm, time, tps);
+        final boolean profile = profiler.isEnabled();
+        final long tickStart = profile ? System.nanoTime() : 0;
+        // Notify listeners
+        updateListeners.descendingMap().forEach((priority, listener) -> {
+            final long start = profile ? System.nanoTime() : 0;
+            try {
+                listener.onUpdate(event);
+            } catch (Throwable t) {
+                logger.error( "Exception updating event listener");
+                t.printStackTrace();
+            }
+            if (profile) {
+                profiler.recordListener(priority, System.nanoTime() - start);
+            }
+        });
+        if (profile) {
+            profiler.recordTick(tickStart, System.nanoTime() - tickStart, tickBudgetNanos);
+        }
+        tickCount++;
+        // Stop simulation if drone is crashed
+        if (drone.isCrashed()) {
+            return false;
+        }
+        if (isReplayFinished()) {
+            logger.info("Replay finished");
+            pauseReplay();
+            return true;
+        }
+        // Update time for next tick
+        time += 1000.0 / tps;
+        return true;
+    }
+
     /**
      * Stops the current task and schedules it again.
      * Should be used when either the speed or the tps has changed.
@@ -181,9 +411,16 @@ public class Simulation {
      * Stops the simulation.
      */
     public void stop() {
-        status.cancel(true);
+        if (status != null) {
+            status.cancel(true);
+        }
+        // Release the scheduler thread, a new one is created if the simulation is started again
+        if (executorService != null) {
+            executorService.shutdown();
+        }
         // Notify all children that the simulation has stopped
         children.forEach((aClass, iSimulationChild) -> iSimulationChild.onSimulationStop());
+        profiler.stopReporting();
 
         logger.printf(Level.INFO, "Simulation stopped after %.2f seconds.",time);
         this.simState = SimulationState.STOPPED;
@@ -202,6 +439,172 @@ public class Simulation {
         this.simState = SimulationState.PAUSED;
     }
 
+    /**
+     * Replays a recording of a {@link de.thi.dronesim.recorder.FlightRecorder} instead of calculating the movement.
+     * <p>Every tick moves the drone to the recorded state, after the wind and before the sensors and all observers,
+     * so the sensors, e.g. with a changed config, and the gui see the recorded flight. The recorded tps are used,
+     * {@link #setSpeed(double)} sets the replay speed and {@link #seekReplay(double)} jumps to a point in time.
+     * The simulation pauses after the last record, so the children stay active and the replay can be continued
+     * after seeking. Requested deltas, e.g. of an autopilot, are ignored.</p>
+     * @param recording Opened recording, which has to stay open while the simulation runs
+     * @throws IllegalStateException When the simulation was already prepared
+     * @see de.thi.dronesim.recorder.FlightReplay#sensorReplay
+     */
+    public void setReplay(FlightRecording recording) {
+        if (simState != SimulationState.CREATED) {
+            throw new IllegalStateException("The replay has to be set before the simulation is prepared");
+        }
+        this.replay = recording;
+        this.replayCursor = recording.cursor();
+        this.tps = recording.getTps();
+    }
+
+    /**
+     * @return True if the simulation replays a recording
+     */
+    public boolean isReplaying() {
+        return replay != null;
+    }
+
+    /**
+     * Continues the replay with the first record at or after a point in time.
+     * <p>A replay, which paused at its end, can be continued afterwards. A stopped simulation can't seek, as its
+     * children were shut down by {@link ISimulationChild#onSimulationStop()}.</p>
+     * @param time Simulation time in ms
+     * @throws IllegalStateException When the simulation is no replay, running on the scheduler or was stopped
+     */
+    public void seekReplay(double time) {
+        if (replay == null) {
+            throw new IllegalStateException("The simulation doesn't replay a recording");
+        }
+        if (isRunning()) {
+            throw new IllegalStateException("Pause the simulation before seeking");
+        }
+        if (simState == SimulationState.STOPPED) {
+            throw new IllegalStateException("The simulation was stopped, start a new replay instead");
+        }
+        tickCount = replay.indexOf(time);
+        if (tickCount < replay.size()) {
+            replayCursor.seek(tickCount);
+            this.time = replayCursor.getTime();
+        } else {
+            this.time = time;
+        }
+    }
+
+    /**
+     * @return True if the simulation replays a recording and all records were shown
+     */
+    private boolean isReplayFinished() {
+        return replay != null && tickCount >= replay.size();
+    }
+
+    /**
+     * Pauses at the end of a replay, unlike {@link #stop()} the children aren't notified
+     */
+    private void pauseReplay() {
+        if (status != null) {
+            // Called by the scheduled tick itself, which must not be interrupted
+            status.cancel(false);
+        }
+        simState = SimulationState.PAUSED;
+    }
+
+    /**
+     * Captures the state of the simulation, so it can be continued from this point later with
+     * {@link #restore(SimulationSnapshot)}, as often as required.
+     * <p>The snapshot holds the time, the drone, the swarm and the state each child writes in
+     * {@link ISimulationChild#writeState(java.io.DataOutput)}. Update listeners which are no children, e.g. an observer,
+     * and the thread of an {@link de.thi.dronesim.autopilot.AsyncAutopilot} are not part of it.</p>
+     * @return The snapshot
+     * @throws IllegalStateException When the simulation is running on the scheduler
+     */
+    public SimulationSnapshot snapshot() {
+        if (isRunning()) {
+            throw new IllegalStateException("Pause the simulation before taking a snapshot");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SimulationSnapshot.MAGIC);
+            out.writeShort(SimulationSnapshot.VERSION);
+            out.writeDouble(time);
+            out.writeLong(tickCount);
+            out.writeInt(tps);
+            drone.writeState(out);
+            swarm.writeState(out);
+
+            // Every child gets its own block, so a child can't read into the state of the next one
+            out.writeInt(children.size());
+            ByteArrayOutputStream childBytes = new ByteArrayOutputStream(128);
+            DataOutputStream childOut = new DataOutputStream(childBytes);
+            for (ISimulationChild child : children.values()) {
+                childBytes.reset();
+                child.writeState(childOut);
+                childOut.flush();
+                out.writeUTF(child.getClass().getName());
+                out.writeInt(childBytes.size());
+                childBytes.writeTo(out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return SimulationSnapshot.wrap(bytes.toByteArray());
+    }
+
+    /**
+     * Loads a snapshot taken by {@link #snapshot()} of this or another simulation with the same config.
+     * <p>A stopped simulation, e.g. after a crash, can't be restored, as its children were shut down by
+     * {@link ISimulationChild#onSimulationStop()}. Restore the snapshot into a new, prepared simulation with the same
+     * config instead. The state of a child, which is not part of this simulation, is skipped.</p>
+     * @param snapshot The snapshot to restore
+     * @throws IllegalStateException When the simulation is running on the scheduler, isn't prepared yet or was
+     *                               stopped
+     * @throws IllegalArgumentException When the snapshot doesn't match the config, the simulation might be
+     *                                  partially restored then
+     */
+    public void restore(SimulationSnapshot snapshot) {
+        if (isRunning()) {
+            throw new IllegalStateException("Pause the simulation before restoring a snapshot");
+        }
+        if (simState == SimulationState.CREATED) {
+            throw new IllegalStateException("Prepare the simulation before restoring a snapshot");
+        }
+        if (simState == SimulationState.STOPPED) {
+            throw new IllegalStateException("The simulation was stopped, restore the snapshot into a new one");
+        }
+        Map<String, ISimulationChild> childrenByName = new HashMap<>();
+        children.values().forEach(child -> childrenByName.put(child.getClass().getName(), child));
+
+        try (DataInputStream in = snapshot.openStream()) {
+            // Header is checked by the snapshot
+            in.readInt();
+            in.readShort();
+            double time = in.readDouble();
+            long tickCount = in.readLong();
+            int tps = in.readInt();
+            drone.readState(in);
+            swarm.readState(in);
+
+            int childCount = in.readInt();
+            for (int i = 0; i < childCount; i++) {
+                String name = in.readUTF();
+                byte[] state = new byte[in.readInt()];
+                in.readFully(state);
+                ISimulationChild child = childrenByName.get(name);
+                if (child == null) {
+                    logger.warn("Skipping the state of {}, which is not a child of this simulation", name);
+                    continue;
+                }
+                child.readState(new DataInputStream(new ByteArrayInputStream(state)));
+            }
+            this.time = time;
+            this.tickCount = tickCount;
+            this.tps = tps;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Snapshot doesn't match this simulation", e);
+        }
+    }
+
     /**
      *
      * @return True if the simulation is running
@@ -243,6 +646,7 @@ public class Simulation {
             priority--;
         }
         updateListeners.put(priority, listener);
+        profiler.registerListener(priority, listener);
     }
 
     /**
@@ -269,6 +673,24 @@ public class Simulation {
         return drone;
     }
 
+    /**
+     * Get the profiler, which measures the duration of every listener and tick once enabled.
+     * @return The profiler of this simulation
+     */
+    public SimulationProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Get the swarm of additional drones, which share the obstacles and the wind with the single drone.
+     * <p>The swarm is empty by default. A crashed swarm drone is frozen, but doesn't stop the simulation.</p>
+     * <p>NOTE:<br>Do not modify the swarm while the simulation is running</p>
+     * @return The swarm of this simulation
+     */
+    public DroneSwarm getSwarm() {
+        return swarm;
+    }
+
     /**
      * Get the Configuration for the current Simulation
      * @return The Config
@@ -290,34 +712,88 @@ public class Simulation {
         return null;
     }
 
+    /**
+     * Adds a child, which is not registered as a service, e.g. an autopilot of a batch run or an anonymous class.
+     * <p>The child is initialized immediately. A child of the same class won't be created by {@link #prepare()}
+     * anymore, so this has to be called before preparing the simulation to replace a registered child.</p>
+     * @param child Child to add
+     * @throws IllegalStateException When the simulation was already started
+     */
+    public void addChild(ISimulationChild child) {
+        if (simState != SimulationState.CREATED && simState != SimulationState.PREPARED) {
+            throw new IllegalStateException("Children can't be added to a started simulation");
+        }
+        child.initialize(this);
+        children.put(child.getClass(), child);
+    }
+
+    /**
+     * Prevents {@link #prepare()} from creating a registered child, e.g. the gui in a headless run.
+     * @param childClass Class of the child as listed in the service file
+     * @throws IllegalStateException When the simulation was already prepared
+     */
+    public void excludeChild(Class<? extends ISimulationChild> childClass) {
+        if (simState != SimulationState.CREATED) {
+            throw new IllegalStateException("Children can only be excluded before the simulation is prepared");
+        }
+        excludedChildren.add(childClass);
+    }
+
+    /**
+     * @return The classes of all children which are created by {@link #prepare()} unless excluded
+     */
+    public static List<Class<? extends ISimulationChild>> getRegisteredChildren() {
+        loadChildProviders();
+        List<Class<? extends ISimulationChild>> classes = new ArrayList<>(childProviders.size());
+        childProviders.forEach(provider -> classes.add(provider.type()));
+        return classes;
+    }
+
     /**
      * Invoke the Constructors of all Children
      * and assign the Simulation to it
      */
     private void instantiateChildren() {
-        for (Class<? extends ISimulationChild> childClass : implementingChildren) {
-            if (Modifier.isAbstract(childClass.getModifiers())) {
+        for (ServiceLoader.Provider<ISimulationChild> provider : childProviders) {
+            Class<? extends ISimulationChild> childClass = provider.type();
+            if (excludedChildren.contains(childClass) || children.containsKey(childClass)) {
                 continue;
             }
+            ISimulationChild instance;
             try {
-                Constructor<? extends ISimulationChild> constructor = childClass.getConstructor();
-                ISimulationChild instance = constructor.newInstance();
-                instance.initialize(this);
-                this.children.put(childClass, instance);
-            } catch (InstantiationException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-                System.out.println(childClass.getName());
-                e.printStackTrace();
+                instance = provider.get();
+            } catch (ServiceConfigurationError e) {
+                logger.error("Could not create the simulation child {}", childClass.getName(), e);
                 throw new RuntimeException(e);
             }
+            instance.initialize(this);
+            this.children.put(childClass, instance);
         }
     }
 
-    // Handle Reflection, to discover all the Simulation Children
-    private synchronized static void scanForChildren() {
-        if (Simulation.implementingChildren == null) {
-            Reflections reflections = new Reflections(Simulation.class.getPackageName());
-            Simulation.implementingChildren = reflections.getSubTypesOf(ISimulationChild.class);
+    /**
+     * Loads the children listed in {@code META-INF/services/de.thi.dronesim.ISimulationChild} once per class loader.
+     * The classes are only loaded, the instances are created per simulation.
+     * Broken entries are logged and skipped, so a missing module doesn't stop the simulation.
+     */
+    private synchronized static void loadChildProviders() {
+        if (Simulation.childProviders != null) {
+            return;
+        }
+        List<ServiceLoader.Provider<ISimulationChild>> providers = new ArrayList<>();
+        Iterator<ServiceLoader.Provider<ISimulationChild>> iterator =
+                ServiceLoader.load(ISimulationChild.class, Simulation.class.getClassLoader()).stream().iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                providers.add(iterator.next());
+            } catch (ServiceConfigurationError e) {
+                logger.error("Skipping a simulation child: {}", e.getMessage());
+            }
         }
+        Simulation.childProviders = Collections.unmodifiableList(providers);
     }
 
 }
@@ -0,0 +1,101 @@
+package de.thi.dronesim;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Binary image of the state of a simulation at the end of a tick, created by {@link Simulation#snapshot()}.
+ * <p>
+ * The image only holds what changes while the simulation runs: the time, the drones and the state of the children,
+ * e.g. the gusts of the wind and the internals of the sensors. The config is not part of it, so a snapshot can only
+ * be restored into a simulation with the same config. It can be restored any number of times, e.g. to try
+ * different inputs from the same point.
+ * <p>
+ * A snapshot is immutable and can be shared between threads.
+ */
+public final class SimulationSnapshot {
+
+    static final int MAGIC = 0x44534e50;    // "DSNP"
+    static final short VERSION = 1;
+
+    private final byte[] data;
+    private final double time;
+    private final long tickCount;
+
+    private SimulationSnapshot(byte[] data, double time, long tickCount) {
+        this.data = data;
+        this.time = time;
+        this.tickCount = tickCount;
+    }
+
+    /**
+     * @param data Image written by {@link Simulation#snapshot()}, not copied
+     * @throws IllegalArgumentException When the data is no snapshot
+     */
+    static SimulationSnapshot wrap(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException("Data is no simulation snapshot");
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported snapshot version " + version);
+            }
+            return new SimulationSnapshot(data, in.readDouble(), in.readLong());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Snapshot is truncated", e);
+        }
+    }
+
+    /**
+     * Loads a snapshot, e.g. one stored in a file
+     * @param data Bytes returned by {@link #toByteArray()}
+     * @return The snapshot
+     * @throws IllegalArgumentException When the data is no snapshot
+     */
+    public static SimulationSnapshot fromByteArray(byte[] data) {
+        return wrap(Arrays.copyOf(data, data.length));
+    }
+
+    /**
+     * @return A copy of the image, which can be stored and loaded with {@link #fromByteArray(byte[])}
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(data, data.length);
+    }
+
+    /**
+     * @return Stream over the image, starting at the header
+     */
+    DataInputStream openStream() {
+        return new DataInputStream(new ByteArrayInputStream(data));
+    }
+
+    /**
+     * @return Simulation time of the snapshot in ms
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * @return Number of ticks executed before the snapshot
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * @return Size of the image in bytes
+     */
+    public int size() {
+        return data.length;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SimulationSnapshot[time=%.2fms, ticks=%d, %d bytes]", time, tickCount, data.length);
+    }
+}
@@ -1,15 +1,22 @@
 package de.thi.dronesim;
 
 import de.thi.dronesim.drone.Drone;
+import de.thi.dronesim.drone.DroneSwarm;
 
 public class SimulationUpdateEvent {
 
     private final Drone drone;
+    private final DroneSwarm swarm;
     private final double time;
     private final int tps;
 
     public SimulationUpdateEvent(Drone drone, double time, int tps) {
+        this(drone, null, time, tps);
+    }
+
+    public SimulationUpdateEvent(Drone drone, DroneSwarm swarm, double time, int tps) {
         this.drone = drone;
+        this.swarm = swarm;
         this.time = time;
         this.tps = tps;
     }
@@ -21,6 +28,13 @@ public class SimulationUpdateEvent {
         return drone;
     }
 
+    /**
+     * @return Swarm of additional drones, which is updated together with the drone, or null if the event has no swarm
+     */
+    public DroneSwarm getSwarm() {
+        return swarm;
+    }
+
     /**
      * @return Passed simulation time in ms
      */
@@ -3,25 +3,60 @@ package de.thi.dronesim.autopilot;
 import de.thi.dronesim.ISimulationChild;
 import de.thi.dronesim.Simulation;
 import de.thi.dronesim.SimulationUpdateEvent;
-import de.thi.dronesim.SimulationUpdateListener;
 import de.thi.dronesim.drone.Location;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
+ * Autopilot, which waits for conditions and requests changes with {@link #requestLocationDelta(DeltaRequest)}.
+ * <p>
+ * The autopilots of a simulation are run by its {@link AutopilotRuntime}, which checks the conditions once per tick
+ * and applies all requests of a tick in the order they were made.
+ * <p>
+ * {@link #autopilot()} is started on a thread of the runtime. It either blocks in
+ * {@link #awaitCondition(EventExpectation)} or registers a continuation with
+ * {@link #onCondition(EventExpectation, Runnable)} and returns. A continuation is run by the simulation thread in
+ * the tick its condition became true, so an autopilot doesn't occupy a thread while it waits.
+ * <p>
+ * By default the simulation doesn't wait for the autopilot. In lockstep mode every tick waits until the autopilot
+ * is waiting for a condition again or has finished, so the autopilot reacts in the same tick its condition became
+ * true. This makes runs repeatable and is required when the simulation is fast-forwarded.
+ *
  * @author Marvin Wittschen
  */
-public abstract class AsyncAutopilot implements ISimulationChild, SimulationUpdateListener, Runnable {
+public abstract class AsyncAutopilot implements ISimulationChild, Runnable {
+
+    private static final Logger logger = LogManager.getLogger(AsyncAutopilot.class);
+
+    /**
+     * Maximum number of requests, which wait for the next tick
+     */
+    public static final int REQUEST_QUEUE_CAPACITY = 64;
 
     private Simulation simulation;
-    private final Thread thread;
+    private AutopilotRuntime runtime;
+    private Future<?> task;
 
     protected volatile SimulationUpdateEvent lastEvent;
-    private volatile EventExpectation expectation;
-    private volatile DeltaRequest deltaRequest;
-    private volatile boolean conditionValid = false;
+    private final AtomicReference<Continuation> continuation = new AtomicReference<>();
+    private volatile boolean started = false;
+    private volatile boolean finished = false;          // autopilot() has returned
+    private volatile Thread simulationThread;           // thread waiting for the autopilot in lockstep mode
 
-    public AsyncAutopilot() {
-        thread = new Thread(this);
-    }
+    private final Queue<DeltaRequest> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    private volatile boolean lockstep = false;
 
     public abstract void autopilot() throws InterruptedException;
 
@@ -29,70 +64,205 @@ public abstract class AsyncAutopilot implements ISimulationChild, SimulationUpda
     public void run() {
         try {
             autopilot();
-        } catch (InterruptedException ignored) {}
+        } catch (InterruptedException ignored) {
+        } finally {
+            finished = true;
+            LockSupport.unpark(simulationThread);
+        }
     }
 
     @Override
     public void initialize(Simulation simulation) {
-        this.simulation = simulation;
-        simulation.registerUpdateListener(this);
+        AutopilotRuntime.of(simulation).register(this);
     }
 
-    @Override
-    public void onSimulationStart() {
-        thread.start();
+    /**
+     * Called by the runtime, which registers the autopilot
+     */
+    void attach(AutopilotRuntime runtime) {
+        this.runtime = runtime;
+        this.simulation = runtime.getSimulation();
     }
 
-    @Override
-    public void onSimulationStop() {
-        if (thread != null) {
-            thread.interrupt();
+    /**
+     * Starts the autopilot on a thread of the runtime, only once
+     */
+    synchronized void start(Executor threads) {
+        if (started) {
+            return;
         }
+        started = true;
+        FutureTask<?> future = new FutureTask<>(this, null);
+        task = future;
+        threads.execute(future);
     }
 
-    @Override
-    public Simulation getSimulation() {
-        return simulation;
+    /**
+     * Interrupts the autopilot, if it is still running
+     */
+    synchronized void cancel() {
+        continuation.set(null);
+        if (task != null) {
+            task.cancel(true);
+        }
     }
 
     @Override
-    public synchronized void onUpdate(final SimulationUpdateEvent event) {
-        lastEvent = event;
+    public void onSimulationStop() {
+        cancel();
+    }
+
+    /**
+     * @return The runtime, which runs this autopilot
+     */
+    public AutopilotRuntime getRuntime() {
+        return runtime;
+    }
 
-        // CHeck if statement is meat
-        if (expectation != null && expectation.evaluate(event)) {
-            conditionValid = true;
-            this.notifyAll();
+    /**
+     * @return True once {@link #autopilot()} has returned or was interrupted and no continuation is pending
+     */
+    public boolean isFinished() {
+        return finished && continuation.get() == null;
+    }
+
+    /**
+     * @return True if every tick waits for the autopilot
+     */
+    public boolean isLockstep() {
+        return lockstep;
+    }
+
+    /**
+     * @param lockstep True to let every tick wait until the autopilot waits for its next condition or has finished.
+     *                 An autopilot which neither waits nor finishes stops the simulation in this mode.
+     */
+    public void setLockstep(boolean lockstep) {
+        this.lockstep = lockstep;
+    }
+
+    /**
+     * Blocks the simulation until the autopilot waits for a condition or {@link #autopilot()} has returned
+     */
+    void awaitAutopilot() {
+        // The autopilot is started with the simulation, before that there is nothing to wait for
+        simulationThread = Thread.currentThread();
+        while (started && continuation.get() == null && !finished) {
+            LockSupport.park(this);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
         }
+    }
 
-        // Apply requested changes
-        if (deltaRequest != null) {
-            Location location = event.getDrone().getLocation();
-            location.requestDeltaAirspeed(deltaRequest.tas);
-            location.requestDeltaVerticalSpeed(deltaRequest.vas);
-            location.requestDeltaHeading(deltaRequest.hdg);
-            deltaRequest = null;
+    /**
+     * Runs the continuation of the autopilot, if its condition is met
+     *
+     * @return True if a continuation was run
+     */
+    boolean evaluateCondition(SimulationUpdateEvent event) {
+        Continuation pending = continuation.get();
+        if (pending == null || !pending.expectation.evaluate(event)) {
+            return false;
+        }
+        // Cleared first, so the continuation can wait for the next condition
+        if (!continuation.compareAndSet(pending, null)) {
+            return false;
         }
+        try {
+            pending.action.run();
+        } catch (RuntimeException e) {
+            logger.error("Exception in the continuation of an autopilot", e);
+        }
+        return true;
     }
 
     /**
-     * Requests a change in direction and speed
+     * Applies all queued requests
+     */
+    void applyRequests(Location location) {
+        DeltaRequest request;
+        while ((request = requests.poll()) != null) {
+            requestCount.decrementAndGet();
+            location.requestDeltaAirspeed(request.tas);
+            location.requestDeltaVerticalSpeed(request.vas);
+            location.requestDeltaHeading(request.hdg);
+        }
+    }
+
+    @Override
+    public Simulation getSimulation() {
+        return simulation;
+    }
+
+    /**
+     * Requests a change in direction and speed, which is applied in the next tick.
+     * Several requests within a tick are all applied.
      * @param request Changes to be applied
+     * @throws IllegalStateException When {@link #REQUEST_QUEUE_CAPACITY} requests are already waiting
      */
     public void requestLocationDelta(DeltaRequest request) {
-        this.deltaRequest = request;
+        if (requestCount.incrementAndGet() > REQUEST_QUEUE_CAPACITY) {
+            requestCount.decrementAndGet();
+            throw new IllegalStateException("Too many requests are waiting for the next tick");
+        }
+        requests.offer(request);
     }
 
     /**
-     * Wait until a given statement becomes true
+     * Runs the continuation on the simulation thread in the first tick, in which the statement is true.
+     * The continuation may request changes, which are applied in the same tick, and wait for the next condition.
+     * Nothing else may run in parallel on the thread of the autopilot, while the continuation touches its state.
+     *
+     * @param expectation  Statement to be checked
+     * @param continuation Runs once the statement is true
+     * @throws IllegalStateException When the autopilot already waits for a condition
+     */
+    public void onCondition(EventExpectation expectation, Runnable continuation) {
+        setContinuation(new Continuation(expectation, continuation));
+    }
+
+    private void setContinuation(Continuation pending) {
+        if (!continuation.compareAndSet(null, pending)) {
+            throw new IllegalStateException("The autopilot already waits for a condition");
+        }
+        LockSupport.unpark(simulationThread);
+    }
+
+    /**
+     * Wait until a given statement becomes true, blocks the thread of the autopilot,
+     * see {@link #onCondition(EventExpectation, Runnable)}
      * @param expectation Statement to be checked
      */
-    public synchronized void awaitCondition(EventExpectation expectation) throws InterruptedException {
-        this.expectation = expectation;
-        conditionValid = false;
-        while (!conditionValid) {
-            this.wait();
-       }
+    public void awaitCondition(EventExpectation expectation) throws InterruptedException {
+        Thread thread = Thread.currentThread();
+        AtomicBoolean met = new AtomicBoolean();
+        Continuation wake = new Continuation(expectation, () -> {
+            met.set(true);
+            LockSupport.unpark(thread);
+        });
+        setContinuation(wake);
+        try {
+            while (!met.get()) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            // Only still set, if the wait was interrupted
+            continuation.compareAndSet(wake, null);
+        }
+    }
+
+    private static final class Continuation {
+        private final EventExpectation expectation;
+        private final Runnable action;
+
+        private Continuation(EventExpectation expectation, Runnable action) {
+            this.expectation = expectation;
+            this.action = action;
+        }
     }
 
     public interface EventExpectation {
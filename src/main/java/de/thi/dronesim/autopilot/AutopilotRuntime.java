@@ -0,0 +1,135 @@
+package de.thi.dronesim.autopilot;
+
+import de.thi.dronesim.ISimulationChild;
+import de.thi.dronesim.Simulation;
+import de.thi.dronesim.SimulationUpdateEvent;
+import de.thi.dronesim.SimulationUpdateListener;
+import de.thi.dronesim.drone.Location;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs all {@link AsyncAutopilot}s of a simulation.
+ * <p>
+ * The runtime is the only update listener of the autopilots. Every tick it evaluates the pending conditions of all
+ * autopilots in one pass, runs the continuations whose condition is met and applies the queued requests.
+ * A continuation registered with {@link AsyncAutopilot#onCondition} runs right in this pass on the simulation thread,
+ * so an autopilot written that way holds no thread while it waits. An autopilot blocked in
+ * {@link AsyncAutopilot#awaitCondition} is woken by unparking its thread, so neither the simulation nor the
+ * autopilots block on a shared monitor.
+ * <p>
+ * {@link AsyncAutopilot#autopilot()} is started on a cached pool of daemon threads owned by the runtime, which is
+ * shut down when the simulation stops.
+ * <p>
+ * An autopilot, which is a child of the simulation, registers itself. Further autopilots, e.g. one per drone of a
+ * swarm, are added with {@link #register(AsyncAutopilot)}.
+ */
+public class AutopilotRuntime implements ISimulationChild, SimulationUpdateListener {
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final ExecutorService threads = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "autopilot-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<AsyncAutopilot> autopilots = new CopyOnWriteArrayList<>();
+    private Simulation simulation;
+    private volatile boolean started = false;
+
+    /**
+     * @param simulation Simulation of the autopilots
+     * @return The runtime of the simulation, which is created on the first call
+     */
+    public static synchronized AutopilotRuntime of(Simulation simulation) {
+        AutopilotRuntime runtime = simulation.getChild(AutopilotRuntime.class);
+        if (runtime == null) {
+            runtime = new AutopilotRuntime();
+            simulation.addChild(runtime);
+        }
+        return runtime;
+    }
+
+    @Override
+    public void initialize(Simulation simulation) {
+        this.simulation = simulation;
+        simulation.registerUpdateListener(this);
+    }
+
+    @Override
+    public Simulation getSimulation() {
+        return simulation;
+    }
+
+    /**
+     * Adds an autopilot, which is started with the simulation or at once, if the simulation was already started
+     *
+     * @param autopilot Autopilot to run
+     */
+    public void register(AsyncAutopilot autopilot) {
+        if (autopilots.contains(autopilot)) {
+            return;
+        }
+        autopilot.attach(this);
+        autopilots.add(autopilot);
+        if (started && !threads.isShutdown()) {
+            autopilot.start(threads);
+        }
+    }
+
+    /**
+     * @return The autopilots of the simulation
+     */
+    public List<AsyncAutopilot> getAutopilots() {
+        return autopilots;
+    }
+
+    @Override
+    public void onSimulationStart() {
+        started = true;
+        for (AsyncAutopilot autopilot : autopilots) {
+            autopilot.start(threads);
+        }
+    }
+
+    @Override
+    public void onSimulationStop() {
+        for (AsyncAutopilot autopilot : autopilots) {
+            autopilot.cancel();
+        }
+        threads.shutdownNow();
+    }
+
+    @Override
+    public void onUpdate(SimulationUpdateEvent event) {
+        for (AsyncAutopilot autopilot : autopilots) {
+            autopilot.lastEvent = event;
+            if (autopilot.isLockstep()) {
+                autopilot.awaitAutopilot();
+            }
+        }
+
+        // Wake everyone first, so the blocked autopilots react in parallel
+        boolean woken = false;
+        for (AsyncAutopilot autopilot : autopilots) {
+            woken |= autopilot.evaluateCondition(event);
+        }
+        if (woken) {
+            // Let the autopilots react within this tick
+            for (AsyncAutopilot autopilot : autopilots) {
+                if (autopilot.isLockstep()) {
+                    autopilot.awaitAutopilot();
+                }
+            }
+        }
+
+        Location location = event.getDrone().getLocation();
+        for (AsyncAutopilot autopilot : autopilots) {
+            autopilot.applyRequests(location);
+        }
+    }
+}
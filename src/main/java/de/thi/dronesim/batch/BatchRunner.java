@@ -0,0 +1,227 @@
+package de.thi.dronesim.batch;
+
+import de.thi.dronesim.Simulation;
+import de.thi.dronesim.SimulationState;
+import de.thi.dronesim.autopilot.AsyncAutopilot;
+import de.thi.dronesim.gui.GuiManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs many scenarios, each given by a config file, with the same autopilot.
+ * <p>
+ * Every scenario gets its own {@link Simulation} and its own autopilot instance. The simulations run in fast-forward
+ * mode (see {@link Simulation#runUntil(java.util.function.Predicate)}) on a fixed number of worker threads, until
+ * the autopilot has finished, the drone crashed or the time limit is reached.
+ * <p>
+ * The autopilots run in lockstep mode (see {@link AsyncAutopilot#setLockstep(boolean)}), so a scenario has the same
+ * outcome no matter how fast the simulation runs or how busy the machine is.
+ * <p>
+ * Usage: {@code BatchRunner <config directory> <autopilot class> [summary file] [threads] [time limit in s]}
+ */
+public class BatchRunner {
+
+    private static final Logger logger = LogManager.getLogger(BatchRunner.class);
+
+    private final Supplier<? extends AsyncAutopilot> autopilotFactory;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private double timeLimit = 600;
+
+    /**
+     * @param autopilotFactory Creates a new autopilot for every scenario
+     */
+    public BatchRunner(Supplier<? extends AsyncAutopilot> autopilotFactory) {
+        this.autopilotFactory = autopilotFactory;
+    }
+
+    /**
+     * @param threads Number of scenarios run at the same time, defaults to the number of cores
+     */
+    public void setThreads(int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("At least one thread is required");
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param timeLimit Simulation time in s after which a scenario is ended, defaults to 600 s
+     */
+    public void setTimeLimit(double timeLimit) {
+        if (timeLimit <= 0) throw new IllegalArgumentException("Time limit must be greater than zero");
+        this.timeLimit = timeLimit;
+    }
+
+    public double getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * Runs every json file of a directory
+     *
+     * @param configDirectory Directory with the config files, sub directories are ignored
+     * @return The outcome of every scenario, sorted by file name
+     * @throws UncheckedIOException When the directory can't be read
+     */
+    public List<RunOutcome> run(Path configDirectory) {
+        try (Stream<Path> files = Files.list(configDirectory)) {
+            return run(files
+                    .filter(file -> Files.isRegularFile(file) && file.getFileName().toString().endsWith(".json"))
+                    .sorted()
+                    .collect(Collectors.toList()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs the given scenarios in parallel
+     *
+     * @param configFiles Config files of the scenarios
+     * @return The outcome of every scenario in the same order as the config files
+     */
+    public List<RunOutcome> run(List<Path> configFiles) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, configFiles.size())), runnable -> {
+            Thread thread = new Thread(runnable, "batch-runner-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<RunOutcome>> futures = new ArrayList<>(configFiles.size());
+            for (Path configFile : configFiles) {
+                futures.add(workers.submit(() -> runScenario(configFile)));
+            }
+            List<RunOutcome> outcomes = new ArrayList<>(futures.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    outcomes.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    outcomes.add(RunOutcome.failed(configFiles.get(i).getFileName().toString(), e.getCause()));
+                }
+            }
+            return outcomes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch run was interrupted", e);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs a single scenario on the calling thread
+     *
+     * @param configFile Config file of the scenario
+     * @return The outcome of the scenario, a failed outcome if the scenario can't be loaded or throws
+     */
+    public RunOutcome runScenario(Path configFile) {
+        String scenario = configFile.getFileName().toString();
+        Simulation simulation = null;
+        try {
+            simulation = new Simulation(configFile.toString());
+            // Headless, the gui would change the look and feel of the whole JVM
+            simulation.excludeChild(GuiManager.class);
+            AsyncAutopilot autopilot = autopilotFactory.get();
+            autopilot.setLockstep(true);
+            simulation.addChild(autopilot);
+            simulation.prepare();
+            FlightStatistics statistics = new FlightStatistics(simulation);
+
+            final double timeLimitMs = timeLimit * 1000;
+            simulation.runUntil(sim -> autopilot.isFinished() || sim.getTime() >= timeLimitMs);
+
+            // A crash stops the simulation, which interrupts the autopilot as well
+            boolean crashed = simulation.getDrone().isCrashed();
+            RunOutcome outcome = new RunOutcome(scenario, crashed, !crashed && autopilot.isFinished(),
+                    simulation.getTime() / 1000, statistics.getDistance(), statistics.getMinObstacleDistance(), null);
+            logger.debug(outcome);
+            return outcome;
+        } catch (RuntimeException e) {
+            logger.warn("Scenario {} failed", scenario, e);
+            return RunOutcome.failed(scenario, e);
+        } finally {
+            // Ends the autopilot thread
+            if (simulation != null && simulation.getState() != SimulationState.STOPPED) {
+                simulation.stop();
+            }
+        }
+    }
+
+    /**
+     * Writes one line per outcome into a CSV file, an existing file is replaced
+     *
+     * @param outcomes Outcomes of a batch run
+     * @param file     CSV file
+     * @throws UncheckedIOException When the file can't be written
+     */
+    public static void writeSummary(List<RunOutcome> outcomes, Path file) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("scenario;crashed;finished;sim_time_s;distance_m;min_obstacle_distance_m;error");
+            writer.newLine();
+            for (RunOutcome outcome : outcomes) {
+                writer.write(String.format(Locale.ROOT, "%s;%b;%b;%.3f;%.3f;%.3f;%s", outcome.getScenario(),
+                        outcome.isCrashed(), outcome.isFinished(), outcome.getSimTime(), outcome.getDistance(),
+                        outcome.getMinObstacleDistance(), outcome.getError() != null ? outcome.getError() : ""));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        if (args.length < 2) {
+            System.err.println("Usage: BatchRunner <config directory> <autopilot class> [summary file] [threads] [time limit in s]");
+            System.exit(1);
+        }
+        Path configDirectory = Paths.get(args[0]);
+        Class<? extends AsyncAutopilot> autopilotClass = Class.forName(args[1]).asSubclass(AsyncAutopilot.class);
+        // Fail early instead of once per scenario
+        autopilotClass.getConstructor();
+        Path summaryFile = Paths.get(args.length > 2 ? args[2] : "batch-summary.csv");
+
+        BatchRunner runner = new BatchRunner(() -> {
+            try {
+                return autopilotClass.getConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not create the autopilot " + autopilotClass.getName(), e);
+            }
+        });
+        if (args.length > 3) {
+            runner.setThreads(Integer.parseInt(args[3]));
+        }
+        if (args.length > 4) {
+            runner.setTimeLimit(Double.parseDouble(args[4]));
+        }
+
+        List<RunOutcome> outcomes = runner.run(configDirectory);
+        writeSummary(outcomes, summaryFile);
+        outcomes.forEach(logger::info);
+        logger.info("{} scenarios, {} crashed, {} failed, summary written to {}", outcomes.size(),
+                outcomes.stream().filter(RunOutcome::isCrashed).count(),
+                outcomes.stream().filter(outcome -> !outcome.isSuccessful()).count(),
+                summaryFile.toAbsolutePath());
+    }
+}
@@ -0,0 +1,70 @@
+package de.thi.dronesim.batch;
+
+import de.thi.dronesim.Simulation;
+import de.thi.dronesim.SimulationUpdateEvent;
+import de.thi.dronesim.SimulationUpdateListener;
+import de.thi.dronesim.drone.Location;
+import de.thi.dronesim.obstacle.UfoObjs;
+
+/**
+ * Collects the flown distance and the closest approach to an obstacle of the drone of one simulation.
+ * <p>
+ * The statistics only read the location, so they are registered with priority 0 and see the position after
+ * the update of the tick.
+ */
+public class FlightStatistics implements SimulationUpdateListener {
+
+    private final UfoObjs obstacles;
+
+    private boolean started = false;
+    private float lastX, lastY, lastZ;
+    private double distance = 0;
+    private double minObstacleDistance = Double.POSITIVE_INFINITY;
+
+    /**
+     * Creates the statistics and registers them at the simulation
+     *
+     * @param simulation Prepared simulation
+     */
+    public FlightStatistics(Simulation simulation) {
+        this.obstacles = simulation.getChild(UfoObjs.class);
+        simulation.registerUpdateListener(this, 0);
+    }
+
+    @Override
+    public void onUpdate(SimulationUpdateEvent event) {
+        Location location = event.getDrone().getLocation();
+        float x = location.getX();
+        float y = location.getY();
+        float z = location.getZ();
+        if (started) {
+            float dx = x - lastX;
+            float dy = y - lastY;
+            float dz = z - lastZ;
+            distance += Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }
+        started = true;
+        lastX = x;
+        lastY = y;
+        lastZ = z;
+
+        if (obstacles != null) {
+            minObstacleDistance = Math.min(minObstacleDistance, obstacles.getObstacleDistance(x, y, z));
+        }
+    }
+
+    /**
+     * @return Length of the flown path in m
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return Smallest distance between the center of the drone and an obstacle in m,
+     * {@link Double#POSITIVE_INFINITY} without obstacles
+     */
+    public double getMinObstacleDistance() {
+        return minObstacleDistance;
+    }
+}
@@ -0,0 +1,89 @@
+package de.thi.dronesim.batch;
+
+/**
+ * Result of one scenario of a {@link BatchRunner}
+ */
+public final class RunOutcome {
+
+    private final String scenario;
+    private final boolean crashed;
+    private final boolean finished;
+    private final double simTime;
+    private final double distance;
+    private final double minObstacleDistance;
+    private final String error;
+
+    /**
+     * @param scenario            Name of the config file
+     * @param crashed             True if the drone crashed
+     * @param finished            True if the autopilot finished before the time limit
+     * @param simTime             Simulation time at the end of the run in s
+     * @param distance            Length of the flown path in m
+     * @param minObstacleDistance Smallest distance to an obstacle in m
+     * @param error               Message of the exception, which ended the run, or null
+     */
+    public RunOutcome(String scenario, boolean crashed, boolean finished, double simTime, double distance,
+                      double minObstacleDistance, String error) {
+        this.scenario = scenario;
+        this.crashed = crashed;
+        this.finished = finished;
+        this.simTime = simTime;
+        this.distance = distance;
+        this.minObstacleDistance = minObstacleDistance;
+        this.error = error;
+    }
+
+    /**
+     * @param scenario Name of the config file
+     * @param error    Exception, which ended the run
+     * @return The outcome of a run that couldn't be executed
+     */
+    public static RunOutcome failed(String scenario, Throwable error) {
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        return new RunOutcome(scenario, false, false, 0, 0, Double.POSITIVE_INFINITY, message);
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public boolean isCrashed() {
+        return crashed;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public double getSimTime() {
+        return simTime;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public double getMinObstacleDistance() {
+        return minObstacleDistance;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return True if the run ended without an exception
+     */
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        if (error != null) {
+            return String.format("%s: error=%s", scenario, error);
+        }
+        return String.format("%s: crashed=%b finished=%b time=%.2fs distance=%.2fm minObstacleDistance=%.2fm",
+                scenario, crashed, finished, simTime, distance, minObstacleDistance);
+    }
+}
@@ -1,5 +1,9 @@
 package de.thi.dronesim.drone;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 public class Drone {
 
     // TODO: Aktuell ein Dummy für ASensor, hier müssen die nötigen Werte aus UfoSim ausgelagert werden.
@@ -27,6 +31,15 @@ public class Drone {
     	this.radius = radius;
     }
 
+    /**
+     * Creates a snapshot of another drone, changes to the copy don't affect the original
+     */
+    public Drone(Drone other) {
+        location = new Location(other.location);
+        radius = other.radius;
+        crashed = other.crashed;
+    }
+
     public Location getLocation() {
         return location;
     }
@@ -46,4 +59,22 @@ public class Drone {
     public void setCrashed(boolean crashed) {
         this.crashed = crashed;
     }
+
+    /**
+     * Writes the radius, the crash flag and the location, e.g. into a snapshot of the simulation
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeFloat(radius);
+        out.writeBoolean(crashed);
+        location.writeState(out);
+    }
+
+    /**
+     * Replaces the state with the one written by {@link #writeState(DataOutput)}
+     */
+    public void readState(DataInput in) throws IOException {
+        radius = in.readFloat();
+        crashed = in.readBoolean();
+        location.readState(in);
+    }
 }
@@ -0,0 +1,603 @@
+package de.thi.dronesim.drone;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * State of many drones stored as structure of arrays.
+ * <p>
+ * Every field of {@link Location} is stored in its own primitive array, so a tick updates all drones of the swarm
+ * in one tight loop. The kinematics are the same static helpers {@link Location#updateDelta(int)} and
+ * {@link Location#updatePosition(int)} use, a drone of the swarm moves exactly like a single {@link Drone}
+ * with the same inputs.
+ * <p>
+ * Crashed drones are frozen and skipped by all updates.
+ * <p>
+ * NOTE: Do not modify the swarm from another thread while the simulation is running
+ */
+public class DroneSwarm {
+
+    private int size = 0;
+    private int crashedCount = 0;
+
+    private float[] x;                  // Position on x-axis                       [m]
+    private float[] y;                  // Position on y-axis                       [m]
+    private float[] z;                  // Position on z-axis                       [m]
+    private float[] movementX;          // Travel direction along x-axis per tick   [m]
+    private float[] movementY;          // Travel direction along y-axis per tick   [m]
+    private float[] movementZ;          // Travel direction along z-axis per tick   [m]
+    private float[] radius;             // Spherical hitbox radius                  [m]
+    private boolean[] crashed;
+
+    private double[] track;             // True movement direction                  [deg]
+    private double[] hdg;               // Direction in which the A/C faces         [deg]
+    private double[] tas;               // Speed relative to the wind               [m/s]
+    private double[] gs;                // Speed over ground                        [m/s]
+    private double[] vs;                // Speed along y-axis                       [m/s]
+    private double[] pitch;             // Pitch angle of the A/C                   [deg]
+
+    private double[] deltaHdg;          // Requested, not applied change of hdg     [deg]
+    private double[] deltaTas;          // Requested, not applied change of tas     [m/s]
+    private double[] deltaVs;           // Requested, not applied change of vs      [m/s]
+
+    private double[] trigTrack;         // Track of the cached factors, NaN if not calculated yet   [deg]
+    private double[] trackFactorX;      // Share of the ground speed along the x-axis at trigTrack
+    private double[] trackFactorZ;      // Share of the ground speed along the z-axis at trigTrack
+
+    private Location stepper;           // Integrates one drone after the other, see integrate
+
+    public DroneSwarm() {
+        this(16);
+    }
+
+    /**
+     * @param capacity Initial number of drones
+     */
+    public DroneSwarm(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
+
+    private void allocate(int capacity) {
+        x = new float[capacity];
+        y = new float[capacity];
+        z = new float[capacity];
+        movementX = new float[capacity];
+        movementY = new float[capacity];
+        movementZ = new float[capacity];
+        radius = new float[capacity];
+        crashed = new boolean[capacity];
+        track = new double[capacity];
+        hdg = new double[capacity];
+        tas = new double[capacity];
+        gs = new double[capacity];
+        vs = new double[capacity];
+        pitch = new double[capacity];
+        deltaHdg = new double[capacity];
+        deltaTas = new double[capacity];
+        deltaVs = new double[capacity];
+        trigTrack = new double[capacity];
+        trackFactorX = new double[capacity];
+        trackFactorZ = new double[capacity];
+    }
+
+    /**
+     * Grows the arrays, so the swarm can hold at least the given number of drones
+     * @param capacity Number of drones
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= x.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, x.length + (x.length >> 1));
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        z = Arrays.copyOf(z, newCapacity);
+        movementX = Arrays.copyOf(movementX, newCapacity);
+        movementY = Arrays.copyOf(movementY, newCapacity);
+        movementZ = Arrays.copyOf(movementZ, newCapacity);
+        radius = Arrays.copyOf(radius, newCapacity);
+        crashed = Arrays.copyOf(crashed, newCapacity);
+        track = Arrays.copyOf(track, newCapacity);
+        hdg = Arrays.copyOf(hdg, newCapacity);
+        tas = Arrays.copyOf(tas, newCapacity);
+        gs = Arrays.copyOf(gs, newCapacity);
+        vs = Arrays.copyOf(vs, newCapacity);
+        pitch = Arrays.copyOf(pitch, newCapacity);
+        deltaHdg = Arrays.copyOf(deltaHdg, newCapacity);
+        deltaTas = Arrays.copyOf(deltaTas, newCapacity);
+        deltaVs = Arrays.copyOf(deltaVs, newCapacity);
+        trigTrack = Arrays.copyOf(trigTrack, newCapacity);
+        trackFactorX = Arrays.copyOf(trackFactorX, newCapacity);
+        trackFactorZ = Arrays.copyOf(trackFactorZ, newCapacity);
+    }
+
+    /**
+     * Adds a resting drone to the swarm.
+     * @param x Position on x-axis in m
+     * @param y Position on y-axis in m
+     * @param z Position on z-axis in m
+     * @param radius Spherical hitbox radius in m
+     * @return The index of the new drone
+     */
+    public int addDrone(float x, float y, float z, float radius) {
+        ensureCapacity(size + 1);
+        int i = size++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.z[i] = z;
+        this.radius[i] = radius;
+        this.trigTrack[i] = Double.NaN;
+        return i;
+    }
+
+    /**
+     * Removes all drones, the memory is kept
+     */
+    public void clear() {
+        // Reset the used part, so added drones start at rest again
+        Arrays.fill(movementX, 0, size, 0);
+        Arrays.fill(movementY, 0, size, 0);
+        Arrays.fill(movementZ, 0, size, 0);
+        Arrays.fill(crashed, 0, size, false);
+        Arrays.fill(track, 0, size, 0);
+        Arrays.fill(hdg, 0, size, 0);
+        Arrays.fill(tas, 0, size, 0);
+        Arrays.fill(gs, 0, size, 0);
+        Arrays.fill(vs, 0, size, 0);
+        Arrays.fill(pitch, 0, size, 0);
+        Arrays.fill(deltaHdg, 0, size, 0);
+        Arrays.fill(deltaTas, 0, size, 0);
+        Arrays.fill(deltaVs, 0, size, 0);
+        size = 0;
+        crashedCount = 0;
+    }
+
+    /**
+     * Writes all drones, e.g. into a snapshot of the simulation. The values of a drone are written in the same order
+     * as {@link Location#writeState(DataOutput)} does.
+     * @param out Output of the drones
+     * @throws IOException Passed on from the output
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeFloat(radius[i]);
+            out.writeBoolean(crashed[i]);
+            out.writeFloat(x[i]);
+            out.writeFloat(y[i]);
+            out.writeFloat(z[i]);
+            out.writeFloat(movementX[i]);
+            out.writeFloat(movementY[i]);
+            out.writeFloat(movementZ[i]);
+            out.writeDouble(track[i]);
+            out.writeDouble(hdg[i]);
+            out.writeDouble(tas[i]);
+            out.writeDouble(gs[i]);
+            out.writeDouble(vs[i]);
+            out.writeDouble(pitch[i]);
+            out.writeDouble(deltaHdg[i]);
+            out.writeDouble(deltaTas[i]);
+            out.writeDouble(deltaVs[i]);
+        }
+    }
+
+    /**
+     * Replaces all drones with the ones written by {@link #writeState(DataOutput)}
+     * @param in Input of the drones
+     * @throws IOException Passed on from the input
+     */
+    public void readState(DataInput in) throws IOException {
+        clear();
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid swarm size " + count);
+        }
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            radius[i] = in.readFloat();
+            crashed[i] = in.readBoolean();
+            x[i] = in.readFloat();
+            y[i] = in.readFloat();
+            z[i] = in.readFloat();
+            movementX[i] = in.readFloat();
+            movementY[i] = in.readFloat();
+            movementZ[i] = in.readFloat();
+            track[i] = in.readDouble();
+            hdg[i] = in.readDouble();
+            tas[i] = in.readDouble();
+            gs[i] = in.readDouble();
+            vs[i] = in.readDouble();
+            pitch[i] = in.readDouble();
+            deltaHdg[i] = in.readDouble();
+            deltaTas[i] = in.readDouble();
+            deltaVs[i] = in.readDouble();
+            trigTrack[i] = Double.NaN;
+            if (crashed[i]) {
+                crashedCount++;
+            }
+        }
+        size = count;
+    }
+
+    /**
+     * Updates the positions and movement vectors of all drones.
+     * @param updateRate Updates per second.
+     * @see Location#updatePosition(int)
+     */
+    public void updatePosition(int updateRate) {
+        final double scale = 1.0 / updateRate;
+        for (int i = 0; i < size; i++) {
+            if (crashed[i]) {
+                continue;
+            }
+            // The factors are only calculated again once the track changed, like Location does
+            if (track[i] != trigTrack[i]) {
+                trackFactorX[i] = Location.directionFactorX(track[i]);
+                trackFactorZ[i] = Location.directionFactorZ(track[i]);
+                trigTrack[i] = track[i];
+            }
+            float mx = Location.tickMovement(trackFactorX[i] * gs[i], scale);
+            float mz = Location.tickMovement(trackFactorZ[i] * gs[i], scale);
+            float my = Location.tickMovement(vs[i], scale);
+            movementX[i] = mx;
+            movementY[i] = my;
+            movementZ[i] = mz;
+            x[i] += mx;
+            y[i] += my;
+            z[i] += mz;
+        }
+    }
+
+    /**
+     * Calculates airspeed, vertical speed and heading of all drones according to their deltas.
+     * @param updateRate Amount of updates per second
+     * @see Location#updateDelta(int)
+     */
+    public void updateDelta(int updateRate) {
+        final double accelerationHorizontal = Location.ACCELERATION_HORIZONTAL / updateRate;
+        final double accelerationVertical = Location.ACCELERATION_VERTICAL / updateRate;
+        for (int i = 0; i < size; i++) {
+            if (crashed[i]) {
+                continue;
+            }
+            // True Air Speed
+            if (deltaTas[i] != 0) {
+                double change = Location.speedChange(deltaTas[i], accelerationHorizontal);
+                tas[i] = Location.clampAirspeed(tas[i] + change);
+                deltaTas[i] -= change;
+                // Set airspeed as ground speed
+                gs[i] = tas[i];
+            }
+
+            // Vertical Speed
+            if (deltaVs[i] != 0) {
+                double change = Location.speedChange(deltaVs[i], accelerationVertical);
+                vs[i] = Location.clampVerticalSpeed(vs[i] + change);
+                deltaVs[i] -= change;
+            }
+
+            // Heading
+            if (deltaHdg[i] != 0) {
+                double change = Location.headingChange(deltaHdg[i], 1);
+                hdg[i] = Location.wrapHeading(hdg[i] + change);
+                deltaHdg[i] -= change;
+                // Set track as hdg.
+                track[i] = hdg[i];
+            }
+        }
+    }
+
+    /**
+     * Creates an independent {@link Drone} with the current state of a drone of the swarm,
+     * e.g. to run a sensor or an autopilot written for a single drone.
+     * @param index Index of the drone
+     * @return A snapshot of the drone
+     */
+    public Drone toDrone(int index) {
+        checkIndex(index);
+        Drone drone = new Drone(x[index], y[index], z[index], radius[index]);
+        Location location = drone.getLocation();
+        location.getMovement().set(movementX[index], movementY[index], movementZ[index]);
+        location.setHeading(hdg[index]);
+        location.setAirspeed(tas[index]);
+        location.setVerticalSpeed(vs[index]);
+        location.setTrack(track[index]);
+        location.setGroundSpeed(gs[index]);
+        location.setPitch(pitch[index]);
+        location.requestDeltaHeading(deltaHdg[index]);
+        location.requestDeltaAirspeed(deltaTas[index]);
+        location.requestDeltaVerticalSpeed(deltaVs[index]);
+        drone.setCrashed(crashed[index]);
+        return drone;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Drone " + index + " is not part of the swarm of size " + size);
+        }
+    }
+
+    /**
+     * Updates all drones for one tick in several smaller steps, see {@link Location#integrate(int, int, Integrator)}.
+     * <p>
+     * Every drone is integrated by the same {@link Location}, so a drone of the swarm still moves exactly like a
+     * single drone. The sub-steps are meant for accuracy, not for large swarms, the classic update is faster.
+     * </p>
+     * @param updateRate Ticks per second
+     * @param subSteps Steps per tick, at least 1
+     * @param integrator Integration of the position over a step
+     */
+    public void integrate(int updateRate, int subSteps, Integrator integrator) {
+        if (stepper == null) {
+            stepper = new Location();
+        }
+        for (int i = 0; i < size; i++) {
+            if (crashed[i]) {
+                continue;
+            }
+            stepper.setKinematics(x[i], y[i], z[i], track[i], hdg[i], tas[i], gs[i], vs[i],
+                    deltaHdg[i], deltaTas[i], deltaVs[i]);
+            stepper.integrate(updateRate, subSteps, integrator);
+            x[i] = stepper.getX();
+            y[i] = stepper.getY();
+            z[i] = stepper.getZ();
+            movementX[i] = stepper.getMovement().x;
+            movementY[i] = stepper.getMovement().y;
+            movementZ[i] = stepper.getMovement().z;
+            track[i] = stepper.getTrack();
+            hdg[i] = stepper.getHeading();
+            tas[i] = stepper.getAirspeed();
+            gs[i] = stepper.getGroundSpeed();
+            vs[i] = stepper.getVerticalSpeed();
+            deltaHdg[i] = stepper.getDeltaHeading();
+            deltaTas[i] = stepper.getDeltaAirspeed();
+            deltaVs[i] = stepper.getDeltaVerticalSpeed();
+        }
+    }
+
+    /* =================================================================================================================
+     * Getter and setter
+     * ============================================================================================================== */
+
+    /**
+     * @return Number of drones in the swarm
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Number of crashed drones
+     */
+    public int getCrashedCount() {
+        return crashedCount;
+    }
+
+    public boolean isCrashed(int index) {
+        return crashed[index];
+    }
+
+    public void setCrashed(int index, boolean crashed) {
+        checkIndex(index);
+        if (this.crashed[index] != crashed) {
+            crashedCount += crashed ? 1 : -1;
+            this.crashed[index] = crashed;
+        }
+    }
+
+    /**
+     * @return Spherical hitbox radius in m
+     */
+    public float getRadius(int index) {
+        return radius[index];
+    }
+
+    public void setRadius(int index, float radius) {
+        checkIndex(index);
+        this.radius[index] = radius;
+    }
+
+    /**
+     * @return Position on x-axis in m
+     */
+    public float getX(int index) {
+        return x[index];
+    }
+
+    /**
+     * @return Position on y-axis in m
+     */
+    public float getY(int index) {
+        return y[index];
+    }
+
+    /**
+     * @return Position on z-axis in m
+     */
+    public float getZ(int index) {
+        return z[index];
+    }
+
+    /**
+     * Sets the position of a drone.
+     * @param x Position on x-axis in m
+     * @param y Position on y-axis in m
+     * @param z Position on z-axis in m
+     */
+    public void setPosition(int index, float x, float y, float z) {
+        checkIndex(index);
+        this.x[index] = x;
+        this.y[index] = y;
+        this.z[index] = z;
+    }
+
+    /**
+     * @return Movement along the x-axis during the last tick in m
+     */
+    public float getMovementX(int index) {
+        return movementX[index];
+    }
+
+    /**
+     * @return Movement along the y-axis during the last tick in m
+     */
+    public float getMovementY(int index) {
+        return movementY[index];
+    }
+
+    /**
+     * @return Movement along the z-axis during the last tick in m
+     */
+    public float getMovementZ(int index) {
+        return movementZ[index];
+    }
+
+    /**
+     * @return The actual travel direction in deg
+     */
+    public double getTrack(int index) {
+        return track[index];
+    }
+
+    /**
+     * Sets the track (true travel direction).
+     * @see Location#setTrack(double)
+     */
+    public void setTrack(int index, double track) {
+        checkIndex(index);
+        this.track[index] = track;
+    }
+
+    /**
+     * @return Heading in deg
+     */
+    public double getHeading(int index) {
+        return hdg[index];
+    }
+
+    /**
+     * Sets the heading and sets the corresponding delta to zero.
+     * @param hdg Heading in deg.
+     */
+    public void setHeading(int index, double hdg) {
+        checkIndex(index);
+        this.hdg[index] = hdg;
+        this.deltaHdg[index] = 0;
+    }
+
+    /**
+     * @return The true airspeed in m/s
+     */
+    public double getAirspeed(int index) {
+        return tas[index];
+    }
+
+    /**
+     * Sets the airspeed and sets the corresponding delta to zero.
+     * @param tas True airspeed in m/s. (0 <= tas)
+     */
+    public void setAirspeed(int index, double tas) {
+        checkIndex(index);
+        this.tas[index] = tas;
+        this.deltaTas[index] = 0;
+    }
+
+    /**
+     * @return The projected speed over ground in m/s
+     */
+    public double getGroundSpeed(int index) {
+        return gs[index];
+    }
+
+    /**
+     * Sets the speed over ground.
+     * @see Location#setGroundSpeed(double)
+     */
+    public void setGroundSpeed(int index, double gs) {
+        checkIndex(index);
+        this.gs[index] = gs;
+    }
+
+    /**
+     * @return The vertical speed in m/s
+     */
+    public double getVerticalSpeed(int index) {
+        return vs[index];
+    }
+
+    /**
+     * Sets the vertical speed and sets the corresponding delta to zero.
+     * @param vs Vertical speed in m/s
+     */
+    public void setVerticalSpeed(int index, double vs) {
+        checkIndex(index);
+        this.vs[index] = vs;
+        this.deltaVs[index] = 0;
+    }
+
+    /**
+     * @return The inclination of the x-axis in deg
+     */
+    public double getPitch(int index) {
+        return pitch[index];
+    }
+
+    public void setPitch(int index, double pitch) {
+        checkIndex(index);
+        this.pitch[index] = pitch;
+    }
+
+    /* -----------------------------------------------------------------------------------------------------------------
+     * Deltas
+     * -------------------------------------------------------------------------------------------------------------- */
+
+    /**
+     * @return Requested, not applied change of heading in deg
+     */
+    public double getDeltaHeading(int index) {
+        return deltaHdg[index];
+    }
+
+    /**
+     * Requests a change of heading. The change is summed up with all previous request changes.
+     * @param delta Change in deg
+     */
+    public void requestDeltaHeading(int index, double delta) {
+        checkIndex(index);
+        this.deltaHdg[index] += delta;
+    }
+
+    /**
+     * @return The requested but not applied change of airspeed in m/s
+     */
+    public double getDeltaAirspeed(int index) {
+        return deltaTas[index];
+    }
+
+    /**
+     * Requests a change of airspeed. The change is summed up with all previous request changes.
+     * @param delta Change in m/s
+     */
+    public void requestDeltaAirspeed(int index, double delta) {
+        checkIndex(index);
+        this.deltaTas[index] += delta;
+    }
+
+    /**
+     * @return The requested but not applied change of vertical speed in m/s
+     */
+    public double getDeltaVerticalSpeed(int index) {
+        return deltaVs[index];
+    }
+
+    /**
+     * Requests a change of vertical speed. The change is summed up with all previous request changes.
+     * @param delta Change in m/s
+     */
+    public void requestDeltaVerticalSpeed(int index, double delta) {
+        checkIndex(index);
+        this.deltaVs[index] += delta;
+    }
+}
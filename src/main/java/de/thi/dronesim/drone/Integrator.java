@@ -0,0 +1,25 @@
+package de.thi.dronesim.drone;
+
+/**
+ * Integration of the position over one physics step, see {@link Location#integrate(int, int, Integrator)}
+ */
+public enum Integrator {
+
+    /**
+     * Explicit Euler, moves with the speed at the start of a step
+     */
+    EULER,
+
+    /**
+     * Semi-implicit Euler, updates the speed first and moves with the speed at the end of a step.
+     * With one step per tick this is the classic update of {@link Location#updateDelta(int)} and
+     * {@link Location#updatePosition(int)}.
+     */
+    SEMI_IMPLICIT,
+
+    /**
+     * Classic Runge-Kutta of 4th order, moves with the weighted speeds at the start, the middle and the end of a step.
+     * Exact for constant accelerations and much closer than Euler in turns.
+     */
+    RK4
+}
@@ -2,17 +2,22 @@ package de.thi.dronesim.drone;
 
 import com.jme3.math.Vector3f;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * @author Marvin Wittschen
  */
 public class Location {
 
-    private static final double ACCELERATION_HORIZONTAL = 10 / 3.6;     // Constant horizontal acceleration     [m/s^2]
-    private static final double ACCELERATION_VERTICAL = 10 / 3.6;       // Constant vertical acceleration       [m/s^2]
-    private static final double V_HORIZONTAL_MAX = 50 / 3.6;            // Maximum horizontal speed             [m/s]
-    private static final double V_VERTICAL_MAX = 50 / 3.6;              // Maximum horizontal speed             [m/s]
+    // Shared with DroneSwarm, so a drone of a swarm moves exactly like a single drone
+    static final double ACCELERATION_HORIZONTAL = 10 / 3.6;     // Constant horizontal acceleration     [m/s^2]
+    static final double ACCELERATION_VERTICAL = 10 / 3.6;       // Constant vertical acceleration       [m/s^2]
+    static final double V_HORIZONTAL_MAX = 50 / 3.6;            // Maximum horizontal speed             [m/s]
+    static final double V_VERTICAL_MAX = 50 / 3.6;              // Maximum vertical speed               [m/s]
 
-    private Vector3f position;          // Vector of current position               [m]
+    private final Vector3f position;    // Vector of current position               [m]
     private final Vector3f movement;    // Vector of travel direction               [m/s]
 
     private double track = 0;           // True movement direction                  [deg]
@@ -26,6 +31,13 @@ public class Location {
     private double deltaTas = 0;        // Requested, not applied change of tas     [m/s]
     private double deltaVs = 0;         // Requested, not applied change of vas     [m/s]
 
+    private double trigTrack = Double.NaN;  // Track of the cached factors, NaN if not calculated yet   [deg]
+    private double trackFactorX;            // Share of the ground speed along the x-axis at trigTrack
+    private double trackFactorZ;            // Share of the ground speed along the z-axis at trigTrack
+    private double trigHeading = Double.NaN;    // Heading of the cached factors, NaN if not calculated yet [deg]
+    private double headingFactorX;              // Share of the airspeed along the x-axis at trigHeading
+    private double headingFactorZ;              // Share of the airspeed along the z-axis at trigHeading
+
     public Location(float x, float y, float z) {
         this.position = new Vector3f(x, y, z);
         this.movement = new Vector3f(0, 0, 0);
@@ -35,21 +47,43 @@ public class Location {
         this(0.0f, 0.0f, 0.0f);
     }
 
+    /**
+     * Creates an independent copy of another location, including the requested deltas.
+     * @param other The location to copy
+     */
+    public Location(Location other) {
+        this.position = new Vector3f(other.position);
+        this.movement = new Vector3f(other.movement);
+        this.track = other.track;
+        this.hdg = other.hdg;
+        this.tas = other.tas;
+        this.gs = other.gs;
+        this.vs = other.vs;
+        this.pitch = other.pitch;
+        this.deltaHdg = other.deltaHdg;
+        this.deltaTas = other.deltaTas;
+        this.deltaVs = other.deltaVs;
+    }
+
     /**
      * Updates the position and movement vector based on the track, ground speed and vertical speed.
+     * <p>
+     * The position and movement are changed in place. The direction factors are only calculated again once the
+     * track changed, which leads to the same values as calculating them on every update.
      * @param updateRate Updates per second.
      */
     public void updatePosition(int updateRate) {
-        movement.x = (float) (Math.cos(Math.toRadians((track + 90) % 360)) * gs);
-        movement.z = (float) (Math.cos(Math.toRadians(track)) * gs);
-        movement.y = (float) vs;
+        updateTrackFactors();
         // Apply updateRate to movement
-        movement.x *= 1.0/updateRate;
-        movement.z *= 1.0/updateRate;
-        movement.y *= 1.0/updateRate;
+        final double scale = 1.0 / updateRate;
+        movement.x = tickMovement(trackFactorX * gs, scale);
+        movement.z = tickMovement(trackFactorZ * gs, scale);
+        movement.y = tickMovement(vs, scale);
 
         // Calculate position based on movement
-        position = position.add(movement);
+        position.x += movement.x;
+        position.y += movement.y;
+        position.z += movement.z;
     }
 
     /**
@@ -61,64 +95,227 @@ public class Location {
      * @param updateRate Amount of updates per second
      */
     public void updateDelta(int updateRate) {
-        DeltaUpdate speedUpdate;
+        advance(updateRate, 1);
+    }
+
+    /**
+     * Updates speeds, heading and position for one tick in several smaller steps.
+     * <p>
+     * This replaces {@link #updateDelta(int)} and {@link #updatePosition(int)}. The accelerations and the turn rate
+     * per second stay the same, so the heading changes by at most 1 deg per tick, no matter how many steps are used.
+     * The wind is the difference between track and ground speed and heading and airspeed, as set by the wind
+     * before this update, and stays the same for the whole tick. Afterwards track and ground speed include it.
+     * </p>
+     * @param updateRate Ticks per second
+     * @param subSteps Steps per tick, at least 1
+     * @param integrator Integration of the position over a step
+     */
+    public void integrate(int updateRate, int subSteps, Integrator integrator) {
+        updateTrackFactors();
+        updateHeadingFactors();
+        final double windX = trackFactorX * gs - headingFactorX * tas;
+        final double windZ = trackFactorZ * gs - headingFactorZ * tas;
+        final int stepRate = updateRate * subSteps;
+        final double stepTime = 1.0 / stepRate;
+        final double maxTurn = 1.0 / subSteps;
+
+        double x = position.x;
+        double y = position.y;
+        double z = position.z;
+        for (int i = 0; i < subSteps; i++) {
+            // Speed relative to the air over the step
+            double vx, vy, vz;
+            switch (integrator) {
+                case EULER:
+                    vx = headingFactorX * tas;
+                    vy = vs;
+                    vz = headingFactorZ * tas;
+                    advance(stepRate, maxTurn);
+                    updateHeadingFactors();
+                    break;
+                case RK4: {
+                    double startX = headingFactorX * tas;
+                    double startY = vs;
+                    double startZ = headingFactorZ * tas;
+                    // Half step to get the speed in the middle, the state is reset afterwards
+                    double startTas = tas, startDeltaTas = deltaTas;
+                    double startVs = vs, startDeltaVs = deltaVs;
+                    double startHdg = hdg, startDeltaHdg = deltaHdg;
+                    advance(stepRate * 2, maxTurn / 2);
+                    updateHeadingFactors();
+                    double middleX = headingFactorX * tas;
+                    double middleY = vs;
+                    double middleZ = headingFactorZ * tas;
+                    tas = startTas;
+                    deltaTas = startDeltaTas;
+                    vs = startVs;
+                    deltaVs = startDeltaVs;
+                    hdg = startHdg;
+                    deltaHdg = startDeltaHdg;
+
+                    advance(stepRate, maxTurn);
+                    updateHeadingFactors();
+                    // Both middle estimates are the same, as the speed only depends on the time
+                    vx = (startX + 4 * middleX + headingFactorX * tas) / 6;
+                    vy = (startY + 4 * middleY + vs) / 6;
+                    vz = (startZ + 4 * middleZ + headingFactorZ * tas) / 6;
+                    break;
+                }
+                default:
+                    advance(stepRate, maxTurn);
+                    updateHeadingFactors();
+                    vx = headingFactorX * tas;
+                    vy = vs;
+                    vz = headingFactorZ * tas;
+                    break;
+            }
+            x += (vx + windX) * stepTime;
+            y += vy * stepTime;
+            z += (vz + windZ) * stepTime;
+        }
+
+        movement.set((float) x - position.x, (float) y - position.y, (float) z - position.z);
+        position.set((float) x, (float) y, (float) z);
+        // Track and ground speed including the wind
+        if (windX == 0 && windZ == 0) {
+            track = hdg;
+            gs = tas;
+        } else {
+            double groundX = headingFactorX * tas + windX;
+            double groundZ = headingFactorZ * tas + windZ;
+            gs = Math.sqrt(groundX * groundX + groundZ * groundZ);
+            track = (Math.toDegrees(Math.atan2(-groundX, groundZ)) + 360) % 360;
+        }
+    }
+
+    /**
+     * Applies the requested deltas for one step
+     * @param updateRate Steps per second
+     * @param maxTurn Maximum change of the heading in this step in deg
+     */
+    private void advance(int updateRate, double maxTurn) {
         // True Air Speed
         if (deltaTas != 0) {
-            double acceleration = ACCELERATION_HORIZONTAL / updateRate;
-            speedUpdate = updateSpeed(tas, deltaTas, 0, V_HORIZONTAL_MAX, acceleration);
-            tas = speedUpdate.value;
-            deltaTas = speedUpdate.delta;
+            double change = speedChange(deltaTas, ACCELERATION_HORIZONTAL / updateRate);
+            tas = clampAirspeed(tas + change);
+            deltaTas -= change;
             // Set airspeed as ground speed
             gs = tas;
         }
 
         // Vertical Speed
         if (deltaVs != 0) {
-            double acceleration = ACCELERATION_VERTICAL / updateRate;
-            speedUpdate = updateSpeed(vs, deltaVs, -V_VERTICAL_MAX, V_VERTICAL_MAX, acceleration);
-            vs = speedUpdate.value;
-            deltaVs = speedUpdate.delta;
+            double change = speedChange(deltaVs, ACCELERATION_VERTICAL / updateRate);
+            vs = clampVerticalSpeed(vs + change);
+            deltaVs -= change;
         }
 
         // Heading
         if (deltaHdg != 0) {
-            double hgdChange = 1 * Math.signum(deltaHdg);
-            if (Math.abs(deltaHdg) < 1) {
-                hgdChange = deltaHdg;
-            }
-            hdg += hgdChange;
-            deltaHdg -= hgdChange;
-            // Set boundaries to 0 <= hdg < 360
-            if (hdg < 0) hdg += 360;
-            hdg %= 360;
+            double change = headingChange(deltaHdg, maxTurn);
+            hdg = wrapHeading(hdg + change);
+            deltaHdg -= change;
             // Set track as hdg.
             track = hdg;
         }
     }
 
     /**
-     * Updates a speed and its corresponding delta.
-     * @param speed Current speed in m/s
-     * @param delta Requested change in m/s
-     * @param min Minimum speed in m/s
-     * @param max Maximum speed in m/s
-     * @param acceleration Increment of speed im m/s^2
-     * @return The updated speed and delta.
-     */
-    private DeltaUpdate updateSpeed(double speed, double delta, double min, double max, double acceleration) {
-        // update v
-        if (delta != 0) {
-            acceleration *= Math.signum(delta);  // Set direction of acceleration
-            if (delta / acceleration > 1) {
-                speed += acceleration;
-                delta -= acceleration;
-            } else {
-                speed += delta;
-                delta = 0;
-            }
+     * Calculates the direction factors of the track, if it changed since the last call
+     */
+    private void updateTrackFactors() {
+        // NaN never equals, so the first update always calculates the factors
+        if (track != trigTrack) {
+            trackFactorX = directionFactorX(track);
+            trackFactorZ = directionFactorZ(track);
+            trigTrack = track;
+        }
+    }
+
+    /**
+     * Calculates the direction factors of the heading, if it changed since the last call
+     */
+    private void updateHeadingFactors() {
+        if (hdg != trigHeading) {
+            headingFactorX = directionFactorX(hdg);
+            headingFactorZ = directionFactorZ(hdg);
+            trigHeading = hdg;
         }
-        speed = Math.max(min, Math.min(speed, max));
-        return new DeltaUpdate(speed, delta);
+    }
+
+    /* -----------------------------------------------------------------------------------------------------------------
+     * Kinematics of one axis, shared with DroneSwarm
+     * -------------------------------------------------------------------------------------------------------------- */
+
+    /**
+     * @param delta Requested, not applied change of the speed, not 0
+     * @param maxChange Maximum change of the speed in this step, the acceleration divided by the update rate
+     * @return The change of the speed in this step, the whole delta once it is smaller than the maximum
+     */
+    static double speedChange(double delta, double maxChange) {
+        double acceleration = maxChange * Math.signum(delta);
+        return delta / acceleration > 1 ? acceleration : delta;
+    }
+
+    /**
+     * @param tas True airspeed in m/s
+     * @return The airspeed limited to 0 <= tas <= {@link #V_HORIZONTAL_MAX}
+     */
+    static double clampAirspeed(double tas) {
+        return Math.max(0, Math.min(tas, V_HORIZONTAL_MAX));
+    }
+
+    /**
+     * @param vs Vertical speed in m/s
+     * @return The vertical speed limited to +-{@link #V_VERTICAL_MAX}
+     */
+    static double clampVerticalSpeed(double vs) {
+        return Math.max(-V_VERTICAL_MAX, Math.min(vs, V_VERTICAL_MAX));
+    }
+
+    /**
+     * @param delta Requested, not applied change of the heading in deg, not 0
+     * @param maxTurn Maximum change of the heading in this step in deg
+     * @return The change of the heading in this step
+     */
+    static double headingChange(double delta, double maxTurn) {
+        return Math.abs(delta) < maxTurn ? delta : maxTurn * Math.signum(delta);
+    }
+
+    /**
+     * @param hdg Heading in deg, at least -360
+     * @return The heading within 0 <= hdg < 360
+     */
+    static double wrapHeading(double hdg) {
+        if (hdg < 0) hdg += 360;
+        return hdg % 360;
+    }
+
+    /**
+     * @param direction Track or heading in deg
+     * @return Share of a speed in this direction along the x-axis
+     */
+    static double directionFactorX(double direction) {
+        return Math.cos(Math.toRadians((direction + 90) % 360));
+    }
+
+    /**
+     * @param direction Track or heading in deg
+     * @return Share of a speed in this direction along the z-axis
+     */
+    static double directionFactorZ(double direction) {
+        return Math.cos(Math.toRadians(direction));
+    }
+
+    /**
+     * @param speed Speed along an axis in m/s
+     * @param scale Duration of the tick in s
+     * @return The movement along the axis during the tick in m
+     */
+    static float tickMovement(double speed, double scale) {
+        float movement = (float) speed;
+        movement *= scale;
+        return movement;
     }
 
     /**
@@ -138,6 +335,64 @@ public class Location {
         deltaTas = 0;
     }
 
+    /**
+     * Writes all values, including the requested deltas, e.g. into a snapshot of the simulation.
+     * @param out Output of the values
+     * @throws IOException Passed on from the output
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeFloat(position.x);
+        out.writeFloat(position.y);
+        out.writeFloat(position.z);
+        out.writeFloat(movement.x);
+        out.writeFloat(movement.y);
+        out.writeFloat(movement.z);
+        out.writeDouble(track);
+        out.writeDouble(hdg);
+        out.writeDouble(tas);
+        out.writeDouble(gs);
+        out.writeDouble(vs);
+        out.writeDouble(pitch);
+        out.writeDouble(deltaHdg);
+        out.writeDouble(deltaTas);
+        out.writeDouble(deltaVs);
+    }
+
+    /**
+     * Replaces all values with the ones written by {@link #writeState(DataOutput)}.
+     * @param in Input of the values
+     * @throws IOException Passed on from the input
+     */
+    public void readState(DataInput in) throws IOException {
+        position.set(in.readFloat(), in.readFloat(), in.readFloat());
+        movement.set(in.readFloat(), in.readFloat(), in.readFloat());
+        track = in.readDouble();
+        hdg = in.readDouble();
+        tas = in.readDouble();
+        gs = in.readDouble();
+        vs = in.readDouble();
+        pitch = in.readDouble();
+        deltaHdg = in.readDouble();
+        deltaTas = in.readDouble();
+        deltaVs = in.readDouble();
+    }
+
+    /**
+     * Sets everything {@link #integrate(int, int, Integrator)} changes at once, used by {@link DroneSwarm}
+     */
+    void setKinematics(float x, float y, float z, double track, double hdg, double tas, double gs, double vs,
+                       double deltaHdg, double deltaTas, double deltaVs) {
+        position.set(x, y, z);
+        this.track = track;
+        this.hdg = hdg;
+        this.tas = tas;
+        this.gs = gs;
+        this.vs = vs;
+        this.deltaHdg = deltaHdg;
+        this.deltaTas = deltaTas;
+        this.deltaVs = deltaVs;
+    }
+
     /* =================================================================================================================
      * Getter and setter
      * ============================================================================================================== */
@@ -369,18 +624,4 @@ public class Location {
         this.deltaVs += delta;
     }
 
-    /**
-     * Helper class for return values with associated delta
-     */
-    private static class DeltaUpdate {
-
-        private final double delta;
-        private final double value;
-
-        public DeltaUpdate(double value, double delta) {
-            this.value = value;
-            this.delta = delta;
-        }
-    }
-
 }
@@ -106,7 +106,8 @@ public class GuiManager implements ISimulationChild, SimulationUpdateListener {
             if(location == null) {
                 return;
             }
-            renderDrone.setPosition(location.getPosition());
+            // The location is updated in place, the renderer gets its own copy
+            renderDrone.setPosition(new Vector3f(location.getPosition()));
             float rotation = (float) (location.getHeading() * (Math.PI / 180.0));
             renderDrone.setRotation(new Vector3f(0, -rotation, 0));
             renderDrone.setRotateRotors(!drone.isCrashed() && simulation.isRunning());
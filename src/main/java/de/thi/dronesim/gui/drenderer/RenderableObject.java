@@ -10,6 +10,7 @@ import com.jme3.scene.Spatial;
 import com.jme3.scene.plugins.MTLLoader;
 
 import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Renderable objects
@@ -18,11 +19,12 @@ import java.io.File;
  */
 public class RenderableObject implements Comparable<RenderableObject> {
 
-    private static int nextId = 0;
+    // Shared by all simulations of the JVM, which may create objects concurrently
+    private static final AtomicInteger nextId = new AtomicInteger();
 
     private final boolean externalModel;
 
-    protected final int id = nextId++;
+    protected final int id = nextId.getAndIncrement();
 
     protected Spatial object;
 
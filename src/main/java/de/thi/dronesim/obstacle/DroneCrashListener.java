@@ -4,6 +4,7 @@ import com.jme3.math.Vector3f;
 import de.thi.dronesim.SimulationUpdateEvent;
 import de.thi.dronesim.SimulationUpdateListener;
 import de.thi.dronesim.drone.Drone;
+import de.thi.dronesim.drone.DroneSwarm;
 
 /**
  * @author Christian Schmied
@@ -20,6 +21,10 @@ public class DroneCrashListener implements SimulationUpdateListener {
 
     @Override
     public void onUpdate(SimulationUpdateEvent event) {
+        DroneSwarm swarm = event.getSwarm();
+        if (swarm != null) {
+            checkSwarm(swarm);
+        }
         if (event.getDrone().isCrashed()) {
             return;
         }
@@ -32,4 +37,16 @@ public class DroneCrashListener implements SimulationUpdateListener {
             theDrone.setCrashed(true);
         }
     }
+
+    /**
+     * Marks all drones of the swarm as crashed, which collide with an obstacle
+     */
+    private void checkSwarm(DroneSwarm swarm) {
+        for (int i = 0; i < swarm.size(); i++) {
+            if (!swarm.isCrashed(i)
+                    && ufoObjs.checkSphereHalfCollision(swarm.getX(i), swarm.getY(i), swarm.getZ(i), swarm.getRadius(i), 1)) {
+                swarm.setCrashed(i, true);
+            }
+        }
+    }
 }
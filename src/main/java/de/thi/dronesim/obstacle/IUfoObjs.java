@@ -5,7 +5,9 @@ import de.thi.dronesim.obstacle.dto.ObstacleDTO;
 import de.thi.dronesim.obstacle.dto.ObstacleJsonDTO;
 import de.thi.dronesim.obstacle.entity.HitMark;
 import de.thi.dronesim.obstacle.entity.Obstacle;
+import de.thi.dronesim.obstacle.entity.RayHitBuffer;
 
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -14,7 +16,8 @@ import java.util.Set;
 public interface IUfoObjs {
 
     /**
-     * Generiert aus einem DTO ein neues Hindernis Objekt und fügt es der Physik hinzu
+     * Generiert aus einem DTO ein neues Hindernis Objekt und fügt es der Physik hinzu.
+     * Ein vorhandenes Hindernis mit derselben ID wird samt seiner Hitboxen ersetzt.
      * @param obstacleDto Beschreibung des Hindernis
      * @return neues Objekt
      */
@@ -34,12 +37,35 @@ public interface IUfoObjs {
      */
     boolean removeObstacle(Obstacle obstacleObj);
 
+    /**
+     * Wendet viele Änderungen der Hindernisse auf einmal an, z. B. nachgeladene Kacheln einer Karte oder fahrende
+     * Fahrzeuge während eines Fluges. Die Hindernisse werden dabei nur einmal gesperrt und der Index für die Strahlen
+     * direkt aktualisiert, statt im nächsten Tick.
+     * Zuerst wird entfernt, dann hinzugefügt und zuletzt verschoben. Unbekannte IDs werden ignoriert, ein neues
+     * Hindernis mit der ID eines vorhandenen ersetzt dieses.
+     * @param adds neue Hindernisse
+     * @param removes IDs der zu entfernenden Hindernisse
+     * @param moves Hindernisse mit der ID eines vorhandenen Hindernis und seiner neuen Position,
+     *              die Hitboxen werden um die Änderung der Position verschoben, Rotation und Größe bleiben
+     */
+    void applyChanges(Collection<ObstacleDTO> adds, Collection<Long> removes, Collection<ObstacleDTO> moves);
+
     /**
      * Gibt alle Aktuell vorhandenen Hindernisse aus
      * @return Set der Aktuellen Hindernisse
      */
     Set<Obstacle> getObstacles();
 
+    /**
+     * Prüft viele Strahlen auf einmal, ohne Objekte zu erzeugen
+     * @param origins Startpunkte, 3 floats pro Strahl (x, y, z)
+     * @param dirs Richtungen, 3 floats pro Strahl (müssen nicht normalisiert sein)
+     * @param ranges Reichweite pro Strahl
+     * @param count Anzahl der Strahlen
+     * @param out Puffer für Distanz und Hindernis-Index jedes Strahls (darf die Strahlen selbst enthalten)
+     */
+    void castRays(float[] origins, float[] dirs, float[] ranges, int count, RayHitBuffer out);
+
     /**
      * Prüft auf Kollisionen entlang eines Kegels
      * Ein Kegelstumpf müsste demnach neu berechnet werden!
@@ -51,6 +77,12 @@ public interface IUfoObjs {
      */
     Set<HitMark> checkSensorCone(Vector3f origin, Vector3f orientation, float range, Vector3f opening);
 
+    /**
+     * Wie {@link #checkSensorCone(Vector3f, Vector3f, float, Vector3f)}, schreibt Strahlen und Treffer aber in den Puffer
+     * @param out wiederverwendbarer Puffer, wird vorher geleert
+     */
+    void castSensorCone(Vector3f origin, Vector3f orientation, float range, Vector3f opening, RayHitBuffer out);
+
     /**
      * Prüft auf Kollisionen entlang einer 4 Seitigen Pyramide
      * @param origin Spitzpunkt
@@ -61,6 +93,12 @@ public interface IUfoObjs {
      */
     Set<HitMark> checkSensorPyramid(Vector3f origin, Vector3f orientation, float range, Vector3f opening);
 
+    /**
+     * Wie {@link #checkSensorPyramid(Vector3f, Vector3f, float, Vector3f)}, schreibt Strahlen und Treffer aber in den Puffer
+     * @param out wiederverwendbarer Puffer, wird vorher geleert
+     */
+    void castSensorPyramid(Vector3f origin, Vector3f orientation, float range, Vector3f opening, RayHitBuffer out);
+
     /**
      * Prüft auf Kollisionen entlang eines Quaders
      * @param origin Fußpunkt
@@ -81,6 +119,12 @@ public interface IUfoObjs {
      */
     Set<HitMark> checkSensorCuboid(Vector3f origin, Vector3f orientation, Vector3f dimension, float rotation);
 
+    /**
+     * Wie {@link #checkSensorCuboid(Vector3f, Vector3f, Vector3f, float)}, schreibt Strahlen und Treffer aber in den Puffer
+     * @param out wiederverwendbarer Puffer, wird vorher geleert
+     */
+    void castSensorCuboid(Vector3f origin, Vector3f orientation, Vector3f dimension, float rotation, RayHitBuffer out);
+
     /**
      * Prüft auf Kollisionen entlang eines Zylinders
      * @param origin Fußpunkt
@@ -89,6 +133,12 @@ public interface IUfoObjs {
      * @return Referenz zu einem Getroffenen Objekt
      */
     Set<HitMark> checkSensorCylinder(Vector3f origin, Vector3f orientation, Vector3f dimension);
+
+    /**
+     * Wie {@link #checkSensorCylinder(Vector3f, Vector3f, Vector3f)}, schreibt Strahlen und Treffer aber in den Puffer
+     * @param out wiederverwendbarer Puffer, wird vorher geleert
+     */
+    void castSensorCylinder(Vector3f origin, Vector3f orientation, Vector3f dimension, RayHitBuffer out);
     
     /**
      * Checks Collision with an Sphere
@@ -107,6 +157,26 @@ public interface IUfoObjs {
      */
     boolean checkSphereHalfCollision(Vector3f origin, float radius, int signum);
 
+    /**
+     * Wie {@link #checkSphereHalfCollision(Vector3f, float, int)}, ohne einen Vektor pro Aufruf, z.B. für Drohnenschwärme
+     * @param x Drohnen-Center auf der x-Achse
+     * @param y Drohnen-Center auf der y-Achse
+     * @param z Drohnen-Center auf der z-Achse
+     * @param radius Größe des kugelförmigen Hitboxes
+     * @param signum Orientation of the Bowl (Positive for Upper, negative for Bottom)
+     * @return true wenn die Drohne mit einem fremden Objekt kollidiert
+     */
+    boolean checkSphereHalfCollision(float x, float y, float z, float radius, int signum);
+
+    /**
+     * Abstand zum nächsten Hindernis, z.B. um den Sicherheitsabstand eines Flugs auszuwerten
+     * @param x Punkt auf der x-Achse
+     * @param y Punkt auf der y-Achse
+     * @param z Punkt auf der z-Achse
+     * @return Abstand zur Oberfläche der nächsten Hitbox, 0 innerhalb einer Hitbox, {@link Float#POSITIVE_INFINITY} ohne Hindernisse
+     */
+    float getObstacleDistance(float x, float y, float z);
+
     /**
      * Extracts the current state into the ConfigDTO
      */
@@ -0,0 +1,243 @@
+package de.thi.dronesim.obstacle;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import de.thi.dronesim.SimulationUpdateEvent;
+import de.thi.dronesim.SimulationUpdateListener;
+import de.thi.dronesim.drone.Location;
+import de.thi.dronesim.obstacle.dto.ObstacleConfigurationDTO;
+import de.thi.dronesim.obstacle.dto.ObstacleDTO;
+import de.thi.dronesim.obstacle.dto.ObstacleJsonDTO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the obstacles of a large map in square tiles around the drone, instead of all of them before the first tick.
+ * <p>
+ * A tile is a file {@code <x>_<z>.json} in the tile directory, with the obstacles in the format of an obstacle config.
+ * The tile x covers {@code x * tileSize} to {@code (x + 1) * tileSize} on the x-axis, the same applies to z.
+ * A missing file is an empty tile.
+ * <p>
+ * Whenever the drone enters another tile, the tiles within the radius are read on a background thread and applied
+ * as one batch with {@link UfoObjs#applyChanges}. Once more than the maximum number of tiles are loaded, the least
+ * recently used tiles outside the radius are evicted, so the memory depends on the cache size and not on the size
+ * of the map. The obstacles of a tile need unique ids, as they are removed by their id.
+ */
+public class ObstacleTileLoader implements SimulationUpdateListener {
+
+    /**
+     * After the position update and before the crash check
+     */
+    public static final int LISTENER_PRIORITY = 700;
+    public static final float DEFAULT_TILE_SIZE = 100;
+    public static final int DEFAULT_TILE_RADIUS = 1;
+
+    private static final Logger logger = LogManager.getLogger(ObstacleTileLoader.class);
+
+    private final UfoObjs ufoObjs;
+    private final Path directory;
+    private final float tileSize;
+    private final int radius;
+    private final int maxTiles;
+    private final Gson gson = new Gson();
+    /**
+     * Loaded tiles with the ids of their obstacles in access order, only used by the loader thread
+     */
+    private final LinkedHashMap<Long, List<Long>> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<Long> tileObstacleIds = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService executor;
+    private volatile Future<?> pending = CompletableFuture.completedFuture(null);
+    private volatile long latestTile;
+    private boolean hasTile = false;
+
+    /**
+     * @param ufoObjs Receives the obstacles of the tiles
+     * @param config  Tile directory, tile size, radius and cache size, missing values use the defaults
+     */
+    ObstacleTileLoader(UfoObjs ufoObjs, ObstacleConfigurationDTO config) {
+        this.ufoObjs = ufoObjs;
+        this.directory = Paths.get(config.tileDirectory);
+        this.tileSize = config.tileSize != null ? config.tileSize : DEFAULT_TILE_SIZE;
+        this.radius = config.tileRadius != null ? config.tileRadius : DEFAULT_TILE_RADIUS;
+        if (tileSize <= 0) throw new IllegalArgumentException("The tile size must be greater than zero");
+        if (radius < 0) throw new IllegalArgumentException("The tile radius must not be negative");
+        // The tiles around the drone are never evicted
+        int around = (2 * radius + 1) * (2 * radius + 1);
+        this.maxTiles = config.maxLoadedTiles != null ? Math.max(config.maxLoadedTiles, around) : 2 * around;
+    }
+
+    @Override
+    public void onUpdate(SimulationUpdateEvent event) {
+        update(event.getDrone().getLocation());
+    }
+
+    /**
+     * Starts loading the tiles around a location, if it is in another tile than the last one
+     *
+     * @param location Location of the drone
+     */
+    public synchronized void update(Location location) {
+        long tile = key(tileOf(location.getX()), tileOf(location.getZ()));
+        if (hasTile && tile == latestTile) {
+            return;
+        }
+        hasTile = true;
+        latestTile = tile;
+        if (executor == null || executor.isShutdown()) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "obstacle-tile-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pending = executor.submit(() -> loadAround(tile));
+    }
+
+    /**
+     * Waits until the tiles around the last location are loaded
+     */
+    public void awaitLoaded() {
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Loading the obstacle tiles failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stops the loader thread, the loaded obstacles stay. The next update starts it again.
+     */
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        hasTile = false;
+    }
+
+    /**
+     * Loads the missing tiles around a tile and evicts the least recently used ones in a single batch
+     */
+    private void loadAround(long center) {
+        // The drone has already moved on, a later task loads its tiles
+        if (center != latestTile) {
+            return;
+        }
+        int centerX = tileX(center);
+        int centerZ = tileZ(center);
+        List<ObstacleDTO> adds = new ArrayList<>();
+        for (int x = centerX - radius; x <= centerX + radius; x++) {
+            for (int z = centerZ - radius; z <= centerZ + radius; z++) {
+                long tile = key(x, z);
+                // Touches a loaded tile, so it is the most recently used one
+                if (tiles.get(tile) == null) {
+                    tiles.put(tile, readTile(x, z, adds));
+                }
+            }
+        }
+
+        List<Long> removes = new ArrayList<>();
+        Iterator<Map.Entry<Long, List<Long>>> iterator = tiles.entrySet().iterator();
+        while (tiles.size() > maxTiles && iterator.hasNext()) {
+            Map.Entry<Long, List<Long>> entry = iterator.next();
+            long tile = entry.getKey();
+            if (Math.abs(tileX(tile) - centerX) > radius || Math.abs(tileZ(tile) - centerZ) > radius) {
+                removes.addAll(entry.getValue());
+                iterator.remove();
+            }
+        }
+
+        if (!adds.isEmpty() || !removes.isEmpty()) {
+            ufoObjs.applyChanges(adds, removes, Collections.emptyList());
+            tileObstacleIds.removeAll(removes);
+            logger.debug("Loaded {} and evicted {} obstacles around tile {}/{}", adds.size(), removes.size(), centerX, centerZ);
+        }
+    }
+
+    /**
+     * Reads the obstacles of a tile
+     *
+     * @param adds Receives the obstacles
+     * @return The ids of the obstacles
+     */
+    private List<Long> readTile(int x, int z, List<ObstacleDTO> adds) {
+        Path file = directory.resolve(x + "_" + z + ".json");
+        if (!Files.isRegularFile(file)) {
+            return Collections.emptyList();
+        }
+        ObstacleJsonDTO tile;
+        try (Reader reader = Files.newBufferedReader(file)) {
+            tile = gson.fromJson(reader, ObstacleJsonDTO.class);
+        } catch (IOException | JsonParseException e) {
+            logger.error("Could not read the obstacle tile {}: {}", file, e.getMessage());
+            return Collections.emptyList();
+        }
+        if (tile == null || tile.obstacles == null) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(tile.obstacles.size());
+        for (ObstacleDTO obstacle : tile.obstacles) {
+            if (obstacle.id == null) {
+                logger.warn("Skipping an obstacle without id in the tile {}", file);
+                continue;
+            }
+            ids.add(obstacle.id);
+            tileObstacleIds.add(obstacle.id);
+            adds.add(obstacle);
+        }
+        return ids;
+    }
+
+    /**
+     * @param id Id of an obstacle
+     * @return True if the obstacle was loaded from a tile
+     */
+    public boolean isTileObstacle(Long id) {
+        return id != null && tileObstacleIds.contains(id);
+    }
+
+    /**
+     * @return Number of loaded obstacles of all tiles
+     */
+    public int getLoadedObstacleCount() {
+        return tileObstacleIds.size();
+    }
+
+    private int tileOf(float coordinate) {
+        return (int) Math.floor(coordinate / tileSize);
+    }
+
+    private static long key(int x, int z) {
+        return ((long) x << 32) | (z & 0xffffffffL);
+    }
+
+    private static int tileX(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int tileZ(long key) {
+        return (int) key;
+    }
+}
@@ -1,6 +1,5 @@
 package de.thi.dronesim.obstacle;
 
-import com.bulletphysics.dynamics.RigidBody;
 import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
 import de.thi.dronesim.ISimulationChild;
@@ -11,19 +10,23 @@ import de.thi.dronesim.obstacle.dto.ObstacleDTO;
 import de.thi.dronesim.obstacle.dto.ObstacleJsonDTO;
 import de.thi.dronesim.obstacle.entity.HitMark;
 import de.thi.dronesim.obstacle.entity.Obstacle;
+import de.thi.dronesim.obstacle.entity.RayHitBuffer;
+import de.thi.dronesim.obstacle.util.AdaptiveSampler;
+import de.thi.dronesim.obstacle.util.HitBoxBvh;
 import de.thi.dronesim.obstacle.util.HitBoxRigidBody;
-import de.thi.dronesim.obstacle.util.JBulletContext;
-import de.thi.dronesim.obstacle.util.JBulletHitMark;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+import de.thi.dronesim.obstacle.util.SampleTables;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Random;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.SplittableRandom;
 
 /**
  * @author Bakri Aghyourli
@@ -33,26 +36,71 @@ import java.util.concurrent.TimeoutException;
 
 public class UfoObjs implements ISimulationChild, IUfoObjs {
 
-    private static final float GOLDEN_RATIO = (1f + (float) Math.sqrt(5)) / 2;
-    private static final float GOLDEN_ANGLE = 2 * (float) Math.PI * GOLDEN_RATIO;
-    private static final long COLLISION_CHECK_TIMEOUT = 25L;
+    /**
+     * Increment of the SplitMix64 generator, see {@link #cylinderRandom}
+     */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
 
-    private final Logger logger;
-    private final JBulletContext jBullet;
     private final Set<Obstacle> obstacles;
     /**
-     * Actually this Set is just for "rechecking", it's totally useless
+     * The obstacles with an id, for the removal by id and the batch changes
+     */
+    private final Map<Long, Obstacle> obstaclesById;
+    /**
+     * All hit boxes, source for the {@link HitBoxBvh} index
      */
     private final Set<HitBoxRigidBody> hitBoxes;
+    /**
+     * Index over all hit boxes used for the ray tests and the collision checks,
+     * updated with every change and built again lazily after the obstacles were cleared
+     */
+    private volatile HitBoxBvh hitBoxIndex;
+    private volatile boolean hitBoxIndexDirty;
+    private final ThreadLocal<HitBoxBvh.RayQuery> rayQuery;
+    /**
+     * Buffer for the Set based sensor checks, the buffer variants get their buffer from the caller
+     */
+    private final ThreadLocal<RayHitBuffer> shapeBuffer;
+    /**
+     * Scratch memory of the adaptive sampling, see {@link AdaptiveSampler}
+     */
+    private final ThreadLocal<AdaptiveSampler> adaptiveSampler;
+    /**
+     * Vectors of the sensor shapes, so a cast doesn't allocate
+     */
+    private final ThreadLocal<ShapeScratch> shapeScratch;
+    /**
+     * Seed of the random orientation of the cylinder samples, derived from the seed of the simulation
+     */
+    private volatile long cylinderSeed;
     private ObstacleJsonDTO config;
+    private ObstacleTileLoader tileLoader;
     private Simulation simulation;
 
     public UfoObjs() {
-        logger = LogManager.getLogger(UfoObjs.class);
-
-        jBullet = new JBulletContext();
         obstacles = new HashSet<>();
+        obstaclesById = new HashMap<>();
         hitBoxes = new HashSet<>();
+        hitBoxIndex = new HitBoxBvh(hitBoxes);
+        rayQuery = ThreadLocal.withInitial(HitBoxBvh.RayQuery::new);
+        shapeBuffer = ThreadLocal.withInitial(RayHitBuffer::new);
+        adaptiveSampler = ThreadLocal.withInitial(AdaptiveSampler::new);
+        shapeScratch = ThreadLocal.withInitial(ShapeScratch::new);
+    }
+
+    /**
+     * Vectors and rotations of a sensor shape, which are overwritten by every cast of the thread
+     */
+    private static final class ShapeScratch {
+        private final Vector3f direction = new Vector3f();
+        private final Vector3f angleVec = new Vector3f();
+        private final Vector3f projection = new Vector3f();
+        private final Vector3f i = new Vector3f();
+        private final Vector3f j = new Vector3f();
+        private final Vector3f topLeft = new Vector3f();
+        private final Quaternion pitchRotation = new Quaternion();
+        private final Quaternion yawRotation = new Quaternion();
+        private final Quaternion rollRotation = new Quaternion();
     }
 
     /**
@@ -64,24 +112,73 @@ public class UfoObjs implements ISimulationChild, IUfoObjs {
      * @return the HitMark or Null
      */
     private HitMark rayTest(Vector3f from, Vector3f direction, float range) {
-        JBulletHitMark hitBody = jBullet.rayTest(from, direction, range);
-        if (hitBody != null) {
+        HitBoxBvh index = getHitBoxIndex();
+        HitBoxBvh.RayQuery query = rayQuery.get();
+        if (!index.rayTest(from.x, from.y, from.z, direction.x, direction.y, direction.z, range, query)) {
+            return null;
+        }
 
-            if (hitBoxes.contains(hitBody.body)) {
-                return new HitMark(hitBody);
-            } else {
-                throw new RuntimeException("No Obstacle found for Provided HitBox");
+        float distance = query.getDistance();
+        Vector3f relativeHit = direction.normalize().multLocal(distance);
+        Vector3f worldHit = relativeHit.add(from);
+        return new HitMark(distance, worldHit, relativeHit, index.getBody(query.getBox()).getObstacle());
+    }
+
+    /**
+     * @return the up to date hit box index, built again if the obstacles were cleared since the last call
+     */
+    private HitBoxBvh getHitBoxIndex() {
+        if (hitBoxIndexDirty) {
+            synchronized (hitBoxes) {
+                if (hitBoxIndexDirty) {
+                    hitBoxIndex = new HitBoxBvh(hitBoxes);
+                    hitBoxIndexDirty = false;
+                }
             }
         }
-        return null;
+        return hitBoxIndex;
+    }
+
+    /**
+     * Applies changed hit boxes to the index without building its tree again, must hold the lock of "hitBoxes"
+     * and be called after "hitBoxes" and the moved hit boxes were updated
+     */
+    private void updateHitBoxIndex(Collection<HitBoxRigidBody> removed, Collection<HitBoxRigidBody> added,
+                                   Collection<HitBoxRigidBody> moved) {
+        hitBoxIndex = hitBoxIndexDirty
+                ? new HitBoxBvh(hitBoxes)
+                : hitBoxIndex.withChanges(removed, added, moved);
+        hitBoxIndexDirty = false;
     }
 
     @Override
     public Obstacle addObstacle(ObstacleDTO obstacleDto) {
+        List<HitBoxRigidBody> objectHitBoxes = new ArrayList<>();
+        Obstacle obstacle = createObstacle(obstacleDto, objectHitBoxes);
+
+        // Add hit boxes into the "hitBoxes" set and the obstacle to the obstacle set
+        synchronized (hitBoxes) {
+            Obstacle replaced = putObstacle(obstacle);
+            Collection<HitBoxRigidBody> removedHitBoxes = replaced != null ? replaced.getHitboxes() : Collections.emptyList();
+            hitBoxes.removeAll(removedHitBoxes);
+            hitBoxes.addAll(objectHitBoxes);
+            updateHitBoxIndex(removedHitBoxes, objectHitBoxes, Collections.emptyList());
+        }
+        return obstacle;
+    }
+
+    /**
+     * Creates an obstacle and its hit boxes, which are not added to the index yet
+     *
+     * @param obstacleDto    Description of the obstacle
+     * @param objectHitBoxes Receives the new hit boxes
+     * @return the new Obstacle
+     */
+    private Obstacle createObstacle(ObstacleDTO obstacleDto, List<HitBoxRigidBody> objectHitBoxes) {
         // Create new Obstacle from DTO
         Obstacle obstacle = new Obstacle(obstacleDto.modelName, obstacleDto.modelPath, obstacleDto.id, obstacleDto.position, obstacleDto.rotation, obstacleDto.scale, obstacleDto.hitboxes);
 
-        Set<HitBoxRigidBody> objectHitBoxes = new HashSet<>();
+        Set<HitBoxRigidBody> rigidBodies = new HashSet<>();
 
         // Get all hit boxes from obstacleDTO
         for (HitBoxDTO hit : obstacleDto.hitboxes) {
@@ -90,64 +187,135 @@ public class UfoObjs implements ISimulationChild, IUfoObjs {
             javax.vecmath.Vector3f halfDimension = VecMathHelper.of(hit.dimension);
             halfDimension.scale(0.5f);
 
-            // Add hit boxes to the jBullet context
-            HitBoxRigidBody hitBoxRigidBody = jBullet.addHitBox(new javax.vecmath.Vector3f(position), new javax.vecmath.Vector3f(rotation), halfDimension, obstacle);
-
-            // Add hit boxes into a set for Obstacle setter method
+            HitBoxRigidBody hitBoxRigidBody = HitBoxRigidBody.create(new javax.vecmath.Vector3f(position), new javax.vecmath.Vector3f(rotation), halfDimension, obstacle);
+            rigidBodies.add(hitBoxRigidBody);
             objectHitBoxes.add(hitBoxRigidBody);
-
-            // Add Obstacle into "hitBoxes" set
-            hitBoxes.add(hitBoxRigidBody);
         }
 
         // Set the hit boxes into the new Obstacle Object
-        obstacle.setHitBoxRigidBodys(objectHitBoxes);
+        obstacle.setHitBoxRigidBodys(rigidBodies);
+        return obstacle;
+    }
 
-        // Add Object to obstacle set
+    /**
+     * Adds an obstacle to the obstacle set and the id index, must hold the lock of "hitBoxes".
+     * An obstacle with the same id is replaced, the caller has to remove its hit boxes.
+     *
+     * @return the replaced obstacle or null
+     */
+    private Obstacle putObstacle(Obstacle obstacle) {
+        Obstacle replaced = null;
+        if (obstacle.getID() != null) {
+            replaced = this.obstaclesById.get(obstacle.getID());
+            if (replaced != null) {
+                dropObstacle(replaced);
+            }
+            this.obstaclesById.put(obstacle.getID(), obstacle);
+        }
         this.obstacles.add(obstacle);
+        return replaced;
+    }
 
-        return obstacle;
+    /**
+     * Removes an obstacle from the obstacle set and the id index, must hold the lock of "hitBoxes"
+     *
+     * @return false if the obstacle was unknown
+     */
+    private boolean dropObstacle(Obstacle obstacle) {
+        if (!this.obstacles.remove(obstacle)) {
+            return false;
+        }
+        // Another obstacle with the same id might have replaced it in the index
+        if (obstacle.getID() != null && this.obstaclesById.get(obstacle.getID()) == obstacle) {
+            this.obstaclesById.remove(obstacle.getID());
+        }
+        return true;
     }
 
     @Override
     public boolean removeObstacle(ObstacleDTO obstacleDTO) {
         // Get the obstacle to delete by id
-        Obstacle obstacleToDelete = null;
-        for (Obstacle o : obstacles) {
-            if (o.getID().equals(obstacleDTO.id)) {
-                obstacleToDelete = o;
-            }
+        Obstacle obstacleToDelete;
+        synchronized (hitBoxes) {
+            obstacleToDelete = obstacleDTO.id != null ? obstaclesById.get(obstacleDTO.id) : null;
         }
+        return obstacleToDelete != null && removeObstacle(obstacleToDelete);
+    }
 
-        if (obstacleToDelete != null) {
-            Set<HitBoxRigidBody> hitBoxRigidBodies = obstacleToDelete.getHitboxes();
-            for (HitBoxRigidBody h : hitBoxRigidBodies) {
-                // Remove all hit boxes of the obstacle from jBullet and the "hitBoxes" set
-                jBullet.removeHitBox(h);
-                hitBoxes.remove(h);
+    @Override
+    public boolean removeObstacle(Obstacle obstacleObj) {
+        synchronized (hitBoxes) {
+            if (!dropObstacle(obstacleObj)) {
+                return false;
             }
-            // Remove the obstacle from the set
-            obstacles.remove(obstacleToDelete);
+            // Remove all hit boxes of the obstacle from the "hitBoxes" set
+            hitBoxes.removeAll(obstacleObj.getHitboxes());
+            updateHitBoxIndex(obstacleObj.getHitboxes(), Collections.emptyList(), Collections.emptyList());
             return true;
-        } else {
-            return false;
         }
     }
 
     @Override
-    public boolean removeObstacle(Obstacle obstacleObj) {
-        if (obstacles.contains(obstacleObj)) {
-            Set<HitBoxRigidBody> hitBoxRigidBodies = obstacleObj.getHitboxes();
-            for (HitBoxRigidBody h : hitBoxRigidBodies) {
-                // Remove all hit boxes of the obstacle from jBullet and the "hitBoxes" set
-                jBullet.removeHitBox(h);
-                hitBoxes.remove(h);
+    public void applyChanges(Collection<ObstacleDTO> adds, Collection<Long> removes, Collection<ObstacleDTO> moves) {
+        List<HitBoxRigidBody> removedHitBoxes = new ArrayList<>();
+        List<HitBoxRigidBody> addedHitBoxes = new ArrayList<>();
+        Set<HitBoxRigidBody> movedHitBoxes = new LinkedHashSet<>();
+
+        synchronized (hitBoxes) {
+            for (Long id : removes) {
+                Obstacle obstacle = obstaclesById.get(id);
+                if (obstacle != null && dropObstacle(obstacle)) {
+                    removedHitBoxes.addAll(obstacle.getHitboxes());
+                }
             }
-            obstacles.remove(obstacleObj);
-            return true;
-        } else {
-            return false;
+            for (ObstacleDTO obstacleDto : adds) {
+                Obstacle replaced = putObstacle(createObstacle(obstacleDto, addedHitBoxes));
+                // An obstacle added earlier in the same batch isn't in "hitBoxes" yet
+                if (replaced != null && !addedHitBoxes.removeAll(replaced.getHitboxes())) {
+                    removedHitBoxes.addAll(replaced.getHitboxes());
+                }
+            }
+            for (ObstacleDTO obstacleDto : moves) {
+                Obstacle obstacle = obstacleDto.id != null ? obstaclesById.get(obstacleDto.id) : null;
+                if (obstacle == null || obstacle.getPosition() == null || obstacleDto.position == null) {
+                    continue;
+                }
+                javax.vecmath.Vector3f offset = VecMathHelper.of(obstacleDto.position);
+                offset.sub(VecMathHelper.of(obstacle.getPosition()));
+                moveObstacle(obstacle, offset);
+                for (HitBoxRigidBody hitBox : obstacle.getHitboxes()) {
+                    hitBox.moveBy(offset);
+                    movedHitBoxes.add(hitBox);
+                }
+            }
+
+            for (HitBoxRigidBody hitBox : removedHitBoxes) {
+                hitBoxes.remove(hitBox);
+            }
+            hitBoxes.addAll(addedHitBoxes);
+            // Update the index here, so the next tick doesn't have to
+            updateHitBoxIndex(removedHitBoxes, addedHitBoxes, movedHitBoxes);
+        }
+    }
+
+    /**
+     * Shifts the position of an obstacle and the description of its hit boxes, the rigid bodies are moved separately
+     */
+    private static void moveObstacle(Obstacle obstacle, javax.vecmath.Vector3f offset) {
+        Float[] position = obstacle.getPosition();
+        obstacle.setPosition(new Float[]{position[0] + offset.x, position[1] + offset.y, position[2] + offset.z});
+        if (obstacle.getDtoHitboxes() == null) {
+            return;
+        }
+        Set<HitBoxDTO> moved = new HashSet<>();
+        for (HitBoxDTO hit : obstacle.getDtoHitboxes()) {
+            HitBoxDTO movedHit = new HitBoxDTO();
+            movedHit.position = new Float[]{hit.position[0] + offset.x, hit.position[1] + offset.y, hit.position[2] + offset.z};
+            movedHit.rotation = hit.rotation;
+            movedHit.dimension = hit.dimension;
+            moved.add(movedHit);
         }
+        obstacle.setDtoHitboxes(moved);
     }
 
     @Override
@@ -155,8 +323,159 @@ public class UfoObjs implements ISimulationChild, IUfoObjs {
         return obstacles;
     }
 
+    @Override
+    public void castRays(float[] origins, float[] dirs, float[] ranges, int count, RayHitBuffer out) {
+        HitBoxBvh index = getHitBoxIndex();
+        HitBoxBvh.RayQuery query = rayQuery.get();
+        out.beginResults(count, index.getObstacleTable());
+        for (int r = 0; r < count; r++) {
+            if (index.rayTest(origins[3 * r], origins[3 * r + 1], origins[3 * r + 2],
+                    dirs[3 * r], dirs[3 * r + 1], dirs[3 * r + 2], ranges[r], query)) {
+                out.setResult(r, query.getDistance(), index.getObstacleIndex(query.getBox()));
+            } else {
+                out.setResult(r, Float.POSITIVE_INFINITY, RayHitBuffer.NO_HIT);
+            }
+        }
+    }
+
+    /**
+     * Casts all rays that were added to the buffer.
+     * <p>
+     * The rays of a sensor shape usually pass only a few obstacles. So the boxes within the bounds of all rays are
+     * collected once and every ray is only tested against them, instead of walking the whole index per ray.
+     * If there are too many boxes, the rays walk the index as usual.
+     *
+     * @param out buffer holding the rays, receives the results
+     */
+    private void castRays(RayHitBuffer out) {
+        float[] origins = out.getOrigins();
+        float[] dirs = out.getDirections();
+        float[] ranges = out.getRanges();
+        int count = out.getRayCount();
+
+        // Bounds of the sensor volume, spanned by the start and end of every ray
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int r = 0; r < count; r++) {
+            float ox = origins[3 * r];
+            float oy = origins[3 * r + 1];
+            float oz = origins[3 * r + 2];
+            float dx = dirs[3 * r];
+            float dy = dirs[3 * r + 1];
+            float dz = dirs[3 * r + 2];
+            float length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+            float scale = length > 0f ? ranges[r] / length : 0f;
+            float ex = ox + dx * scale;
+            float ey = oy + dy * scale;
+            float ez = oz + dz * scale;
+            minX = Math.min(minX, Math.min(ox, ex));
+            minY = Math.min(minY, Math.min(oy, ey));
+            minZ = Math.min(minZ, Math.min(oz, ez));
+            maxX = Math.max(maxX, Math.max(ox, ex));
+            maxY = Math.max(maxY, Math.max(oy, ey));
+            maxZ = Math.max(maxZ, Math.max(oz, ez));
+        }
+
+        HitBoxBvh index = getHitBoxIndex();
+        HitBoxBvh.RayQuery query = rayQuery.get();
+        out.beginResults(count, index.getObstacleTable());
+        if (index.collectCandidates(minX, minY, minZ, maxX, maxY, maxZ, query) == 0) {
+            // Nothing within the sensor volume
+            for (int r = 0; r < count; r++) {
+                out.setResult(r, Float.POSITIVE_INFINITY, RayHitBuffer.NO_HIT);
+            }
+            return;
+        }
+        for (int r = 0; r < count; r++) {
+            if (index.candidateRayTest(origins[3 * r], origins[3 * r + 1], origins[3 * r + 2],
+                    dirs[3 * r], dirs[3 * r + 1], dirs[3 * r + 2], ranges[r], query)) {
+                out.setResult(r, query.getDistance(), index.getObstacleIndex(query.getBox()));
+            } else {
+                out.setResult(r, Float.POSITIVE_INFINITY, RayHitBuffer.NO_HIT);
+            }
+        }
+    }
+
+    /**
+     * @return the sampler of this thread, if the adaptive sampling is enabled in the config, otherwise null
+     */
+    private AdaptiveSampler getAdaptiveSampler() {
+        return Boolean.TRUE.equals(config.config.adaptiveSampling) ? adaptiveSampler.get() : null;
+    }
+
+    /**
+     * @param sampler sampler of the adaptive sampling or null
+     * @param out     buffer of the caller
+     * @return the buffer for the rays of the sensor shape
+     */
+    private static RayHitBuffer beginFan(AdaptiveSampler sampler, RayHitBuffer out) {
+        if (sampler == null) {
+            out.clear();
+            return out;
+        }
+        return sampler.begin();
+    }
+
+    /**
+     * Casts the rays of a sensor shape. With the adaptive sampling a coarse part of the fan is cast first and
+     * only the rays around its hits afterwards, see {@link AdaptiveSampler}.
+     *
+     * @param sampler sampler of the adaptive sampling or null
+     * @param spacing smallest distance between two rays of the fan, in the unit of the samples
+     * @param out     buffer holding the rays without the adaptive sampling, receives the results
+     */
+    private void castFan(AdaptiveSampler sampler, float spacing, RayHitBuffer out) {
+        if (sampler == null) {
+            castRays(out);
+            return;
+        }
+        if (sampler.isSmall()) {
+            sampler.selectAll(out);
+            castRays(out);
+            return;
+        }
+        sampler.selectCoarse(spacing, out);
+        castRays(out);
+        if (out.getHitCount() == 0) {
+            // Nothing near the sensor, the misses of the first pass are the result
+            return;
+        }
+        // The second pass is a part of the full fan, the first pass is only used to find it
+        sampler.selectAround(out);
+        castRays(out);
+    }
+
+    /**
+     * Converts the hits of a buffer into HitMarks, for the Set based sensor checks
+     *
+     * @param buffer buffer after a cast
+     * @return a HitMark for every ray that hit an obstacle
+     */
+    private static Set<HitMark> toHitMarks(RayHitBuffer buffer) {
+        Set<HitMark> hits = new HashSet<>();
+        float[] origins = buffer.getOrigins();
+        float[] directions = buffer.getDirections();
+        for (int r = 0; r < buffer.getResultCount(); r++) {
+            if (!buffer.isHit(r)) {
+                continue;
+            }
+            Vector3f relativeHit = new Vector3f(directions[3 * r], directions[3 * r + 1], directions[3 * r + 2])
+                    .normalizeLocal().multLocal(buffer.getDistance(r));
+            Vector3f worldHit = relativeHit.add(origins[3 * r], origins[3 * r + 1], origins[3 * r + 2]);
+            hits.add(new HitMark(buffer.getDistance(r), worldHit, relativeHit, buffer.getObstacle(r)));
+        }
+        return hits;
+    }
+
     @Override
     public Set<HitMark> checkSensorCone(Vector3f origin, Vector3f orientation, float range, Vector3f opening) {
+        RayHitBuffer buffer = shapeBuffer.get();
+        castSensorCone(origin, orientation, range, opening, buffer);
+        return toHitMarks(buffer);
+    }
+
+    @Override
+    public void castSensorCone(Vector3f origin, Vector3f orientation, float range, Vector3f opening, RayHitBuffer out) {
         /*
          * this algorithm uses golden ratio ((1 + sqrt(5))/2) to create a golden angle and
          * use this angle to rotate a vector around its origin n times depending on vector number
@@ -168,98 +487,95 @@ public class UfoObjs implements ISimulationChild, IUfoObjs {
          * http://blog.marmakoide.org/?p=1
          * https://youtu.be/bqtqltqcQhw?t=128
          */
-        Set<HitMark> hits = new HashSet<>();
-        float dist;
+        AdaptiveSampler sampler = getAdaptiveSampler();
+        RayHitBuffer fan = beginFan(sampler, out);
 
-        Vector3f angleVec = opening.normalize();
-        Vector3f direction = orientation.normalize();
+        ShapeScratch scratch = shapeScratch.get();
+        Vector3f angleVec = scratch.angleVec.set(opening).normalizeLocal();
+        Vector3f direction = scratch.direction.set(orientation).normalizeLocal();
         //create a projection of angleVec on direction (to use for creating 2 perpendicular vectors to direction)
         //proj(d) a = d * a / (|d|² == 1)
-        Vector3f angleProjOnDir = direction.mult(angleVec.dot(direction));
+        Vector3f angleProjOnDir = scratch.projection.set(direction).multLocal(angleVec.dot(direction));
         //use the projected vector to create a vector perpendicular to direction
-        Vector3f i = angleProjOnDir.subtract(angleVec);
+        Vector3f i = angleProjOnDir.subtract(angleVec, scratch.i);
         //record the radius range to use for distributing rays
         float radius = i.length();
         i.normalizeLocal();
         //create a second vector that is perpendicular to direction vector and i vector
-        Vector3f j = i.cross(direction).normalizeLocal();
-
-        //reuse loop variables
-        Vector3f dI = new Vector3f();
-        Vector3f dJ = new Vector3f();
-        Vector3f ray = new Vector3f();
+        Vector3f j = scratch.j.set(i).crossLocal(direction).normalizeLocal();
 
         //rays count is dependent on cone base area and given density/m
         float r = radius / angleProjOnDir.length() * range * config.config.rayDensity;
         int rayCount = (int) (r * r * Math.PI);
+        fan.ensureCapacity(rayCount);
+        //the golden angle samples of the unit disc, scaled so rayCount samples fill the base
+        float[] disk = SampleTables.disk(rayCount);
+        float scale = radius / (float) Math.sqrt(rayCount - 1f);
 
         for (int l = 0; l < rayCount; l++) {
-            //determine distance from circle center based on ray number
-            dist = (float) Math.sqrt(l / (rayCount - 1f)) * radius;
-
-            //use the golden angle and ray number to get x and y coordinates relative
-            //to circle center and transform it to world x, y, z coordinates
-            dI.set(i.mult(dist * (float) Math.cos(GOLDEN_ANGLE * l)));
-            dJ.set(j.mult(dist * (float) Math.sin(GOLDEN_ANGLE * l)));
-            ray.set(angleProjOnDir.x + dI.x + dJ.x,
-                    angleProjOnDir.y + dI.y + dJ.y,
-                    angleProjOnDir.z + dI.z + dJ.z).normalizeLocal();
-
-            //check for collisions and add the hitmark to the list if a collision is found
-            HitMark hit = this.rayTest(origin, ray, range);
-            if (hit != null) {
-                hits.add(hit);
-            }
+            //x and y coordinates relative to circle center based on ray number,
+            //transformed to world x, y, z coordinates
+            float dI = disk[2 * l] * scale;
+            float dJ = disk[2 * l + 1] * scale;
+            fan.addRay(origin.x, origin.y, origin.z,
+                    angleProjOnDir.x + i.x * dI + j.x * dJ,
+                    angleProjOnDir.y + i.y * dI + j.y * dJ,
+                    angleProjOnDir.z + i.z * dI + j.z * dJ,
+                    range);
+            if (sampler != null) sampler.addSample(dI, dJ);
         }
-        return hits;
+
+        //check for collisions, the hits are stored in the buffer
+        castFan(sampler, radius * (float) Math.sqrt(Math.PI / rayCount), out);
     }
 
     @Override
     public Set<HitMark> checkSensorPyramid(Vector3f origin, Vector3f orientation, float range, Vector3f opening) {
-        Set<HitMark> hits = new HashSet<>();
+        RayHitBuffer buffer = shapeBuffer.get();
+        castSensorPyramid(origin, orientation, range, opening, buffer);
+        return toHitMarks(buffer);
+    }
 
-        Vector3f direction = orientation.normalize();
-        Vector3f angleVec = opening.normalize();
+    @Override
+    public void castSensorPyramid(Vector3f origin, Vector3f orientation, float range, Vector3f opening, RayHitBuffer out) {
+        AdaptiveSampler sampler = getAdaptiveSampler();
+        RayHitBuffer fan = beginFan(sampler, out);
+
+        ShapeScratch scratch = shapeScratch.get();
+        Vector3f direction = scratch.direction.set(orientation).normalizeLocal();
+        Vector3f angleVec = scratch.angleVec.set(opening).normalizeLocal();
         //create a projection of angleVec on direction (to use for creating 2 perpendicular vectors to direction)
         //proj(d) a = d * a / (|d|² == 1)
-        Vector3f angleProjOnDir = direction.mult(direction.dot(angleVec));
+        Vector3f angleProjOnDir = scratch.projection.set(direction).multLocal(direction.dot(angleVec));
         //use the projected vector to create a vector perpendicular to direction
-        Vector3f i = angleVec.subtract(angleProjOnDir);
+        Vector3f i = angleVec.subtract(angleProjOnDir, scratch.i);
         //record the width range to use for distributing rays
         float width = 2 * i.length();
         i.normalizeLocal();
         //create a second vector that is perpendicular to direction vector and i vector
-        Vector3f j = i.cross(direction).normalizeLocal();
-
-        //reuse loop variables
-        Vector3f dI = new Vector3f();
-        Vector3f dJ = new Vector3f();
-        Vector3f ray = new Vector3f();
+        Vector3f j = scratch.j.set(i).crossLocal(direction).normalizeLocal();
 
         //rays count is dependent on pyramid base area and given density/m
         int rayPerRow = (int) (width / angleProjOnDir.length() * range * config.config.rayDensity);
         float step = width / rayPerRow;
+        fan.ensureCapacity((rayPerRow + 1) * (rayPerRow + 1));
 
         for (float y = -width / 2; y <= width / 2; y += step) {
             for (float x = -width / 2; x <= width / 2; x += step) {
 
                 //get x and y coordinates relative to rectangle center
                 //and transform it to world x, y, z coordinates
-                dI.set(i.mult(x));
-                dJ.set(j.mult(y));
-                ray.set(angleProjOnDir.x + dI.x + dJ.x,
-                        angleProjOnDir.y + dI.y + dJ.y,
-                        angleProjOnDir.z + dI.z + dJ.z).normalizeLocal();
-
-                //check for collisions and add the hitmark to the list if a collision is found
-                HitMark hit = this.rayTest(origin, ray, range);
-                if (hit != null) {
-                    hits.add(hit);
-                }
+                fan.addRay(origin.x, origin.y, origin.z,
+                        angleProjOnDir.x + i.x * x + j.x * y,
+                        angleProjOnDir.y + i.y * x + j.y * y,
+                        angleProjOnDir.z + i.z * x + j.z * y,
+                        range);
+                if (sampler != null) sampler.addSample(x, y);
             }
         }
 
-        return hits;
+        //check for collisions, the hits are stored in the buffer
+        castFan(sampler, step, out);
     }
 
     @Override
@@ -269,38 +585,46 @@ public class UfoObjs implements ISimulationChild, IUfoObjs {
 
     @Override
     public Set<HitMark> checkSensorCuboid(Vector3f origin, Vector3f orientation, Vector3f dimension, float rotation) {
+        RayHitBuffer buffer = shapeBuffer.get();
+        castSensorCuboid(origin, orientation, dimension, rotation, buffer);
+        return toHitMarks(buffer);
+    }
+
+    @Override
+    public void castSensorCuboid(Vector3f origin, Vector3f orientation, Vector3f dimension, float rotation, RayHitBuffer out) {
 
         // Orientation is a normal,
         // The rotation angle is axis aligned, so its the rotation around the orientation vector (so the normal)
         // Where rotation 0 is like facing directly upwards...
 
-        Set<HitMark> hits = new HashSet<>();
+        // No adaptive sampling, the ray origins aren't spread on a plane across the rays (see the TODO below),
+        // so neighbouring rays of the fan don't hit neighbouring spots
+        out.clear();
         int ppm = this.config.config.rayDensity;
 
-        Vector3f normal = orientation.normalize();
+        ShapeScratch scratch = shapeScratch.get();
+        Vector3f normal = scratch.direction.set(orientation).normalizeLocal();
         float range = dimension.z;
 
-        Vector3f center = new Vector3f(origin);
-
         //Place the two vectors directly infront of the drone
-        Vector3f verticalVect = new Vector3f(dimension.x / 2f, 0, 0);
-        Vector3f horizontalVect = new Vector3f(0, dimension.y / 2f, 0);
+        Vector3f verticalVect = scratch.i.set(dimension.x / 2f, 0, 0);
+        Vector3f horizontalVect = scratch.j.set(0, dimension.y / 2f, 0);
 
         //Rotate upwards (pitch)
-        Vector3f pitchVect = new Vector3f(0, orientation.y, orientation.z);
+        Vector3f pitchVect = scratch.projection.set(0, orientation.y, orientation.z);
         float angelPitch = pitchVect.angleBetween(Vector3f.UNIT_Y);
-        Quaternion pitchRotation = new Quaternion();
-        pitchRotation.fromAngleAxis(angelPitch, Vector3f.UNIT_X);
+        Quaternion pitchRotation = scratch.pitchRotation;
+        pitchRotation.fromAngleNormalAxis(angelPitch, Vector3f.UNIT_X);
 
         //Rotate sideways (yaw)
-        Vector3f yawVect = new Vector3f(orientation.x, 0, orientation.z);
+        Vector3f yawVect = scratch.projection.set(orientation.x, 0, orientation.z);
         float angelYaw = yawVect.angleBetween(Vector3f.UNIT_Z);
-        Quaternion yawRotation = new Quaternion();
-        yawRotation.fromAngleAxis(angelYaw, Vector3f.UNIT_Y);
+        Quaternion yawRotation = scratch.yawRotation;
+        yawRotation.fromAngleNormalAxis(angelYaw, Vector3f.UNIT_Y);
 
-        //Rotate the voctors around the orientation vector
-        Quaternion rollRotation = new Quaternion();
-        rollRotation.fromAngleAxis(rotation, orientation);
+        //Rotate the voctors around the orientation vector (normalized, like fromAngleAxis does it)
+        Quaternion rollRotation = scratch.rollRotation;
+        rollRotation.fromAngleNormalAxis(rotation, normal);
 
         //TODO Check if this is correct...
         pitchRotation.multLocal(verticalVect);
@@ -311,7 +635,7 @@ public class UfoObjs implements ISimulationChild, IUfoObjs {
         rollRotation.multLocal(horizontalVect);
 
         //topLeft Should be the Point where the Sensor will start rastering;
-        Vector3f topLeft = center.subtract(horizontalVect);
+        Vector3f topLeft = origin.subtract(horizontalVect, scratch.topLeft);
         topLeft.subtract(verticalVect, topLeft);
 
         //Rasterization based on width (needed rays to match roughly density of rays)
@@ -319,27 +643,37 @@ public class UfoObjs implements ISimulationChild, IUfoObjs {
         int neededRaysY = (int) Math.ceil(dimension.y * ppm);
         float stepSizeX = dimension.x / neededRaysX;
         float stepSizeY = dimension.y / neededRaysY;
-        Vector3f horizontalStep = horizontalVect.mult(stepSizeX);
-        Vector3f verticalStep = verticalVect.mult(stepSizeY);
+        //The directions aren't needed anymore, they become the steps
+        Vector3f horizontalStep = horizontalVect.multLocal(stepSizeX);
+        Vector3f verticalStep = verticalVect.multLocal(stepSizeY);
+        out.ensureCapacity(neededRaysX * neededRaysY);
 
         for (int y = 0; y < neededRaysY; y++) {
-            Vector3f currentPoint = topLeft.add(verticalStep.mult(y));
+            float currentX = topLeft.x + verticalStep.x * y;
+            float currentY = topLeft.y + verticalStep.y * y;
+            float currentZ = topLeft.z + verticalStep.z * y;
             for (int x = 0; x < neededRaysX; x++) {
-                //Do the actual Ray Test
-                //TODO propably directly calc the range Vector, because the Range Vector will stay always the same.
-                HitMark hit = this.rayTest(currentPoint, normal, range);
-                if (hit != null) {
-                    hits.add(hit);
-                }
-                currentPoint.addLocal(horizontalStep);
+                //All rays are parallel to the normal, just the starting point moves
+                out.addRay(currentX, currentY, currentZ, normal.x, normal.y, normal.z, range);
+                currentX += horizontalStep.x;
+                currentY += horizontalStep.y;
+                currentZ += horizontalStep.z;
             }
         }
 
-        return hits;
+        //Do the actual Ray Test, the hits are stored in the buffer
+        castRays(out);
     }
 
     @Override
     public Set<HitMark> checkSensorCylinder(Vector3f origin, Vector3f orientation, Vector3f dimension) {
+        RayHitBuffer buffer = shapeBuffer.get();
+        castSensorCylinder(origin, orientation, dimension, buffer);
+        return toHitMarks(buffer);
+    }
+
+    @Override
+    public void castSensorCylinder(Vector3f origin, Vector3f orientation, Vector3f dimension, RayHitBuffer out) {
         /*
          * this algorithm uses golden ratio ((1 + sqrt(5))/2) to create a golden angle and
          * use this angle to rotate a vector around its origin n times depending on vector number
@@ -351,75 +685,107 @@ public class UfoObjs implements ISimulationChild, IUfoObjs {
          * http://blog.marmakoide.org/?p=1
          * https://youtu.be/bqtqltqcQhw?t=128
          */
-        Set<HitMark> hits = new HashSet<>();
-        Random rand = new Random();
+        AdaptiveSampler sampler = getAdaptiveSampler();
+        RayHitBuffer fan = beginFan(sampler, out);
 
         //if dimensions of the cylinder base differs take the biggest one (error forgiving)
         float radius = (dimension.x >= dimension.y) ? dimension.x / 2f : dimension.y / 2f; //cylinder radius
         float range = dimension.z; //cylinder height
-        float dist;
 
         //create a random Point to generate a vector perpendicular to direction 
-        Vector3f direction = orientation.normalize();
-        Vector3f randomPoint = new Vector3f(rand.nextFloat(), rand.nextFloat(), rand.nextFloat());
+        ShapeScratch scratch = shapeScratch.get();
+        Vector3f direction = scratch.direction.set(orientation).normalizeLocal();
+        long random = cylinderRandom(origin, direction);
+        Vector3f randomPoint = scratch.angleVec.set(
+                unitFloat(random + GOLDEN_GAMMA), unitFloat(random + 2 * GOLDEN_GAMMA), unitFloat(random + 3 * GOLDEN_GAMMA));
         //proj(d) p = d * p / (|d|² == 1)
-        Vector3f pointProjOnDir = direction.mult(randomPoint.dot(direction));
+        Vector3f pointProjOnDir = scratch.projection.set(direction).multLocal(randomPoint.dot(direction));
 
         //use the projected point to create a vector perpendicular to direction
-        Vector3f i = randomPoint.subtract(pointProjOnDir).normalizeLocal();
+        Vector3f i = randomPoint.subtract(pointProjOnDir, scratch.i).normalizeLocal();
         //create a second vector that is perpendicular to direction vector and i vector
-        Vector3f j = i.cross(direction).normalizeLocal();
-
-        //reuse loop variables
-        Vector3f dI = new Vector3f();
-        Vector3f dJ = new Vector3f();
-        Vector3f startPoint = new Vector3f(); //Ray starting Point
+        Vector3f j = scratch.j.set(i).crossLocal(direction).normalizeLocal();
 
         //calculate needed rays count based on cylinder base area = PI * r^2
         int density = config.config.rayDensity;
         int rayCount = (int) ((radius * density) * (radius * density) * Math.PI);
+        fan.ensureCapacity(rayCount);
+        //the golden angle samples of the unit disc, scaled so rayCount samples fill the base
+        float[] disk = SampleTables.disk(rayCount);
+        float scale = radius / (float) Math.sqrt(rayCount - 1f);
 
         for (int l = 0; l < rayCount; l++) {
-            //determine distance from circle center based on ray number
-            dist = (float) Math.sqrt(l / (rayCount - 1f)) * radius;
-
-            //use the golden angle and ray number to get x and y coordinates relative
-            //to circle center and transform it to world x, y, z coordinates
-            dI.set(i.mult(dist * (float) Math.cos(GOLDEN_ANGLE * l)));
-            dJ.set(j.mult(dist * (float) Math.sin(GOLDEN_ANGLE * l)));
-            startPoint.set(origin.x + dI.x + dJ.x,
-                    origin.y + dI.y + dJ.y,
-                    origin.z + dI.z + dJ.z);
-
-            //check for collisions and add the hitmark to the list if a collision is found
-            HitMark hit = this.rayTest(startPoint, direction, range);
-            if (hit != null) {
-                hits.add(hit);
-            }
+            //x and y coordinates relative to circle center based on ray number,
+            //transformed to world x, y, z coordinates (ray starting point)
+            float dI = disk[2 * l] * scale;
+            float dJ = disk[2 * l + 1] * scale;
+            fan.addRay(origin.x + i.x * dI + j.x * dJ,
+                    origin.y + i.y * dI + j.y * dJ,
+                    origin.z + i.z * dI + j.z * dJ,
+                    direction.x, direction.y, direction.z,
+                    range);
+            if (sampler != null) sampler.addSample(dI, dJ);
         }
-        return hits;
+
+        //check for collisions, the hits are stored in the buffer
+        castFan(sampler, radius * (float) Math.sqrt(Math.PI / rayCount), out);
+    }
+
+    /**
+     * The random point of a cylinder only depends on the seed and the cast, not on the order of the casts,
+     * so sensors measuring in parallel get the same results in every run
+     *
+     * @return State of a SplitMix64 generator for this cast
+     */
+    private long cylinderRandom(Vector3f origin, Vector3f direction) {
+        long state = cylinderSeed;
+        state = mix64(state ^ Float.floatToIntBits(origin.x));
+        state = mix64(state ^ Float.floatToIntBits(origin.y));
+        state = mix64(state ^ Float.floatToIntBits(origin.z));
+        state = mix64(state ^ Float.floatToIntBits(direction.x));
+        state = mix64(state ^ Float.floatToIntBits(direction.y));
+        return mix64(state ^ Float.floatToIntBits(direction.z));
+    }
+
+    /**
+     * @return Value between 0 (inclusive) and 1 (exclusive) of the SplitMix64 generator state
+     */
+    private static float unitFloat(long state) {
+        return (mix64(state) >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * Output function of the SplitMix64 generator, the same as {@link SplittableRandom}
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
     }
 
     @Override
     public boolean checkSphereCollision(Vector3f origin, float radius) {
-        RigidBody hitBody = jBullet.createSphere(VecMathHelper.of(origin), radius);
-        try {
-            return jBullet.checkCollision(hitBody).get(COLLISION_CHECK_TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            logger.info("Timeout waiting for Collision");
-        }
-        return false;
+        return getHitBoxIndex().sphereTest(origin.x, origin.y, origin.z, radius, 0, rayQuery.get());
     }
 
     @Override
     public boolean checkSphereHalfCollision(Vector3f origin, float radius, int signum){
-        RigidBody hitBody = jBullet.createSphere(VecMathHelper.of(origin), radius);
-        try {
-            return jBullet.checkCollisionHalf(hitBody, signum).get(COLLISION_CHECK_TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            logger.info("Timeout waiting for Collision");
+        return checkSphereHalfCollision(origin.x, origin.y, origin.z, radius, signum);
+    }
+
+    @Override
+    public boolean checkSphereHalfCollision(float x, float y, float z, float radius, int signum) {
+        // Only the sign matters, like the contact point check with JBullet did
+        return getHitBoxIndex().sphereTest(x, y, z, radius, Integer.signum(signum), rayQuery.get());
+    }
+
+    @Override
+    public float getObstacleDistance(float x, float y, float z) {
+        HitBoxBvh.RayQuery query = rayQuery.get();
+        if (!getHitBoxIndex().distanceTest(x, y, z, Float.POSITIVE_INFINITY, query)) {
+            return Float.POSITIVE_INFINITY;
         }
-        return false;
+        return query.getDistance();
     }
 
     /**
@@ -433,16 +799,10 @@ public class UfoObjs implements ISimulationChild, IUfoObjs {
     public boolean checkSphereRayCollisionImp(Vector3f origin, float radius) {
         Vector3f ray = new Vector3f();
         int rayCount = 300;
-        float inclination, azimuth, sin;
+        float[] sphere = SampleTables.sphere(rayCount);
 
         for (int l = 0; l < rayCount; l++) {
-            inclination = (float) Math.acos(1 - 2 * l / (float) rayCount);
-            azimuth = GOLDEN_ANGLE * l;
-            sin = (float) Math.sin(inclination);
-
-            ray.set(sin * (float) Math.cos(azimuth),
-                    sin * (float) Math.sin(azimuth),
-                    (float) Math.cos(inclination)).normalizeLocal();
+            ray.set(sphere[3 * l], sphere[3 * l + 1], sphere[3 * l + 2]);
 
             //check for collision & set crash flag
             if (this.rayTest(origin, ray, radius) != null)
@@ -466,21 +826,14 @@ public class UfoObjs implements ISimulationChild, IUfoObjs {
         Vector3f ray = new Vector3f();
 
         int rayCount = 150;
-        float inclination, azimuth, sin, cos;
+        float[] sphere = SampleTables.sphere(rayCount);
 
-        //half the rays will be skipped -> doubling loop iterations
-        for (int l = 0; l < 2 * rayCount; l++) {
-            inclination = (float) Math.acos(1 - 2 * l / (float) rayCount);
-
-            cos = (float) Math.cos(inclination);
+        //half the rays will be skipped, the sphere is turned so the poles are on the y-axis
+        for (int l = 0; l <= rayCount; l++) {
+            float cos = sphere[3 * l + 2];
             if (cos * signum < 0) continue;
-            sin = (float) Math.sin(inclination);
-
-            azimuth = GOLDEN_ANGLE * l;
 
-            ray.set(sin * (float) Math.cos(azimuth),
-                    cos,
-                    sin * (float) Math.sin(azimuth)).normalizeLocal();
+            ray.set(sphere[3 * l], cos, sphere[3 * l + 1]);
 
             //check for collision & set crash flag
             if (this.rayTest(origin, ray, radius) != null)
@@ -491,9 +844,17 @@ public class UfoObjs implements ISimulationChild, IUfoObjs {
 
     @Override
     public ObstacleJsonDTO save() {
-        Set<Obstacle> obstacles = this.getObstacles();
+        Set<Obstacle> obstacles;
+        synchronized (hitBoxes) {
+            // The tile loader might change the obstacles at the same time
+            obstacles = new HashSet<>(this.getObstacles());
+        }
         HashSet<ObstacleDTO> obstacleDTOSet = new HashSet<>();
         for (Obstacle o : obstacles) {
+            if (tileLoader != null && tileLoader.isTileObstacle(o.getID())) {
+                // Tiles are saved in their own files
+                continue;
+            }
             // Clone all obstacles and add them to the obstacleDTOSet
             ObstacleDTO cloneObsDTO = new ObstacleDTO();
             cloneObsDTO.modelName = o.getModelName();
@@ -507,6 +868,11 @@ public class UfoObjs implements ISimulationChild, IUfoObjs {
         }
         ObstacleJsonDTO jsonDTO = new ObstacleJsonDTO();
         jsonDTO.config.rayDensity = this.config.config.rayDensity;
+        jsonDTO.config.adaptiveSampling = this.config.config.adaptiveSampling;
+        jsonDTO.config.tileDirectory = this.config.config.tileDirectory;
+        jsonDTO.config.tileSize = this.config.config.tileSize;
+        jsonDTO.config.tileRadius = this.config.config.tileRadius;
+        jsonDTO.config.maxLoadedTiles = this.config.config.maxLoadedTiles;
         jsonDTO.obstacles = obstacleDTOSet;
 
         return jsonDTO;
@@ -515,32 +881,65 @@ public class UfoObjs implements ISimulationChild, IUfoObjs {
     @Override
     public void initialize(Simulation simulation) {
         this.simulation = simulation;
+        this.cylinderSeed = new SplittableRandom(simulation.getSeed()).split().nextLong();
 
         // Register the DroneCrashListener
         this.simulation.registerUpdateListener(new DroneCrashListener(this), DroneCrashListener.LISTENER_PRIORITY);
 
         // Clear old Obstacles when Simulation is changed
-        if (!this.obstacles.isEmpty()) {
-            Set<Obstacle> obs = new HashSet<>(this.getObstacles());
-            for (Obstacle o : obs) {
-                this.removeObstacle(o);
-            }
+        if (tileLoader != null) {
+            tileLoader.close();
+            tileLoader = null;
+        }
+        synchronized (hitBoxes) {
+            hitBoxes.clear();
+            obstacles.clear();
+            obstaclesById.clear();
+            hitBoxIndexDirty = true;
         }
         try {
             if (this.simulation.getConfig().getObstacleConfigList().isEmpty())
                 return;
             this.config = simulation.getConfig().getObstacleConfigList().get(0);
 
-            // Add obstacles to the context
-            Set<ObstacleDTO> obstacleDTOSet = this.config.obstacles;
-            for (ObstacleDTO o : obstacleDTOSet) {
-                this.addObstacle(o);
+            // Add obstacles to the context in one batch, which builds the ray test index as well
+            applyChanges(this.config.obstacles, Collections.emptyList(), Collections.emptyList());
+
+            // The tiles of large maps are loaded around the drone once the simulation runs
+            if (this.config.config != null && this.config.config.tileDirectory != null) {
+                tileLoader = new ObstacleTileLoader(this, this.config.config);
+                this.simulation.registerUpdateListener(tileLoader, ObstacleTileLoader.LISTENER_PRIORITY);
             }
         } catch (NullPointerException exception) {
             // TODO load default config
         }
     }
 
+    /**
+     * Loads the tiles around the start of the drone, before the first tick checks for collisions
+     */
+    @Override
+    public void onSimulationStart() {
+        if (tileLoader != null) {
+            tileLoader.update(simulation.getDrone().getLocation());
+            tileLoader.awaitLoaded();
+        }
+    }
+
+    @Override
+    public void onSimulationStop() {
+        if (tileLoader != null) {
+            tileLoader.close();
+        }
+    }
+
+    /**
+     * @return The loader of the obstacle tiles or null, if the map has no tiles
+     */
+    public ObstacleTileLoader getTileLoader() {
+        return tileLoader;
+    }
+
     @Override
     public Simulation getSimulation() {
         return this.simulation;
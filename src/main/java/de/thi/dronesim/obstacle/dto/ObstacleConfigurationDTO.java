@@ -1,9 +1,31 @@
 package de.thi.dronesim.obstacle.dto;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 public class ObstacleConfigurationDTO implements Serializable {
     public Integer rayDensity;
+    /**
+     * Casts a coarse part of the rays of the sensor cone, pyramid and cylinder first and the full density only around its hits,
+     * see {@link de.thi.dronesim.obstacle.util.AdaptiveSampler}
+     */
+    public Boolean adaptiveSampling;
+    /**
+     * Directory of the obstacle tiles, null if the map has no tiles, see {@link de.thi.dronesim.obstacle.ObstacleTileLoader}
+     */
+    public String tileDirectory;
+    /**
+     * Edge length of a tile in m
+     */
+    public Float tileSize;
+    /**
+     * Number of tiles around the tile of the drone, which are loaded in every direction
+     */
+    public Integer tileRadius;
+    /**
+     * Maximum number of tiles kept in memory
+     */
+    public Integer maxLoadedTiles;
 
     @Override
     public boolean equals(Object o) {
@@ -12,11 +34,22 @@ public class ObstacleConfigurationDTO implements Serializable {
 
         ObstacleConfigurationDTO that = (ObstacleConfigurationDTO) o;
 
-        return rayDensity != null ? rayDensity.equals(that.rayDensity) : that.rayDensity == null;
+        if (rayDensity != null ? !rayDensity.equals(that.rayDensity) : that.rayDensity != null) return false;
+        if (!Objects.equals(adaptiveSampling, that.adaptiveSampling)) return false;
+        if (!Objects.equals(tileDirectory, that.tileDirectory)) return false;
+        if (!Objects.equals(tileSize, that.tileSize)) return false;
+        if (!Objects.equals(tileRadius, that.tileRadius)) return false;
+        return Objects.equals(maxLoadedTiles, that.maxLoadedTiles);
     }
 
     @Override
     public int hashCode() {
-        return rayDensity != null ? rayDensity.hashCode() : 0;
+        int result = rayDensity != null ? rayDensity.hashCode() : 0;
+        result = 31 * result + Objects.hashCode(adaptiveSampling);
+        result = 31 * result + Objects.hashCode(tileDirectory);
+        result = 31 * result + Objects.hashCode(tileSize);
+        result = 31 * result + Objects.hashCode(tileRadius);
+        result = 31 * result + Objects.hashCode(maxLoadedTiles);
+        return result;
     }
 }
@@ -1,8 +1,5 @@
 package de.thi.dronesim.obstacle.entity;
 
-import de.thi.dronesim.helpers.Jme3MathHelper;
-import de.thi.dronesim.obstacle.util.JBulletHitMark;
-
 import com.jme3.math.Vector3f;
 
 import java.util.Objects;
@@ -16,13 +13,6 @@ public class HitMark {
     private final Vector3f relativeHit;
     private final Obstacle obstacle;
 
-    public HitMark(JBulletHitMark hitBody) {
-        this.distance = hitBody.distance;
-        this.worldHit = Jme3MathHelper.of(hitBody.worldHit);
-        this.relativeHit = Jme3MathHelper.of(hitBody.relativeHit);
-        this.obstacle = hitBody.body.getObstacle();
-    }
-
     public HitMark(float distance, Vector3f worldHit, Vector3f relativeHit, Obstacle obstacle){
         this.distance = distance;
         this.worldHit = worldHit;
@@ -59,6 +59,14 @@ public class Obstacle {
         return this.position;
     }
 
+    public void setPosition(Float[] position) {
+        this.position = position;
+    }
+
+    public void setDtoHitboxes(Set<HitBoxDTO> dtoHitboxes) {
+        this.dtoHitboxes = dtoHitboxes;
+    }
+
     public Float[] getRotation() {
         return this.rotation;
     }
@@ -0,0 +1,208 @@
+package de.thi.dronesim.obstacle.entity;
+
+import java.util.Arrays;
+
+/**
+ * Reusable primitive buffer for batched ray tests, see {@link de.thi.dronesim.obstacle.IUfoObjs#castRays}.
+ * <p>
+ * The buffer holds the packed rays (3 floats per origin and direction, 1 float per range) and the results
+ * for every ray: the distance to the closest hit and the index of the hit obstacle.
+ * The arrays only grow, so a buffer that is reused every tick doesn't produce any garbage once it
+ * has reached the needed size.
+ * <p>
+ * Not thread safe, use one buffer per sensor or thread.
+ */
+public class RayHitBuffer {
+    /**
+     * Obstacle index of a ray that didn't hit anything
+     */
+    public static final int NO_HIT = -1;
+
+    private float[] origins;
+    private float[] directions;
+    private float[] ranges;
+    private float[] distances;
+    private int[] obstacleIndices;
+    private Obstacle[] obstacleTable = new Obstacle[0];
+    private int rayCount;
+    private int resultCount;
+    private int hitCount;
+
+    public RayHitBuffer() {
+        this(64);
+    }
+
+    /**
+     * @param capacity initial number of rays
+     */
+    public RayHitBuffer(int capacity) {
+        capacity = Math.max(1, capacity);
+        origins = new float[3 * capacity];
+        directions = new float[3 * capacity];
+        ranges = new float[capacity];
+        distances = new float[capacity];
+        obstacleIndices = new int[capacity];
+    }
+
+    /**
+     * Removes all rays and results, the memory is kept
+     */
+    public void clear() {
+        rayCount = 0;
+        resultCount = 0;
+        hitCount = 0;
+    }
+
+    /**
+     * Grows the buffer, so it can hold at least the given number of rays
+     *
+     * @param capacity number of rays
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= ranges.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ranges.length + (ranges.length >> 1));
+        origins = Arrays.copyOf(origins, 3 * newCapacity);
+        directions = Arrays.copyOf(directions, 3 * newCapacity);
+        ranges = Arrays.copyOf(ranges, newCapacity);
+        distances = Arrays.copyOf(distances, newCapacity);
+        obstacleIndices = Arrays.copyOf(obstacleIndices, newCapacity);
+    }
+
+    /**
+     * Appends a ray to the packed ray arrays
+     *
+     * @return the index of the new ray
+     */
+    public int addRay(float ox, float oy, float oz, float dx, float dy, float dz, float range) {
+        ensureCapacity(rayCount + 1);
+        int i = rayCount++;
+        origins[3 * i] = ox;
+        origins[3 * i + 1] = oy;
+        origins[3 * i + 2] = oz;
+        directions[3 * i] = dx;
+        directions[3 * i + 1] = dy;
+        directions[3 * i + 2] = dz;
+        ranges[i] = range;
+        return i;
+    }
+
+    /**
+     * Prepares the result part of the buffer for a new batch
+     *
+     * @param count         number of rays of the batch
+     * @param obstacleTable table used to resolve the obstacle indices of this batch
+     */
+    public void beginResults(int count, Obstacle[] obstacleTable) {
+        ensureCapacity(count);
+        this.resultCount = count;
+        this.hitCount = 0;
+        this.obstacleTable = obstacleTable;
+    }
+
+    /**
+     * Stores the result of one ray
+     *
+     * @param ray           index of the ray
+     * @param distance      distance to the hit
+     * @param obstacleIndex index of the hit obstacle or {@link #NO_HIT}
+     */
+    public void setResult(int ray, float distance, int obstacleIndex) {
+        distances[ray] = distance;
+        obstacleIndices[ray] = obstacleIndex;
+        if (obstacleIndex != NO_HIT) {
+            hitCount++;
+        }
+    }
+
+    /**
+     * @return packed ray origins, 3 floats per ray
+     */
+    public float[] getOrigins() {
+        return origins;
+    }
+
+    /**
+     * @return packed ray directions, 3 floats per ray
+     */
+    public float[] getDirections() {
+        return directions;
+    }
+
+    /**
+     * @return ray ranges, 1 float per ray
+     */
+    public float[] getRanges() {
+        return ranges;
+    }
+
+    /**
+     * @return number of rays added with {@link #addRay}
+     */
+    public int getRayCount() {
+        return rayCount;
+    }
+
+    /**
+     * @return number of rays with a result
+     */
+    public int getResultCount() {
+        return resultCount;
+    }
+
+    /**
+     * @return number of rays that hit an obstacle
+     */
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    public boolean isHit(int ray) {
+        return obstacleIndices[ray] != NO_HIT;
+    }
+
+    /**
+     * @return distance to the closest hit, {@link Float#POSITIVE_INFINITY} if nothing was hit
+     */
+    public float getDistance(int ray) {
+        return distances[ray];
+    }
+
+    /**
+     * @return index of the hit obstacle or {@link #NO_HIT}
+     */
+    public int getObstacleIndex(int ray) {
+        return obstacleIndices[ray];
+    }
+
+    /**
+     * @return the hit obstacle or null
+     */
+    public Obstacle getObstacle(int ray) {
+        int index = obstacleIndices[ray];
+        return index == NO_HIT ? null : obstacleTable[index];
+    }
+
+    /**
+     * @return number of obstacles an obstacle index of the last batch can refer to
+     */
+    public int getObstacleCount() {
+        return obstacleTable.length;
+    }
+
+    /**
+     * @return table of the last batch, which is never changed afterwards
+     */
+    public Obstacle[] getObstacleTable() {
+        return obstacleTable;
+    }
+
+    /**
+     * @param obstacleIndex index as returned by {@link #getObstacleIndex(int)}
+     * @return the obstacle of the last batch with this index
+     */
+    public Obstacle getObstacleByIndex(int obstacleIndex) {
+        return obstacleTable[obstacleIndex];
+    }
+}
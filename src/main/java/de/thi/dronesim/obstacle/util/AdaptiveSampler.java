@@ -0,0 +1,198 @@
+package de.thi.dronesim.obstacle.util;
+
+import de.thi.dronesim.obstacle.entity.RayHitBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Selects the rays of a sensor fan for the adaptive sampling.
+ * <p>
+ * The sensor shape adds its full ray fan into {@link #begin()} and the position of every ray on the base of the
+ * shape with {@link #addSample(float, float)}. The base is divided into a grid, whose cells are
+ * {@link #COARSE_SPACING} times the smallest distance between two rays wide. The first pass casts one ray per cell, the
+ * second pass only the rays in the cells around a hit of the first pass. In empty space only the first pass is cast,
+ * which are about {@code 1 / COARSE_SPACING²} of the rays. As the second pass is a part of the full fan, the hits
+ * are the same as with the full fan, unless an obstacle is narrower than a cell and slips through the first pass.
+ * <p>
+ * The buffers are reused for every sensor check, use one instance per thread.
+ */
+public class AdaptiveSampler {
+    /**
+     * Width of a grid cell in rays
+     */
+    public static final int COARSE_SPACING = 4;
+    /**
+     * Smaller fans are always cast completely
+     */
+    public static final int MIN_RAYS = 4 * COARSE_SPACING * COARSE_SPACING;
+
+    private final RayHitBuffer fan = new RayHitBuffer();
+    private float[] u = new float[64];
+    private float[] v = new float[64];
+    private int[] sampleCell = new int[64];
+    private int count;
+
+    /**
+     * Sample of every cell of the first pass or -1
+     */
+    private int[] cellSample = new int[0];
+    private boolean[] marked = new boolean[0];
+    private int columns;
+    private int rows;
+
+    /**
+     * Indices of the rays of the current pass
+     */
+    private int[] selection = new int[64];
+    private int selected;
+
+    /**
+     * Starts a new fan
+     *
+     * @return buffer for the rays of the full fan
+     */
+    public RayHitBuffer begin() {
+        fan.clear();
+        count = 0;
+        return fan;
+    }
+
+    /**
+     * Adds the position of the last ray of the fan
+     *
+     * @param u first coordinate on the base of the shape
+     * @param v second coordinate on the base of the shape
+     */
+    public void addSample(float u, float v) {
+        if (count == this.u.length) {
+            int capacity = 2 * count;
+            this.u = Arrays.copyOf(this.u, capacity);
+            this.v = Arrays.copyOf(this.v, capacity);
+            sampleCell = new int[capacity];
+        }
+        this.u[count] = u;
+        this.v[count] = v;
+        count++;
+    }
+
+    /**
+     * @return true if the fan is too small for two passes
+     */
+    public boolean isSmall() {
+        return count < MIN_RAYS;
+    }
+
+    /**
+     * Selects one ray per grid cell for the first pass
+     *
+     * @param spacing smallest distance between two rays on the base, in the unit of the sample coordinates
+     * @param out     receives the rays of the first pass
+     */
+    public void selectCoarse(float spacing, RayHitBuffer out) {
+        float minU = Float.POSITIVE_INFINITY;
+        float minV = Float.POSITIVE_INFINITY;
+        float maxU = Float.NEGATIVE_INFINITY;
+        float maxV = Float.NEGATIVE_INFINITY;
+        for (int s = 0; s < count; s++) {
+            minU = Math.min(minU, u[s]);
+            maxU = Math.max(maxU, u[s]);
+            minV = Math.min(minV, v[s]);
+            maxV = Math.max(maxV, v[s]);
+        }
+        float cell = Math.max(spacing * COARSE_SPACING, 1e-6f);
+        columns = (int) ((maxU - minU) / cell) + 1;
+        rows = (int) ((maxV - minV) / cell) + 1;
+        int cells = columns * rows;
+        if (cellSample.length < cells) {
+            cellSample = new int[cells];
+            marked = new boolean[cells];
+        }
+        Arrays.fill(cellSample, 0, cells, -1);
+        Arrays.fill(marked, 0, cells, false);
+
+        ensureSelection(Math.min(count, cells));
+        selected = 0;
+        for (int s = 0; s < count; s++) {
+            int column = Math.min((int) ((u[s] - minU) / cell), columns - 1);
+            int row = Math.min((int) ((v[s] - minV) / cell), rows - 1);
+            int c = row * columns + column;
+            sampleCell[s] = c;
+            if (cellSample[c] < 0) {
+                cellSample[c] = s;
+                selection[selected++] = s;
+            }
+        }
+        copySelection(out);
+    }
+
+    /**
+     * Selects all rays, for a fan which is too small for two passes
+     *
+     * @param out receives the rays of the full fan
+     */
+    public void selectAll(RayHitBuffer out) {
+        ensureSelection(count);
+        for (int s = 0; s < count; s++) {
+            selection[s] = s;
+        }
+        selected = count;
+        copySelection(out);
+    }
+
+    /**
+     * Selects the rays around the hits of the first pass for the second pass
+     *
+     * @param out holds the first pass after the cast, receives the rays of the second pass
+     * @return number of selected rays
+     */
+    public int selectAround(RayHitBuffer out) {
+        for (int k = 0; k < selected; k++) {
+            if (!out.isHit(k)) {
+                continue;
+            }
+            int c = sampleCell[selection[k]];
+            int column = c % columns;
+            int row = c / columns;
+            for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+                for (int col = Math.max(0, column - 1); col <= Math.min(columns - 1, column + 1); col++) {
+                    marked[r * columns + col] = true;
+                }
+            }
+        }
+        ensureSelection(count);
+        selected = 0;
+        for (int s = 0; s < count; s++) {
+            if (marked[sampleCell[s]]) {
+                selection[selected++] = s;
+            }
+        }
+        copySelection(out);
+        return selected;
+    }
+
+    /**
+     * @return number of rays of the full fan
+     */
+    public int getRayCount() {
+        return count;
+    }
+
+    private void ensureSelection(int capacity) {
+        if (selection.length < capacity) {
+            selection = new int[Math.max(capacity, 2 * selection.length)];
+        }
+    }
+
+    private void copySelection(RayHitBuffer out) {
+        float[] origins = fan.getOrigins();
+        float[] directions = fan.getDirections();
+        float[] ranges = fan.getRanges();
+        out.clear();
+        out.ensureCapacity(selected);
+        for (int k = 0; k < selected; k++) {
+            int s = selection[k];
+            out.addRay(origins[3 * s], origins[3 * s + 1], origins[3 * s + 2],
+                    directions[3 * s], directions[3 * s + 1], directions[3 * s + 2], ranges[s]);
+        }
+    }
+}
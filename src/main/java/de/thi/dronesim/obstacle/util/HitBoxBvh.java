@@ -0,0 +1,882 @@
+package de.thi.dronesim.obstacle.util;
+
+import com.bulletphysics.collision.shapes.BoxShape;
+import com.bulletphysics.linearmath.Transform;
+import de.thi.dronesim.obstacle.entity.Obstacle;
+
+import javax.vecmath.Matrix3f;
+import javax.vecmath.Vector3f;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Static bounding volume hierarchy over the oriented hit boxes of all obstacles.
+ * <p>
+ * Most obstacles never move while a simulation is running, so the boxes are copied once into flat
+ * float arrays (center, local axes, half extents) and sorted into a median split tree. All ray, sphere and distance
+ * queries of the obstacles go through this index, the hit boxes aren't part of a JBullet physics world.
+ * Ray queries walk this tree with a slab test and don't allocate anything, the per thread scratch
+ * memory lives in {@link RayQuery}.
+ * <p>
+ * An instance is immutable after construction and can therefore be shared between threads.
+ * When obstacles are added, removed or moved, {@link #withChanges} derives a new index without building the
+ * whole tree again.
+ */
+public class HitBoxBvh {
+    private static final int MAX_LEAF_SIZE = 4;
+    /**
+     * More candidates are tested with the tree again, see {@link #collectCandidates}
+     */
+    public static final int MAX_CANDIDATES = 16;
+    /**
+     * Changed boxes a derived index may hold at least before everything is built into one tree again,
+     * see {@link #withChanges}
+     */
+    private static final int MIN_CHANGES_BEFORE_REBUILD = 256;
+    private static final float PARALLEL_EPSILON = 1e-8f;
+
+    private final HitBoxRigidBody[] bodies;
+    /**
+     * Every obstacle of the index once, a box references its obstacle by the position in this table
+     */
+    private final Obstacle[] obstacles;
+    private final int[] boxObstacle;
+    /**
+     * 3 floats per box
+     */
+    private final float[] boxCenter;
+    /**
+     * 9 floats per box, the three local axes in world coordinates (x-axis, y-axis, z-axis)
+     */
+    private final float[] boxAxis;
+    /**
+     * 3 floats per box
+     */
+    private final float[] boxHalf;
+
+    /**
+     * 6 floats per node (min x,y,z and max x,y,z)
+     */
+    private final float[] nodeBounds;
+    /**
+     * For a leaf the index of the first box, for an inner node the index of the left child (right = left + 1)
+     */
+    private final int[] nodeFirst;
+    /**
+     * Number of boxes in a leaf, 0 for inner nodes
+     */
+    private final int[] nodeCount;
+    private int nodes;
+
+    private final Registry registry;
+    /**
+     * Sorted positions of the tree boxes, which were removed or moved since the tree was built
+     */
+    private final int[] maskedBoxes;
+    /**
+     * Small tree of the boxes added or moved since the tree was built, null if there are none.
+     * Its boxes follow the tree boxes, so the box index of the overlay box i is bodies.length + i.
+     */
+    private final HitBoxBvh overlay;
+
+    public HitBoxBvh(Collection<HitBoxRigidBody> hitBoxes) {
+        this(hitBoxes.toArray(new HitBoxRigidBody[0]), new Registry());
+    }
+
+    private HitBoxBvh(HitBoxRigidBody[] input, Registry registry) {
+        this.registry = registry;
+        maskedBoxes = new int[0];
+        overlay = null;
+        int n = input.length;
+
+        float[] center = new float[3 * n];
+        float[] axis = new float[9 * n];
+        float[] half = new float[3 * n];
+        float[] aabbMin = new float[3 * n];
+        float[] aabbMax = new float[3 * n];
+
+        Transform transform = new Transform();
+        Vector3f halfExtents = new Vector3f();
+        for (int b = 0; b < n; b++) {
+            input[b].getWorldTransform(transform);
+            ((BoxShape) input[b].getCollisionShape()).getHalfExtentsWithMargin(halfExtents);
+            Matrix3f m = transform.basis;
+
+            center[3 * b] = transform.origin.x;
+            center[3 * b + 1] = transform.origin.y;
+            center[3 * b + 2] = transform.origin.z;
+            // Columns of the basis are the box axes in world space
+            axis[9 * b] = m.m00;
+            axis[9 * b + 1] = m.m10;
+            axis[9 * b + 2] = m.m20;
+            axis[9 * b + 3] = m.m01;
+            axis[9 * b + 4] = m.m11;
+            axis[9 * b + 5] = m.m21;
+            axis[9 * b + 6] = m.m02;
+            axis[9 * b + 7] = m.m12;
+            axis[9 * b + 8] = m.m22;
+            half[3 * b] = halfExtents.x;
+            half[3 * b + 1] = halfExtents.y;
+            half[3 * b + 2] = halfExtents.z;
+
+            for (int k = 0; k < 3; k++) {
+                float extent = Math.abs(axis[9 * b + k]) * halfExtents.x
+                        + Math.abs(axis[9 * b + 3 + k]) * halfExtents.y
+                        + Math.abs(axis[9 * b + 6 + k]) * halfExtents.z;
+                aabbMin[3 * b + k] = center[3 * b + k] - extent;
+                aabbMax[3 * b + k] = center[3 * b + k] + extent;
+            }
+        }
+
+        int[] order = new int[n];
+        for (int b = 0; b < n; b++) {
+            order[b] = b;
+        }
+
+        int maxNodes = Math.max(1, 2 * n - 1);
+        nodeBounds = new float[6 * maxNodes];
+        nodeFirst = new int[maxNodes];
+        nodeCount = new int[maxNodes];
+        nodes = 1;
+        if (n > 0) {
+            build(0, 0, n, order, center, aabbMin, aabbMax);
+        } else {
+            // Empty root leaf with inverted bounds, never hit by a ray
+            for (int k = 0; k < 3; k++) {
+                nodeBounds[k] = Float.POSITIVE_INFINITY;
+                nodeBounds[3 + k] = Float.NEGATIVE_INFINITY;
+            }
+        }
+
+        // Store the boxes in tree order so every leaf references a continuous range
+        bodies = new HitBoxRigidBody[n];
+        boxObstacle = new int[n];
+        boxCenter = new float[3 * n];
+        boxAxis = new float[9 * n];
+        boxHalf = new float[3 * n];
+        for (int i = 0; i < n; i++) {
+            int b = order[i];
+            bodies[i] = input[b];
+            boxObstacle[i] = registry.indexOf(input[b].getObstacle());
+            System.arraycopy(center, 3 * b, boxCenter, 3 * i, 3);
+            System.arraycopy(axis, 9 * b, boxAxis, 9 * i, 9);
+            System.arraycopy(half, 3 * b, boxHalf, 3 * i, 3);
+        }
+        obstacles = registry.table;
+    }
+
+    /**
+     * Shares the tree of another index, masks some of its boxes and adds a second tree
+     */
+    private HitBoxBvh(HitBoxBvh tree, int[] maskedBoxes, HitBoxBvh overlay) {
+        bodies = tree.bodies;
+        boxObstacle = tree.boxObstacle;
+        boxCenter = tree.boxCenter;
+        boxAxis = tree.boxAxis;
+        boxHalf = tree.boxHalf;
+        nodeBounds = tree.nodeBounds;
+        nodeFirst = tree.nodeFirst;
+        nodeCount = tree.nodeCount;
+        nodes = tree.nodes;
+        registry = tree.registry;
+        this.maskedBoxes = maskedBoxes;
+        this.overlay = overlay;
+        // Read after the overlay was built, so it contains the obstacles of the overlay
+        obstacles = registry.table;
+    }
+
+    /**
+     * Derives an index with changed hit boxes without building the whole tree again.
+     * <p>
+     * Removed and moved boxes are only masked in the tree, added and moved boxes are sorted into a small second
+     * tree, which is queried as well. Only the small tree is built again, so a batch costs O(c log c) for the c
+     * boxes changed since the last full build, no matter how many boxes the index holds. Once the changes exceed
+     * a few times the square root of the tree size, all boxes are built into a single tree again.
+     * <p>
+     * Indices derived from the same full build share their obstacle indices, so they have to be derived one at a
+     * time. Querying any of them stays thread safe.
+     *
+     * @param removed Hit boxes of this index to drop
+     * @param added   Hit boxes to add
+     * @param moved   Hit boxes of this index whose world transform has changed
+     * @return the new index, this index is not changed
+     */
+    public HitBoxBvh withChanges(Collection<HitBoxRigidBody> removed, Collection<HitBoxRigidBody> added,
+                                 Collection<HitBoxRigidBody> moved) {
+        Map<HitBoxRigidBody, Integer> treeBoxes = registry.treeBoxes(bodies);
+        int[] masked = Arrays.copyOf(maskedBoxes, maskedBoxes.length + removed.size() + moved.size());
+        int maskedCount = maskedBoxes.length;
+        Set<HitBoxRigidBody> overlayBoxes = new LinkedHashSet<>();
+        if (overlay != null) {
+            Collections.addAll(overlayBoxes, overlay.bodies);
+        }
+        for (Collection<HitBoxRigidBody> changed : List.of(removed, moved)) {
+            for (HitBoxRigidBody hitBox : changed) {
+                Integer box = treeBoxes.get(hitBox);
+                if (box != null) {
+                    masked[maskedCount++] = box;
+                }
+                overlayBoxes.remove(hitBox);
+            }
+        }
+        overlayBoxes.addAll(added);
+        overlayBoxes.addAll(moved);
+
+        // A box moved in several batches is masked once
+        Arrays.sort(masked, 0, maskedCount);
+        int distinct = 0;
+        for (int i = 0; i < maskedCount; i++) {
+            if (distinct == 0 || masked[distinct - 1] != masked[i]) {
+                masked[distinct++] = masked[i];
+            }
+        }
+        masked = Arrays.copyOf(masked, distinct);
+
+        int limit = Math.max(MIN_CHANGES_BEFORE_REBUILD, 4 * (int) Math.sqrt(bodies.length));
+        if (masked.length + overlayBoxes.size() > limit) {
+            List<HitBoxRigidBody> hitBoxes = new ArrayList<>(bodies.length - masked.length + overlayBoxes.size());
+            for (int b = 0, m = 0; b < bodies.length; b++) {
+                if (m < masked.length && masked[m] == b) {
+                    m++;
+                } else {
+                    hitBoxes.add(bodies[b]);
+                }
+            }
+            hitBoxes.addAll(overlayBoxes);
+            return new HitBoxBvh(hitBoxes);
+        }
+        HitBoxBvh newOverlay = overlayBoxes.isEmpty() ? null
+                : new HitBoxBvh(overlayBoxes.toArray(new HitBoxRigidBody[0]), registry);
+        return new HitBoxBvh(this, masked, newOverlay);
+    }
+
+    /**
+     * @return true if the tree box was removed or moved
+     */
+    private boolean isMasked(int box) {
+        return maskedBoxes.length > 0 && Arrays.binarySearch(maskedBoxes, box) >= 0;
+    }
+
+    private void build(int node, int from, int to, int[] order, float[] center, float[] aabbMin, float[] aabbMax) {
+        float[] cMin = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+        float[] cMax = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        int base = 6 * node;
+        for (int k = 0; k < 3; k++) {
+            nodeBounds[base + k] = Float.POSITIVE_INFINITY;
+            nodeBounds[base + 3 + k] = Float.NEGATIVE_INFINITY;
+        }
+        for (int i = from; i < to; i++) {
+            int b = order[i];
+            for (int k = 0; k < 3; k++) {
+                nodeBounds[base + k] = Math.min(nodeBounds[base + k], aabbMin[3 * b + k]);
+                nodeBounds[base + 3 + k] = Math.max(nodeBounds[base + 3 + k], aabbMax[3 * b + k]);
+                cMin[k] = Math.min(cMin[k], center[3 * b + k]);
+                cMax[k] = Math.max(cMax[k], center[3 * b + k]);
+            }
+        }
+
+        if (to - from <= MAX_LEAF_SIZE) {
+            nodeFirst[node] = from;
+            nodeCount[node] = to - from;
+            return;
+        }
+
+        // Split at the median of the longest centroid axis
+        int splitAxis = 0;
+        for (int k = 1; k < 3; k++) {
+            if (cMax[k] - cMin[k] > cMax[splitAxis] - cMin[splitAxis]) {
+                splitAxis = k;
+            }
+        }
+        int mid = (from + to) >>> 1;
+        select(order, from, to - 1, mid, center, splitAxis);
+
+        int left = nodes;
+        nodes += 2;
+        nodeFirst[node] = left;
+        nodeCount[node] = 0;
+        build(left, from, mid, order, center, aabbMin, aabbMax);
+        build(left + 1, mid, to, order, center, aabbMin, aabbMax);
+    }
+
+    /**
+     * Quickselect, afterwards order[nth] holds the box with the nth smallest centroid on the given axis
+     * and everything left of it is smaller or equal
+     */
+    private static void select(int[] order, int lo, int hi, int nth, float[] center, int axis) {
+        while (hi > lo) {
+            float pivot = center[3 * order[(lo + hi) >>> 1] + axis];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (center[3 * order[i] + axis] < pivot) i++;
+                while (center[3 * order[j] + axis] > pivot) j--;
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (nth <= j) {
+                hi = j;
+            } else if (nth >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds the closest hit box along the ray.
+     * Rays starting inside of a box don't report that box, the same as the JBullet ray test.
+     *
+     * @param query scratch memory and result holder, see {@link RayQuery#getBox()} and {@link RayQuery#getDistance()}
+     * @return true if a box was hit within the range
+     */
+    public boolean rayTest(float ox, float oy, float oz, float dx, float dy, float dz, float range, RayQuery query) {
+        boolean hit = treeRayTest(ox, oy, oz, dx, dy, dz, range, query);
+        if (overlay == null) {
+            return hit;
+        }
+        int box = query.box;
+        float distance = query.distance;
+        if (overlay.rayTest(ox, oy, oz, dx, dy, dz, hit ? distance : range, query)) {
+            query.box += bodies.length;
+            return true;
+        }
+        query.box = box;
+        query.distance = distance;
+        return hit;
+    }
+
+    private boolean treeRayTest(float ox, float oy, float oz, float dx, float dy, float dz, float range, RayQuery query) {
+        // The direction has to be normalized, so the parameter is the distance
+        float length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (length == 0f || bodies.length == 0) {
+            query.box = -1;
+            return false;
+        }
+        dx /= length;
+        dy /= length;
+        dz /= length;
+        float invX = 1f / dx;
+        float invY = 1f / dy;
+        float invZ = 1f / dz;
+
+        float best = range;
+        int bestBox = -1;
+
+        int[] stack = query.stack;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (aabbEntry(node, ox, oy, oz, invX, invY, invZ, best) > best) {
+                continue;
+            }
+            int count = nodeCount[node];
+            if (count > 0) {
+                int first = nodeFirst[node];
+                for (int b = first; b < first + count; b++) {
+                    if (isMasked(b)) {
+                        continue;
+                    }
+                    float t = obbEntry(b, ox, oy, oz, dx, dy, dz);
+                    if (t <= best) {
+                        best = t;
+                        bestBox = b;
+                    }
+                }
+            } else {
+                int left = nodeFirst[node];
+                // Visit the nearer child first, it's pushed last
+                float tl = aabbEntry(left, ox, oy, oz, invX, invY, invZ, best);
+                float tr = aabbEntry(left + 1, ox, oy, oz, invX, invY, invZ, best);
+                if (tl <= tr) {
+                    if (tr <= best) stack[top++] = left + 1;
+                    if (tl <= best) stack[top++] = left;
+                } else {
+                    if (tl <= best) stack[top++] = left;
+                    if (tr <= best) stack[top++] = left + 1;
+                }
+            }
+        }
+
+        query.box = bestBox;
+        query.distance = best;
+        return bestBox >= 0;
+    }
+
+    /**
+     * Collects the hit boxes, whose bounds overlap a volume, for the rays of a sensor shape.
+     * <p>
+     * Afterwards {@link #candidateRayTest} only tests the rays against these boxes instead of walking the tree for
+     * every ray. If more than {@link #MAX_CANDIDATES} boxes overlap, the candidate list is dropped and
+     * {@link #candidateRayTest} falls back to {@link #rayTest}.
+     *
+     * @param query receives the candidates
+     * @return number of candidates, -1 if there are too many
+     */
+    public int collectCandidates(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, RayQuery query) {
+        query.candidateCount = 0;
+        if (!collectTreeCandidates(minX, minY, minZ, maxX, maxY, maxZ, 0, query)) {
+            return -1;
+        }
+        if (overlay != null && !overlay.collectTreeCandidates(minX, minY, minZ, maxX, maxY, maxZ, bodies.length, query)) {
+            return -1;
+        }
+        return query.candidateCount;
+    }
+
+    /**
+     * Appends the candidates of the tree to the query
+     *
+     * @param offset added to the box indices
+     * @return false if there are too many candidates
+     */
+    private boolean collectTreeCandidates(float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+                                          int offset, RayQuery query) {
+        if (bodies.length == 0) {
+            return true;
+        }
+        int[] stack = query.stack;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int base = 6 * node;
+            if (nodeBounds[base] > maxX || nodeBounds[base + 3] < minX
+                    || nodeBounds[base + 1] > maxY || nodeBounds[base + 4] < minY
+                    || nodeBounds[base + 2] > maxZ || nodeBounds[base + 5] < minZ) {
+                continue;
+            }
+            int count = nodeCount[node];
+            if (count > 0) {
+                int first = nodeFirst[node];
+                for (int b = first; b < first + count; b++) {
+                    if (isMasked(b) || !boxOverlaps(b, minX, minY, minZ, maxX, maxY, maxZ)) {
+                        continue;
+                    }
+                    if (query.candidateCount == MAX_CANDIDATES) {
+                        query.candidateCount = -1;
+                        return false;
+                    }
+                    query.candidates[query.candidateCount++] = offset + b;
+                }
+            } else {
+                stack[top++] = nodeFirst[node] + 1;
+                stack[top++] = nodeFirst[node];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link #rayTest}, but only tests the candidates of the last {@link #collectCandidates} call.
+     * The ray has to lie within the volume of the candidates.
+     *
+     * @param query holds the candidates, receives the result
+     * @return true if a box was hit within the range
+     */
+    public boolean candidateRayTest(float ox, float oy, float oz, float dx, float dy, float dz, float range, RayQuery query) {
+        int count = query.candidateCount;
+        if (count < 0) {
+            return rayTest(ox, oy, oz, dx, dy, dz, range, query);
+        }
+        float length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (length == 0f || count == 0) {
+            query.box = -1;
+            return false;
+        }
+        dx /= length;
+        dy /= length;
+        dz /= length;
+
+        float best = range;
+        int bestBox = -1;
+        int[] candidates = query.candidates;
+        for (int c = 0; c < count; c++) {
+            int box = candidates[c];
+            float t = box < bodies.length
+                    ? obbEntry(box, ox, oy, oz, dx, dy, dz)
+                    : overlay.obbEntry(box - bodies.length, ox, oy, oz, dx, dy, dz);
+            if (t <= best) {
+                best = t;
+                bestBox = candidates[c];
+            }
+        }
+        query.box = bestBox;
+        query.distance = best;
+        return bestBox >= 0;
+    }
+
+    /**
+     * @return true if the axis aligned bounds of the box overlap the volume
+     */
+    private boolean boxOverlaps(int box, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        float hx = boxHalf[3 * box];
+        float hy = boxHalf[3 * box + 1];
+        float hz = boxHalf[3 * box + 2];
+        int a = 9 * box;
+        float extentX = Math.abs(boxAxis[a]) * hx + Math.abs(boxAxis[a + 3]) * hy + Math.abs(boxAxis[a + 6]) * hz;
+        float extentY = Math.abs(boxAxis[a + 1]) * hx + Math.abs(boxAxis[a + 4]) * hy + Math.abs(boxAxis[a + 7]) * hz;
+        float extentZ = Math.abs(boxAxis[a + 2]) * hx + Math.abs(boxAxis[a + 5]) * hy + Math.abs(boxAxis[a + 8]) * hz;
+        float cx = boxCenter[3 * box];
+        float cy = boxCenter[3 * box + 1];
+        float cz = boxCenter[3 * box + 2];
+        return cx - extentX <= maxX && cx + extentX >= minX
+                && cy - extentY <= maxY && cy + extentY >= minY
+                && cz - extentZ <= maxZ && cz + extentZ >= minZ;
+    }
+
+    /**
+     * @return the entry distance into the node bounds or {@link Float#POSITIVE_INFINITY} on a miss
+     */
+    private float aabbEntry(int node, float ox, float oy, float oz, float invX, float invY, float invZ, float range) {
+        int base = 6 * node;
+        float t1 = (nodeBounds[base] - ox) * invX;
+        float t2 = (nodeBounds[base + 3] - ox) * invX;
+        float tMin = Math.min(t1, t2);
+        float tMax = Math.max(t1, t2);
+
+        t1 = (nodeBounds[base + 1] - oy) * invY;
+        t2 = (nodeBounds[base + 4] - oy) * invY;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+
+        t1 = (nodeBounds[base + 2] - oz) * invZ;
+        t2 = (nodeBounds[base + 5] - oz) * invZ;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+
+        // NaN (origin exactly on a slab with a parallel ray) fails all comparisons and counts as a hit
+        if (tMax < tMin || tMax < 0f || tMin > range) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return Math.max(tMin, 0f);
+    }
+
+    /**
+     * Slab test in the local space of the box
+     *
+     * @return the entry distance or {@link Float#POSITIVE_INFINITY} on a miss or when the origin is inside
+     */
+    private float obbEntry(int box, float ox, float oy, float oz, float dx, float dy, float dz) {
+        float rx = ox - boxCenter[3 * box];
+        float ry = oy - boxCenter[3 * box + 1];
+        float rz = oz - boxCenter[3 * box + 2];
+
+        float tMin = Float.NEGATIVE_INFINITY;
+        float tMax = Float.POSITIVE_INFINITY;
+        for (int k = 0; k < 3; k++) {
+            int a = 9 * box + 3 * k;
+            float ax = boxAxis[a];
+            float ay = boxAxis[a + 1];
+            float az = boxAxis[a + 2];
+            float h = boxHalf[3 * box + k];
+
+            float p = ax * rx + ay * ry + az * rz;
+            float d = ax * dx + ay * dy + az * dz;
+            if (Math.abs(d) < PARALLEL_EPSILON) {
+                if (p < -h || p > h) {
+                    return Float.POSITIVE_INFINITY;
+                }
+            } else {
+                float t1 = (-h - p) / d;
+                float t2 = (h - p) / d;
+                if (t1 > t2) {
+                    float tmp = t1;
+                    t1 = t2;
+                    t2 = tmp;
+                }
+                tMin = Math.max(tMin, t1);
+                tMax = Math.min(tMax, t2);
+                if (tMin > tMax) {
+                    return Float.POSITIVE_INFINITY;
+                }
+            }
+        }
+        if (tMin < 0f) {
+            // Either the box is behind the origin or the origin is inside
+            return Float.POSITIVE_INFINITY;
+        }
+        return tMin;
+    }
+
+    /**
+     * Checks if a sphere (or one half of it) intersects any hit box.
+     * <p>
+     * For every box the closest point to the sphere center is calculated, the sphere intersects the box
+     * if this point is closer than the radius. For a half sphere the closest point also has to lie on the
+     * requested side of the center (the same rule as the contact point check with JBullet).
+     * A center inside of a box is always a collision.
+     *
+     * @param signum 1 for the upper half, -1 for the lower half, 0 for the full sphere
+     * @param query  scratch memory, only the traversal stack is used
+     * @return true if the sphere intersects at least one box
+     */
+    public boolean sphereTest(float cx, float cy, float cz, float radius, int signum, RayQuery query) {
+        return treeSphereTest(cx, cy, cz, radius, signum, query)
+                || overlay != null && overlay.sphereTest(cx, cy, cz, radius, signum, query);
+    }
+
+    private boolean treeSphereTest(float cx, float cy, float cz, float radius, int signum, RayQuery query) {
+        if (bodies.length == 0) {
+            return false;
+        }
+        float radiusSquared = radius * radius;
+        int[] stack = query.stack;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (aabbDistanceSquared(node, cx, cy, cz) >= radiusSquared) {
+                continue;
+            }
+            int count = nodeCount[node];
+            if (count > 0) {
+                int first = nodeFirst[node];
+                for (int b = first; b < first + count; b++) {
+                    if (!isMasked(b) && obbSphere(b, cx, cy, cz, radiusSquared, signum)) {
+                        return true;
+                    }
+                }
+            } else {
+                stack[top++] = nodeFirst[node] + 1;
+                stack[top++] = nodeFirst[node];
+            }
+        }
+        return false;
+    }
+
+    private float aabbDistanceSquared(int node, float cx, float cy, float cz) {
+        int base = 6 * node;
+        float dx = Math.max(0f, Math.max(nodeBounds[base] - cx, cx - nodeBounds[base + 3]));
+        float dy = Math.max(0f, Math.max(nodeBounds[base + 1] - cy, cy - nodeBounds[base + 4]));
+        float dz = Math.max(0f, Math.max(nodeBounds[base + 2] - cz, cz - nodeBounds[base + 5]));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Searches the hit box closest to a point.
+     * <p>
+     * Nodes farther away than the closest box found so far are skipped, so only a few boxes are checked.
+     * A point inside of a box has the distance 0.
+     *
+     * @param maxDistance boxes farther away are ignored
+     * @param query       receives the closest box and the distance to its surface
+     * @return true if a box is closer than maxDistance
+     */
+    public boolean distanceTest(float cx, float cy, float cz, float maxDistance, RayQuery query) {
+        boolean hit = treeDistanceTest(cx, cy, cz, maxDistance, query);
+        if (overlay == null) {
+            return hit;
+        }
+        int box = query.box;
+        float distance = query.distance;
+        if (overlay.distanceTest(cx, cy, cz, hit ? distance : maxDistance, query)) {
+            query.box += bodies.length;
+            return true;
+        }
+        query.box = box;
+        query.distance = distance;
+        return hit;
+    }
+
+    private boolean treeDistanceTest(float cx, float cy, float cz, float maxDistance, RayQuery query) {
+        query.box = -1;
+        if (bodies.length == 0) {
+            return false;
+        }
+        float bestSquared = maxDistance * maxDistance;
+        int[] stack = query.stack;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (aabbDistanceSquared(node, cx, cy, cz) >= bestSquared) {
+                continue;
+            }
+            int count = nodeCount[node];
+            if (count > 0) {
+                int first = nodeFirst[node];
+                for (int b = first; b < first + count; b++) {
+                    if (isMasked(b)) {
+                        continue;
+                    }
+                    float distanceSquared = obbDistanceSquared(b, cx, cy, cz);
+                    if (distanceSquared < bestSquared) {
+                        bestSquared = distanceSquared;
+                        query.box = b;
+                    }
+                }
+            } else {
+                // Visit the closer child first, so the farther one is more likely to be skipped
+                int left = nodeFirst[node];
+                if (aabbDistanceSquared(left, cx, cy, cz) <= aabbDistanceSquared(left + 1, cx, cy, cz)) {
+                    stack[top++] = left + 1;
+                    stack[top++] = left;
+                } else {
+                    stack[top++] = left;
+                    stack[top++] = left + 1;
+                }
+            }
+        }
+        if (query.box < 0) {
+            return false;
+        }
+        query.distance = (float) Math.sqrt(bestSquared);
+        return true;
+    }
+
+    private float obbDistanceSquared(int box, float cx, float cy, float cz) {
+        float rx = cx - boxCenter[3 * box];
+        float ry = cy - boxCenter[3 * box + 1];
+        float rz = cz - boxCenter[3 * box + 2];
+
+        float distanceSquared = 0f;
+        for (int k = 0; k < 3; k++) {
+            int a = 9 * box + 3 * k;
+            float h = boxHalf[3 * box + k];
+            float p = boxAxis[a] * rx + boxAxis[a + 1] * ry + boxAxis[a + 2] * rz;
+            float d = Math.max(-h, Math.min(h, p)) - p;
+            distanceSquared += d * d;
+        }
+        return distanceSquared;
+    }
+
+    private boolean obbSphere(int box, float cx, float cy, float cz, float radiusSquared, int signum) {
+        float rx = cx - boxCenter[3 * box];
+        float ry = cy - boxCenter[3 * box + 1];
+        float rz = cz - boxCenter[3 * box + 2];
+
+        float distanceSquared = 0f;
+        // y component (world) of the vector from the center to the closest point
+        float closestDy = 0f;
+        for (int k = 0; k < 3; k++) {
+            int a = 9 * box + 3 * k;
+            float h = boxHalf[3 * box + k];
+            float p = boxAxis[a] * rx + boxAxis[a + 1] * ry + boxAxis[a + 2] * rz;
+            float clamped = Math.max(-h, Math.min(h, p));
+            float d = clamped - p;
+            distanceSquared += d * d;
+            closestDy += boxAxis[a + 1] * d;
+        }
+        if (distanceSquared >= radiusSquared) {
+            return false;
+        }
+        // Center inside of the box or the closest point on the requested side
+        return distanceSquared == 0f || closestDy * signum >= 0f;
+    }
+
+    /**
+     * @return Number of hit boxes in this index
+     */
+    public int size() {
+        return bodies.length - maskedBoxes.length + (overlay == null ? 0 : overlay.size());
+    }
+
+    /**
+     * @param box index as returned by {@link RayQuery#getBox()}
+     * @return the hit box
+     */
+    public HitBoxRigidBody getBody(int box) {
+        return box < bodies.length ? bodies[box] : overlay.getBody(box - bodies.length);
+    }
+
+    /**
+     * @param box index as returned by {@link RayQuery#getBox()}
+     * @return index of the obstacle the hit box belongs to, see {@link #getObstacleTable()}
+     */
+    public int getObstacleIndex(int box) {
+        return box < bodies.length ? boxObstacle[box] : overlay.getObstacleIndex(box - bodies.length);
+    }
+
+    /**
+     * The table is shared, don't modify it. Indices derived by {@link #withChanges} only append obstacles behind
+     * the ones of this index, so the entries of this index never change.
+     *
+     * @return all obstacles of this index, a position in this array is an obstacle index, unused positions are
+     * null or hold obstacles of derived indices
+     */
+    public Obstacle[] getObstacleTable() {
+        return obstacles;
+    }
+
+    /**
+     * Obstacle indices shared by a full built index and all indices derived from it by {@link #withChanges},
+     * so the obstacle index of a box stays the same until the next full build
+     */
+    private static class Registry {
+        private final Map<Obstacle, Integer> obstacleIndex = new IdentityHashMap<>();
+        private Obstacle[] table = new Obstacle[16];
+        /**
+         * Position of every box in the full built tree, created with the first change
+         */
+        private Map<HitBoxRigidBody, Integer> treeBoxes;
+
+        int indexOf(Obstacle obstacle) {
+            Integer index = obstacleIndex.get(obstacle);
+            if (index != null) {
+                return index;
+            }
+            int next = obstacleIndex.size();
+            if (next == table.length) {
+                // Grown by a copy, older indices keep their table
+                table = Arrays.copyOf(table, 2 * table.length);
+            }
+            table[next] = obstacle;
+            obstacleIndex.put(obstacle, next);
+            return next;
+        }
+
+        Map<HitBoxRigidBody, Integer> treeBoxes(HitBoxRigidBody[] bodies) {
+            if (treeBoxes == null) {
+                treeBoxes = new IdentityHashMap<>(bodies.length);
+                for (int b = 0; b < bodies.length; b++) {
+                    treeBoxes.put(bodies[b], b);
+                }
+            }
+            return treeBoxes;
+        }
+    }
+
+    /**
+     * Reusable scratch memory for {@link #rayTest(float, float, float, float, float, float, float, RayQuery)},
+     * {@link #sphereTest(float, float, float, float, int, RayQuery)} and
+     * {@link #distanceTest(float, float, float, float, RayQuery)}, it also holds the candidates of
+     * {@link #collectCandidates(float, float, float, float, float, float, RayQuery)}.
+     * Not thread safe, use one instance per thread.
+     */
+    public static class RayQuery {
+        private final int[] stack = new int[64];
+        private final int[] candidates = new int[MAX_CANDIDATES];
+        private int candidateCount;
+        private int box = -1;
+        private float distance;
+
+        /**
+         * @return index of the closest hit box of the last query or -1
+         */
+        public int getBox() {
+            return box;
+        }
+
+        /**
+         * @return distance to the closest hit of the last query
+         */
+        public float getDistance() {
+            return distance;
+        }
+    }
+}
@@ -1,14 +1,22 @@
 package de.thi.dronesim.obstacle.util;
 
+import com.bulletphysics.collision.shapes.BoxShape;
 import com.bulletphysics.collision.shapes.CollisionShape;
 import com.bulletphysics.dynamics.RigidBody;
 import com.bulletphysics.dynamics.RigidBodyConstructionInfo;
+import com.bulletphysics.linearmath.DefaultMotionState;
 import com.bulletphysics.linearmath.MotionState;
+import com.bulletphysics.linearmath.Transform;
 import de.thi.dronesim.obstacle.entity.Obstacle;
 
+import javax.vecmath.Matrix4f;
+import javax.vecmath.Quat4f;
 import javax.vecmath.Vector3f;
 
 /**
+ * Oriented box of an obstacle. Only the transform and the {@link BoxShape} are used, by {@link HitBoxBvh}.
+ * The box isn't added to a JBullet physics world, all queries go through the index.
+ *
  * @author Christian Schmied
  */
 public class HitBoxRigidBody extends RigidBody {
@@ -30,6 +38,41 @@ public class HitBoxRigidBody extends RigidBody {
         this.obstacle = obstacle;
     }
 
+    /**
+     * Creates a hit box
+     *
+     * @param position
+     * @param rotation
+     * @param halfDimension
+     * @param obstacle
+     * @return The new HitBox
+     */
+    public static HitBoxRigidBody create(Vector3f position, Vector3f rotation, Vector3f halfDimension, Obstacle obstacle) {
+        CollisionShape boxShape = new BoxShape(halfDimension);
+        MotionState boxMotionState = new DefaultMotionState(
+                new Transform(new Matrix4f(
+                        new Quat4f(rotation.x, rotation.y, rotation.z, 1),
+                        position,
+                        1
+                )));
+
+        RigidBodyConstructionInfo boxConstructionInfo = new RigidBodyConstructionInfo(0, boxMotionState, boxShape);
+        return new HitBoxRigidBody(boxConstructionInfo, obstacle);
+    }
+
+    /**
+     * Moves the box, an index containing it has to be updated afterwards, see {@link HitBoxBvh#withChanges}
+     *
+     * @param offset Distance to move by
+     */
+    public void moveBy(Vector3f offset) {
+        Transform transform = getWorldTransform(new Transform());
+        transform.origin.add(offset);
+        getMotionState().setWorldTransform(transform);
+        setWorldTransform(transform);
+        setInterpolationWorldTransform(transform);
+    }
+
     public Obstacle getObstacle() {
         return obstacle;
     }
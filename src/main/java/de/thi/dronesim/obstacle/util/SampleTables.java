@@ -0,0 +1,94 @@
+package de.thi.dronesim.obstacle.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed golden angle samples for the ray fans, shared by all sensors and drones.
+ * <p>
+ * The n-th sample of the golden angle spiral is rotated by {@code n * GOLDEN_ANGLE}, the resulting points spread
+ * evenly on a disc or a sphere. Instead of calling {@code sqrt}, {@code sin}, {@code cos} and {@code acos} for every
+ * ray of every check, the samples are calculated once into primitive arrays. The arrays are never changed after
+ * they were published and can be read by any thread.
+ */
+public final class SampleTables {
+
+    public static final float GOLDEN_RATIO = (1f + (float) Math.sqrt(5)) / 2;
+    public static final float GOLDEN_ANGLE = 2 * (float) Math.PI * GOLDEN_RATIO;
+
+    /**
+     * 2 floats per sample, only grows
+     */
+    private static volatile float[] disk = new float[0];
+    private static final Map<Integer, float[]> spheres = new ConcurrentHashMap<>();
+
+    private SampleTables() {
+    }
+
+    /**
+     * Samples on a disc, the sample l is {@code sqrt(l) * (cos(l * GOLDEN_ANGLE), sin(l * GOLDEN_ANGLE))}.
+     * <p>
+     * The samples don't depend on the number of rays, so one table serves every ray count. Scaled by
+     * {@code radius / sqrt(count - 1)}, the first count samples fill a disc with the radius.
+     *
+     * @param count number of samples needed
+     * @return table with 2 floats (x, y) per sample and at least count samples, don't modify it
+     */
+    public static float[] disk(int count) {
+        float[] table = disk;
+        if (table.length >= 2 * count) {
+            return table;
+        }
+        return growDisk(count);
+    }
+
+    private static synchronized float[] growDisk(int count) {
+        float[] table = disk;
+        if (table.length >= 2 * count) {
+            return table;
+        }
+        // Grow at least to the double, the ultrasonic sensors ask for a few more rays every tick
+        int samples = Math.max(count, table.length);
+        float[] grown = Arrays.copyOf(table, 2 * samples);
+        for (int l = table.length / 2; l < samples; l++) {
+            float distance = (float) Math.sqrt(l);
+            grown[2 * l] = distance * (float) Math.cos(GOLDEN_ANGLE * l);
+            grown[2 * l + 1] = distance * (float) Math.sin(GOLDEN_ANGLE * l);
+        }
+        disk = grown;
+        return grown;
+    }
+
+    /**
+     * Unit vectors spread evenly on a sphere, the sample l has the inclination {@code acos(1 - 2 * l / count)}
+     * and the azimuth {@code l * GOLDEN_ANGLE}. Only a few fixed counts are used, each is cached.
+     * <p>
+     * The table holds one more sample than the count, the pole opposite of the first sample, which the half sphere
+     * checks include.
+     *
+     * @param count number of samples
+     * @return table with 3 floats (sin inclination * cos azimuth, sin inclination * sin azimuth, cos inclination)
+     * per sample, don't modify it
+     */
+    public static float[] sphere(int count) {
+        return spheres.computeIfAbsent(count, SampleTables::createSphere);
+    }
+
+    private static float[] createSphere(int count) {
+        float[] table = new float[3 * (count + 1)];
+        for (int l = 0; l <= count; l++) {
+            float inclination = (float) Math.acos(1 - 2 * l / (float) count);
+            float azimuth = GOLDEN_ANGLE * l;
+            float sin = (float) Math.sin(inclination);
+            float x = sin * (float) Math.cos(azimuth);
+            float y = sin * (float) Math.sin(azimuth);
+            float z = (float) Math.cos(inclination);
+            float length = (float) Math.sqrt(x * x + y * y + z * z);
+            table[3 * l] = x / length;
+            table[3 * l + 1] = y / length;
+            table[3 * l + 2] = z / length;
+        }
+        return table;
+    }
+}
@@ -1,5 +1,7 @@
 package de.thi.dronesim.persistence.entity;
 
+import de.thi.dronesim.drone.Integrator;
+
 import java.util.List;
 
 /**
@@ -11,6 +13,9 @@ public class SimulationConfig {
 
     private LocationConfig locationConfig;
     private float droneRadius;
+    private Long seed;
+    private Integrator integrator;
+    private Integer physicsSubSteps;
 
     private List<ObstacleConfig> obstacleConfigList;
     private List<SensorConfig> sensorConfigList;
@@ -28,6 +33,10 @@ public class SimulationConfig {
         SimulationConfig that = (SimulationConfig) o;
 
         if (Float.compare(that.droneRadius, droneRadius) != 0) return false;
+        if (seed != null ? !seed.equals(that.seed) : that.seed != null) return false;
+        if (integrator != that.integrator) return false;
+        if (physicsSubSteps != null ? !physicsSubSteps.equals(that.physicsSubSteps) : that.physicsSubSteps != null)
+            return false;
         if (locationConfig != null ? !locationConfig.equals(that.locationConfig) : that.locationConfig != null)
             return false;
         if (obstacleConfigList != null ? !obstacleConfigList.equals(that.obstacleConfigList) : that.obstacleConfigList != null)
@@ -41,6 +50,9 @@ public class SimulationConfig {
     public int hashCode() {
         int result = locationConfig != null ? locationConfig.hashCode() : 0;
         result = 31 * result + (droneRadius != +0.0f ? Float.floatToIntBits(droneRadius) : 0);
+        result = 31 * result + (seed != null ? seed.hashCode() : 0);
+        result = 31 * result + (integrator != null ? integrator.hashCode() : 0);
+        result = 31 * result + (physicsSubSteps != null ? physicsSubSteps.hashCode() : 0);
         result = 31 * result + (obstacleConfigList != null ? obstacleConfigList.hashCode() : 0);
         result = 31 * result + (sensorConfigList != null ? sensorConfigList.hashCode() : 0);
         result = 31 * result + (windConfigList != null ? windConfigList.hashCode() : 0);
@@ -90,4 +102,37 @@ public class SimulationConfig {
     public void setDroneRadius(float droneRadius) {
         this.droneRadius = droneRadius;
     }
+
+    /**
+     * @return Seed of all random values of the simulation or null, if every simulation should get a random seed
+     */
+    public Long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return Integration of the drone movement or null for {@link Integrator#SEMI_IMPLICIT}
+     */
+    public Integrator getIntegrator() {
+        return integrator;
+    }
+
+    public void setIntegrator(Integrator integrator) {
+        this.integrator = integrator;
+    }
+
+    /**
+     * @return Physics steps per tick or null for one step
+     */
+    public Integer getPhysicsSubSteps() {
+        return physicsSubSteps;
+    }
+
+    public void setPhysicsSubSteps(Integer physicsSubSteps) {
+        this.physicsSubSteps = physicsSubSteps;
+    }
 }
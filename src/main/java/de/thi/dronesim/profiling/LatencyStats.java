@@ -0,0 +1,58 @@
+package de.thi.dronesim.profiling;
+
+/**
+ * Summary of a {@link LatencyHistogram}, all durations in ns
+ */
+public final class LatencyStats {
+    private final long count;
+    private final long min;
+    private final long max;
+    private final double mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+
+    public LatencyStats(long count, long min, long max, double mean, long p50, long p90, long p99) {
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus max=%.1fus",
+                count, mean / 1e3, p50 / 1e3, p90 / 1e3, p99 / 1e3, max / 1e3);
+    }
+}
@@ -0,0 +1,365 @@
+package de.thi.dronesim.profiling;
+
+import de.thi.dronesim.SimulationUpdateListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the update listeners of a {@link de.thi.dronesim.Simulation} take.
+ * <p>
+ * For every listener priority and for the whole tick a {@link LatencyHistogram} is recorded. A tick that takes
+ * longer than its period at the current tps and speed counts as overrun. Ticks of a fast-forward run have no period,
+ * so they never overrun.
+ * <p>
+ * The profiler is disabled by default. The results can be queried, logged or written to a CSV file periodically
+ * and are available through JMX.
+ */
+public class SimulationProfiler implements SimulationProfilerMXBean {
+
+    private static final Logger logger = LogManager.getLogger(SimulationProfiler.class);
+    private static final long TPS_WINDOW_NANOS = 1_000_000_000L;
+
+    private volatile boolean enabled = false;
+
+    private final Map<Integer, String> listenerNames = new ConcurrentHashMap<>();
+    private final Map<Integer, LatencyHistogram> listenerHistograms = new ConcurrentHashMap<>();
+    private final LatencyHistogram tickHistogram = new LatencyHistogram();
+    private volatile long overrunCount;
+
+    // Effective tps, measured over windows of one second
+    private long windowStart;
+    private long windowTicks;
+    private volatile double effectiveTps;
+
+    private ScheduledExecutorService reporter;
+    private Path csvFile;
+    private ObjectName objectName;
+
+    /**
+     * Remembers the name of a listener for the reports
+     *
+     * @param priority Final priority of the listener
+     * @param listener The listener
+     */
+    public void registerListener(int priority, SimulationUpdateListener listener) {
+        listenerNames.put(priority, nameOf(listener));
+    }
+
+    /**
+     * @return The simple name of the listener class, for lambdas the class that declared it
+     */
+    static String nameOf(SimulationUpdateListener listener) {
+        String name = listener.getClass().getSimpleName();
+        int lambda = name.indexOf("$$Lambda");
+        return lambda > 0 ? name.substring(0, lambda) : name;
+    }
+
+    /**
+     * Records the duration of one listener call
+     *
+     * @param priority Priority of the listener
+     * @param nanos    Duration in ns
+     */
+    public void recordListener(int priority, long nanos) {
+        LatencyHistogram histogram = listenerHistograms.get(priority);
+        if (histogram == null) {
+            histogram = listenerHistograms.computeIfAbsent(priority, p -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Records the duration of a whole tick
+     *
+     * @param startNanos  {@link System#nanoTime()} at the start of the tick
+     * @param nanos       Duration in ns
+     * @param budgetNanos Period of the tick in ns or 0 if the tick has no period
+     */
+    public synchronized void recordTick(long startNanos, long nanos, long budgetNanos) {
+        tickHistogram.record(nanos);
+        if (budgetNanos > 0 && nanos > budgetNanos) {
+            overrunCount++;
+        }
+
+        if (windowTicks == 0) {
+            windowStart = startNanos;
+        }
+        windowTicks++;
+        long elapsed = startNanos + nanos - windowStart;
+        if (elapsed >= TPS_WINDOW_NANOS) {
+            effectiveTps = windowTicks * 1e9 / elapsed;
+            windowTicks = 0;
+        } else if (effectiveTps == 0 && elapsed > 0) {
+            // No full window yet
+            effectiveTps = windowTicks * 1e9 / elapsed;
+        }
+    }
+
+    /**
+     * Removes all recorded values, the listener names are kept
+     */
+    @Override
+    public synchronized void reset() {
+        listenerHistograms.values().forEach(LatencyHistogram::reset);
+        tickHistogram.reset();
+        overrunCount = 0;
+        windowTicks = 0;
+        effectiveTps = 0;
+    }
+
+    /* =================================================================================================================
+     * Query
+     * ============================================================================================================== */
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled True to measure every tick. Enabling doesn't reset the values recorded so far
+     */
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return Statistics of every listener sorted by priority, highest first
+     */
+    public SortedMap<Integer, LatencyStats> getListenerStats() {
+        SortedMap<Integer, LatencyStats> stats = new TreeMap<>(Comparator.reverseOrder());
+        listenerHistograms.forEach((priority, histogram) -> stats.put(priority, histogram.getStats()));
+        return stats;
+    }
+
+    /**
+     * @param priority Priority of the listener
+     * @return Name of the listener with this priority or null
+     */
+    public String getListenerName(int priority) {
+        return listenerNames.get(priority);
+    }
+
+    /**
+     * @return Statistics of the whole tick
+     */
+    public LatencyStats getTickStats() {
+        return tickHistogram.getStats();
+    }
+
+    @Override
+    public long getTickCount() {
+        return tickHistogram.getCount();
+    }
+
+    /**
+     * @return Number of ticks which took longer than their period
+     */
+    @Override
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+
+    /**
+     * @return Ticks per second of wall clock time, measured over the last second
+     */
+    @Override
+    public double getEffectiveTps() {
+        return effectiveTps;
+    }
+
+    @Override
+    public double getTickMeanMicros() {
+        return tickHistogram.getStats().getMean() / 1e3;
+    }
+
+    @Override
+    public double getTickP99Micros() {
+        return tickHistogram.getPercentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getTickMaxMicros() {
+        return tickHistogram.getStats().getMax() / 1e3;
+    }
+
+    @Override
+    public Map<String, Double> getListenerMeanMicros() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        getListenerStats().forEach((priority, stats) -> result.put(labelOf(priority), stats.getMean() / 1e3));
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getListenerP99Micros() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        getListenerStats().forEach((priority, stats) -> result.put(labelOf(priority), stats.getP99() / 1e3));
+        return result;
+    }
+
+    private String labelOf(int priority) {
+        return priority + " " + listenerNames.getOrDefault(priority, "?");
+    }
+
+    /**
+     * @return A human readable report with one line per listener
+     */
+    public String formatReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("tick: %s overruns=%d tps=%.1f", getTickStats(), overrunCount, effectiveTps));
+        getListenerStats().forEach((priority, stats) ->
+                report.append(System.lineSeparator()).append(String.format("  %-28s %s", labelOf(priority), stats)));
+        return report.toString();
+    }
+
+    /* =================================================================================================================
+     * Dump
+     * ============================================================================================================== */
+
+    /**
+     * Logs the report periodically and appends it to the CSV file, if one is set.
+     * A running report is replaced.
+     *
+     * @param period Time between two reports
+     * @param unit   Unit of the period
+     */
+    public synchronized void startReporting(long period, TimeUnit unit) {
+        stopReporting();
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simulation-profiler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::report, period, period, unit);
+    }
+
+    /**
+     * Stops the periodic report, if running
+     */
+    public synchronized void stopReporting() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    /**
+     * Logs the report once and appends it to the CSV file, if one is set
+     */
+    public void report() {
+        logger.info(formatReport());
+        Path file;
+        synchronized (this) {
+            file = csvFile;
+        }
+        if (file != null) {
+            try {
+                writeCsv(file);
+            } catch (UncheckedIOException e) {
+                logger.error("Could not write profiler csv {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * @param csvFile File the periodic report is appended to or null to only log it
+     */
+    public synchronized void setCsvFile(Path csvFile) {
+        this.csvFile = csvFile;
+    }
+
+    /**
+     * Appends one line per listener and one for the whole tick to a CSV file. The header is written to a new file.
+     *
+     * @param file CSV file
+     * @throws UncheckedIOException When the file can't be written
+     */
+    public void writeCsv(Path file) {
+        long timestamp = System.currentTimeMillis();
+        try {
+            boolean header = !Files.exists(file) || Files.size(file) == 0;
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                if (header) {
+                    writer.write("timestamp;priority;listener;count;mean_ns;p50_ns;p90_ns;p99_ns;max_ns;overruns;tps");
+                    writer.newLine();
+                }
+                writeCsvLine(writer, timestamp, "", "tick", getTickStats());
+                for (Map.Entry<Integer, LatencyStats> entry : getListenerStats().entrySet()) {
+                    writeCsvLine(writer, timestamp, entry.getKey().toString(),
+                            listenerNames.getOrDefault(entry.getKey(), ""), entry.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsvLine(BufferedWriter writer, long timestamp, String priority, String name, LatencyStats stats) throws IOException {
+        writer.write(String.format(Locale.ROOT, "%d;%s;%s;%d;%.0f;%d;%d;%d;%d;%d;%.2f", timestamp, priority, name,
+                stats.getCount(), stats.getMean(), stats.getP50(), stats.getP90(), stats.getP99(), stats.getMax(),
+                overrunCount, effectiveTps));
+        writer.newLine();
+    }
+
+    /**
+     * Registers the profiler at the platform MBean server as {@code de.thi.dronesim:type=SimulationProfiler,name=<name>}
+     *
+     * @param name Name to tell several simulations apart
+     * @return The name of the registered bean
+     * @throws IllegalStateException When the bean can't be registered, e.g. because the name is already in use
+     */
+    public synchronized ObjectName registerMBean(String name) {
+        unregisterMBean();
+        try {
+            ObjectName objectName = new ObjectName("de.thi.dronesim", new Hashtable<>(Map.of(
+                    "type", "SimulationProfiler",
+                    "name", ObjectName.quote(name))));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+            return objectName;
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalStateException("A profiler with the name " + name + " is already registered", e);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register the profiler", e);
+        }
+    }
+
+    /**
+     * Removes the bean from the platform MBean server, if registered
+     */
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName);
+        } catch (InstanceNotFoundException e) {
+            // Already gone
+        } catch (JMException e) {
+            logger.warn("Could not unregister the profiler {}", objectName, e);
+        }
+        objectName = null;
+    }
+}
@@ -0,0 +1,37 @@
+package de.thi.dronesim.profiling;
+
+import java.util.Map;
+
+/**
+ * JMX view of a {@link SimulationProfiler}, durations are in µs
+ */
+public interface SimulationProfilerMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getTickCount();
+
+    long getOverrunCount();
+
+    double getEffectiveTps();
+
+    double getTickMeanMicros();
+
+    double getTickP99Micros();
+
+    double getTickMaxMicros();
+
+    /**
+     * @return Mean duration of every listener, keyed by priority and name
+     */
+    Map<String, Double> getListenerMeanMicros();
+
+    /**
+     * @return 99th percentile of every listener, keyed by priority and name
+     */
+    Map<String, Double> getListenerP99Micros();
+
+    void reset();
+}
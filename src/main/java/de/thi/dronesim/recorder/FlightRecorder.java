@@ -0,0 +1,278 @@
+package de.thi.dronesim.recorder;
+
+import de.thi.dronesim.ISimulationChild;
+import de.thi.dronesim.Simulation;
+import de.thi.dronesim.SimulationUpdateEvent;
+import de.thi.dronesim.drone.Location;
+import de.thi.dronesim.sensor.ISensor;
+import de.thi.dronesim.sensor.SensorModule;
+import de.thi.dronesim.sensor.SensorResultStore;
+import de.thi.dronesim.sensor.dto.SensorResultDto;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes the state of the drone after every tick into a binary file, which can be read with {@link FlightRecording}.
+ * <p>
+ * Every tick is one record of a fixed size with the time, position, movement, heading, speeds and the values of all
+ * sensors. The file is written through memory mapped chunks, so recording a tick doesn't allocate anything and long
+ * runs with many ticks per second don't slow down the simulation.
+ * <p>
+ * The recorder is not registered as a service, it is added to the simulations which should be recorded:
+ * <pre>{@code
+ * simulation.addChild(new FlightRecorder(Paths.get("flight.rec")));
+ * simulation.prepare();
+ * }</pre>
+ * The file is created once the simulation starts and completed when it stops. Each sensor has room for a fixed number
+ * of values, further values of a measurement are not recorded.
+ */
+public class FlightRecorder implements ISimulationChild {
+
+    /**
+     * Runs after the sensors and all other listeners, so the record shows the final state of the tick
+     */
+    public static final int PRIORITY = -1000;
+    public static final int DEFAULT_VALUES_PER_SENSOR = 8;
+
+    static final int MAGIC = 0x44524543;                // "DREC"
+    static final short VERSION = 1;
+    static final int RECORD_COUNT_OFFSET = 24;
+    static final int HEADER_FIXED_SIZE = 40;
+    static final int RECORD_FIXED_SIZE = 52;
+    static final int CRASHED = 1;
+    static final int DEFAULT_CHUNK_SIZE = 64 << 20;     // 64 MiB
+
+    private static final Logger logger = LogManager.getLogger(FlightRecorder.class);
+
+    private final Path file;
+    private final int valuesPerSensor;
+    private final int chunkSize;
+
+    private Simulation simulation;
+    private ISensor[] sensors = new ISensor[0];
+    // result stores of the distance sensors, null for the other sensors
+    private SensorResultStore[] resultStores = new SensorResultStore[0];
+    private final SensorResultStore.View view = new SensorResultStore.View();
+    private int headerSize;
+    private int recordSize;
+    private int recordsPerChunk;
+
+    private FileChannel channel;                        // null while not recording
+    private MappedByteBuffer header;
+    private MappedByteBuffer chunk;
+    private long recordCount = 0;
+
+    /**
+     * @param file File to record into, an existing file is replaced
+     */
+    public FlightRecorder(Path file) {
+        this(file, DEFAULT_VALUES_PER_SENSOR);
+    }
+
+    /**
+     * @param file            File to record into, an existing file is replaced
+     * @param valuesPerSensor Number of values recorded per sensor and tick
+     */
+    public FlightRecorder(Path file, int valuesPerSensor) {
+        this(file, valuesPerSensor, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize Size of a mapped part of the file in bytes, always holds at least one record
+     */
+    FlightRecorder(Path file, int valuesPerSensor, int chunkSize) {
+        if (valuesPerSensor < 0) throw new IllegalArgumentException("Values per sensor must not be negative");
+        this.file = file;
+        this.valuesPerSensor = valuesPerSensor;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void initialize(Simulation simulation) {
+        this.simulation = simulation;
+        simulation.registerUpdateListener(this::record, PRIORITY);
+    }
+
+    @Override
+    public Simulation getSimulation() {
+        return simulation;
+    }
+
+    /**
+     * Creates the file, the sensors are taken from the {@link SensorModule} at this point
+     *
+     * @throws UncheckedIOException When the file can't be created
+     */
+    @Override
+    public synchronized void onSimulationStart() {
+        if (channel != null) {
+            return;
+        }
+        SensorModule sensorModule = simulation.getChild(SensorModule.class);
+        sensors = sensorModule != null ? sensorModule.getSensors().toArray(new ISensor[0]) : new ISensor[0];
+        resultStores = new SensorResultStore[sensors.length];
+        for (int i = 0; i < sensors.length; i++) {
+            resultStores[i] = sensorModule.getResultStore(sensors[i].getId());
+        }
+        headerSize = align(HEADER_FIXED_SIZE + 4 * sensors.length);
+        recordSize = recordSize(sensors.length, valuesPerSensor);
+        recordsPerChunk = Math.max(1, chunkSize / recordSize);
+        recordCount = 0;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerSize);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC)
+                    .putShort(VERSION)
+                    .putShort((short) 0)
+                    .putInt(recordSize)
+                    .putInt(simulation.getTps())
+                    .putInt(sensors.length)
+                    .putInt(valuesPerSensor)
+                    .putLong(0)
+                    .putLong(simulation.getSeed());
+            for (ISensor sensor : sensors) {
+                header.putInt(sensor.getId());
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+        logger.info("Recording the flight into {}", file);
+    }
+
+    @Override
+    public void onSimulationStop() {
+        close();
+    }
+
+    /**
+     * Writes the record of a tick
+     */
+    private synchronized void record(SimulationUpdateEvent event) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            int slot = (int) (recordCount % recordsPerChunk);
+            if (slot == 0) {
+                long start = headerSize + recordCount * recordSize;
+                chunk = channel.map(FileChannel.MapMode.READ_WRITE, start, (long) recordsPerChunk * recordSize);
+                chunk.order(ByteOrder.LITTLE_ENDIAN);
+            }
+            int offset = slot * recordSize;
+            Location location = event.getDrone().getLocation();
+            chunk.putDouble(offset, event.getTime());
+            chunk.putFloat(offset + 8, location.getX());
+            chunk.putFloat(offset + 12, location.getY());
+            chunk.putFloat(offset + 16, location.getZ());
+            chunk.putFloat(offset + 20, location.getMovement().x);
+            chunk.putFloat(offset + 24, location.getMovement().y);
+            chunk.putFloat(offset + 28, location.getMovement().z);
+            chunk.putFloat(offset + 32, (float) location.getHeading());
+            chunk.putFloat(offset + 36, (float) location.getAirspeed());
+            chunk.putFloat(offset + 40, (float) location.getGroundSpeed());
+            chunk.putFloat(offset + 44, (float) location.getVerticalSpeed());
+            chunk.putInt(offset + 48, event.getDrone().isCrashed() ? CRASHED : 0);
+
+            int sensorOffset = offset + RECORD_FIXED_SIZE;
+            for (int s = 0; s < sensors.length; s++) {
+                if (resultStores[s] != null) {
+                    resultStores[s].read(view);
+                    int count = Math.min(view.getCount(), valuesPerSensor);
+                    chunk.putInt(sensorOffset, count);
+                    for (int i = 0; i < count; i++) {
+                        chunk.putFloat(sensorOffset + 4 + 4 * i, view.getDistance(i));
+                    }
+                } else {
+                    SensorResultDto result = sensors[s].getLastMeasurement();
+                    List<Float> values = result != null ? result.getValues() : null;
+                    int count = values != null ? Math.min(values.size(), valuesPerSensor) : 0;
+                    chunk.putInt(sensorOffset, count);
+                    for (int i = 0; i < count; i++) {
+                        Float value = values.get(i);
+                        chunk.putFloat(sensorOffset + 4 + 4 * i, value != null ? value : Float.NaN);
+                    }
+                }
+                sensorOffset += 4 + 4 * valuesPerSensor;
+            }
+
+            recordCount++;
+            header.putLong(RECORD_COUNT_OFFSET, recordCount);
+        } catch (IOException e) {
+            logger.error("Recording into {} failed, the recording is stopped", file, e);
+            close();
+        }
+    }
+
+    /**
+     * Writes all records to the disk and closes the file. Nothing is recorded afterwards.
+     */
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (chunk != null) {
+                chunk.force();
+            }
+            if (header != null) {
+                header.force();
+            }
+            // The last chunk was mapped completely
+            channel.truncate(headerSize + recordCount * recordSize);
+        } catch (IOException e) {
+            // Some systems can't truncate a mapped file, the reader ignores the rest
+            logger.warn("Could not complete the recording {}: {}", file, e.getMessage());
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Could not close the recording {}", file, e);
+            }
+            channel = null;
+            chunk = null;
+            header = null;
+        }
+        logger.info("Recorded {} ticks into {}", recordCount, file);
+    }
+
+    /**
+     * @return True while ticks are recorded
+     */
+    public synchronized boolean isRecording() {
+        return channel != null;
+    }
+
+    /**
+     * @return Number of ticks recorded so far
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return Size of a record in bytes, multiple of 8, so the time is aligned
+     */
+    static int recordSize(int sensorCount, int valuesPerSensor) {
+        return align(RECORD_FIXED_SIZE + sensorCount * (4 + 4 * valuesPerSensor));
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+}
@@ -0,0 +1,358 @@
+package de.thi.dronesim.recorder;
+
+import de.thi.dronesim.drone.Drone;
+import de.thi.dronesim.drone.Location;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a file written by a {@link FlightRecorder}.
+ * <p>
+ * The records are read through memory mapped chunks by a {@link Cursor}, so a recording of any size can be read
+ * without loading it into memory:
+ * <pre>{@code
+ * try (FlightRecording recording = FlightRecording.open(Paths.get("flight.rec"))) {
+ *     FlightRecording.Cursor cursor = recording.cursor();
+ *     while (cursor.next()) {
+ *         System.out.println(cursor.getTime() + ": " + cursor.getY());
+ *     }
+ * }
+ * }</pre>
+ */
+public class FlightRecording implements Closeable {
+
+    private static final int CHUNK_SIZE = 64 << 20;     // 64 MiB
+
+    private final FileChannel channel;
+    private final int recordSize;
+    private final int tps;
+    private final int valuesPerSensor;
+    private final long seed;
+    private final int[] sensorIds;
+    private final int headerSize;
+    private final long recordCount;
+    private final int recordsPerChunk;
+
+    private FlightRecording(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(FlightRecorder.HEADER_FIXED_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != FlightRecorder.MAGIC) {
+            throw new IOException("File is no flight recording");
+        }
+        short version = header.getShort();
+        if (version != FlightRecorder.VERSION) {
+            throw new IOException("Unsupported recording version " + version);
+        }
+        header.getShort();
+        recordSize = header.getInt();
+        tps = header.getInt();
+        int sensorCount = header.getInt();
+        valuesPerSensor = header.getInt();
+        long writtenRecords = header.getLong();
+        seed = header.getLong();
+        if (recordSize != FlightRecorder.recordSize(sensorCount, valuesPerSensor)) {
+            throw new IOException("Recording header is corrupt");
+        }
+
+        ByteBuffer ids = ByteBuffer.allocate(4 * sensorCount).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(ids, FlightRecorder.HEADER_FIXED_SIZE);
+        ids.flip();
+        sensorIds = new int[sensorCount];
+        for (int i = 0; i < sensorCount; i++) {
+            sensorIds[i] = ids.getInt();
+        }
+        headerSize = (FlightRecorder.HEADER_FIXED_SIZE + 4 * sensorCount + 7) & ~7;
+        // A recording, which wasn't closed properly, might be shorter than the header says
+        recordCount = Math.min(writtenRecords, Math.max(0, (channel.size() - headerSize) / recordSize));
+        recordsPerChunk = Math.max(1, CHUNK_SIZE / recordSize);
+    }
+
+    /**
+     * Opens a recording, the records are read once a cursor moves to them
+     *
+     * @param file Recorded file
+     * @return The opened recording, which has to be closed
+     * @throws IOException When the file can't be read or is no recording
+     */
+    public static FlightRecording open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new FlightRecording(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Recording is truncated");
+            }
+        }
+    }
+
+    /**
+     * @return A new cursor in front of the first record
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Finds the first record at or after a time, the records are expected in the order of their time
+     *
+     * @param time Simulation time in ms
+     * @return Index of the record or {@link #size()} if all records are earlier
+     * @throws UncheckedIOException When a record can't be read
+     */
+    public long indexOf(double time) {
+        Cursor cursor = cursor();
+        long low = 0;
+        long high = recordCount;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            cursor.seek(middle);
+            if (cursor.getTime() < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return Number of recorded ticks
+     */
+    public long size() {
+        return recordCount;
+    }
+
+    /**
+     * @return Ticks per second at the start of the recording
+     */
+    public int getTps() {
+        return tps;
+    }
+
+    /**
+     * @return Seed of the recorded simulation
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return IDs of the recorded sensors, the index of an ID is the sensor index of the cursor
+     */
+    public int[] getSensorIds() {
+        return sensorIds.clone();
+    }
+
+    /**
+     * @return Maximum number of recorded values per sensor and tick
+     */
+    public int getValuesPerSensor() {
+        return valuesPerSensor;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Position in a recording, the getters return the values of the current record.
+     * A cursor is not thread safe, but several cursors of one recording can be used at the same time.
+     */
+    public class Cursor {
+
+        private MappedByteBuffer chunk;
+        private long chunkIndex = -1;
+        private long index = -1;
+        private int offset;
+
+        private Cursor() {
+        }
+
+        /**
+         * Moves to the next record
+         *
+         * @return False if there is no further record
+         * @throws UncheckedIOException When the record can't be read
+         */
+        public boolean next() {
+            if (index + 1 >= recordCount) {
+                return false;
+            }
+            seek(index + 1);
+            return true;
+        }
+
+        /**
+         * Moves to a record
+         *
+         * @param index Index of the record, which is the number of the recorded tick
+         * @throws NoSuchElementException When there is no record with this index
+         * @throws UncheckedIOException When the record can't be read
+         */
+        public void seek(long index) {
+            if (index < 0 || index >= recordCount) {
+                throw new NoSuchElementException("No record " + index + ", the recording has " + recordCount);
+            }
+            long newChunkIndex = index / recordsPerChunk;
+            if (newChunkIndex != chunkIndex) {
+                long first = newChunkIndex * recordsPerChunk;
+                long records = Math.min(recordsPerChunk, recordCount - first);
+                try {
+                    chunk = channel.map(FileChannel.MapMode.READ_ONLY, headerSize + first * recordSize,
+                            records * recordSize);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                chunk.order(ByteOrder.LITTLE_ENDIAN);
+                chunkIndex = newChunkIndex;
+            }
+            this.index = index;
+            this.offset = (int) (index - chunkIndex * recordsPerChunk) * recordSize;
+        }
+
+        /**
+         * @return Index of the current record
+         */
+        public long getIndex() {
+            return index;
+        }
+
+        /**
+         * @return Simulation time in ms
+         */
+        public double getTime() {
+            return chunk.getDouble(offset);
+        }
+
+        public float getX() {
+            return chunk.getFloat(offset + 8);
+        }
+
+        public float getY() {
+            return chunk.getFloat(offset + 12);
+        }
+
+        public float getZ() {
+            return chunk.getFloat(offset + 16);
+        }
+
+        /**
+         * @return Movement along the x-axis in the tick in m
+         */
+        public float getMovementX() {
+            return chunk.getFloat(offset + 20);
+        }
+
+        public float getMovementY() {
+            return chunk.getFloat(offset + 24);
+        }
+
+        public float getMovementZ() {
+            return chunk.getFloat(offset + 28);
+        }
+
+        /**
+         * @return Heading in deg
+         */
+        public float getHeading() {
+            return chunk.getFloat(offset + 32);
+        }
+
+        /**
+         * @return True airspeed in m/s
+         */
+        public float getAirspeed() {
+            return chunk.getFloat(offset + 36);
+        }
+
+        /**
+         * @return Ground speed in m/s
+         */
+        public float getGroundSpeed() {
+            return chunk.getFloat(offset + 40);
+        }
+
+        /**
+         * @return Vertical speed in m/s
+         */
+        public float getVerticalSpeed() {
+            return chunk.getFloat(offset + 44);
+        }
+
+        public boolean isCrashed() {
+            return (chunk.getInt(offset + 48) & FlightRecorder.CRASHED) != 0;
+        }
+
+        /**
+         * Moves a drone to the state of the current record. The requested deltas are cleared and the track is
+         * taken from the movement, as it isn't recorded.
+         *
+         * @param drone Drone to change
+         */
+        public void applyTo(Drone drone) {
+            Location location = drone.getLocation();
+            location.setX(getX());
+            location.setY(getY());
+            location.setZ(getZ());
+            location.getMovement().set(getMovementX(), getMovementY(), getMovementZ());
+            location.setHeading(getHeading());
+            location.setAirspeed(getAirspeed());
+            location.setGroundSpeed(getGroundSpeed());
+            location.setVerticalSpeed(getVerticalSpeed());
+            if (getMovementX() != 0 || getMovementZ() != 0) {
+                location.setTrack((Math.toDegrees(Math.atan2(-getMovementX(), getMovementZ())) + 360) % 360);
+            } else {
+                location.setTrack(location.getHeading());
+            }
+            drone.setCrashed(isCrashed());
+        }
+
+        /**
+         * @param sensor Index of the sensor, see {@link FlightRecording#getSensorIds()}
+         * @return Number of recorded values of the sensor
+         */
+        public int getSensorValueCount(int sensor) {
+            return chunk.getInt(sensorOffset(sensor));
+        }
+
+        /**
+         * @param sensor Index of the sensor, see {@link FlightRecording#getSensorIds()}
+         * @param value  Index of the value
+         * @return The recorded value
+         * @throws IndexOutOfBoundsException When the sensor has fewer values
+         */
+        public float getSensorValue(int sensor, int value) {
+            int base = sensorOffset(sensor);
+            if (value < 0 || value >= chunk.getInt(base)) {
+                throw new IndexOutOfBoundsException("Value " + value + " of sensor " + sensor + " wasn't recorded");
+            }
+            return chunk.getFloat(base + 4 + 4 * value);
+        }
+
+        private int sensorOffset(int sensor) {
+            if (sensor < 0 || sensor >= sensorIds.length) {
+                throw new IndexOutOfBoundsException("No sensor " + sensor);
+            }
+            return offset + FlightRecorder.RECORD_FIXED_SIZE + sensor * (4 + 4 * valuesPerSensor);
+        }
+    }
+}
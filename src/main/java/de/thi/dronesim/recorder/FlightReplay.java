@@ -0,0 +1,70 @@
+package de.thi.dronesim.recorder;
+
+import de.thi.dronesim.ISimulationChild;
+import de.thi.dronesim.Simulation;
+import de.thi.dronesim.autopilot.Autopilot;
+import de.thi.dronesim.obstacle.UfoObjs;
+import de.thi.dronesim.persistence.entity.SimulationConfig;
+import de.thi.dronesim.sensor.SensorModule;
+import de.thi.dronesim.wind.Wind;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Creates simulations, which replay a {@link FlightRecording} instead of calculating the flight,
+ * see {@link Simulation#setReplay(FlightRecording)}.
+ * <p>
+ * The config may differ from the recorded one, e.g. to try other sensors on the same flight:
+ * <pre>{@code
+ * try (FlightRecording recording = FlightRecording.open(Paths.get("flight.rec"))) {
+ *     Simulation simulation = FlightReplay.sensorReplay(otherSensors, recording);
+ *     simulation.runUntil(s -> false);
+ * }
+ * }</pre>
+ */
+public final class FlightReplay {
+
+    private FlightReplay() {
+    }
+
+    /**
+     * Replays a flight with all children besides the wind and the autopilot, which would be overridden anyway.
+     * The gui shows the flight once the simulation is started, {@link Simulation#setSpeed(double)} sets the speed.
+     *
+     * @param config    Config of the simulation, the tps are taken from the recording
+     * @param recording Opened recording, which has to stay open while the simulation runs
+     * @return The prepared simulation
+     */
+    public static Simulation replay(SimulationConfig config, FlightRecording recording) {
+        Simulation simulation = new Simulation(config);
+        simulation.excludeChild(Wind.class);
+        simulation.excludeChild(Autopilot.class);
+        return prepare(simulation, recording);
+    }
+
+    /**
+     * Replays a flight headless with only the sensors and the obstacles they measure, so a long flight can be
+     * re-measured as fast as possible with {@link Simulation#runUntil(java.util.function.Predicate)}.
+     *
+     * @param config    Config of the simulation, the tps are taken from the recording
+     * @param recording Opened recording, which has to stay open while the simulation runs
+     * @return The prepared simulation
+     */
+    public static Simulation sensorReplay(SimulationConfig config, FlightRecording recording) {
+        List<Class<? extends ISimulationChild>> kept = Arrays.asList(SensorModule.class, UfoObjs.class);
+        Simulation simulation = new Simulation(config);
+        for (Class<? extends ISimulationChild> childClass : Simulation.getRegisteredChildren()) {
+            if (!kept.contains(childClass)) {
+                simulation.excludeChild(childClass);
+            }
+        }
+        return prepare(simulation, recording);
+    }
+
+    private static Simulation prepare(Simulation simulation, FlightRecording recording) {
+        simulation.setReplay(recording);
+        simulation.prepare();
+        return simulation;
+    }
+}
@@ -4,6 +4,10 @@ import de.thi.dronesim.SimulationUpdateEvent;
 import de.thi.dronesim.persistence.entity.SensorConfig;
 import de.thi.dronesim.sensor.dto.SensorResultDto;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Interface for a sensor
  *
@@ -24,4 +28,15 @@ public interface ISensor {
 	SensorResultDto getLastMeasurement();
 
 	boolean equals(ISensor sensor);
+
+	/**
+	 * Writes the internal state, which changes between measurements, into a snapshot of the simulation.
+	 * The last result is left out, it is calculated again by the next measurement.
+	 */
+	default void writeState(DataOutput out) throws IOException {}
+
+	/**
+	 * Restores the state written by {@link #writeState(DataOutput)}
+	 */
+	default void readState(DataInput in) throws IOException {}
 }
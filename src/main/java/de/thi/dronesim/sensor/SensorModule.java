@@ -3,14 +3,29 @@ package de.thi.dronesim.sensor;
 import de.thi.dronesim.ISimulationChild;
 import de.thi.dronesim.Simulation;
 import de.thi.dronesim.SimulationUpdateEvent;
+import de.thi.dronesim.drone.Drone;
 import de.thi.dronesim.persistence.entity.SensorConfig;
 import de.thi.dronesim.sensor.dto.SensorResultDto;
 import de.thi.dronesim.sensor.types.*;
 
-import java.util.HashMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Class to manage all sensors for the Simulation.
@@ -24,7 +39,19 @@ public class SensorModule implements ISimulationChild {
     // /////////////////////////////////////////////////////////////////////////////
 
     private Simulation simulation;
-    private final Map<Integer, ISensor> sensorMap = new HashMap<>();
+    /**
+     * Sorted by the sensor ID, so the measurement and result order is always the same
+     */
+    private final Map<Integer, ISensor> sensorMap = new TreeMap<>();
+    /**
+     * Sensors in ID order with the duration of their last measurement in ns at the same index
+     */
+    private ISensor[] sensors = new ISensor[0];
+    private long[] measurementNanos = new long[0];
+
+    private boolean parallelMeasurements = false;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private ForkJoinPool pool;
 
     // /////////////////////////////////////////////////////////////////////////////
     // Methods
@@ -32,9 +59,113 @@ public class SensorModule implements ISimulationChild {
 
     /**
      * Calculates the current values for all sensors.
+     * <p>
+     * In the parallel mode (see {@link #setParallelMeasurements(boolean)}) the sensors are independent tasks
+     * on a fork join pool and measure against a copy of the drone, so a sensor never sees a half updated
+     * {@link de.thi.dronesim.drone.Location}. The swarm isn't copied, it doesn't change while the sensors measure.
+     * The call returns once every sensor is done.
      */
     public void runAllMeasurements(SimulationUpdateEvent event) {
-        sensorMap.values().forEach(sensor -> sensor.runMeasurement(event, this));
+        if (!parallelMeasurements || sensors.length < 2) {
+            for (int i = 0; i < sensors.length; i++) {
+                runMeasurement(i, event);
+            }
+            return;
+        }
+
+        SimulationUpdateEvent snapshot = new SimulationUpdateEvent(new Drone(event.getDrone()), event.getSwarm(),
+                event.getTime(), event.getTps());
+        List<Callable<Void>> tasks = new ArrayList<>(sensors.length);
+        for (int i = 0; i < sensors.length; i++) {
+            final int index = i;
+            tasks.add(() -> {
+                runMeasurement(index, snapshot);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : getPool().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Sensor measurement failed", e.getCause());
+        }
+    }
+
+    private void runMeasurement(int index, SimulationUpdateEvent event) {
+        long start = System.nanoTime();
+        sensors[index].runMeasurement(event, this);
+        measurementNanos[index] = System.nanoTime() - start;
+    }
+
+    private synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    /**
+     * Enables or disables the parallel evaluation of the sensors, disabled by default
+     *
+     * @param parallelMeasurements true to measure all sensors concurrently
+     */
+    public void setParallelMeasurements(boolean parallelMeasurements) {
+        this.parallelMeasurements = parallelMeasurements;
+    }
+
+    public boolean isParallelMeasurements() {
+        return parallelMeasurements;
+    }
+
+    /**
+     * Sets the number of worker threads used in the parallel mode, takes effect with the next measurement
+     *
+     * @param parallelism number of threads, at least 1
+     */
+    public synchronized void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        if (pool != null && pool.getParallelism() != parallelism) {
+            // Running measurements finish on the old pool, the next one creates a new pool
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Gets the duration of the last measurement of a sensor.
+     *
+     * @param sensorId the ID of the Sensor
+     * @return duration in ns, 0 if the sensor doesn't exist or hasn't measured yet
+     */
+    public long getLastMeasurementNanos(Integer sensorId) {
+        for (int i = 0; i < sensors.length; i++) {
+            if (sensors[i].getId() == sensorId) {
+                return measurementNanos[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the duration of the last measurement of every sensor.
+     *
+     * @return sensor ID to duration in ns, ordered by the sensor ID
+     */
+    public Map<Integer, Long> getLastMeasurementNanos() {
+        Map<Integer, Long> timings = new LinkedHashMap<>();
+        for (int i = 0; i < sensors.length; i++) {
+            timings.put(sensors[i].getId(), measurementNanos[i]);
+        }
+        return Collections.unmodifiableMap(timings);
     }
 
     /**
@@ -51,12 +182,33 @@ public class SensorModule implements ISimulationChild {
     /**
      * Gets the result from the last calculation of every sensor.
      *
-     * @return a List of all results
+     * @return a List of all results, ordered by the sensor ID
      */
     public List<SensorResultDto> getResultsFromAllSensors() {
-        return sensorMap.values().stream()
-                .map(ISensor::getLastMeasurement)
-                .collect(Collectors.toList());
+        ISensor[] sensors = this.sensors;
+        List<SensorResultDto> results = new ArrayList<>(sensors.length);
+        for (ISensor sensor : sensors) {
+            results.add(sensor.getLastMeasurement());
+        }
+        return results;
+    }
+
+    /**
+     * Gets the result store of a distance sensor, which can be read from any thread without locks and allocations.
+     *
+     * @param sensorId the ID of the Sensor
+     * @return the {@link SensorResultStore} of the sensor, null if the sensor doesn't exist or measures no distance
+     */
+    public SensorResultStore getResultStore(Integer sensorId) {
+        ISensor sensor = sensorMap.get(sensorId);
+        return sensor instanceof DistanceSensor ? ((DistanceSensor) sensor).getResultStore() : null;
+    }
+
+    /**
+     * @return All sensors, ordered by the sensor ID
+     */
+    public List<ISensor> getSensors() {
+        return Collections.unmodifiableList(Arrays.asList(sensors));
     }
 
     /**
@@ -64,6 +216,8 @@ public class SensorModule implements ISimulationChild {
      */
     public void loadConfig(List<SensorConfig> sensorConfigList) {
         sensorMap.clear();
+        sensors = new ISensor[0];
+        measurementNanos = new long[0];
         if (sensorConfigList == null) {
             return;
         }
@@ -76,6 +230,8 @@ public class SensorModule implements ISimulationChild {
                 throw new IllegalArgumentException("Duplicate sensor ID");
             }
         }
+        sensors = sensorMap.values().toArray(new ISensor[0]);
+        measurementNanos = new long[sensors.length];
     }
 
     /**
@@ -116,4 +272,46 @@ public class SensorModule implements ISimulationChild {
     public Simulation getSimulation() {
         return simulation;
     }
+
+    /**
+     * Writes the state of every sensor with its ID
+     */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(sensors.length);
+        ByteArrayOutputStream sensorBytes = new ByteArrayOutputStream(64);
+        DataOutputStream sensorOut = new DataOutputStream(sensorBytes);
+        for (ISensor sensor : sensors) {
+            sensorBytes.reset();
+            sensor.writeState(sensorOut);
+            sensorOut.flush();
+            out.writeInt(sensor.getId());
+            out.writeInt(sensorBytes.size());
+            out.write(sensorBytes.toByteArray());
+        }
+    }
+
+    /**
+     * Restores the sensors by their ID, the state of a sensor which isn't configured anymore is skipped
+     */
+    @Override
+    public void readState(DataInput in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            ISensor sensor = sensorMap.get(in.readInt());
+            byte[] state = new byte[in.readInt()];
+            in.readFully(state);
+            if (sensor != null) {
+                sensor.readState(new DataInputStream(new ByteArrayInputStream(state)));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onSimulationStop() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
 }
@@ -0,0 +1,219 @@
+package de.thi.dronesim.sensor;
+
+import de.thi.dronesim.obstacle.entity.Obstacle;
+import de.thi.dronesim.sensor.dto.SensorResultDto;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+
+/**
+ * Latest result of a distance sensor as primitive arrays, which can be read from any thread without locks.
+ * <p>
+ * The sensor writes every result into one of two buffers, while readers copy the other, last published one into a
+ * {@link View}. A reader only has to retry, if the sensor has published a result and started the next one while the
+ * reader was still copying. The buffers and views grow to the largest result once, afterwards neither writing nor
+ * reading allocates anything.
+ * <p>
+ * There must be only one writer at a time, which is the sensor during its measurement.
+ */
+public final class SensorResultStore {
+
+    private static final class Buffer {
+        private float[] distances = new float[0];
+        private int[] obstacles = new int[0];
+        private Obstacle[] obstacleTable = new Obstacle[0];
+        private int count;
+        private double time;
+    }
+
+    private final Buffer[] buffers = {new Buffer(), new Buffer()};
+    /**
+     * Number of published results, the latest one is in the buffer {@code version & 1}
+     */
+    private volatile long version = 0;
+    /**
+     * Version, which is currently written or was written last
+     */
+    private volatile long writing = 0;
+    private Buffer current;
+
+    /**
+     * Starts writing the next result, the values are set with {@link #set(int, float, int)}
+     *
+     * @param time          Simulation time of the measurement in ms
+     * @param count         Number of values
+     * @param obstacleTable Table of the obstacle indices, see {@link de.thi.dronesim.obstacle.entity.RayHitBuffer#getObstacleTable()}
+     */
+    public void beginWrite(double time, int count, Obstacle[] obstacleTable) {
+        long next = version + 1;
+        writing = next;
+        // Readers of the buffer must see the new version before any value of it
+        VarHandle.storeStoreFence();
+        current = buffers[(int) (next & 1)];
+        if (current.distances.length < count) {
+            current.distances = new float[count];
+            current.obstacles = new int[count];
+        }
+        current.time = time;
+        current.count = count;
+        current.obstacleTable = obstacleTable;
+    }
+
+    /**
+     * @param index    Index of the value, the values are ordered by the distance
+     * @param distance Distance to the obstacle in m
+     * @param obstacle Index of the obstacle in the obstacle table
+     */
+    public void set(int index, float distance, int obstacle) {
+        current.distances[index] = distance;
+        current.obstacles[index] = obstacle;
+    }
+
+    /**
+     * Publishes the result, readers get it from now on
+     */
+    public void endWrite() {
+        current = null;
+        version = writing;
+    }
+
+    /**
+     * @return Number of published results, 0 before the first measurement
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Copies the latest result into a view
+     *
+     * @param view Receives the result, can be reused for every read
+     * @return False if no result was published yet, the view is empty then
+     */
+    public boolean read(View view) {
+        while (true) {
+            long readVersion = version;
+            if (readVersion == 0) {
+                view.clear();
+                return false;
+            }
+            Buffer buffer = buffers[(int) (readVersion & 1)];
+            float[] distances = buffer.distances;
+            int[] obstacles = buffer.obstacles;
+            // Might be torn by a writer, which the check below detects
+            int count = Math.min(buffer.count, Math.min(distances.length, obstacles.length));
+            view.ensureCapacity(count);
+            System.arraycopy(distances, 0, view.distances, 0, count);
+            System.arraycopy(obstacles, 0, view.obstacles, 0, count);
+            view.obstacleTable = buffer.obstacleTable;
+            view.time = buffer.time;
+            view.count = count;
+            view.version = readVersion;
+            VarHandle.loadLoadFence();
+            // The buffer is only written again for the version after the next one
+            if (writing < readVersion + 2) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reads the latest result into a new dto, for the callers of {@link ISensor#getLastMeasurement()}
+     *
+     * @param sensor Sensor of the result
+     * @return The result or null, if no result was published yet
+     */
+    public SensorResultDto toDto(ISensor sensor) {
+        View view = new View();
+        if (!read(view)) {
+            return null;
+        }
+        SensorResultDto dto = new SensorResultDto();
+        dto.setSensor(sensor);
+        //first value of the values-array ist the nearest, the last is the farthest
+        dto.setValues(new ArrayList<>(view.count));
+        for (int i = 0; i < view.count; i++) {
+            dto.getObstacle().add(view.getObstacle(i));
+            dto.getValues().add(view.getDistance(i));
+        }
+        return dto;
+    }
+
+    /**
+     * Copy of a result, only used by the thread which reads into it
+     */
+    public static final class View {
+        private float[] distances = new float[0];
+        private int[] obstacles = new int[0];
+        private Obstacle[] obstacleTable = new Obstacle[0];
+        private int count;
+        private double time;
+        private long version;
+
+        private void ensureCapacity(int capacity) {
+            if (distances.length < capacity) {
+                distances = new float[capacity];
+                obstacles = new int[capacity];
+            }
+        }
+
+        private void clear() {
+            count = 0;
+            version = 0;
+            time = 0;
+        }
+
+        /**
+         * @return Number of detected obstacles
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @param index Index of the value, 0 is the nearest obstacle
+         * @return Distance in m
+         */
+        public float getDistance(int index) {
+            checkIndex(index);
+            return distances[index];
+        }
+
+        /**
+         * @param index Index of the value, 0 is the nearest obstacle
+         * @return Index of the obstacle in the obstacle table of the measurement
+         */
+        public int getObstacleIndex(int index) {
+            checkIndex(index);
+            return obstacles[index];
+        }
+
+        /**
+         * @param index Index of the value, 0 is the nearest obstacle
+         * @return The detected obstacle
+         */
+        public Obstacle getObstacle(int index) {
+            return obstacleTable[getObstacleIndex(index)];
+        }
+
+        /**
+         * @return Simulation time of the measurement in ms
+         */
+        public double getTime() {
+            return time;
+        }
+
+        /**
+         * @return Number of the result, increased by every measurement
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("No value " + index + ", the result has " + count);
+            }
+        }
+    }
+}
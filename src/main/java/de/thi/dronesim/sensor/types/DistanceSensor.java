@@ -4,16 +4,20 @@ import com.jme3.math.Matrix3f;
 import com.jme3.math.Vector3f;
 import de.thi.dronesim.obstacle.UfoObjs;
 import de.thi.dronesim.obstacle.entity.HitMark;
-import de.thi.dronesim.obstacle.entity.Obstacle;
+import de.thi.dronesim.obstacle.entity.RayHitBuffer;
 import de.thi.dronesim.persistence.entity.SensorConfig;
 import de.thi.dronesim.sensor.ISensor;
 import de.thi.dronesim.sensor.SensorModule;
+import de.thi.dronesim.sensor.SensorResultStore;
 import de.thi.dronesim.sensor.dto.SensorResultDto;
 import de.thi.dronesim.sensor.enums.CalcType;
 import de.thi.dronesim.sensor.enums.SensorForm;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -49,7 +53,21 @@ public abstract class DistanceSensor implements ISensor {
     private Vector3f positionVector;
     private final SensorForm sensorForm;
     private final CalcType calcType;
-    protected SensorResultDto sensorResultDtoValues;
+    // latest result, written by the measurement and read by any thread
+    private final SensorResultStore resultStore = new SensorResultStore();
+    // reused for every measurement, see measure
+    private final RayHitBuffer rayHitBuffer = new RayHitBuffer();
+    private int[] obstacleHits = new int[0];
+    private float[] obstacleDistance = new float[0];
+    private int[] hitObstacles = new int[0];
+    // dimension of the cuboid and cylinder casts
+    private final Vector3f castDimension = new Vector3f();
+    // geometry of the sensor, only recalculated when the direction, position, angle or radius change, see updateFrame
+    private final Vector3f frameOrigin = new Vector3f();
+    private final Vector3f frameSurfaceVector = new Vector3f();
+    private float frameOriginToPositionLength;
+    private final float[] frameKey = new float[8];
+    private boolean frameValid = false;
 
     // /////////////////////////////////////////////////////////////////////////////
     // Init
@@ -98,131 +116,114 @@ public abstract class DistanceSensor implements ISensor {
      * A GENERALLY interpretation of the calculation of the SensorResult.
      *
      * Steps:
-     * 1. Group the Hitmarks by the hit obstacle -> a List wich contains Sets of Hitmarks
-     * 2. Sorting the List by the avg distance of each Set:
-     *      - building the Average Distance of each Set
-     *      - storing the new information in the ObstacleAndDistanceDto with the affected obstacle
-     *      -> List of ObstacleAndDistanceDtos sorted by the avg Distance
-     * 3. Storing in the SensorResultDto:
-     *      Sensor: is the used Sensor (this)
-     *      Obstacle: is the nearest Obstacle
-     *      values: the avg Distances of all ObstacleAndDistanceDtos sorted, so that the smalest float is on the first place
-     *
+     * 1. Group the hit rays by the hit obstacle (obstacle index of the {@link RayHitBuffer})
+     * 2. Sorting the groups by the distance of each group:
+     *      - building the distance of each group depending on the {@link CalcType}
+     *      -> obstacle indices sorted by the distance
+     * 3. Publishing in the {@link SensorResultStore} of this sensor:
+     *      obstacles: the obstacle index of each group
+     *      distances: the distances of all groups sorted, so that the smalest float is on the first place
+     *
+     * The rays, the per obstacle sums and the result are kept in buffers of this sensor, so nothing is allocated
+     * per measurement.
+     *
+     * @param time simulation time of the measurement in ms
      * @param origin
      * @param direction
      * @param range
      * @param opening
      *
-     * @return SensorResultDto
-     *
      * @author Johannes Steierl
      */
-    public SensorResultDto getSensorResult(Vector3f origin, Vector3f direction, float range, Vector3f opening, SensorModule sensorModule) {
-        //Helperclass only used in this method so far
-        class ObstacleAndDistanceDTO {
-            private Obstacle obstacle;
-            private float avgDistance;
-
-            private Obstacle getObstacle() {
-                return obstacle;
-            }
-
-            private void setObstacle(Obstacle obstacle) {
-                this.obstacle = obstacle;
-            }
-
-            private float getAvgDistance() {
-                return avgDistance;
-            }
-
-            private void setAvgDistance(float avgDistance) {
-                this.avgDistance = avgDistance;
-            }
+    protected void measure(double time, Vector3f origin, Vector3f direction, float range, Vector3f opening, SensorModule sensorModule) {
+        castSensorHits(origin, direction, range, opening, getSensorForm(), sensorModule);
+        RayHitBuffer hits = rayHitBuffer;
+
+        //grouping the hits by the hit obstacle
+        int obstacleCount = hits.getObstacleCount();
+        if (obstacleHits.length < obstacleCount) {
+            obstacleHits = new int[obstacleCount];
+            obstacleDistance = new float[obstacleCount];
+            hitObstacles = new int[obstacleCount];
         }
-
-        Set<HitMark> hitMarks = getSensorHits(origin, direction, range, opening, getSensorForm(), sensorModule);
-
-        //grouping hitmarks by the hit object
-        List<Set<HitMark>> hitmarksGroupedByObstacles = new ArrayList<>();
-        for (HitMark newHitmark : hitMarks) {
-            Obstacle obstacle = newHitmark.getObstacle();
-            boolean existing = false;
-            for (Set<HitMark> setH : hitmarksGroupedByObstacles) {
-                if (!setH.isEmpty()) {
-                    //first entry of the set
-                    Iterator<HitMark> iterator = setH.iterator();
-                    HitMark m = iterator.next();
-                    //lookup if a set with marks containing this obstacle already exists
-                    if (obstacle.equals(m.getObstacle())) {
-                        setH.add(newHitmark);
-                        existing = true;
-                    }
-                }
+        int groups = 0;
+        for (int r = 0; r < hits.getResultCount(); r++) {
+            if (!hits.isHit(r)) {
+                continue;
             }
-            // creating new Set of marks with the unknown obstacle
-            if (!existing) {
-                Set<HitMark> newSet = new HashSet<>();
-                newSet.add(newHitmark);
-                hitmarksGroupedByObstacles.add(newSet);
+            int obstacle = hits.getObstacleIndex(r);
+            float distance = hits.getDistance(r);
+            if (obstacleHits[obstacle] == 0) {
+                hitObstacles[groups++] = obstacle;
+                obstacleDistance[obstacle] = getCalcType() == CalcType.NEAREST ? Float.POSITIVE_INFINITY : -1f;
             }
-        }
-
-        // sort the grouped hits by the avgDistance
-        List<ObstacleAndDistanceDTO> obstacleAndDistanceDTOS = new ArrayList<>();
-        for (Set<HitMark> setH : hitmarksGroupedByObstacles) {
-            ObstacleAndDistanceDTO oADDTO = new ObstacleAndDistanceDTO();
-
-            Iterator<HitMark> iterator = setH.iterator();
-            HitMark m = iterator.next();
-            oADDTO.setObstacle(m.getObstacle());
-
-            float distance = -1f;
-            switch (getCalcType()){
+            obstacleHits[obstacle]++;
+            switch (getCalcType()) {
                 case NEAREST:
-                    for (HitMark h : setH){
-                        if(distance == -1 ){
-                            distance = h.getDistance();
-                        }else if(distance > h.getDistance()){
-                            distance = h.getDistance();
-
-                        }
-                    }
-                    oADDTO.setAvgDistance(distance);
-                    obstacleAndDistanceDTOS.add(oADDTO);
+                    obstacleDistance[obstacle] = Math.min(obstacleDistance[obstacle], distance);
                     break;
                 case FAREST:
-                    for (HitMark h : setH){
-                        if(distance < h.getDistance()){
-                            distance = h.getDistance();
-
-                        }
-                    }
-                    oADDTO.setAvgDistance(distance);
-                    obstacleAndDistanceDTOS.add(oADDTO);
+                    obstacleDistance[obstacle] = Math.max(obstacleDistance[obstacle], distance);
                     break;
                 case AVG:
-                    for (HitMark h : setH) {
-                        distance += h.getDistance();
-                    }
-                    distance = distance / setH.size();
-                    oADDTO.setAvgDistance(distance);
-                    obstacleAndDistanceDTOS.add(oADDTO);
+                    obstacleDistance[obstacle] += distance;
                     break;
             }
+        }
+        for (int g = 0; g < groups; g++) {
+            int obstacle = hitObstacles[g];
+            if (getCalcType() == CalcType.AVG) {
+                obstacleDistance[obstacle] /= obstacleHits[obstacle];
+            }
+            obstacleHits[obstacle] = 0;
+        }
 
+        // sort the grouped hits by the distance, there are only a few groups per measurement
+        for (int g = 1; g < groups; g++) {
+            int obstacle = hitObstacles[g];
+            int k = g - 1;
+            while (k >= 0 && obstacleDistance[hitObstacles[k]] > obstacleDistance[obstacle]) {
+                hitObstacles[k + 1] = hitObstacles[k];
+                k--;
+            }
+            hitObstacles[k + 1] = obstacle;
         }
-        obstacleAndDistanceDTOS.sort((a, b) -> Float.compare(a.getAvgDistance(), b.getAvgDistance()));
-
-        SensorResultDto sensorResultDto = new SensorResultDto();
-        sensorResultDto.setSensor(this);
-        obstacleAndDistanceDTOS.forEach(o -> sensorResultDto.getObstacle().add(o.getObstacle()));
-        //first value of the values-array ist the nearest, the last is the farthest
-        if (sensorResultDto.getValues() == null) {
-            sensorResultDto.setValues(new ArrayList<>());
+
+        resultStore.beginWrite(time, groups, hits.getObstacleTable());
+        for (int g = 0; g < groups; g++) {
+            resultStore.set(g, obstacleDistance[hitObstacles[g]], hitObstacles[g]);
         }
-        obstacleAndDistanceDTOS.forEach(o -> sensorResultDto.getValues().add(o.getAvgDistance()));
+        resultStore.endWrite();
+    }
 
-        return sensorResultDto;
+    /**
+     * Measures like {@link #measure(double, Vector3f, Vector3f, float, Vector3f, SensorModule)} at the current
+     * time of the simulation and returns the result as dto.
+     *
+     * @return SensorResultDto
+     */
+    public SensorResultDto getSensorResult(Vector3f origin, Vector3f direction, float range, Vector3f opening, SensorModule sensorModule) {
+        measure(sensorModule.getSimulation().getTime(), origin, direction, range, opening, sensorModule);
+        return getLastMeasurement();
+    }
+
+    /**
+     * Builds a dto of the latest result, readers on other threads should prefer {@link #getResultStore()}
+     *
+     * @return the result or null, if the sensor hasn't measured yet
+     */
+    @Override
+    public SensorResultDto getLastMeasurement() {
+        return resultStore.toDto(this);
+    }
+
+    /**
+     * The latest result as primitive values, which can be read from any thread without locks
+     *
+     * @return the result store of this sensor
+     */
+    public SensorResultStore getResultStore() {
+        return resultStore;
     }
 
     /**
@@ -262,6 +263,25 @@ public abstract class DistanceSensor implements ISensor {
         return config;
     }
 
+    /**
+     * Writes the direction and position, which subclasses may change while the simulation runs
+     */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeFloat(directionVector.x);
+        out.writeFloat(directionVector.y);
+        out.writeFloat(directionVector.z);
+        out.writeFloat(positionVector.x);
+        out.writeFloat(positionVector.y);
+        out.writeFloat(positionVector.z);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        setDirection(in.readFloat(), in.readFloat(), in.readFloat());
+        setPosition(in.readFloat(), in.readFloat(), in.readFloat());
+    }
+
     // /////////////////////////////////////////////////////////////////////////////
     // protected Methods
     // /////////////////////////////////////////////////////////////////////////////
@@ -303,10 +323,15 @@ public abstract class DistanceSensor implements ISensor {
      * This method calculates a vector that is lying on the cone surface. This vector is needed
      * to calculate the entire cone.
      *
-     * @return Vector3f
+     * @return Vector3f, cached by the sensor and therefore not to be modified
      * @author Moris Breitenborn
      */
     protected Vector3f calcSurfaceVector() {
+        updateFrame();
+        return frameSurfaceVector;
+    }
+
+    private Vector3f computeSurfaceVector() {
 
         //Get the Vector of the Sensor orientation
         Vector3f directionVector = getDirectionVector();
@@ -388,13 +413,15 @@ public abstract class DistanceSensor implements ISensor {
      * Calculate the origin vector from drone center to sensor cone origin point
      * by using intercept theorems.
      *
-     * @return Vector3f
+     * @return Vector3f, cached by the sensor and therefore not to be modified
      * @author Moris Breitenborn
      */
     protected Vector3f calcOrigin() {
+        updateFrame();
+        return frameOrigin;
+    }
 
-        // get the distance between origin and position
-        float originToPositionLength = calcOriginToPositionLength();
+    private Vector3f computeOrigin(float originToPositionLength) {
 
         // normalize the direction vector to multiply it with the range later to get the needed vector
         Vector3f normalizedOrientationVector = getDirectionVector().normalize();
@@ -419,7 +446,36 @@ public abstract class DistanceSensor implements ISensor {
      * @author Daniel Stolle improved method by simplifying it.
      */
     protected float calcOriginToPositionLength() {
-        return sensorRadius / (float) Math.tan(Math.toRadians(this.sensorAngle));
+        updateFrame();
+        return frameOriginToPositionLength;
+    }
+
+    /**
+     * Recalculates the origin, the surface vector and the origin to position length, if the direction, the position,
+     * the angle or the radius of the sensor have changed since the last call. Apart from the {@link RotationSensor}
+     * they stay the same, so the measurements don't repeat the trigonometry and the matrices every tick.
+     */
+    private void updateFrame() {
+        Vector3f direction = directionVector;
+        Vector3f position = positionVector;
+        if (frameValid
+                && frameKey[0] == direction.x && frameKey[1] == direction.y && frameKey[2] == direction.z
+                && frameKey[3] == position.x && frameKey[4] == position.y && frameKey[5] == position.z
+                && frameKey[6] == sensorAngle && frameKey[7] == sensorRadius) {
+            return;
+        }
+        frameKey[0] = direction.x;
+        frameKey[1] = direction.y;
+        frameKey[2] = direction.z;
+        frameKey[3] = position.x;
+        frameKey[4] = position.y;
+        frameKey[5] = position.z;
+        frameKey[6] = sensorAngle;
+        frameKey[7] = sensorRadius;
+        frameOriginToPositionLength = sensorRadius / (float) Math.tan(Math.toRadians(this.sensorAngle));
+        frameOrigin.set(computeOrigin(frameOriginToPositionLength));
+        frameSurfaceVector.set(computeSurfaceVector());
+        frameValid = true;
     }
 
     // /////////////////////////////////////////////////////////////////////////////
@@ -458,7 +514,7 @@ public abstract class DistanceSensor implements ISensor {
 
 
     /**
-     *Gets the Rays that hit an Obstacle
+     *Casts the Rays of the sensorform, the results are stored in the rayHitBuffer of this sensor
      *
      * the dimension Vector represents the sensorform, so by a cubuid the x = width, y = length and z = height
      *
@@ -469,23 +525,28 @@ public abstract class DistanceSensor implements ISensor {
      *                													0 (y)
      *                													1 (z)
      * @param sensorForm indicates the form of the sensor
-     * @return a Set of the rays that hit objects
      *
      * @author Johannes Steierl
      */
-    private Set<HitMark> getSensorHits(Vector3f origin, Vector3f orientation, float range, Vector3f opening, SensorForm sensorForm, SensorModule sensorModule) {
+    private void castSensorHits(Vector3f origin, Vector3f orientation, float range, Vector3f opening, SensorForm sensorForm, SensorModule sensorModule) {
         UfoObjs ufoObjs = sensorModule.getSimulation().getChild(UfoObjs.class);
 
-        Vector3f dimension;
+        Vector3f dimension = castDimension;
         switch (sensorForm){
-            case CONE:      return ufoObjs.checkSensorCone(origin, orientation, range, opening);
+            case CONE:
+                ufoObjs.castSensorCone(origin, orientation, range, opening, rayHitBuffer);
+                break;
             case CUBOID:
-                dimension = new Vector3f(sensorRadius, sensorRadius, range);
-                return ufoObjs.checkSensorCuboid(origin,orientation, dimension);
-            case PYRAMID: 	return ufoObjs.checkSensorPyramid(origin,orientation,range,opening);
+                dimension.set(sensorRadius, sensorRadius, range);
+                ufoObjs.castSensorCuboid(origin, orientation, dimension, 0, rayHitBuffer);
+                break;
+            case PYRAMID:
+                ufoObjs.castSensorPyramid(origin, orientation, range, opening, rayHitBuffer);
+                break;
             case CYLINDER:
-                dimension = new Vector3f(sensorRadius, sensorRadius, range);
-                return ufoObjs.checkSensorCylinder(origin,orientation,dimension);
+                dimension.set(sensorRadius, sensorRadius, range);
+                ufoObjs.castSensorCylinder(origin, orientation, dimension, rayHitBuffer);
+                break;
             default: throw new IllegalArgumentException("No supported SensorForm given (CONE, CYLINDER, CUBOID, PYRAMID");
         }
     }
@@ -6,6 +6,9 @@ import de.thi.dronesim.sensor.ISensor;
 import de.thi.dronesim.sensor.SensorModule;
 import de.thi.dronesim.sensor.dto.SensorResultDto;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 
 public class GpsSensor implements ISensor {
@@ -148,6 +151,83 @@ public class GpsSensor implements ISensor {
 		return this.lastResult;
 	}
 	
+	/**
+	 * Writes the delayed measurements, the position deltas of the speed approximation and the last values
+	 */
+	@Override
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(this.measurements.size());
+		List<Integer, Coordinates>.Iterator<Integer, Coordinates> it = this.measurements.getIterator();
+		while(it.hasNext()) {
+			Pair<Integer, Coordinates> pair = it.getNext();
+			out.writeInt(pair.first);
+			writeCoordinates(out, pair.second);
+		}
+		writeDeltas(out, this.lastHorizontalDistanceDeltas);
+		writeDeltas(out, this.lastVerticalDistanceDeltas);
+		
+		out.writeBoolean(this.posLastFrame != null);
+		if(this.posLastFrame != null) {
+			writeCoordinates(out, this.posLastFrame);
+		}
+		writeSpeed(out, this.hSpeed);
+		writeSpeed(out, this.vSpeed);
+	}
+
+	@Override
+	public void readState(DataInput in) throws IOException {
+		this.measurements.clear();
+		int count = in.readInt();
+		for(int i = 0; i < count; i++) {
+			this.measurements.addBack(in.readInt(), readCoordinates(in));
+		}
+		readDeltas(in, this.lastHorizontalDistanceDeltas);
+		readDeltas(in, this.lastVerticalDistanceDeltas);
+		
+		this.posLastFrame = in.readBoolean() ? readCoordinates(in) : null;
+		this.hSpeed = readSpeed(in);
+		this.vSpeed = readSpeed(in);
+	}
+	
+	private void writeCoordinates(DataOutput out, Coordinates coordinates) throws IOException {
+		out.writeFloat(coordinates.x);
+		out.writeFloat(coordinates.y);
+		out.writeFloat(coordinates.z);
+	}
+	
+	private Coordinates readCoordinates(DataInput in) throws IOException {
+		return new Coordinates(in.readFloat(), in.readFloat(), in.readFloat());
+	}
+	
+	private void writeDeltas(DataOutput out, List<Integer, Float> deltas) throws IOException {
+		out.writeInt(deltas.size());
+		List<Integer, Float>.Iterator<Integer, Float> it = deltas.getIterator();
+		while(it.hasNext()) {
+			Pair<Integer, Float> pair = it.getNext();
+			out.writeInt(pair.first);
+			out.writeFloat(pair.second);
+		}
+	}
+	
+	private void readDeltas(DataInput in, List<Integer, Float> deltas) throws IOException {
+		deltas.clear();
+		int count = in.readInt();
+		for(int i = 0; i < count; i++) {
+			deltas.addBack(in.readInt(), in.readFloat());
+		}
+	}
+	
+	private void writeSpeed(DataOutput out, Float speed) throws IOException {
+		out.writeBoolean(speed != null);
+		if(speed != null) {
+			out.writeFloat(speed);
+		}
+	}
+	
+	private Float readSpeed(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readFloat() : null;
+	}
+	
 	/**
 	 * Gets the latest measurement from the queue that was delayed long enough. This and all older measurements 
 	 * will be removed from queue.
@@ -296,6 +376,19 @@ public class GpsSensor implements ISensor {
 			return new Iterator<>(this.front);
 		}
 		
+		void clear() {
+			this.front = null;
+			this.back = null;
+		}
+		
+		int size() {
+			int size = 0;
+			for(Node<S, T> n = this.front; n != null; n = n.getNext()) {
+				size++;
+			}
+			return size;
+		}
+		
 		boolean isEmpty() {
 			return this.front == null;
 		}
@@ -3,7 +3,6 @@ package de.thi.dronesim.sensor.types;
 import de.thi.dronesim.SimulationUpdateEvent;
 import de.thi.dronesim.persistence.entity.SensorConfig;
 import de.thi.dronesim.sensor.SensorModule;
-import de.thi.dronesim.sensor.dto.SensorResultDto;
 
 public class InfraredSensor extends DistanceSensor {
 
@@ -13,12 +12,7 @@ public class InfraredSensor extends DistanceSensor {
 
 	@Override
 	public void runMeasurement(SimulationUpdateEvent event, SensorModule sensorModule) {
-		sensorResultDtoValues = getSensorResult(calcOrigin(), getDirectionVector(), calcConeHeight(), calcSurfaceVector(), sensorModule);
-	}
-
-	@Override
-	public SensorResultDto getLastMeasurement() {
-		return sensorResultDtoValues;
+		measure(event.getTime(), calcOrigin(), getDirectionVector(), calcConeHeight(), calcSurfaceVector(), sensorModule);
 	}
 
 	@Override
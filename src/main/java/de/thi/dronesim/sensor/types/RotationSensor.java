@@ -5,7 +5,10 @@ import com.jme3.math.Vector3f;
 import de.thi.dronesim.SimulationUpdateEvent;
 import de.thi.dronesim.persistence.entity.SensorConfig;
 import de.thi.dronesim.sensor.SensorModule;
-import de.thi.dronesim.sensor.dto.SensorResultDto;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 
 public class RotationSensor extends DistanceSensor {
@@ -103,19 +106,14 @@ public class RotationSensor extends DistanceSensor {
 	}
 	
 	/**
-	 * After resetting the direction vector the current "SensorResultDto" is getting calculated
-	 * and set the result to this.sensorResultDtoValues
+	 * After resetting the direction vector the current result is getting calculated
+	 * and published in the result store
 	 * 
 	 */
 	@Override
 	public void runMeasurement(SimulationUpdateEvent event, SensorModule sensorModule) {
 		setDirection(newOrientation(getTraveledArcMeasure(traveledTime(event))));
-		sensorResultDtoValues = getSensorResult(calcOrigin(), getDirectionVector(), calcConeHeight(), calcSurfaceVector(), sensorModule);
-	}
-
-	@Override
-	public SensorResultDto getLastMeasurement() {
-		return sensorResultDtoValues;
+		measure(event.getTime(), calcOrigin(), getDirectionVector(), calcConeHeight(), calcSurfaceVector(), sensorModule);
 	}
 
 	@Override
@@ -126,4 +124,16 @@ public class RotationSensor extends DistanceSensor {
 		config.setStartRotationTime(startRotationTime);
 		return config;
 	}
+
+	@Override
+	public void writeState(DataOutput out) throws IOException {
+		super.writeState(out);
+		out.writeFloat(startRotationTime);
+	}
+
+	@Override
+	public void readState(DataInput in) throws IOException {
+		super.readState(in);
+		startRotationTime = in.readFloat();
+	}
 }
@@ -3,7 +3,10 @@ package de.thi.dronesim.sensor.types;
 import de.thi.dronesim.SimulationUpdateEvent;
 import de.thi.dronesim.persistence.entity.SensorConfig;
 import de.thi.dronesim.sensor.SensorModule;
-import de.thi.dronesim.sensor.dto.SensorResultDto;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class UltrasonicSensor extends DistanceSensor {
 	
@@ -73,18 +76,13 @@ public class UltrasonicSensor extends DistanceSensor {
 	
 	/**
 	 * Calculate the current cone height with help the time difference and the rangeIncreaseVelocity an passes these parameters to
-	 * getSensorResult(); The result get saved into this.sensorResultDtovalues
+	 * measure(); The result is published in the result store
 	 *
 	 */
 	@Override
 	public void runMeasurement(SimulationUpdateEvent event, SensorModule sensorModule) {
 		float traveledTime =  traveledTime(event);
-		this.sensorResultDtoValues = getSensorResult(calcOrigin(), getDirectionVector(), getCurrentConeHeight(traveledTime), calcSurfaceVector(), sensorModule); // getCurrentConeHeight()
-	}
-
-	@Override
-	public SensorResultDto getLastMeasurement() {
-		return this.sensorResultDtoValues;
+		measure(event.getTime(), calcOrigin(), getDirectionVector(), getCurrentConeHeight(traveledTime), calcSurfaceVector(), sensorModule); // getCurrentConeHeight()
 	}
 
 	@Override
@@ -95,4 +93,16 @@ public class UltrasonicSensor extends DistanceSensor {
 		config.setStartIncreaseTime(startIncreaseTime);
 		return config;
 	}
+
+	@Override
+	public void writeState(DataOutput out) throws IOException {
+		super.writeState(out);
+		out.writeFloat(startIncreaseTime);
+	}
+
+	@Override
+	public void readState(DataInput in) throws IOException {
+		super.readState(in);
+		startIncreaseTime = in.readFloat();
+	}
 }
@@ -2,12 +2,16 @@ package de.thi.dronesim.wind;
 
 import de.thi.dronesim.ISimulationChild;
 import de.thi.dronesim.Simulation;
+import de.thi.dronesim.drone.DroneSwarm;
 import de.thi.dronesim.drone.Location;
 import de.thi.dronesim.persistence.entity.WindConfig;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.vecmath.Vector3d;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -24,13 +28,14 @@ public class Wind implements ISimulationChild {
 
     private Simulation simulation;                          // Main simulation
     private final List<WindLayer> windLayers;               // list of wind layers
-    private int latestLayerId = 0;                          // Id of latest WindLayer to take into consideration based on time
+    private WindLayerIndex layerIndex;                      // Lookup of the layer at an altitude and time
 
     /**
      * Default constructor called by {@link Simulation}
      */
     public Wind() {
         windLayers = new ArrayList<>();
+        layerIndex = new WindLayerIndex(Collections.emptyList());
     }
 
     /**
@@ -39,6 +44,7 @@ public class Wind implements ISimulationChild {
      */
     protected Wind(List<WindLayer> layers) {
         this.windLayers = layers;
+        this.layerIndex = new WindLayerIndex(Collections.emptyList());
     }
 
     @Override
@@ -47,12 +53,12 @@ public class Wind implements ISimulationChild {
         loadConfig();
         process();
         // Register update handler
-        simulation.registerUpdateListener(event -> applyWind(event.getDrone().getLocation(), event.getTime()), 850);
-    }
-
-    @Override
-    public void onSimulationStop() {
-        latestLayerId = 0;
+        simulation.registerUpdateListener(event -> {
+            applyWind(event.getDrone().getLocation(), event.getTime());
+            if (event.getSwarm() != null && event.getSwarm().size() > 0) {
+                applyWind(event.getSwarm(), event.getTime());
+            }
+        }, 850);
     }
 
     @Override
@@ -95,12 +101,47 @@ public class Wind implements ISimulationChild {
         return new CurrentWind(wd, ws);
     }
 
+    /**
+     * Writes the gust state of every layer, the layers themselves are part of the config
+     */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(windLayers.size());
+        for (WindLayer layer : windLayers) {
+            layer.writeState(out);
+        }
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count != windLayers.size()) {
+            throw new IOException("Snapshot has " + count + " wind layers, the config " + windLayers.size());
+        }
+        for (WindLayer layer : windLayers) {
+            layer.readState(in);
+        }
+    }
+
     /**
      * Processes the WindLayers to be used in the simulation environment
      */
     private void process() {
         sortWindLayer();
         normalize();
+        seedGusts();
+        layerIndex = new WindLayerIndex(windLayers);
+    }
+
+    /**
+     * Gives every layer its own random stream derived from the seed of the simulation.
+     * The layers are sorted at this point, so the same config always leads to the same gusts.
+     */
+    private void seedGusts() {
+        SplittableRandom random = new SplittableRandom(simulation.getSeed());
+        for (WindLayer layer : windLayers) {
+            layer.setRandomSeed(random.nextLong());
+        }
     }
 
     /**
@@ -170,67 +211,83 @@ public class Wind implements ISimulationChild {
     }
 
     /**
-     * Searches for latest layer based on time
-     * @param time Latest time taken into consideration
+     * Applies wind based on the current location.
+     * @param location Location of the drone
      */
-    private void updateLatestLayer(double time) {
-        for (int i = latestLayerId; i < windLayers.size(); i++) {
-            if (windLayers.get(i).getTimeEnd() <= time) {
-                // Increment id as this layer will not be used anymore
-                latestLayerId = i;
-            } else {
-                break;
-            }
+    public void applyWind(Location location, double time) {
+        time /= 1000;
+
+        Vector3d windSpeedVector = calculateWindSpeed(location.getY(), time);
+        // In case no layer was found, no wind applies
+        if (windSpeedVector == null) {
+            // Set track to hdg, gs to tas
+            location.setTrack(location.getHeading());
+            location.setGroundSpeed(location.getAirspeed());
+            return;
         }
+
+        Vector3d speedVector = createSpeedVector(location.getHeading(), location.getAirspeed(),
+                location.getVerticalSpeed());
+        speedVector.add(windSpeedVector);
+
+        double track = calculateAngleOfVector(speedVector);
+        // Apply changes
+        location.setTrack(track);
+        location.setGroundSpeed(Math.sqrt(speedVector.x * speedVector.x + speedVector.z * speedVector.z));
+        location.setVerticalSpeed(speedVector.y);
     }
 
     /**
-     * @param alt Altitude at which to search the layer
-     * @param time Time at which to search for the layer
-     * @return The layer the the given altitude and time or null if no layer was found
+     * Applies wind to every drone of a swarm, the same way as {@link #applyWind(Location, double)} does.
+     * Crashed drones are skipped.
+     * @param swarm Swarm of drones
+     * @param time Simulation time in ms
      */
-    private WindLayer findWindLayer(double alt, double time) {
-        for (ListIterator<WindLayer> it = windLayers.listIterator(latestLayerId); it.hasNext(); ) {
-            WindLayer layer = it.next();
-            if (layer.getAltitudeBottom() <= alt
-                    && layer.getAltitudeTop() > alt
-                    && layer.getTimeStart() <= time
-                    && layer.getTimeEnd() > time) {
-                return layer;
+    public void applyWind(DroneSwarm swarm, double time) {
+        time /= 1000;
+
+        for (int i = 0; i < swarm.size(); i++) {
+            if (swarm.isCrashed(i)) {
+                continue;
+            }
+            Vector3d windSpeedVector = calculateWindSpeed(swarm.getY(i), time);
+            // In case no layer was found, no wind applies
+            if (windSpeedVector == null) {
+                swarm.setTrack(i, swarm.getHeading(i));
+                swarm.setGroundSpeed(i, swarm.getAirspeed(i));
+                continue;
             }
 
-            // As layers are sorted by start time, we can stop the search if time excites start time here
-            if (layer.getTimeStart() > time) break;
+            Vector3d speedVector = createSpeedVector(swarm.getHeading(i), swarm.getAirspeed(i),
+                    swarm.getVerticalSpeed(i));
+            speedVector.add(windSpeedVector);
+
+            // Apply changes
+            swarm.setTrack(i, calculateAngleOfVector(speedVector));
+            swarm.setGroundSpeed(i, Math.sqrt(speedVector.x * speedVector.x + speedVector.z * speedVector.z));
+            swarm.setVerticalSpeed(i, speedVector.y);
         }
-        return null;
     }
 
     /**
-     * Applies wind based on the current location.
-     * @param location Location of the drone
+     * Interpolates the wind of the surrounding layers.
+     * @param altitude Altitude in m
+     * @param time Time in s
+     * @return The wind speed vector or null if there is no layer around
      */
-    public void applyWind(Location location, double time) {
-        time /= 1000;
-
-        // Update latest layer based on time to set start point of search algorithm
-        updateLatestLayer(time - WIND_LAYER_INTERPOLATION_TIME_RANGE);
-
+    private Vector3d calculateWindSpeed(double altitude, double time) {
         // Find all 4 layers required. More layers can't have any effect by definition
-        WindLayer lowerPrevLayer = findWindLayer(location.getY() - WIND_LAYER_INTERPOLATION_ALTITUDE_RANGE,
+        WindLayer lowerPrevLayer = layerIndex.find(altitude - WIND_LAYER_INTERPOLATION_ALTITUDE_RANGE,
                 time - WIND_LAYER_INTERPOLATION_TIME_RANGE);
-        WindLayer upperPrevLayer = findWindLayer(location.getY() + WIND_LAYER_INTERPOLATION_ALTITUDE_RANGE,
+        WindLayer upperPrevLayer = layerIndex.find(altitude + WIND_LAYER_INTERPOLATION_ALTITUDE_RANGE,
                 time - WIND_LAYER_INTERPOLATION_TIME_RANGE);
-        WindLayer lowerNextLayer = findWindLayer(location.getY() - WIND_LAYER_INTERPOLATION_ALTITUDE_RANGE,
+        WindLayer lowerNextLayer = layerIndex.find(altitude - WIND_LAYER_INTERPOLATION_ALTITUDE_RANGE,
                 time + WIND_LAYER_INTERPOLATION_TIME_RANGE);
-        WindLayer upperNextLayer = findWindLayer(location.getY() + WIND_LAYER_INTERPOLATION_ALTITUDE_RANGE,
+        WindLayer upperNextLayer = layerIndex.find(altitude + WIND_LAYER_INTERPOLATION_ALTITUDE_RANGE,
                 time + WIND_LAYER_INTERPOLATION_TIME_RANGE);
 
-        // In case no layer was found, no wind applies
         if (lowerPrevLayer == null && upperPrevLayer == null && lowerNextLayer == null && upperNextLayer == null) {
-            // Set track to hdg, gs to tas
-            location.setTrack(location.getHeading());
-            location.setGroundSpeed(location.getAirspeed());
-            return;
+            return null;
         }
 
         // Check if it is preferred to interpolate time first
@@ -257,13 +314,13 @@ public class Wind implements ISimulationChild {
                 double ref = lowerPrevLayer != null ? lowerPrevLayer.getAltitudeTop() : lowerNextLayer.getAltitudeTop();
                 // Interpolate time
                 windSpeedVector = interpolate(lowerSpeed, upperSpeed,
-                        location.getY() - ref,
+                        altitude - ref,
                         WIND_LAYER_INTERPOLATION_TIME_RANGE);
             }
         } else {
             // Interpolate altitude first
-            Vector3d prevSpeed = interpolateAltitudeLayers(lowerPrevLayer, upperPrevLayer, location.getY(), time);
-            Vector3d nextSpeed = interpolateAltitudeLayers(lowerNextLayer, upperNextLayer, location.getY(), time);
+            Vector3d prevSpeed = interpolateAltitudeLayers(lowerPrevLayer, upperPrevLayer, altitude, time);
+            Vector3d nextSpeed = interpolateAltitudeLayers(lowerNextLayer, upperNextLayer, altitude, time);
 
             // If both changes are identical or zero, no further interpolation is needed
             if (prevSpeed.equals(nextSpeed)) {
@@ -279,16 +336,7 @@ public class Wind implements ISimulationChild {
                         WIND_LAYER_INTERPOLATION_TIME_RANGE);
             }
         }
-
-        Vector3d speedVector = createSpeedVector(location.getHeading(), location.getAirspeed(),
-                location.getVerticalSpeed());
-        speedVector.add(windSpeedVector);
-
-        double track = calculateAngleOfVector(speedVector);
-        // Apply changes
-        location.setTrack(track);
-        location.setGroundSpeed(Math.sqrt(speedVector.x * speedVector.x + speedVector.z * speedVector.z));
-        location.setVerticalSpeed(speedVector.y);
+        return windSpeedVector;
     }
 
     /**
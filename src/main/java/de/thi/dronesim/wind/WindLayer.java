@@ -1,7 +1,10 @@
 package de.thi.dronesim.wind;
 
 import javax.vecmath.Vector3d;
-import java.util.Random;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * @author Lausch, Christopher
@@ -13,6 +16,8 @@ public class WindLayer {
     public static final double GUST_RISE_TIME = 2;       // Time until gust reaches full speed   [s]
     public static final double MAX_CALM_TIME = 120;      // Maximum time for no gust             [s]
 
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;   // Increment of the random state
+
     private final double windSpeed;                         // Speed of the steady wind             [m/s]
     private final double gustSpeed;                         // Max Speed of the gusts               [m/s]
     private final double windDirection;                     // current wind direction               [degree]
@@ -24,6 +29,7 @@ public class WindLayer {
     private double nextGustStart = 0.0;                     // start time of the next gust          [s]
     private double nextGustSpeed = 0.0;                     // speed of the next gust               [m/s]
     private double nextGustDuration = GUST_RISE_TIME * 2;   // Duration of next must                [s]
+    private long randomState = ThreadLocalRandom.current().nextLong(); // Source of the gusts, replaced by a seed
 
     /**
      * Constructor for wind layer
@@ -162,10 +168,23 @@ public class WindLayer {
      * @param time current time in s
      */
     private void calculateNextGust(double time) {
-        Random random = new Random();
-        nextGustStart = random.nextDouble() * MAX_CALM_TIME + time;
-        nextGustSpeed = random.nextDouble() * (gustSpeed - windSpeed) + windSpeed;
-        nextGustDuration = Math.min(random.nextGaussian() * GUST_RISE_TIME * 2 + GUST_RISE_TIME * 2, GUST_RISE_TIME * 2);
+        nextGustStart = nextRandom() * MAX_CALM_TIME + time;
+        nextGustSpeed = nextRandom() * (gustSpeed - windSpeed) + windSpeed;
+        nextGustDuration = Math.min(nextGaussian() * GUST_RISE_TIME * 2 + GUST_RISE_TIME * 2, GUST_RISE_TIME * 2);
+    }
+
+    /**
+     * Normal distributed value with the polar method, as {@link java.util.Random#nextGaussian()} does
+     * @return Value with mean 0 and standard deviation 1
+     */
+    private double nextGaussian() {
+        double v1, v2, s;
+        do {
+            v1 = 2 * nextRandom() - 1;
+            v2 = 2 * nextRandom() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        return v1 * Math.sqrt(-2 * Math.log(s) / s);
     }
 
     protected double getWindSpeed() {
@@ -216,4 +235,53 @@ public class WindLayer {
         this.nextGustDuration = nextGustDuration;
     }
 
+    protected double getNextGustDuration() {
+        return nextGustDuration;
+    }
+
+    /**
+     * Sets the seed of the gusts, which {@link Wind} derives from the seed of the simulation
+     * @param seed Seed only used by this layer
+     */
+    protected void setRandomSeed(long seed) {
+        this.randomState = seed;
+    }
+
+    /**
+     * Uniform random value of the SplitMix64 generator, the same algorithm as {@link java.util.SplittableRandom}.
+     * The generator is kept in a single long, so the gusts can be part of a snapshot.
+     * @return Value between 0 (inclusive) and 1 (exclusive)
+     */
+    private double nextRandom() {
+        long z = (randomState += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Writes the next gust and the state of the random generator
+     * @param out Output of the state
+     * @throws IOException Passed on from the output
+     */
+    protected void writeState(DataOutput out) throws IOException {
+        out.writeDouble(nextGustStart);
+        out.writeDouble(nextGustSpeed);
+        out.writeDouble(nextGustDuration);
+        out.writeLong(randomState);
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(DataOutput)}
+     * @param in Input of the state
+     * @throws IOException Passed on from the input
+     */
+    protected void readState(DataInput in) throws IOException {
+        nextGustStart = in.readDouble();
+        nextGustSpeed = in.readDouble();
+        nextGustDuration = in.readDouble();
+        randomState = in.readLong();
+    }
+
 }
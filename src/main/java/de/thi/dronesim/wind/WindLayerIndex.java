@@ -0,0 +1,187 @@
+package de.thi.dronesim.wind;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Lookup table for the wind layer at a given altitude and time.
+ * <p>
+ * The borders of all layers split time and altitude into slabs. Every combination of a time and an altitude slab
+ * is a cell of a dense grid, which holds the layer covering it. As {@link WindLayer#normalize()} rounds all borders
+ * to a fixed grid, the slab of a value is found with a lookup table as well, so a query takes constant time.
+ * If the borders are not aligned or the table would get too large, the slab is found by a binary search instead.
+ * Should even the grid get too large, the index falls back to a linear search over the sorted layers.
+ * <p>
+ * The index is immutable, it has to be rebuilt when the layers change.
+ */
+class WindLayerIndex {
+
+    /**
+     * Grid all borders are rounded to by {@link WindLayer#normalize()}
+     */
+    static final double CELL_SIZE = Wind.WIND_LAYER_INTERPOLATION_ALTITUDE_RANGE * 2;
+    /**
+     * Maximum number of entries of a lookup table
+     */
+    static final int MAX_TABLE_SIZE = 1 << 22;
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private final List<WindLayer> layers;
+    private final Axis timeAxis;
+    private final Axis altitudeAxis;
+    private final WindLayer[] grid;                 // Layer of each cell, time slab major or null for a linear search
+
+    /**
+     * @param layers Sorted and normalized layers. If layers overlap, the first one wins like in a linear search
+     */
+    WindLayerIndex(List<WindLayer> layers) {
+        this.layers = new ArrayList<>(layers);
+        TreeSet<Double> times = new TreeSet<>();
+        TreeSet<Double> altitudes = new TreeSet<>();
+        for (WindLayer layer : layers) {
+            times.add(layer.getTimeStart());
+            times.add(layer.getTimeEnd());
+            altitudes.add(layer.getAltitudeBottom());
+            altitudes.add(layer.getAltitudeTop());
+        }
+        timeAxis = new Axis(times);
+        altitudeAxis = new Axis(altitudes);
+
+        long cells = (long) timeAxis.slabCount() * altitudeAxis.slabCount();
+        if (cells > MAX_TABLE_SIZE) {
+            logger.warn("Wind layers span {} index cells, falling back to a linear search", cells);
+            grid = null;
+            return;
+        }
+        grid = new WindLayer[(int) cells];
+        for (WindLayer layer : layers) {
+            int timeFrom = timeAxis.borderIndex(layer.getTimeStart());
+            int timeTo = timeAxis.borderIndex(layer.getTimeEnd());
+            int altitudeFrom = altitudeAxis.borderIndex(layer.getAltitudeBottom());
+            int altitudeTo = altitudeAxis.borderIndex(layer.getAltitudeTop());
+            for (int t = timeFrom; t < timeTo; t++) {
+                for (int a = altitudeFrom; a < altitudeTo; a++) {
+                    int cell = t * altitudeAxis.slabCount() + a;
+                    if (grid[cell] == null) {
+                        grid[cell] = layer;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param altitude Altitude in m
+     * @param time     Time in s
+     * @return The layer at the given altitude and time or null if there is none
+     */
+    WindLayer find(double altitude, double time) {
+        if (grid == null) {
+            return findLinear(altitude, time);
+        }
+        int t = timeAxis.slabOf(time);
+        if (t < 0) {
+            return null;
+        }
+        int a = altitudeAxis.slabOf(altitude);
+        if (a < 0) {
+            return null;
+        }
+        return grid[t * altitudeAxis.slabCount() + a];
+    }
+
+    private WindLayer findLinear(double altitude, double time) {
+        for (WindLayer layer : layers) {
+            // As layers are sorted by start time, the search can stop at the first layer starting later
+            if (layer.getTimeStart() > time) {
+                break;
+            }
+            if (layer.getAltitudeBottom() <= altitude
+                    && layer.getAltitudeTop() > altitude
+                    && layer.getTimeEnd() > time) {
+                return layer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sorted borders of one dimension, the slab i lies between border i (inclusive) and border i + 1 (exclusive)
+     */
+    private static final class Axis {
+        private final double[] borders;
+        private final int[] cellSlabs;      // Slab of each grid cell or null if the borders aren't aligned
+
+        Axis(TreeSet<Double> values) {
+            borders = values.stream().mapToDouble(Double::doubleValue).toArray();
+            cellSlabs = createCellSlabs();
+        }
+
+        private int[] createCellSlabs() {
+            if (borders.length < 2) {
+                return null;
+            }
+            double cells = (borders[borders.length - 1] - borders[0]) / CELL_SIZE;
+            if (cells > MAX_TABLE_SIZE) {
+                return null;
+            }
+            for (double border : borders) {
+                double offset = (border - borders[0]) / CELL_SIZE;
+                if (offset != Math.rint(offset)) {
+                    return null;
+                }
+            }
+            int[] slabs = new int[(int) cells];
+            int slab = 0;
+            for (int c = 0; c < slabs.length; c++) {
+                while (borders[0] + c * CELL_SIZE >= borders[slab + 1]) {
+                    slab++;
+                }
+                slabs[c] = slab;
+            }
+            return slabs;
+        }
+
+        int slabCount() {
+            return Math.max(0, borders.length - 1);
+        }
+
+        /**
+         * @return Index of a value that is one of the borders
+         */
+        int borderIndex(double border) {
+            return Arrays.binarySearch(borders, border);
+        }
+
+        /**
+         * @return The slab of the value or -1 if the value lies outside of all slabs
+         */
+        int slabOf(double value) {
+            // Also false for NaN
+            if (borders.length < 2 || !(value >= borders[0] && value < borders[borders.length - 1])) {
+                return -1;
+            }
+            int slab;
+            if (cellSlabs != null) {
+                int cell = Math.min((int) ((value - borders[0]) / CELL_SIZE), cellSlabs.length - 1);
+                slab = cellSlabs[cell];
+                // Rounding of the division, the value may lie right next to a border
+                if (value < borders[slab]) {
+                    slab--;
+                } else if (value >= borders[slab + 1]) {
+                    slab++;
+                }
+            } else {
+                int index = Arrays.binarySearch(borders, value);
+                slab = index >= 0 ? index : -index - 2;
+            }
+            return slab;
+        }
+    }
+}
@@ -1,14 +1,24 @@
 package de.thi.dronesim;
 
-import com.google.common.util.concurrent.AtomicDouble;
+import de.thi.dronesim.drone.DroneSwarm;
+import de.thi.dronesim.drone.Integrator;
+import de.thi.dronesim.drone.Location;
+import de.thi.dronesim.persistence.entity.LocationConfig;
+import de.thi.dronesim.persistence.entity.SensorConfig;
+import de.thi.dronesim.persistence.entity.SimulationConfig;
+import de.thi.dronesim.persistence.entity.WindConfig;
+import de.thi.dronesim.sensor.SensorModule;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -116,6 +126,37 @@ public class SimulationTest {
         assertEquals("foobar", extendedAbstractChild.foo());
     }
 
+    @Test
+    public void registeredChildren() {
+        assertTrue(Simulation.getRegisteredChildren().contains(MyTestChild.class));
+        assertTrue(Simulation.getRegisteredChildren().contains(ExtendedAbstractChild.class));
+        assertFalse(Simulation.getRegisteredChildren().contains(AnAbstractChild.class));
+    }
+
+    @Test
+    public void excludeChild() {
+        Simulation simulation = new Simulation();
+        simulation.excludeChild(MyTestChild.class);
+        simulation.prepare();
+
+        assertNull(simulation.getChild(MyTestChild.class));
+        assertNotNull(simulation.getChild(ExtendedAbstractChild.class));
+        // Too late once prepared
+        assertThrows(IllegalStateException.class, () -> simulation.excludeChild(ExtendedAbstractChild.class));
+    }
+
+    @Test
+    public void addChild() {
+        Simulation simulation = new Simulation();
+        MyTestChild child = new MyTestChild();
+        simulation.addChild(child);
+        simulation.prepare();
+
+        // The added child replaces the registered one
+        assertSame(child, simulation.getChild(MyTestChild.class));
+        assertSame(simulation, child.getSimulation());
+    }
+
     @Test
     @Timeout(2000)
     void registerUpdateHandler() throws InterruptedException {
@@ -231,6 +272,258 @@ public class SimulationTest {
         assertEquals(1000, simulation.getTime(), 100);
     }
 
+    @Test
+    @Timeout(2000)
+    void runUntilTime() {
+        Simulation simulation = new Simulation();
+        simulation.prepare();
+
+        AtomicInteger i = new AtomicInteger();
+        simulation.registerUpdateListener(event -> i.incrementAndGet());
+
+        // Ten minutes of simulation time must not take ten minutes
+        long ticks = simulation.runUntilTime(600_000);
+
+        assertEquals(32 * 600, ticks);
+        assertEquals(ticks, i.get());
+        assertEquals(600_000, simulation.getTime(), 1);
+        assertEquals(SimulationState.PAUSED, simulation.getState());
+        assertFalse(simulation.isRunning());
+    }
+
+    @Test
+    @Timeout(2000)
+    void runTicks() {
+        Simulation simulation = new Simulation();
+        simulation.prepare();
+        simulation.setTps(10);
+
+        assertEquals(25, simulation.runTicks(25));
+        assertEquals(25, simulation.getTickCount());
+        assertEquals(2500, simulation.getTime(), 0.001);
+
+        // Continue where the last run ended
+        assertEquals(5, simulation.runTicks(5));
+        assertEquals(3000, simulation.getTime(), 0.001);
+    }
+
+    @Test
+    @Timeout(2000)
+    void runUntilPredicate() {
+        Simulation simulation = new Simulation();
+        simulation.prepare();
+        simulation.getDrone().getLocation().requestDeltaVerticalSpeed(5);
+
+        simulation.runUntil(sim -> sim.getDrone().getLocation().getY() > 20);
+
+        assertTrue(simulation.getDrone().getLocation().getY() > 20);
+        assertFalse(simulation.getDrone().isCrashed());
+    }
+
+    @Test
+    @Timeout(2000)
+    void runUntilCrash() {
+        Simulation simulation = new Simulation();
+        simulation.prepare();
+
+        AtomicInteger i = new AtomicInteger();
+        // Crash drone after 1s
+        simulation.registerUpdateListener(event -> {
+            if (i.incrementAndGet() == 32) {
+                event.getDrone().setCrashed(true);
+            }
+        });
+
+        long ticks = simulation.runUntilTime(10_000);
+
+        assertEquals(32, ticks);
+        assertEquals(SimulationState.STOPPED, simulation.getState());
+        assertEquals(31 * 1000.0 / 32, simulation.getTime(), 0.001);
+    }
+
+    @Test
+    @Timeout(2000)
+    void swarmFliesWithDrone() {
+        Simulation simulation = new Simulation();
+        simulation.prepare();
+        DroneSwarm swarm = simulation.getSwarm();
+        for (int i = 0; i < 100; i++) {
+            swarm.addDrone(0, 0, 0, .49f);
+            swarm.requestDeltaAirspeed(i, 10);
+            swarm.requestDeltaHeading(i, i);
+        }
+        simulation.getDrone().getLocation().requestDeltaAirspeed(10);
+        simulation.getDrone().getLocation().requestDeltaHeading(42);
+
+        simulation.runTicks(320);
+
+        // The swarm drone with the same input flies the same way as the single drone
+        Location location = simulation.getDrone().getLocation();
+        assertEquals(location.getX(), swarm.getX(42));
+        assertEquals(location.getZ(), swarm.getZ(42));
+        assertEquals(location.getHeading(), swarm.getHeading(42));
+        assertNotEquals(swarm.getX(0), swarm.getX(99));
+        assertEquals(0, swarm.getCrashedCount());
+    }
+
+    @Test
+    void physicsSubSteps() {
+        SimulationConfig config = createSnapshotConfig(1);
+        config.setIntegrator(Integrator.RK4);
+        config.setPhysicsSubSteps(8);
+        Simulation simulation = new Simulation(config);
+        assertEquals(Integrator.RK4, simulation.getIntegrator());
+        assertEquals(8, simulation.getPhysicsSubSteps());
+        assertThrows(IllegalArgumentException.class, () -> simulation.setPhysicsSubSteps(0));
+        simulation.prepare();
+
+        AtomicInteger updates = new AtomicInteger();
+        simulation.registerUpdateListener(event -> updates.incrementAndGet());
+        DroneSwarm swarm = simulation.getSwarm();
+        swarm.addDrone(0, 0, 0, .49f);
+        swarm.requestDeltaAirspeed(0, 10);
+        swarm.requestDeltaHeading(0, 120);
+        Location location = simulation.getDrone().getLocation();
+        location.requestDeltaAirspeed(10);
+        location.requestDeltaHeading(120);
+        simulation.runTicks(320);
+
+        // Listeners still run once per tick
+        assertEquals(320, updates.get());
+        // The swarm drone with the same input flies the same way as the single drone
+        assertEquals(location.getX(), swarm.getX(0));
+        assertEquals(location.getZ(), swarm.getZ(0));
+        assertEquals(location.getTrack(), swarm.getTrack(0));
+        assertEquals(120, location.getHeading(), 1e-9);
+        assertNotEquals(0, location.getX());
+    }
+
+    @Test
+    void snapshotRestore() {
+        SimulationConfig config = createSnapshotConfig(1);
+        Simulation simulation = new Simulation(config);
+        simulation.prepare();
+        simulation.getSwarm().addDrone(5, 0, 5, .49f);
+        simulation.getSwarm().requestDeltaVerticalSpeed(0, 3);
+        Location location = simulation.getDrone().getLocation();
+        location.requestDeltaAirspeed(8);
+        location.requestDeltaVerticalSpeed(2);
+        simulation.runTicks(320);
+        // Still pending when the snapshot is taken
+        location.requestDeltaHeading(90);
+
+        SimulationSnapshot snapshot = simulation.snapshot();
+        assertEquals(320, snapshot.getTickCount());
+        assertEquals(simulation.getTime(), snapshot.getTime());
+        List<Float> expected = continueFlight(simulation);
+
+        // Rewind the same simulation
+        simulation.restore(snapshot);
+        assertEquals(320, simulation.getTickCount());
+        assertEquals(90, location.getDeltaHeading(), 1e-9);
+        assertEquals(expected, continueFlight(simulation));
+
+        // Branch into another simulation with the same config
+        Simulation branch = new Simulation(config);
+        branch.prepare();
+        branch.restore(SimulationSnapshot.fromByteArray(snapshot.toByteArray()));
+        assertEquals(expected, continueFlight(branch));
+    }
+
+    @Test
+    void restoreAfterCrash() {
+        Simulation simulation = new Simulation(createSnapshotConfig(1));
+        simulation.prepare();
+        simulation.runTicks(10);
+        SimulationSnapshot snapshot = simulation.snapshot();
+
+        simulation.getDrone().setCrashed(true);
+        simulation.runTicks(10);
+        assertEquals(SimulationState.STOPPED, simulation.getState());
+
+        // The children of the stopped simulation are shut down, the snapshot continues in a new one
+        assertThrows(IllegalStateException.class, () -> simulation.restore(snapshot));
+        Simulation retry = new Simulation(createSnapshotConfig(1));
+        retry.prepare();
+        retry.restore(snapshot);
+        assertEquals(SimulationState.PREPARED, retry.getState());
+        assertFalse(retry.getDrone().isCrashed());
+        assertEquals(10, retry.getTickCount());
+        assertEquals(10, retry.runTicks(10));
+        retry.stop();
+    }
+
+    @Test
+    void restoreMismatch() {
+        Simulation simulation = new Simulation(createSnapshotConfig(1));
+        assertThrows(IllegalStateException.class, () -> simulation.restore(null));
+        simulation.prepare();
+        SimulationSnapshot snapshot = simulation.snapshot();
+
+        Simulation other = new Simulation(createSnapshotConfig(2));
+        other.prepare();
+        assertThrows(IllegalArgumentException.class, () -> other.restore(snapshot));
+        assertThrows(IllegalArgumentException.class, () -> SimulationSnapshot.fromByteArray(new byte[]{1, 2, 3, 4, 5, 6}));
+    }
+
+    /**
+     * Flies a turn long enough for a few gusts and returns the values, which depend on the state before
+     */
+    private static List<Float> continueFlight(Simulation simulation) {
+        simulation.getDrone().getLocation().requestDeltaAirspeed(-3);
+        simulation.runTicks(4800);
+        Location location = simulation.getDrone().getLocation();
+        List<Float> values = new ArrayList<>();
+        values.add(location.getX());
+        values.add(location.getY());
+        values.add(location.getZ());
+        values.add((float) location.getHeading());
+        values.add(simulation.getSwarm().getY(0));
+        values.addAll(simulation.getChild(SensorModule.class).getResultFromSensor(1).getValues());
+        values.add((float) simulation.getTime());
+        return values;
+    }
+
+    /**
+     * @param windLayers Number of gusty wind layers on top of each other
+     */
+    private static SimulationConfig createSnapshotConfig(int windLayers) {
+        SimulationConfig config = new SimulationConfig();
+        config.setLocationConfig(new LocationConfig());
+        config.setSeed(42L);
+        List<WindConfig> windConfigs = new ArrayList<>();
+        for (int i = 0; i < windLayers; i++) {
+            WindConfig wind = new WindConfig();
+            wind.setWindSpeed(2);
+            wind.setGustSpeed(12);
+            wind.setWindDirection(90);
+            wind.setTimeStart(0);
+            wind.setTimeEnd(10_000);
+            wind.setAltitudeBottom(i * 1000);
+            wind.setAltitudeTop((i + 1) * 1000);
+            windConfigs.add(wind);
+        }
+        config.setWindConfigList(windConfigs);
+
+        List<SensorConfig> sensorConfigs = new ArrayList<>();
+        String[] sensors = {"GpsSensor", "RotationSensor", "UltrasonicSensor"};
+        for (int i = 0; i < sensors.length; i++) {
+            SensorConfig sensor = new SensorConfig();
+            sensor.setSensorId(i + 1);
+            sensor.setClassName(sensors[i]);
+            sensor.setRange(10);
+            sensor.setSensorAngle(10);
+            sensor.setDirectionX(1);
+            sensor.setSpinsPerSecond(1);
+            sensor.setRangeIncreaseVelocity(4);
+            sensor.setSensorForm("CONE");
+            sensor.setCalcType("AVG");
+            sensorConfigs.add(sensor);
+        }
+        config.setSensorConfigList(sensorConfigs);
+        return config;
+    }
+
     /**
      * @author Christian Schmied
      */
@@ -243,7 +536,7 @@ public class SimulationTest {
         simulation.prepare();
 
         AtomicInteger i = new AtomicInteger();
-        AtomicDouble flag = new AtomicDouble();
+        AtomicReference<Double> flag = new AtomicReference<>(0.0);
 
         SimulationUpdateListener listener = event -> {
             if(i.get() == 10){
@@ -0,0 +1,147 @@
+package de.thi.dronesim.autopilot;
+
+import de.thi.dronesim.Simulation;
+import de.thi.dronesim.persistence.entity.LocationConfig;
+import de.thi.dronesim.persistence.entity.SimulationConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link AutopilotRuntime} and {@link AsyncAutopilot}
+ */
+class AutopilotRuntimeTest {
+
+    /**
+     * Remembers the ticks in which it was woken
+     */
+    private static class TickAutopilot extends AsyncAutopilot {
+        private final List<Double> wakeTimes = new ArrayList<>();
+        private final double first;
+
+        TickAutopilot(double first) {
+            this.first = first;
+            setLockstep(true);
+        }
+
+        @Override
+        public void autopilot() throws InterruptedException {
+            awaitCondition(event -> event.getTime() >= first);
+            wakeTimes.add(lastEvent.getTime());
+            // Both requests of the tick are applied
+            requestLocationDelta(new DeltaRequest().requestDeltaVerticalSpeed(1));
+            requestLocationDelta(new DeltaRequest().requestDeltaVerticalSpeed(1));
+            awaitCondition(event -> event.getTime() >= first + 500);
+            wakeTimes.add(lastEvent.getTime());
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void severalAutopilots() {
+        Simulation simulation = createSimulation();
+        TickAutopilot first = new TickAutopilot(1000);
+        TickAutopilot second = new TickAutopilot(2000);
+        AutopilotRuntime runtime = AutopilotRuntime.of(simulation);
+        assertSame(runtime, AutopilotRuntime.of(simulation));
+        runtime.register(first);
+        runtime.register(second);
+        assertEquals(2, runtime.getAutopilots().size());
+        assertSame(simulation, first.getSimulation());
+
+        simulation.runUntil(sim -> first.isFinished() && second.isFinished());
+        assertEquals(List.of(1000.0, 1500.0), first.wakeTimes);
+        assertEquals(List.of(2000.0, 2500.0), second.wakeTimes);
+        // Every autopilot requested 2 m/s in total, which is reached after a while
+        simulation.runTicks(320);
+        assertEquals(4, simulation.getDrone().getLocation().getVerticalSpeed(), 1e-9);
+        simulation.stop();
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void childAutopilot() {
+        Simulation simulation = createSimulation();
+        TickAutopilot autopilot = new TickAutopilot(500);
+        simulation.addChild(autopilot);
+        AutopilotRuntime runtime = simulation.getChild(AutopilotRuntime.class);
+        assertNotNull(runtime);
+        assertSame(runtime, autopilot.getRuntime());
+
+        simulation.runUntil(sim -> autopilot.isFinished());
+        assertEquals(List.of(500.0, 1000.0), autopilot.wakeTimes);
+        simulation.stop();
+    }
+
+    /**
+     * Waits with continuations, autopilot() returns at once
+     */
+    private static class ContinuationAutopilot extends AsyncAutopilot {
+        private final List<Double> wakeTimes = new ArrayList<>();
+        private final List<Thread> wakeThreads = new ArrayList<>();
+
+        @Override
+        public void autopilot() {
+            onCondition(event -> event.getTime() >= 1000, () -> {
+                wake();
+                requestLocationDelta(new DeltaRequest().requestDeltaVerticalSpeed(1));
+                onCondition(event -> event.getTime() >= 1500, this::wake);
+            });
+        }
+
+        private void wake() {
+            wakeTimes.add(lastEvent.getTime());
+            wakeThreads.add(Thread.currentThread());
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void continuationAutopilot() {
+        Simulation simulation = createSimulation();
+        ContinuationAutopilot autopilot = new ContinuationAutopilot();
+        autopilot.setLockstep(true);
+        simulation.addChild(autopilot);
+        assertFalse(autopilot.isFinished());
+
+        simulation.runUntil(sim -> autopilot.isFinished());
+        assertEquals(List.of(1000.0, 1500.0), autopilot.wakeTimes);
+        // The continuations run in the tick on the simulation thread
+        assertEquals(List.of(Thread.currentThread(), Thread.currentThread()), autopilot.wakeThreads);
+        assertEquals(1, simulation.getDrone().getLocation().getVerticalSpeed(), 1e-9);
+        assertThrows(IllegalStateException.class, () -> {
+            autopilot.onCondition(event -> false, () -> {});
+            autopilot.onCondition(event -> false, () -> {});
+        });
+        simulation.stop();
+        assertTrue(autopilot.isFinished());
+    }
+
+    @Test
+    void requestQueueIsBounded() {
+        AsyncAutopilot autopilot = new AsyncAutopilot() {
+            @Override
+            public void autopilot() {
+            }
+        };
+        for (int i = 0; i < AsyncAutopilot.REQUEST_QUEUE_CAPACITY; i++) {
+            autopilot.requestLocationDelta(new AsyncAutopilot.DeltaRequest().requestDeltaAirspeed(1));
+        }
+        assertThrows(IllegalStateException.class,
+                () -> autopilot.requestLocationDelta(new AsyncAutopilot.DeltaRequest()));
+    }
+
+    private static Simulation createSimulation() {
+        SimulationConfig config = new SimulationConfig();
+        config.setLocationConfig(new LocationConfig());
+        Simulation simulation = new Simulation(config);
+        simulation.excludeChild(Autopilot.class);
+        simulation.prepare();
+        return simulation;
+    }
+}
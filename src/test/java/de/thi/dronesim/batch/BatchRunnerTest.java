@@ -0,0 +1,148 @@
+package de.thi.dronesim.batch;
+
+import de.thi.dronesim.autopilot.AsyncAutopilot;
+import de.thi.dronesim.obstacle.dto.HitBoxDTO;
+import de.thi.dronesim.obstacle.dto.ObstacleDTO;
+import de.thi.dronesim.persistence.ConfigWriter;
+import de.thi.dronesim.persistence.entity.LocationConfig;
+import de.thi.dronesim.persistence.entity.ObstacleConfig;
+import de.thi.dronesim.persistence.entity.SimulationConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link BatchRunner}
+ */
+class BatchRunnerTest {
+
+    /**
+     * Climbs to 20 m. An anonymous class, so it isn't found by the class scan of other simulations.
+     */
+    private static AsyncAutopilot createClimbingAutopilot() {
+        return new AsyncAutopilot() {
+            @Override
+            public void autopilot() throws InterruptedException {
+                requestLocationDelta(new DeltaRequest().requestDeltaVerticalSpeed(5));
+                awaitCondition(event -> event.getDrone().getLocation().getY() > 20);
+            }
+        };
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void runDirectory(@TempDir Path directory) {
+        // An obstacle 10 m above the start of every second scenario
+        for (int i = 0; i < 6; i++) {
+            ConfigWriter.writeConfig(createConfig(i % 2 == 1), directory.resolve("scenario" + i + ".json").toString());
+        }
+        BatchRunner runner = new BatchRunner(BatchRunnerTest::createClimbingAutopilot);
+        runner.setThreads(3);
+        runner.setTimeLimit(300);
+
+        List<RunOutcome> outcomes = runner.run(directory);
+        assertEquals(6, outcomes.size());
+        for (int i = 0; i < outcomes.size(); i++) {
+            RunOutcome outcome = outcomes.get(i);
+            assertEquals("scenario" + i + ".json", outcome.getScenario());
+            assertTrue(outcome.isSuccessful(), outcome.toString());
+            if (i % 2 == 1) {
+                assertTrue(outcome.isCrashed(), outcome.toString());
+                assertFalse(outcome.isFinished(), outcome.toString());
+                assertTrue(outcome.getMinObstacleDistance() < 1, outcome.toString());
+                assertTrue(outcome.getDistance() > 8, outcome.toString());
+            } else {
+                assertFalse(outcome.isCrashed(), outcome.toString());
+                assertTrue(outcome.isFinished(), outcome.toString());
+                assertEquals(Double.POSITIVE_INFINITY, outcome.getMinObstacleDistance());
+                assertTrue(outcome.getDistance() > 20, outcome.toString());
+                assertTrue(outcome.getSimTime() < 300, outcome.toString());
+            }
+        }
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void timeLimit(@TempDir Path directory) {
+        ConfigWriter.writeConfig(createConfig(false), directory.resolve("idle.json").toString());
+        // Never finishes on its own
+        BatchRunner runner = new BatchRunner(() -> new AsyncAutopilot() {
+            @Override
+            public void autopilot() throws InterruptedException {
+                awaitCondition(event -> false);
+            }
+        });
+        runner.setTimeLimit(10);
+
+        RunOutcome outcome = runner.run(directory).get(0);
+        assertFalse(outcome.isFinished());
+        assertFalse(outcome.isCrashed());
+        assertEquals(10, outcome.getSimTime(), 0.1);
+    }
+
+    @Test
+    void brokenConfig(@TempDir Path directory) throws Exception {
+        Files.writeString(directory.resolve("broken.json"), "{ not json");
+        Files.writeString(directory.resolve("ignored.txt"), "not a config");
+
+        List<RunOutcome> outcomes = new BatchRunner(BatchRunnerTest::createClimbingAutopilot).run(directory);
+        assertEquals(1, outcomes.size());
+        assertFalse(outcomes.get(0).isSuccessful());
+        assertNotNull(outcomes.get(0).getError());
+    }
+
+    @Test
+    void writeSummary(@TempDir Path directory) throws Exception {
+        List<RunOutcome> outcomes = new ArrayList<>();
+        outcomes.add(new RunOutcome("a.json", true, false, 12.5, 30.25, 0.5, null));
+        outcomes.add(new RunOutcome("b.json", false, false, 0, 0, Double.POSITIVE_INFINITY, "broken"));
+        Path file = directory.resolve("summary.csv");
+        BatchRunner.writeSummary(outcomes, file);
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(3, lines.size());
+        assertEquals("scenario;crashed;finished;sim_time_s;distance_m;min_obstacle_distance_m;error", lines.get(0));
+        assertEquals("a.json;true;false;12.500;30.250;0.500;", lines.get(1));
+        assertTrue(lines.get(2).startsWith("b.json;false;false;"));
+        assertTrue(lines.get(2).endsWith(";broken"));
+    }
+
+    private static SimulationConfig createConfig(boolean obstacleAbove) {
+        SimulationConfig config = new SimulationConfig();
+        config.setLocationConfig(new LocationConfig());
+        config.setDroneRadius(0.5f);
+        config.setSeed(1L);
+        if (obstacleAbove) {
+            HitBoxDTO hitBox = new HitBoxDTO();
+            hitBox.position = new Float[]{0f, 10f, 0f};
+            hitBox.rotation = new Float[]{0f, 0f, 0f};
+            hitBox.dimension = new Float[]{10f, 2f, 10f};
+
+            ObstacleDTO obstacle = new ObstacleDTO();
+            obstacle.modelName = "roof";
+            obstacle.modelPath = "";
+            obstacle.id = 1L;
+            obstacle.hitboxes = new HashSet<>();
+            obstacle.hitboxes.add(hitBox);
+            obstacle.position = hitBox.position;
+            obstacle.rotation = hitBox.rotation;
+            obstacle.scale = new Float[]{1f, 1f, 1f};
+
+            ObstacleConfig obstacleConfig = new ObstacleConfig();
+            obstacleConfig.obstacles.add(obstacle);
+            List<ObstacleConfig> obstacleConfigs = new ArrayList<>();
+            obstacleConfigs.add(obstacleConfig);
+            config.setObstacleConfigList(obstacleConfigs);
+        }
+        return config;
+    }
+}
@@ -0,0 +1,130 @@
+package de.thi.dronesim.drone;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DroneSwarmTest {
+
+    private static final int NUM_DRONES = 50;
+
+    private DroneSwarm swarm;
+    private Location[] locations;
+
+    @BeforeEach
+    public void setup() {
+        swarm = new DroneSwarm(4);
+        locations = new Location[NUM_DRONES];
+        for (int i = 0; i < NUM_DRONES; i++) {
+            assertEquals(i, swarm.addDrone(i, 2 * i, -i, .49f));
+            locations[i] = new Location(i, 2 * i, -i);
+        }
+    }
+
+    @Test
+    void sameKinematicsAsLocation() {
+        Random random = new Random(5);
+        for (int tick = 0; tick < 2000; tick++) {
+            // Random inputs every few ticks
+            if (tick % 50 == 0) {
+                for (int i = 0; i < NUM_DRONES; i++) {
+                    double deltaHeading = random.nextDouble() * 400 - 200;
+                    double deltaAirspeed = random.nextDouble() * 30 - 15;
+                    double deltaVerticalSpeed = random.nextDouble() * 10 - 5;
+                    swarm.requestDeltaHeading(i, deltaHeading);
+                    swarm.requestDeltaAirspeed(i, deltaAirspeed);
+                    swarm.requestDeltaVerticalSpeed(i, deltaVerticalSpeed);
+                    locations[i].requestDeltaHeading(deltaHeading);
+                    locations[i].requestDeltaAirspeed(deltaAirspeed);
+                    locations[i].requestDeltaVerticalSpeed(deltaVerticalSpeed);
+                }
+            }
+            swarm.updateDelta(32);
+            swarm.updatePosition(32);
+            for (Location location : locations) {
+                location.updateDelta(32);
+                location.updatePosition(32);
+            }
+        }
+
+        // Both implementations must be bit identical
+        for (int i = 0; i < NUM_DRONES; i++) {
+            Location location = locations[i];
+            assertEquals(location.getX(), swarm.getX(i));
+            assertEquals(location.getY(), swarm.getY(i));
+            assertEquals(location.getZ(), swarm.getZ(i));
+            assertEquals(location.getMovement().x, swarm.getMovementX(i));
+            assertEquals(location.getMovement().y, swarm.getMovementY(i));
+            assertEquals(location.getMovement().z, swarm.getMovementZ(i));
+            assertEquals(location.getHeading(), swarm.getHeading(i));
+            assertEquals(location.getTrack(), swarm.getTrack(i));
+            assertEquals(location.getAirspeed(), swarm.getAirspeed(i));
+            assertEquals(location.getGroundSpeed(), swarm.getGroundSpeed(i));
+            assertEquals(location.getVerticalSpeed(), swarm.getVerticalSpeed(i));
+            assertEquals(location.getDeltaHeading(), swarm.getDeltaHeading(i));
+            assertEquals(location.getDeltaAirspeed(), swarm.getDeltaAirspeed(i));
+            assertEquals(location.getDeltaVerticalSpeed(), swarm.getDeltaVerticalSpeed(i));
+        }
+    }
+
+    @Test
+    void crashedDroneIsFrozen() {
+        swarm.setAirspeed(0, 10);
+        swarm.setGroundSpeed(0, 10);
+        swarm.setCrashed(0, true);
+        swarm.setCrashed(0, true);
+        assertEquals(1, swarm.getCrashedCount());
+
+        swarm.requestDeltaHeading(0, 90);
+        swarm.updateDelta(10);
+        swarm.updatePosition(10);
+
+        assertEquals(0, swarm.getHeading(0));
+        assertEquals(0, swarm.getX(0));
+        assertEquals(0, swarm.getZ(0));
+
+        swarm.setCrashed(0, false);
+        assertEquals(0, swarm.getCrashedCount());
+    }
+
+    @Test
+    void toDrone() {
+        swarm.requestDeltaAirspeed(3, 5);
+        swarm.requestDeltaHeading(3, 45);
+        for (int i = 0; i < 20; i++) {
+            swarm.updateDelta(10);
+            swarm.updatePosition(10);
+        }
+
+        Drone drone = swarm.toDrone(3);
+        Location location = drone.getLocation();
+        assertEquals(swarm.getX(3), location.getX());
+        assertEquals(swarm.getY(3), location.getY());
+        assertEquals(swarm.getZ(3), location.getZ());
+        assertEquals(swarm.getHeading(3), location.getHeading());
+        assertEquals(swarm.getAirspeed(3), location.getAirspeed());
+        assertEquals(swarm.getDeltaHeading(3), location.getDeltaHeading());
+        assertEquals(swarm.getDeltaAirspeed(3), location.getDeltaAirspeed());
+        assertEquals(swarm.getRadius(3), drone.getRadius());
+
+        // The snapshot is independent of the swarm
+        location.setX(1000);
+        assertNotEquals(1000, swarm.getX(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> swarm.toDrone(NUM_DRONES));
+    }
+
+    @Test
+    void clear() {
+        swarm.requestDeltaAirspeed(0, 5);
+        swarm.updateDelta(10);
+        swarm.clear();
+        assertEquals(0, swarm.size());
+
+        swarm.addDrone(1, 1, 1, 1);
+        assertEquals(0, swarm.getAirspeed(0));
+        assertEquals(0, swarm.getDeltaAirspeed(0));
+    }
+}
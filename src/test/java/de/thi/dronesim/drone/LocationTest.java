@@ -1,9 +1,14 @@
 package de.thi.dronesim.drone;
 
+import com.jme3.math.Vector3f;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class LocationTest {
 
@@ -172,4 +177,103 @@ class LocationTest {
                 "Request of delta airspeed change failed!");
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateInPlace() {
+        Vector3f position = location.getPosition();
+        Vector3f movement = location.getMovement();
+
+        // Reference: the position is replaced by a new vector and the factors are calculated on every update
+        Vector3f expected = new Vector3f();
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            if (i % 100 == 0) {
+                location.requestDeltaHeading(random.nextDouble() * 720 - 360);
+                location.requestDeltaAirspeed(random.nextDouble() * 20 - 5);
+                location.requestDeltaVerticalSpeed(random.nextDouble() * 10 - 5);
+            }
+            location.updateDelta(32);
+            location.updatePosition(32);
+
+            double track = location.getTrack();
+            double gs = location.getGroundSpeed();
+            Vector3f step = new Vector3f((float) (Math.cos(Math.toRadians((track + 90) % 360)) * gs),
+                    (float) location.getVerticalSpeed(), (float) (Math.cos(Math.toRadians(track)) * gs));
+            step.x *= 1.0 / 32;
+            step.z *= 1.0 / 32;
+            step.y *= 1.0 / 32;
+            expected = expected.add(step);
+
+            assertEquals(step, movement, "Movement differs at update " + i);
+            assertEquals(expected, position, "Position differs at update " + i);
+        }
+        assertSame(position, location.getPosition());
+    }
+
+    @Test
+    void integrateClassic() {
+        // One semi-implicit step per tick matches the classic update
+        Location classic = new Location(0, 0, 0);
+        for (Location l : new Location[]{location, classic}) {
+            l.requestDeltaAirspeed(12);
+            l.requestDeltaVerticalSpeed(-3);
+            l.requestDeltaHeading(-75);
+        }
+        for (int i = 0; i < 320; i++) {
+            classic.updateDelta(32);
+            classic.updatePosition(32);
+            location.integrate(32, 1, Integrator.SEMI_IMPLICIT);
+        }
+        assertEquals(classic.getX(), location.getX(), 1e-3);
+        assertEquals(classic.getY(), location.getY(), 1e-3);
+        assertEquals(classic.getZ(), location.getZ(), 1e-3);
+        assertEquals(classic.getHeading(), location.getHeading(), 1e-9);
+        assertEquals(classic.getTrack(), location.getTrack(), 1e-9);
+        assertEquals(classic.getGroundSpeed(), location.getGroundSpeed(), 1e-9);
+    }
+
+    @Test
+    void integrateHalfCircle() {
+        // A 180 deg turn at 32 deg/s, the exact end is two radii to the side of the start
+        double speed = 10;
+        double radius = speed / Math.toRadians(32);
+        double[] errors = new double[4];
+        Object[][] setups = {{Integrator.EULER, 1}, {Integrator.EULER, 8}, {Integrator.RK4, 1}, {Integrator.RK4, 8}};
+        for (int t = 0; t < setups.length; t++) {
+            location.reset();
+            location.setAirspeed(speed);
+            location.setGroundSpeed(speed);
+            location.requestDeltaHeading(180);
+            for (int i = 0; i < 180; i++) {
+                location.integrate(32, (Integer) setups[t][1], (Integrator) setups[t][0]);
+            }
+            assertEquals(180, location.getHeading(), 1e-9);
+            errors[t] = Math.hypot(location.getX() + 2 * radius, location.getZ());
+        }
+        // Euler is off by about one step along the flight path
+        assertEquals(speed / 32, errors[0], 0.02);
+        assertTrue(errors[1] < errors[0] / 6, "Sub-steps don't improve Euler");
+        assertTrue(errors[2] < 1e-3, "RK4 error is " + errors[2]);
+        assertTrue(errors[3] < 1e-3, "RK4 error is " + errors[3]);
+    }
+
+    @Test
+    void integrateWind() {
+        // Wind of 3 m/s to the east, as set by the wind before the update
+        location.setHeading(0);
+        location.setAirspeed(10);
+        location.setTrack(Math.toDegrees(Math.atan2(3, 10)));
+        location.setGroundSpeed(Math.hypot(3, 10));
+        location.requestDeltaAirspeed(-10);
+        for (int i = 0; i < 4 * 32; i++) {
+            location.integrate(32, 4, Integrator.RK4);
+        }
+        // The wind stays, while the drone stops
+        assertEquals(0, location.getAirspeed(), 1e-9);
+        assertEquals(3, location.getGroundSpeed(), 1e-6);
+        assertEquals(90, location.getTrack(), 1e-6);
+        // Braking from 10 m/s at 10/3.6 m/s^2 takes 3.6 s, the wind blows for 4 s
+        assertEquals(10 * 3.6 / 2, location.getZ(), 1e-3);
+        assertEquals(-3 * 4, location.getX(), 1e-3);
+    }
+}
@@ -0,0 +1,107 @@
+package de.thi.dronesim.obstacle;
+
+import com.jme3.math.Vector3f;
+import de.thi.dronesim.Simulation;
+import de.thi.dronesim.drone.Location;
+import de.thi.dronesim.obstacle.entity.Obstacle;
+import de.thi.dronesim.persistence.entity.LocationConfig;
+import de.thi.dronesim.persistence.entity.ObstacleConfig;
+import de.thi.dronesim.persistence.entity.SimulationConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link ObstacleTileLoader}
+ */
+class ObstacleTileLoaderTest {
+
+    @Test
+    void loadAndEvict(@TempDir Path directory) throws IOException {
+        // One obstacle in the middle of each of three tiles along the x-axis
+        writeTile(directory, 0, 100, 5);
+        writeTile(directory, 1, 101, 15);
+        writeTile(directory, 2, 102, 25);
+
+        Simulation simulation = new Simulation(createConfig(directory));
+        simulation.prepare();
+        UfoObjs ufoObjs = simulation.getChild(UfoObjs.class);
+        ObstacleTileLoader loader = ufoObjs.getTileLoader();
+        assertNotNull(loader);
+        // Nothing is loaded before the simulation starts
+        assertTrue(ufoObjs.getObstacles().isEmpty());
+
+        // The tile of the start is loaded before the first tick
+        simulation.runTicks(1);
+        assertEquals(ids(100), obstacleIds(ufoObjs));
+        assertTrue(ufoObjs.checkSphereCollision(new Vector3f(5, 1, 6), 2));
+
+        Location location = simulation.getDrone().getLocation();
+        moveTo(loader, location, 11);
+        assertEquals(ids(100, 101), obstacleIds(ufoObjs));
+        // Only two tiles fit into the cache, the least recently used one is evicted
+        moveTo(loader, location, 21);
+        assertEquals(ids(101, 102), obstacleIds(ufoObjs));
+        assertFalse(ufoObjs.checkSphereCollision(new Vector3f(5, 1, 6), 2));
+        assertTrue(ufoObjs.checkSphereCollision(new Vector3f(25, 1, 6), 2));
+        moveTo(loader, location, 11);
+        moveTo(loader, location, 1);
+        assertEquals(ids(100, 101), obstacleIds(ufoObjs));
+        assertEquals(2, loader.getLoadedObstacleCount());
+
+        // Tile obstacles aren't saved with the config
+        assertTrue(ufoObjs.save().obstacles.isEmpty());
+        assertEquals(directory.toString(), ufoObjs.save().config.tileDirectory);
+        simulation.stop();
+    }
+
+    private static void moveTo(ObstacleTileLoader loader, Location location, float x) {
+        location.setX(x);
+        loader.update(location);
+        loader.awaitLoaded();
+    }
+
+    private static Set<Long> ids(long... ids) {
+        Set<Long> set = new HashSet<>();
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    private static Set<Long> obstacleIds(UfoObjs ufoObjs) {
+        Set<Long> ids = new HashSet<>();
+        for (Obstacle o : ufoObjs.getObstacles()) {
+            ids.add(o.getID());
+        }
+        return ids;
+    }
+
+    private static void writeTile(Path directory, int tileX, long id, float x) throws IOException {
+        String json = "{\"obstacles\":[{\"modelName\":\"tile\", \"modelPath\":\"/tile\", \"id\":" + id + "," +
+                " \"hitboxes\":[{\"position\":[" + x + ",1.0,5.0], \"rotation\":[0.0,0.0,0.0], \"dimension\":[0.5,0.5,0.5]}]," +
+                " \"position\":[" + x + ",1.0,5.0], \"rotation\":[0.0,0.0,0.0], \"scale\":[0.25,0.25,0.25]}]}";
+        Files.writeString(directory.resolve(tileX + "_0.json"), json);
+    }
+
+    private static SimulationConfig createConfig(Path directory) {
+        ObstacleConfig obstacleConfig = new ObstacleConfig();
+        obstacleConfig.config.rayDensity = 10;
+        obstacleConfig.config.tileDirectory = directory.toString();
+        obstacleConfig.config.tileSize = 10f;
+        obstacleConfig.config.tileRadius = 0;
+        obstacleConfig.config.maxLoadedTiles = 2;
+        SimulationConfig config = new SimulationConfig();
+        config.setLocationConfig(new LocationConfig());
+        config.setObstacleConfigList(Collections.singletonList(obstacleConfig));
+        return config;
+    }
+}
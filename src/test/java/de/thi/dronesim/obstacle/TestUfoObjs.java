@@ -10,11 +10,13 @@ import de.thi.dronesim.obstacle.dto.ObstacleDTO;
 import de.thi.dronesim.obstacle.dto.ObstacleJsonDTO;
 import de.thi.dronesim.obstacle.entity.HitMark;
 import de.thi.dronesim.obstacle.entity.Obstacle;
+import de.thi.dronesim.obstacle.entity.RayHitBuffer;
 import de.thi.dronesim.obstacle.util.HitBoxRigidBody;
 import de.thi.dronesim.persistence.entity.SimulationConfig;
 import de.thi.dronesim.persistence.entity.ObstacleConfig;
 import org.junit.jupiter.api.*;
 
+import java.lang.management.ManagementFactory;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -120,6 +122,78 @@ public class TestUfoObjs {
         assertFalse(instance.removeObstacle(obstacleToRemove),"The return value of an unavailable Obstacle (o2) must be false!");
     }
 
+    /**
+     * Test method for {@link UfoObjs#applyChanges(Collection, Collection, Collection)}
+     */
+    @Test
+    public void applyChanges() {
+        Gson gson = new Gson();
+        ObstacleDTO added = gson.fromJson("{\"modelName\":\"testObj6\", \"modelPath\":\"/test6\", \"id\":6, " +
+                " \"hitboxes\":[{\"position\":[10.0,1.0,10.0], \"rotation\":[0.0,0.0,0.0], \"dimension\":[0.5,0.5,0.5]}], " +
+                " \"position\":[10.0,1.0,10.0], \"rotation\":[0.0,0.0,0.0], \"scale\":[0.25,0.25,0.25]}", ObstacleDTO.class);
+        // Only the id and the new position are needed to move obstacle 3 from (1.0, 1.0, 5.0)
+        ObstacleDTO moved = new ObstacleDTO();
+        moved.id = 3L;
+        moved.position = new Float[]{1.0f, 1.0f, 15.0f};
+
+        // Unknown ids are ignored
+        instance.applyChanges(Collections.singletonList(added), Arrays.asList(1L, 99L), Collections.singletonList(moved));
+
+        Set<Long> ids = new HashSet<>();
+        for (Obstacle o : instance.getObstacles()) {
+            ids.add(o.getID());
+        }
+        assertEquals(new HashSet<>(Arrays.asList(2L, 3L, 4L, 6L)), ids);
+
+        // Obstacle 1 is gone
+        assertFalse(instance.checkSphereCollision(Jme3MathHelper.of(4, 1, 3), 2.0f));
+        // Obstacle 3 has moved
+        assertFalse(instance.checkSphereCollision(Jme3MathHelper.of(1, 1, 6), 2.0f));
+        assertTrue(instance.checkSphereCollision(Jme3MathHelper.of(1, 1, 16), 2.0f));
+        // Obstacle 6 was added
+        assertTrue(instance.checkSphereCollision(Jme3MathHelper.of(10, 1, 11.5f), 2.0f));
+
+        // The moved position is saved
+        for (ObstacleDTO o : instance.save().obstacles) {
+            if (o.id.equals(3L)) {
+                assertArrayEquals(new Float[]{1.0f, 1.0f, 15.0f}, o.position);
+                assertArrayEquals(new Float[]{1.0f, 1.0f, 15.0f}, o.hitboxes.iterator().next().position);
+            }
+        }
+
+        // Removing a single obstacle uses the same id index
+        assertTrue(instance.removeObstacle(added));
+        assertFalse(instance.checkSphereCollision(Jme3MathHelper.of(10, 1, 11.5f), 2.0f));
+    }
+
+    /**
+     * An obstacle added with the id of a present one replaces it together with its hit boxes
+     */
+    @Test
+    public void addSameIdTwice() {
+        // Once single, once twice within a batch
+        instance.addObstacle(obstacleAt(7L, 10));
+        instance.applyChanges(Arrays.asList(obstacleAt(7L, 20), obstacleAt(7L, 30)), Collections.emptyList(), Collections.emptyList());
+        instance.addObstacle(obstacleAt(7L, 40));
+        assertEquals(1, instance.getObstacles().stream().filter(o -> o.getID().equals(7L)).count());
+        for (int x = 10; x <= 30; x += 10) {
+            assertFalse(instance.checkSphereCollision(Jme3MathHelper.of(x, 1, 10), 1.0f), "Hit box at x = " + x);
+        }
+        assertTrue(instance.checkSphereCollision(Jme3MathHelper.of(40, 1, 10), 1.0f));
+
+        instance.applyChanges(Collections.emptyList(), Collections.singletonList(7L), Collections.emptyList());
+        assertTrue(instance.getObstacles().stream().noneMatch(o -> o.getID().equals(7L)));
+        for (int x = 10; x <= 40; x += 10) {
+            assertFalse(instance.checkSphereCollision(Jme3MathHelper.of(x, 1, 10), 1.0f), "Hit box at x = " + x);
+        }
+    }
+
+    private static ObstacleDTO obstacleAt(long id, float x) {
+        return new Gson().fromJson("{\"modelName\":\"testObj" + id + "\", \"modelPath\":\"/test" + id + "\", \"id\":" + id + ", " +
+                " \"hitboxes\":[{\"position\":[" + x + ",1.0,10.0], \"rotation\":[0.0,0.0,0.0], \"dimension\":[0.5,0.5,0.5]}], " +
+                " \"position\":[" + x + ",1.0,10.0], \"rotation\":[0.0,0.0,0.0], \"scale\":[0.25,0.25,0.25]}", ObstacleDTO.class);
+    }
+
     /**
      * Test method for {@link UfoObjs#checkSensorCone(com.jme3.math.Vector3f, com.jme3.math.Vector3f, float, com.jme3.math.Vector3f)}
      */
@@ -172,6 +246,137 @@ public class TestUfoObjs {
         checkRayTestValues(hits); // See this method below
     }
 
+    /**
+     * The cylinder samples are turned by a random angle, which only depends on the seed of the simulation
+     */
+    @Test
+    public void checkSensorCylinderRepeatable() {
+        float[] first = cylinderDistances(42L);
+        assertTrue(first.length > 0);
+        assertArrayEquals(first, cylinderDistances(42L));
+        assertArrayEquals(first, cylinderDistances(42L));
+    }
+
+    private static float[] cylinderDistances(long seed) {
+        simulation = new Simulation();
+        simulation.getConfig().setSeed(seed);
+        simulation.prepare();
+        instance = simulation.getChild(UfoObjs.class);
+        loadTestConfig();
+
+        RayHitBuffer buffer = new RayHitBuffer();
+        instance.castSensorCylinder(Jme3MathHelper.of(1, 1, 1), Jme3MathHelper.of(0.1f, 0, 1), Jme3MathHelper.of(5, 5, 10), buffer);
+        float[] distances = new float[buffer.getResultCount()];
+        for (int r = 0; r < distances.length; r++) {
+            distances[r] = buffer.isHit(r) ? buffer.getDistance(r) : -1;
+        }
+        return distances;
+    }
+
+    /**
+     * Test method for the adaptive sampling of the sensor shapes, see {@link de.thi.dronesim.obstacle.util.AdaptiveSampler}
+     */
+    @Test
+    public void adaptiveSampling() {
+        Vector3f sensorPos = Jme3MathHelper.of(1,1,1);
+        Vector3f direction = Jme3MathHelper.of(0,0,1);
+        Vector3f open45Deg = Jme3MathHelper.of(1,0,1);
+        RayHitBuffer full = new RayHitBuffer();
+        RayHitBuffer adaptive = new RayHitBuffer();
+
+        instance.castSensorCone(sensorPos, direction, 10, open45Deg, full);
+        simulation.getConfig().getObstacleConfigList().get(0).config.adaptiveSampling = true;
+        instance.castSensorCone(sensorPos, direction, 10, open45Deg, adaptive);
+
+        // Every hit of the full fan is found, but with a part of the rays
+        assertEquals(full.getHitCount(), adaptive.getHitCount());
+        assertEquals(nearestHits(full), nearestHits(adaptive));
+        assertTrue(adaptive.getResultCount() < full.getResultCount() / 2);
+        checkRayTestValues(instance.checkSensorCone(sensorPos, direction, 10, open45Deg));
+        checkRayTestValues(instance.checkSensorPyramid(sensorPos, direction, 10, open45Deg));
+        checkRayTestValues(instance.checkSensorCuboid(sensorPos, direction, Jme3MathHelper.of(6,2,6)));
+        checkRayTestValues(instance.checkSensorCylinder(sensorPos, direction, Jme3MathHelper.of(5,5,10)));
+
+        // In empty space only the coarse rays are cast
+        Vector3f away = Jme3MathHelper.of(0,0,-1);
+        instance.castSensorCone(sensorPos, away, 10, Jme3MathHelper.of(1,0,-1), adaptive);
+        assertEquals(0, adaptive.getHitCount());
+        simulation.getConfig().getObstacleConfigList().get(0).config.adaptiveSampling = false;
+        instance.castSensorCone(sensorPos, away, 10, Jme3MathHelper.of(1,0,-1), full);
+        assertTrue(adaptive.getResultCount() * 10 < full.getResultCount());
+    }
+
+    private static Map<Long, Float> nearestHits(RayHitBuffer buffer) {
+        Map<Long, Float> nearest = new HashMap<>();
+        for (int r = 0; r < buffer.getResultCount(); r++) {
+            if (buffer.isHit(r)) {
+                nearest.merge(buffer.getObstacle(r).getID(), buffer.getDistance(r), Math::min);
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Test method for {@link UfoObjs#castRays(float[], float[], float[], int, RayHitBuffer)}
+     */
+    @Test
+    public void castRays() {
+        // Ray 0 straight at obstacle 1 (2.5, 1.0, 3.5), ray 1 too short, ray 2 into the sky
+        float[] origins = {2.5f, 1, 0, 2.5f, 1, 0, 2.5f, 1, 0};
+        float[] dirs = {0, 0, 2, 0, 0, 1, 0, 1, 0};
+        float[] ranges = {10, 1, 10};
+        RayHitBuffer buffer = new RayHitBuffer(1);
+
+        instance.castRays(origins, dirs, ranges, 3, buffer);
+        assertEquals(3, buffer.getResultCount());
+        assertEquals(1, buffer.getHitCount());
+        assertTrue(buffer.isHit(0));
+        assertEquals(3.25f, buffer.getDistance(0), 1e-4f);
+        assertEquals(1L, buffer.getObstacle(0).getID());
+        assertFalse(buffer.isHit(1));
+        assertNull(buffer.getObstacle(1));
+        assertEquals(RayHitBuffer.NO_HIT, buffer.getObstacleIndex(2));
+
+        // The sensor shapes fill the same buffer, the Set variant has to see the same hits
+        Vector3f sensorPos = Jme3MathHelper.of(1,1,1);
+        Vector3f direction = Jme3MathHelper.of(0,0,1);
+        Vector3f open45Deg = Jme3MathHelper.of(1,0,1);
+        instance.castSensorCone(sensorPos, direction, 10, open45Deg, buffer);
+        assertEquals(buffer.getRayCount(), buffer.getResultCount());
+        assertEquals(instance.checkSensorCone(sensorPos, direction, 10, open45Deg).size(), buffer.getHitCount());
+    }
+
+    /**
+     * The buffer variants of the sensor shapes reuse their buffers and vectors, so a cast creates no garbage
+     */
+    @Test
+    public void castWithoutGarbage() {
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        Vector3f sensorPos = Jme3MathHelper.of(1,1,1);
+        Vector3f direction = Jme3MathHelper.of(0,0,1);
+        Vector3f open45Deg = Jme3MathHelper.of(1,0,1);
+        Vector3f cuboid = Jme3MathHelper.of(6,2,6);
+        Vector3f cylinder = Jme3MathHelper.of(5,5,10);
+        RayHitBuffer buffer = new RayHitBuffer();
+
+        long allocated = 0;
+        // The first round grows the buffers
+        for (int round = 0; round < 2; round++) {
+            allocated = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < 50; i++) {
+                instance.castSensorCone(sensorPos, direction, 10, open45Deg, buffer);
+                instance.castSensorPyramid(sensorPos, direction, 10, open45Deg, buffer);
+                instance.castSensorCuboid(sensorPos, direction, cuboid, 0.5f, buffer);
+                instance.castSensorCylinder(sensorPos, direction, cylinder, buffer);
+            }
+            allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+        }
+        // A single vector per cast would be several kB, the measurement itself needs a few bytes
+        assertTrue(allocated < 1024, allocated + " bytes allocated");
+    }
+
     /**
      * Test method for {@link UfoObjs#checkSphereCollision(Vector3f, float)} (Vector3f, float)}
      */
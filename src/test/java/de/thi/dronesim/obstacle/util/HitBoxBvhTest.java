@@ -0,0 +1,365 @@
+package de.thi.dronesim.obstacle.util;
+
+import com.bulletphysics.collision.broadphase.DbvtBroadphase;
+import com.bulletphysics.collision.dispatch.CollisionConfiguration;
+import com.bulletphysics.collision.dispatch.CollisionDispatcher;
+import com.bulletphysics.collision.dispatch.CollisionWorld;
+import com.bulletphysics.collision.dispatch.DefaultCollisionConfiguration;
+import com.bulletphysics.collision.shapes.BoxShape;
+import com.bulletphysics.linearmath.Transform;
+import com.jme3.math.Vector3f;
+import de.thi.dronesim.helpers.VecMathHelper;
+import de.thi.dronesim.obstacle.entity.Obstacle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link HitBoxBvh}
+ */
+public class HitBoxBvhTest {
+    private static final int NUM_BOXES = 500;
+    private static final int NUM_RAYS = 5_000;
+
+    private List<HitBoxRigidBody> hitBoxes;
+
+    @BeforeEach
+    public void setup() {
+        Random random = new Random(42);
+        hitBoxes = new ArrayList<>();
+        for (int i = 0; i < NUM_BOXES; i++) {
+            Obstacle obstacle = new Obstacle("box" + i, "", (long) i, new Float[]{0f, 0f, 0f}, new Float[]{0f, 0f, 0f}, new Float[]{1f, 1f, 1f}, null);
+            javax.vecmath.Vector3f position = new javax.vecmath.Vector3f(random.nextFloat() * 100 - 50, random.nextFloat() * 20, random.nextFloat() * 100 - 50);
+            // Every second box is rotated
+            javax.vecmath.Vector3f rotation = (i % 2 == 0)
+                    ? new javax.vecmath.Vector3f()
+                    : new javax.vecmath.Vector3f(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+            javax.vecmath.Vector3f half = new javax.vecmath.Vector3f(0.25f + random.nextFloat() * 2, 0.25f + random.nextFloat() * 2, 0.25f + random.nextFloat() * 2);
+            hitBoxes.add(HitBoxRigidBody.create(position, rotation, half, obstacle));
+        }
+    }
+
+    @Test
+    public void sameResultsAsBruteForce() {
+        HitBoxBvh bvh = new HitBoxBvh(hitBoxes);
+        HitBoxBvh.RayQuery query = new HitBoxBvh.RayQuery();
+        assertEquals(NUM_BOXES, bvh.size());
+
+        Random random = new Random(7);
+        int hits = 0;
+        for (int i = 0; i < NUM_RAYS; i++) {
+            Vector3f from = new Vector3f(random.nextFloat() * 120 - 60, random.nextFloat() * 24 - 2, random.nextFloat() * 120 - 60);
+            Vector3f direction = new Vector3f(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+            float range = random.nextFloat() * 40;
+
+            float expectedDistance = range;
+            HitBoxRigidBody expectedBody = null;
+            for (HitBoxRigidBody hitBox : hitBoxes) {
+                float t = bruteForce(hitBox, from, direction.normalize());
+                if (t <= expectedDistance) {
+                    expectedDistance = t;
+                    expectedBody = hitBox;
+                }
+            }
+
+            boolean hit = bvh.rayTest(from.x, from.y, from.z, direction.x, direction.y, direction.z, range, query);
+            if (expectedBody == null) {
+                assertFalse(hit, "Ray " + i + " should not hit anything");
+            } else {
+                hits++;
+                assertTrue(hit, "Ray " + i + " should hit");
+                assertEquals(expectedDistance, query.getDistance(), 1e-3f);
+                assertSame(expectedBody, bvh.getBody(query.getBox()));
+            }
+        }
+        assertTrue(hits > 0, "No ray hit a box, the test setup is broken");
+    }
+
+    @Test
+    public void candidatesSameAsTree() {
+        HitBoxBvh bvh = new HitBoxBvh(hitBoxes);
+        HitBoxBvh.RayQuery query = new HitBoxBvh.RayQuery();
+        HitBoxBvh.RayQuery reference = new HitBoxBvh.RayQuery();
+
+        Random random = new Random(11);
+        int hits = 0;
+        int fallbacks = 0;
+        float[] rays = new float[4 * 20];
+        for (int fan = 0; fan < NUM_RAYS / 20; fan++) {
+            // A fan of rays from one point, like a sensor shape
+            float ox = random.nextFloat() * 120 - 60;
+            float oy = random.nextFloat() * 24 - 2;
+            float oz = random.nextFloat() * 120 - 60;
+            float range = random.nextFloat() * (fan % 10 == 0 ? 80 : 10);
+            float[] min = {ox, oy, oz};
+            float[] max = {ox, oy, oz};
+            for (int r = 0; r < 20; r++) {
+                Vector3f direction = new Vector3f(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+                Vector3f end = direction.normalize().multLocal(range).addLocal(ox, oy, oz);
+                rays[4 * r] = direction.x;
+                rays[4 * r + 1] = direction.y;
+                rays[4 * r + 2] = direction.z;
+                rays[4 * r + 3] = range;
+                float[] e = {end.x, end.y, end.z};
+                for (int k = 0; k < 3; k++) {
+                    min[k] = Math.min(min[k], e[k]);
+                    max[k] = Math.max(max[k], e[k]);
+                }
+            }
+
+            if (bvh.collectCandidates(min[0], min[1], min[2], max[0], max[1], max[2], query) < 0) {
+                fallbacks++;
+            }
+            for (int r = 0; r < 20; r++) {
+                boolean expected = bvh.rayTest(ox, oy, oz, rays[4 * r], rays[4 * r + 1], rays[4 * r + 2], rays[4 * r + 3], reference);
+                boolean hit = bvh.candidateRayTest(ox, oy, oz, rays[4 * r], rays[4 * r + 1], rays[4 * r + 2], rays[4 * r + 3], query);
+                assertEquals(expected, hit, "Ray " + r + " of fan " + fan);
+                if (expected) {
+                    hits++;
+                    assertEquals(reference.getDistance(), query.getDistance(), 1e-5f);
+                    assertSame(bvh.getBody(reference.getBox()).getObstacle(), bvh.getBody(query.getBox()).getObstacle());
+                }
+            }
+        }
+        assertTrue(hits > 0, "No ray hit a box, the test setup is broken");
+        assertTrue(fallbacks > 0, "No fan had too many candidates, the fallback isn't tested");
+    }
+
+    /**
+     * JBullet's ray test is only approximate at the edges of a box (a few cm), so the reference is a plain slab test
+     * done in the local space of every box
+     */
+    private static float bruteForce(HitBoxRigidBody hitBox, Vector3f from, Vector3f direction) {
+        Transform transform = hitBox.getWorldTransform(new Transform());
+        javax.vecmath.Vector3f half = ((BoxShape) hitBox.getCollisionShape()).getHalfExtentsWithMargin(new javax.vecmath.Vector3f());
+        javax.vecmath.Vector3f localFrom = new javax.vecmath.Vector3f();
+        javax.vecmath.Vector3f localTo = new javax.vecmath.Vector3f();
+        transform.invXform(VecMathHelper.of(from), localFrom);
+        transform.invXform(VecMathHelper.of(from.add(direction)), localTo);
+        localTo.sub(localFrom);
+
+        float[] o = {localFrom.x, localFrom.y, localFrom.z};
+        float[] d = {localTo.x, localTo.y, localTo.z};
+        float[] h = {half.x, half.y, half.z};
+        float tMin = Float.NEGATIVE_INFINITY;
+        float tMax = Float.POSITIVE_INFINITY;
+        for (int k = 0; k < 3; k++) {
+            float t1 = (-h[k] - o[k]) / d[k];
+            float t2 = (h[k] - o[k]) / d[k];
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        }
+        return (tMin <= tMax && tMin >= 0) ? tMin : Float.POSITIVE_INFINITY;
+    }
+
+    @Test
+    public void sameAsJBulletForSeparatedBoxes() {
+        Random random = new Random(3);
+        CollisionConfiguration configuration = new DefaultCollisionConfiguration();
+        CollisionWorld world = new CollisionWorld(new CollisionDispatcher(configuration), new DbvtBroadphase(), configuration);
+        List<HitBoxRigidBody> row = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Obstacle obstacle = new Obstacle("row" + i, "", (long) i, new Float[]{0f, 0f, 0f}, new Float[]{0f, 0f, 0f}, new Float[]{1f, 1f, 1f}, null);
+            javax.vecmath.Vector3f half = new javax.vecmath.Vector3f(0.25f + random.nextFloat() * 2, 0.25f + random.nextFloat() * 2, 0.25f + random.nextFloat() * 2);
+            HitBoxRigidBody hitBox = HitBoxRigidBody.create(new javax.vecmath.Vector3f(10 * i, 5, 0), new javax.vecmath.Vector3f(), half, obstacle);
+            world.addCollisionObject(hitBox);
+            row.add(hitBox);
+        }
+        HitBoxBvh bvh = new HitBoxBvh(row);
+        HitBoxBvh.RayQuery query = new HitBoxBvh.RayQuery();
+
+        // Rays from below against the bottom face of every box
+        for (int i = 0; i < row.size(); i++) {
+            Vector3f from = new Vector3f(10 * i + random.nextFloat() * 0.4f - 0.2f, -10, random.nextFloat() * 0.4f - 0.2f);
+            Vector3f direction = new Vector3f(random.nextFloat() * 0.02f - 0.01f, 1, random.nextFloat() * 0.02f - 0.01f);
+            javax.vecmath.Vector3f rayFrom = VecMathHelper.of(from);
+            javax.vecmath.Vector3f rayTo = VecMathHelper.of(direction.normalize().multLocal(50).addLocal(from));
+            CollisionWorld.ClosestRayResultCallback expected = new CollisionWorld.ClosestRayResultCallback(rayFrom, rayTo);
+            world.rayTest(rayFrom, rayTo, expected);
+            assertTrue(expected.hasHit());
+            javax.vecmath.Vector3f expectedHit = new javax.vecmath.Vector3f(expected.hitPointWorld);
+            expectedHit.sub(rayFrom);
+
+            assertTrue(bvh.rayTest(from.x, from.y, from.z, direction.x, direction.y, direction.z, 50, query));
+            assertEquals(expectedHit.length(), query.getDistance(), 1e-2f);
+            assertSame(expected.collisionObject, bvh.getBody(query.getBox()));
+        }
+    }
+
+    @Test
+    public void axisParallelRays() {
+        HitBoxBvh bvh = new HitBoxBvh(hitBoxes.subList(0, 1));
+        HitBoxBvh.RayQuery query = new HitBoxBvh.RayQuery();
+        Vector3f center = new Vector3f();
+        javax.vecmath.Vector3f origin = hitBoxes.get(0).getWorldTransform(new Transform()).origin;
+        center.set(origin.x, origin.y, origin.z);
+
+        // Straight at the box from below, outside of the x and z slabs it's a miss
+        assertTrue(bvh.rayTest(center.x, center.y - 10, center.z, 0, 1, 0, 20, query));
+        assertFalse(bvh.rayTest(center.x + 10, center.y - 10, center.z, 0, 1, 0, 20, query));
+        // Out of range
+        assertFalse(bvh.rayTest(center.x, center.y - 10, center.z, 0, 1, 0, 5, query));
+        // Rays starting inside the box are ignored, the same as with JBullet
+        assertFalse(bvh.rayTest(center.x, center.y, center.z, 0, 1, 0, 20, query));
+    }
+
+    @Test
+    public void sphereSameResultsAsBruteForce() {
+        HitBoxBvh bvh = new HitBoxBvh(hitBoxes);
+        HitBoxBvh.RayQuery query = new HitBoxBvh.RayQuery();
+
+        Random random = new Random(11);
+        int collisions = 0;
+        for (int i = 0; i < NUM_RAYS; i++) {
+            Vector3f center = new Vector3f(random.nextFloat() * 120 - 60, random.nextFloat() * 24 - 2, random.nextFloat() * 120 - 60);
+            float radius = random.nextFloat() * 3;
+            for (int signum = -1; signum <= 1; signum++) {
+                boolean expected = false;
+                for (HitBoxRigidBody hitBox : hitBoxes) {
+                    expected |= bruteForceSphere(hitBox, center, radius, signum);
+                }
+                assertEquals(expected, bvh.sphereTest(center.x, center.y, center.z, radius, signum, query), "Sphere " + i + " signum " + signum);
+                collisions += expected ? 1 : 0;
+            }
+        }
+        assertTrue(collisions > 0, "No sphere hit a box, the test setup is broken");
+    }
+
+    /**
+     * Closest point on the box, calculated in the local space of the box
+     */
+    private static boolean bruteForceSphere(HitBoxRigidBody hitBox, Vector3f center, float radius, int signum) {
+        Transform transform = hitBox.getWorldTransform(new Transform());
+        javax.vecmath.Vector3f half = ((BoxShape) hitBox.getCollisionShape()).getHalfExtentsWithMargin(new javax.vecmath.Vector3f());
+        javax.vecmath.Vector3f local = new javax.vecmath.Vector3f();
+        transform.invXform(VecMathHelper.of(center), local);
+
+        javax.vecmath.Vector3f closest = new javax.vecmath.Vector3f(
+                Math.max(-half.x, Math.min(half.x, local.x)),
+                Math.max(-half.y, Math.min(half.y, local.y)),
+                Math.max(-half.z, Math.min(half.z, local.z)));
+        if (closest.equals(local)) {
+            return true;
+        }
+        transform.transform(closest);
+        closest.sub(VecMathHelper.of(center));
+        return closest.length() < radius && closest.y * signum >= 0;
+    }
+
+    @Test
+    public void distanceSameAsBruteForce() {
+        HitBoxBvh bvh = new HitBoxBvh(hitBoxes);
+        HitBoxBvh.RayQuery query = new HitBoxBvh.RayQuery();
+
+        Random random = new Random(13);
+        for (int i = 0; i < NUM_RAYS; i++) {
+            Vector3f point = new Vector3f(random.nextFloat() * 160 - 80, random.nextFloat() * 40 - 10, random.nextFloat() * 160 - 80);
+            float expected = Float.POSITIVE_INFINITY;
+            for (HitBoxRigidBody hitBox : hitBoxes) {
+                expected = Math.min(expected, bruteForceDistance(hitBox, point));
+            }
+            assertTrue(bvh.distanceTest(point.x, point.y, point.z, Float.POSITIVE_INFINITY, query), "Point " + i);
+            assertEquals(expected, query.getDistance(), 1e-3f, "Point " + i);
+            assertEquals(expected, bruteForceDistance(bvh.getBody(query.getBox()), point), 1e-3f, "Point " + i);
+
+            // Nothing within a smaller range than the closest box
+            if (expected > 0.1f) {
+                assertFalse(bvh.distanceTest(point.x, point.y, point.z, expected - 0.01f, query), "Point " + i);
+            }
+        }
+    }
+
+    private static float bruteForceDistance(HitBoxRigidBody hitBox, Vector3f point) {
+        Transform transform = hitBox.getWorldTransform(new Transform());
+        javax.vecmath.Vector3f half = ((BoxShape) hitBox.getCollisionShape()).getHalfExtentsWithMargin(new javax.vecmath.Vector3f());
+        javax.vecmath.Vector3f local = new javax.vecmath.Vector3f();
+        transform.invXform(VecMathHelper.of(point), local);
+
+        javax.vecmath.Vector3f closest = new javax.vecmath.Vector3f(
+                Math.max(-half.x, Math.min(half.x, local.x)),
+                Math.max(-half.y, Math.min(half.y, local.y)),
+                Math.max(-half.z, Math.min(half.z, local.z)));
+        closest.sub(local);
+        return closest.length();
+    }
+
+    @Test
+    public void changesSameAsFullBuild() {
+        Random random = new Random(17);
+        List<HitBoxRigidBody> current = new ArrayList<>(hitBoxes.subList(0, 400));
+        List<HitBoxRigidBody> unused = new ArrayList<>(hitBoxes.subList(400, NUM_BOXES));
+        HitBoxBvh derived = new HitBoxBvh(current);
+        HitBoxBvh.RayQuery query = new HitBoxBvh.RayQuery();
+        HitBoxBvh.RayQuery reference = new HitBoxBvh.RayQuery();
+
+        for (int batch = 0; batch < 10; batch++) {
+            List<HitBoxRigidBody> removed = new ArrayList<>();
+            List<HitBoxRigidBody> added = new ArrayList<>();
+            Set<HitBoxRigidBody> moved = new LinkedHashSet<>();
+            for (int i = 0; i < 5; i++) {
+                removed.add(current.remove(random.nextInt(current.size())));
+                added.add(unused.remove(random.nextInt(unused.size())));
+            }
+            // Boxes of the tree and boxes added by an earlier batch
+            for (int i = 0; i < 5; i++) {
+                HitBoxRigidBody hitBox = current.get(i < 3 ? random.nextInt(current.size()) : current.size() - 1 - i);
+                hitBox.moveBy(new javax.vecmath.Vector3f(random.nextFloat() * 20 - 10, 0, random.nextFloat() * 20 - 10));
+                moved.add(hitBox);
+            }
+            current.addAll(added);
+            unused.addAll(removed);
+
+            derived = derived.withChanges(removed, added, moved);
+            HitBoxBvh full = new HitBoxBvh(current);
+            assertEquals(current.size(), derived.size());
+
+            for (int i = 0; i < NUM_RAYS / 10; i++) {
+                Vector3f from = new Vector3f(random.nextFloat() * 120 - 60, random.nextFloat() * 24 - 2, random.nextFloat() * 120 - 60);
+                Vector3f direction = new Vector3f(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+                float range = random.nextFloat() * 40;
+                boolean expected = full.rayTest(from.x, from.y, from.z, direction.x, direction.y, direction.z, range, reference);
+                assertEquals(expected, derived.rayTest(from.x, from.y, from.z, direction.x, direction.y, direction.z, range, query), "Ray " + i);
+                if (expected) {
+                    assertEquals(reference.getDistance(), query.getDistance(), 1e-5f);
+                    HitBoxRigidBody body = derived.getBody(query.getBox());
+                    assertSame(full.getBody(reference.getBox()).getObstacle(), body.getObstacle());
+                    assertSame(body.getObstacle(), derived.getObstacleTable()[derived.getObstacleIndex(query.getBox())]);
+                }
+
+                // All rays of a small volume from the candidates
+                Vector3f end = direction.normalize().multLocal(Math.min(range, 5)).addLocal(from);
+                derived.collectCandidates(Math.min(from.x, end.x), Math.min(from.y, end.y), Math.min(from.z, end.z),
+                        Math.max(from.x, end.x), Math.max(from.y, end.y), Math.max(from.z, end.z), query);
+                expected = full.rayTest(from.x, from.y, from.z, direction.x, direction.y, direction.z, Math.min(range, 5), reference);
+                assertEquals(expected, derived.candidateRayTest(from.x, from.y, from.z, direction.x, direction.y, direction.z, Math.min(range, 5), query), "Ray " + i);
+                if (expected) {
+                    assertSame(full.getBody(reference.getBox()).getObstacle(), derived.getBody(query.getBox()).getObstacle());
+                }
+
+                float radius = random.nextFloat() * 3;
+                assertEquals(full.sphereTest(from.x, from.y, from.z, radius, 0, reference),
+                        derived.sphereTest(from.x, from.y, from.z, radius, 0, query), "Sphere " + i);
+                assertTrue(full.distanceTest(from.x, from.y, from.z, Float.POSITIVE_INFINITY, reference));
+                assertTrue(derived.distanceTest(from.x, from.y, from.z, Float.POSITIVE_INFINITY, query));
+                assertEquals(reference.getDistance(), query.getDistance(), 1e-5f, "Point " + i);
+            }
+        }
+    }
+
+    @Test
+    public void emptyIndex() {
+        HitBoxBvh bvh = new HitBoxBvh(new ArrayList<>());
+        assertFalse(bvh.rayTest(0, 0, 0, 1, 0, 0, 100, new HitBoxBvh.RayQuery()));
+        assertFalse(bvh.distanceTest(0, 0, 0, Float.POSITIVE_INFINITY, new HitBoxBvh.RayQuery()));
+        HitBoxBvh.RayQuery query = new HitBoxBvh.RayQuery();
+        assertEquals(0, bvh.collectCandidates(-1, -1, -1, 1, 1, 1, query));
+        assertFalse(bvh.candidateRayTest(0, 0, 0, 1, 0, 0, 1, query));
+    }
+}
@@ -0,0 +1,54 @@
+package de.thi.dronesim.obstacle.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link SampleTables}
+ */
+public class SampleTablesTest {
+
+    @Test
+    public void diskSamples() {
+        int count = 500;
+        float radius = 2.5f;
+        float[] disk = SampleTables.disk(count);
+        assertTrue(disk.length >= 2 * count);
+        // Shared by every caller, a smaller count uses the same table
+        assertSame(disk, SampleTables.disk(10));
+
+        float scale = radius / (float) Math.sqrt(count - 1f);
+        for (int l = 0; l < count; l++) {
+            // The formula of the sensor shapes before the table
+            float dist = (float) Math.sqrt(l / (count - 1f)) * radius;
+            assertEquals(dist * (float) Math.cos(SampleTables.GOLDEN_ANGLE * l), disk[2 * l] * scale, 1e-4f);
+            assertEquals(dist * (float) Math.sin(SampleTables.GOLDEN_ANGLE * l), disk[2 * l + 1] * scale, 1e-4f);
+        }
+        // The last sample lies on the edge of the disc
+        float x = disk[2 * (count - 1)] * scale;
+        float y = disk[2 * (count - 1) + 1] * scale;
+        assertEquals(radius, (float) Math.sqrt(x * x + y * y), 1e-4f);
+
+        // Growing keeps the published samples
+        float[] grown = SampleTables.disk(disk.length);
+        assertNotSame(disk, grown);
+        for (int i = 0; i < disk.length; i++) {
+            assertEquals(disk[i], grown[i]);
+        }
+    }
+
+    @Test
+    public void sphereSamples() {
+        float[] sphere = SampleTables.sphere(300);
+        assertSame(sphere, SampleTables.sphere(300));
+        assertEquals(3 * 301, sphere.length);
+        for (int l = 0; l <= 300; l++) {
+            float x = sphere[3 * l];
+            float y = sphere[3 * l + 1];
+            float z = sphere[3 * l + 2];
+            assertEquals(1f, x * x + y * y + z * z, 1e-5f);
+            assertEquals(1 - 2 * l / 300f, z, 1e-5f);
+        }
+    }
+}
@@ -46,6 +46,9 @@ public class ConfigWriterTest {
                 "{\n" +
                 "  \"locationConfig\": null,\n" +
                 "  \"droneRadius\": 0.0,\n" +
+                "  \"seed\": null,\n" +
+                "  \"integrator\": null,\n" +
+                "  \"physicsSubSteps\": null,\n" +
                 "  \"obstacleConfigList\": null,\n" +
                 "  \"sensorConfigList\": null,\n" +
                 "  \"windConfigList\": null\n" +
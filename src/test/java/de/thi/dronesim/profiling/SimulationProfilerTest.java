@@ -0,0 +1,133 @@
+package de.thi.dronesim.profiling;
+
+import de.thi.dronesim.Simulation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SortedMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test for {@link SimulationProfiler} and {@link LatencyHistogram}
+ */
+class SimulationProfilerTest {
+
+    @Test
+    void histogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1000L);
+        }
+        LatencyStats stats = histogram.getStats();
+        assertEquals(10_000, stats.getCount());
+        assertEquals(1000, stats.getMin());
+        assertEquals(10_000_000, stats.getMax());
+        assertEquals(5_000_500, stats.getMean(), 1e-6);
+        // Buckets are at most 12.5% wide
+        assertEquals(5_000_000, stats.getP50(), 5_000_000 * 0.125);
+        assertEquals(9_900_000, stats.getP99(), 9_900_000 * 0.125);
+        assertTrue(stats.getP50() >= 5_000_000);
+
+        histogram.reset();
+        assertEquals(0, histogram.getStats().getCount());
+        assertEquals(0, histogram.getPercentile(0.99));
+    }
+
+    @Test
+    void histogramBuckets() {
+        // Every value lies within its bucket, up to the largest value
+        for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 17, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.upperBoundOf(bucket) >= value, "Upper bound of " + value);
+            assertTrue(bucket == 0 || LatencyHistogram.upperBoundOf(bucket - 1) < value, "Lower bound of " + value);
+        }
+    }
+
+    @Test
+    @Timeout(5000)
+    void recordsListeners() {
+        Simulation simulation = new Simulation();
+        simulation.prepare();
+        simulation.registerUpdateListener(event -> {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 500);
+        SimulationProfiler profiler = simulation.getProfiler();
+
+        // Disabled by default
+        simulation.runTicks(5);
+        assertEquals(0, profiler.getTickCount());
+
+        profiler.setEnabled(true);
+        simulation.runTicks(20);
+
+        assertEquals(20, profiler.getTickCount());
+        SortedMap<Integer, LatencyStats> stats = profiler.getListenerStats();
+        assertEquals(900, stats.firstKey());
+        assertEquals(20, stats.get(500).getCount());
+        assertTrue(stats.get(500).getMin() >= 2_000_000);
+        assertEquals("SimulationProfilerTest", profiler.getListenerName(500));
+        assertEquals("Wind", profiler.getListenerName(850));
+        assertTrue(profiler.getTickStats().getMin() >= stats.get(500).getMin());
+        assertTrue(profiler.getEffectiveTps() > 0 && profiler.getEffectiveTps() < 500);
+        // Fast-forward ticks have no period
+        assertEquals(0, profiler.getOverrunCount());
+        assertTrue(profiler.formatReport().contains("500 SimulationProfilerTest"));
+
+        profiler.reset();
+        assertEquals(0, profiler.getTickCount());
+    }
+
+    @Test
+    void overruns() {
+        SimulationProfiler profiler = new SimulationProfiler();
+        profiler.recordTick(0, 10_000_000, 31_250_000);
+        profiler.recordTick(31_250_000, 40_000_000, 31_250_000);
+        profiler.recordTick(62_500_000, 40_000_000, 0);
+        assertEquals(1, profiler.getOverrunCount());
+        assertEquals(3, profiler.getTickCount());
+    }
+
+    @Test
+    void csv(@TempDir Path directory) throws IOException {
+        SimulationProfiler profiler = new SimulationProfiler();
+        profiler.registerListener(900, event -> {});
+        profiler.recordListener(900, 1500);
+        profiler.recordTick(0, 2000, 0);
+
+        Path file = directory.resolve("profile.csv");
+        profiler.writeCsv(file);
+        profiler.writeCsv(file);
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(0).startsWith("timestamp;priority;listener"));
+        assertTrue(lines.get(1).contains(";tick;1;2000;"));
+        assertTrue(lines.get(2).contains(";900;SimulationProfilerTest;1;1500;"));
+    }
+
+    @Test
+    void jmx() throws Exception {
+        SimulationProfiler profiler = new SimulationProfiler();
+        profiler.recordTick(0, 2000, 1000);
+        ObjectName name = profiler.registerMBean("jmx-test");
+        try {
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "OverrunCount"));
+            assertThrows(IllegalStateException.class, () -> new SimulationProfiler().registerMBean("jmx-test"));
+        } finally {
+            profiler.unregisterMBean();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
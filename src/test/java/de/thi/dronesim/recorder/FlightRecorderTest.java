@@ -0,0 +1,221 @@
+package de.thi.dronesim.recorder;
+
+import de.thi.dronesim.Simulation;
+import de.thi.dronesim.SimulationState;
+import de.thi.dronesim.drone.Location;
+import de.thi.dronesim.persistence.entity.LocationConfig;
+import de.thi.dronesim.persistence.entity.SensorConfig;
+import de.thi.dronesim.persistence.entity.SimulationConfig;
+import de.thi.dronesim.sensor.SensorModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link FlightRecorder}, {@link FlightRecording} and {@link FlightReplay}
+ */
+class FlightRecorderTest {
+
+    @Test
+    void recordAndRead(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("flight.rec");
+        Simulation simulation = new Simulation(createConfig());
+        // Small chunks, so the records are spread over several of them
+        FlightRecorder recorder = new FlightRecorder(file, 3, 1000);
+        simulation.addChild(recorder);
+        simulation.prepare();
+
+        // Runs after the recorder and keeps what should be recorded
+        List<float[]> expected = new ArrayList<>();
+        SensorModule sensorModule = simulation.getChild(SensorModule.class);
+        simulation.registerUpdateListener(event -> {
+            Location location = event.getDrone().getLocation();
+            List<Float> gps = sensorModule.getResultFromSensor(7).getValues();
+            expected.add(new float[]{(float) event.getTime(), location.getX(), location.getY(), location.getZ(),
+                    location.getMovement().z, (float) location.getHeading(), (float) location.getAirspeed(),
+                    gps.get(0), gps.get(1), gps.get(2)});
+        }, FlightRecorder.PRIORITY - 1);
+
+        Location location = simulation.getDrone().getLocation();
+        location.requestDeltaAirspeed(8);
+        location.requestDeltaVerticalSpeed(2);
+        location.requestDeltaHeading(45);
+        simulation.runTicks(500);
+        assertTrue(recorder.isRecording());
+        assertEquals(500, recorder.getRecordCount());
+        simulation.stop();
+        assertFalse(recorder.isRecording());
+
+        int recordSize = FlightRecorder.recordSize(1, 3);
+        assertEquals(0, recordSize % 8);
+        assertEquals(FlightRecorder.HEADER_FIXED_SIZE + 8 + 500L * recordSize, Files.size(file));
+
+        try (FlightRecording recording = FlightRecording.open(file)) {
+            assertEquals(500, recording.size());
+            assertEquals(32, recording.getTps());
+            assertEquals(42L, recording.getSeed());
+            assertArrayEquals(new int[]{7}, recording.getSensorIds());
+            assertEquals(3, recording.getValuesPerSensor());
+
+            FlightRecording.Cursor cursor = recording.cursor();
+            int i = 0;
+            while (cursor.next()) {
+                float[] values = expected.get(i);
+                assertEquals(i, cursor.getIndex());
+                assertEquals(values[0], (float) cursor.getTime());
+                assertEquals(values[1], cursor.getX());
+                assertEquals(values[2], cursor.getY());
+                assertEquals(values[3], cursor.getZ());
+                assertEquals(values[4], cursor.getMovementZ());
+                assertEquals(values[5], cursor.getHeading());
+                assertEquals(values[6], cursor.getAirspeed());
+                assertFalse(cursor.isCrashed());
+                // The gps has 5 values, only 3 fit into the record
+                assertEquals(3, cursor.getSensorValueCount(0));
+                assertEquals(values[7], cursor.getSensorValue(0, 0));
+                assertEquals(values[8], cursor.getSensorValue(0, 1));
+                assertEquals(values[9], cursor.getSensorValue(0, 2));
+                assertThrows(IndexOutOfBoundsException.class, () -> cursor.getSensorValue(0, 3));
+                i++;
+            }
+            assertEquals(500, i);
+
+            cursor.seek(123);
+            assertEquals(expected.get(123)[3], cursor.getZ());
+            cursor.seek(7);
+            assertEquals(expected.get(7)[3], cursor.getZ());
+            assertThrows(NoSuchElementException.class, () -> cursor.seek(500));
+        }
+    }
+
+    @Test
+    void crashIsRecorded(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("crash.rec");
+        Simulation simulation = new Simulation();
+        simulation.addChild(new FlightRecorder(file));
+        simulation.prepare();
+        simulation.runTicks(10);
+        simulation.getDrone().setCrashed(true);
+        // A crash stops the simulation, which completes the recording
+        simulation.runTicks(10);
+
+        try (FlightRecording recording = FlightRecording.open(file)) {
+            assertEquals(11, recording.size());
+            assertArrayEquals(new int[0], recording.getSensorIds());
+            FlightRecording.Cursor cursor = recording.cursor();
+            cursor.seek(9);
+            assertFalse(cursor.isCrashed());
+            assertTrue(cursor.next());
+            assertTrue(cursor.isCrashed());
+            assertFalse(cursor.next());
+        }
+    }
+
+    @Test
+    void noRecording(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("other.rec");
+        Files.writeString(file, "no recording at all, but long enough for a header");
+        assertThrows(IOException.class, () -> FlightRecording.open(file));
+    }
+
+    @Test
+    void replay(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("replay.rec");
+        Simulation simulation = new Simulation(createConfig());
+        simulation.setTps(50);
+        simulation.addChild(new FlightRecorder(file));
+        simulation.prepare();
+        Location location = simulation.getDrone().getLocation();
+        location.requestDeltaAirspeed(10);
+        location.requestDeltaVerticalSpeed(3);
+        location.requestDeltaHeading(90);
+        simulation.runTicks(200);
+        simulation.stop();
+
+        try (FlightRecording recording = FlightRecording.open(file)) {
+            Simulation replay = FlightReplay.sensorReplay(createConfig(), recording);
+            assertTrue(replay.isReplaying());
+            assertEquals(50, replay.getTps());
+            assertNull(replay.getChild(de.thi.dronesim.wind.Wind.class));
+            assertNotNull(replay.getChild(SensorModule.class));
+
+            // The sensors see the recorded state, requested deltas are ignored. The listener only collects the
+            // values, as the simulation catches every exception of a listener
+            List<float[]> replayed = new ArrayList<>();
+            List<List<Float>> gpsValues = new ArrayList<>();
+            replay.getDrone().getLocation().requestDeltaAirspeed(-10);
+            replay.registerUpdateListener(event -> {
+                Location replayedLocation = event.getDrone().getLocation();
+                replayed.add(new float[]{(float) event.getTime(), replayedLocation.getX(), replayedLocation.getY(),
+                        replayedLocation.getZ(), (float) replayedLocation.getAirspeed()});
+                gpsValues.add(replay.getChild(SensorModule.class).getResultFromSensor(7).getValues());
+            }, 0);
+            // Pauses after the last record
+            assertEquals(200, replay.runUntil(s -> false));
+            assertEquals(SimulationState.PAUSED, replay.getState());
+            assertEquals(200, replay.getTickCount());
+            assertEquals(0, replay.runUntil(s -> false));
+            assertEquals(location.getY(), replay.getDrone().getLocation().getY());
+
+            assertEquals(200, replayed.size());
+            FlightRecording.Cursor cursor = recording.cursor();
+            while (cursor.next()) {
+                float[] values = replayed.get((int) cursor.getIndex());
+                assertEquals((float) cursor.getTime(), values[0]);
+                assertEquals(cursor.getX(), values[1]);
+                assertEquals(cursor.getY(), values[2]);
+                assertEquals(cursor.getZ(), values[3]);
+                assertEquals(cursor.getAirspeed(), values[4]);
+                // The same flight measured again gives the recorded values
+                List<Float> gps = gpsValues.get((int) cursor.getIndex());
+                assertEquals(gps.size(), cursor.getSensorValueCount(0));
+                for (int i = 0; i < cursor.getSensorValueCount(0); i++) {
+                    assertEquals(cursor.getSensorValue(0, i), gps.get(i));
+                }
+            }
+
+            // Seeking continues the paused replay, the delayed gps values depend on the skipped ticks
+            replayed.clear();
+            replay.seekReplay(2000);
+            assertEquals(SimulationState.PAUSED, replay.getState());
+            assertEquals(100, replay.getTickCount());
+            assertEquals(2000, replay.getTime());
+            assertEquals(1, replay.runTicks(1));
+            assertEquals(2020, replay.getTime());
+            assertEquals(99, replay.runUntil(s -> false));
+            assertEquals(100, replayed.size());
+            cursor.seek(99);
+            for (float[] values : replayed) {
+                assertTrue(cursor.next());
+                assertEquals((float) cursor.getTime(), values[0]);
+                assertEquals(cursor.getX(), values[1]);
+                assertEquals(cursor.getZ(), values[3]);
+            }
+
+            // The children of a stopped replay are shut down
+            replay.stop();
+            assertThrows(IllegalStateException.class, () -> replay.seekReplay(0));
+        }
+    }
+
+    private static SimulationConfig createConfig() {
+        SimulationConfig config = new SimulationConfig();
+        config.setLocationConfig(new LocationConfig());
+        config.setSeed(42L);
+        SensorConfig gps = new SensorConfig();
+        gps.setSensorId(7);
+        gps.setClassName("GpsSensor");
+        List<SensorConfig> sensors = new ArrayList<>();
+        sensors.add(gps);
+        config.setSensorConfigList(sensors);
+        return config;
+    }
+}
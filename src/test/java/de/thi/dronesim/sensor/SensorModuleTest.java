@@ -3,12 +3,15 @@ package de.thi.dronesim.sensor;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import de.thi.dronesim.Simulation;
 import de.thi.dronesim.SimulationUpdateEvent;
+import de.thi.dronesim.drone.Drone;
+import de.thi.dronesim.drone.DroneSwarm;
 import de.thi.dronesim.sensor.types.*;
 import org.junit.jupiter.api.*;
 import de.thi.dronesim.persistence.entity.SensorConfig;
@@ -242,4 +245,81 @@ class SensorModuleTest {
 
 		assertEquals(simulation.getConfig().getSensorConfigList(), createdConfigs);
 	}
+
+	/**
+	 * The parallel mode has to deliver the same results in the same order as the sequential one
+	 */
+	@Test
+	void parallelMeasurements() {
+		// given
+		Simulation sequentialSimulation = new Simulation("src/test/resources/de/thi/dronesim/sensor/sensorModuleInit.json");
+		sequentialSimulation.prepare();
+		Simulation parallelSimulation = new Simulation("src/test/resources/de/thi/dronesim/sensor/sensorModuleInit.json");
+		parallelSimulation.prepare();
+		SensorModule sequential = sequentialSimulation.getChild(SensorModule.class);
+		SensorModule parallel = parallelSimulation.getChild(SensorModule.class);
+		parallel.setParallelMeasurements(true);
+		parallel.setParallelism(4);
+
+		for (int tick = 0; tick < 20; tick++) {
+			// when
+			sequential.runAllMeasurements(new SimulationUpdateEvent(sequentialSimulation.getDrone(), tick * 100.0, 10));
+			parallel.runAllMeasurements(new SimulationUpdateEvent(parallelSimulation.getDrone(), tick * 100.0, 10));
+
+			// then
+			List<Integer> ids = parallel.getResultsFromAllSensors().stream().map(r -> r.getSensor().getId()).collect(Collectors.toList());
+			assertEquals(List.of(1, 2, 3, 4, 5), ids);
+			for (int id = 1; id <= 5; id++) {
+				assertEquals(sequential.getResultFromSensor(id).getValues(), parallel.getResultFromSensor(id).getValues());
+				assertEquals(sequential.getResultFromSensor(id).getObstacle(), parallel.getResultFromSensor(id).getObstacle());
+			}
+		}
+
+		assertEquals(List.of(1, 2, 3, 4, 5), List.copyOf(parallel.getLastMeasurementNanos().keySet()));
+		assertTrue(parallel.getLastMeasurementNanos(2) > 0);
+		assertEquals(0, parallel.getLastMeasurementNanos(42));
+		parallel.onSimulationStop();
+	}
+
+	/**
+	 * The copy of the event in the parallel mode has to keep the swarm, a new parallelism replaces the pool
+	 */
+	@Test
+	void parallelMeasurementsSeeSwarm() {
+		// given
+		List<DroneSwarm> swarms = Collections.synchronizedList(new ArrayList<>());
+		SensorModule module = new SensorModule() {
+			@Override
+			ISensor createSensor(SensorConfig config) {
+				return new GpsSensor(config) {
+					@Override
+					public void runMeasurement(SimulationUpdateEvent event, SensorModule sensorModule) {
+						swarms.add(event.getSwarm());
+						super.runMeasurement(event, sensorModule);
+					}
+				};
+			}
+		};
+		List<SensorConfig> configs = new ArrayList<>();
+		for (int id = 1; id <= 2; id++) {
+			SensorConfig config = new SensorConfig();
+			config.setSensorId(id);
+			config.setClassName("GpsSensor");
+			configs.add(config);
+		}
+		module.loadConfig(configs);
+		module.setParallelMeasurements(true);
+		module.setParallelism(2);
+		DroneSwarm swarm = new DroneSwarm();
+		Drone drone = new Drone();
+
+		// when
+		module.runAllMeasurements(new SimulationUpdateEvent(drone, swarm, 0.0, 10));
+		module.setParallelism(3);
+		module.runAllMeasurements(new SimulationUpdateEvent(drone, swarm, 100.0, 10));
+
+		// then
+		assertEquals(List.of(swarm, swarm, swarm, swarm), swarms);
+		module.onSimulationStop();
+	}
 }
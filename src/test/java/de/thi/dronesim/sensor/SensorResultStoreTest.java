@@ -0,0 +1,109 @@
+package de.thi.dronesim.sensor;
+
+import de.thi.dronesim.obstacle.entity.Obstacle;
+import de.thi.dronesim.sensor.dto.SensorResultDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link SensorResultStore}
+ */
+class SensorResultStoreTest {
+
+    @Test
+    void writeAndRead() {
+        SensorResultStore store = new SensorResultStore();
+        SensorResultStore.View view = new SensorResultStore.View();
+        assertFalse(store.read(view));
+        assertEquals(0, view.getCount());
+        assertNull(store.toDto(null));
+
+        Obstacle[] table = new Obstacle[3];
+        store.beginWrite(100, 2, table);
+        store.set(0, 1.5f, 2);
+        store.set(1, 4f, 0);
+        // Not published yet
+        assertFalse(store.read(view));
+        store.endWrite();
+
+        assertTrue(store.read(view));
+        assertEquals(1, view.getVersion());
+        assertEquals(100, view.getTime());
+        assertEquals(2, view.getCount());
+        assertEquals(1.5f, view.getDistance(0));
+        assertEquals(2, view.getObstacleIndex(0));
+        assertEquals(4f, view.getDistance(1));
+        assertEquals(0, view.getObstacleIndex(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.getDistance(2));
+
+        // A larger result grows the buffers, a smaller one reuses them
+        store.beginWrite(150, 5, table);
+        for (int i = 0; i < 5; i++) {
+            store.set(i, i, 1);
+        }
+        store.endWrite();
+        store.beginWrite(200, 1, table);
+        store.set(0, 7f, 1);
+        store.endWrite();
+        assertTrue(store.read(view));
+        assertEquals(3, view.getVersion());
+        assertEquals(1, view.getCount());
+        assertEquals(7f, view.getDistance(0));
+
+        SensorResultDto dto = store.toDto(null);
+        assertEquals(List.of(7f), dto.getValues());
+        assertEquals(1, dto.getObstacle().size());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void concurrentReader() throws InterruptedException {
+        SensorResultStore store = new SensorResultStore();
+        Obstacle[] table = new Obstacle[1];
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        // Every result n has n % 8 + 1 values, which are all n
+        Thread reader = new Thread(() -> {
+            SensorResultStore.View view = new SensorResultStore.View();
+            long last = 0;
+            while (running.get() && failure.get() == null) {
+                if (!store.read(view)) {
+                    continue;
+                }
+                long version = view.getVersion();
+                if (version < last) {
+                    failure.set("Version " + version + " after " + last);
+                }
+                if (view.getCount() != version % 8 + 1 || view.getTime() != version) {
+                    failure.set("Torn result " + version);
+                }
+                for (int i = 0; i < view.getCount(); i++) {
+                    if (view.getDistance(i) != version) {
+                        failure.set("Torn value of result " + version);
+                    }
+                }
+                last = version;
+            }
+        });
+        reader.start();
+        for (int n = 1; n <= 200_000 && failure.get() == null; n++) {
+            int count = n % 8 + 1;
+            store.beginWrite(n, count, table);
+            for (int i = 0; i < count; i++) {
+                store.set(i, n, 0);
+            }
+            store.endWrite();
+        }
+        running.set(false);
+        reader.join();
+        assertNull(failure.get());
+    }
+}
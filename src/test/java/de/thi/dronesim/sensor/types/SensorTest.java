@@ -7,6 +7,8 @@ import de.thi.dronesim.persistence.entity.SensorConfig;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -247,4 +249,37 @@ class SensorTest {
         Vector3f expected = new Vector3f(-1F, -1F, -1F).normalize().add(new Vector3f(1F, 2F, 3F));
         assertEquals(expected, origin);
     }
+
+    /**
+     * The origin and the surface vector are only calculated again, when the sensor has changed.
+     */
+    @Test
+    void testCachedFrame() {
+
+        // given
+        DistanceSensor sensor = new InfraredSensor(sensorConfigA);
+        sensor.setDirection(1, 0, 0);
+        sensor.setPosition(0, 0, 0);
+        sensor.setSensorAngle(45);
+        sensor.setSize(1);
+
+        // when
+        Vector3f origin = sensor.calcOrigin();
+        Vector3f surface = sensor.calcSurfaceVector();
+
+        // then
+        assertSame(origin, sensor.calcOrigin());
+        assertEquals(new Vector3f(-1F, 0F, 0F), origin);
+        Vector3f before = surface.clone();
+        assertEquals(before, sensor.calcSurfaceVector());
+        assertEquals(1F, sensor.calcOriginToPositionLength(), 1e-6F);
+
+        // when the direction changes
+        sensor.setDirection(0, 0, 1);
+
+        // then
+        assertEquals(new Vector3f(0F, 0F, -1F), sensor.calcOrigin());
+        assertNotEquals(before, sensor.calcSurfaceVector());
+        assertEquals(45, Math.round(Math.toDegrees(sensor.calcAngel(sensor.calcSurfaceVector(), sensor.getDirectionVector()))));
+    }
 }
@@ -0,0 +1,117 @@
+package de.thi.dronesim.wind;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link WindLayerIndex}
+ */
+class WindLayerIndexTest {
+
+    private static final int NUM_QUERIES = 20_000;
+
+    @Test
+    void alignedLayers() {
+        // A grid of layers with gaps, the same as after normalization
+        List<WindLayer> layers = new ArrayList<>();
+        for (int t = 0; t < 40; t++) {
+            for (int a = 0; a < 20; a++) {
+                if ((t + a) % 3 != 0) {
+                    layers.add(new WindLayer(1, 1, t * 30, t * 30 + 20, a * 20, a * 20 + 10 * (1 + t % 2), 0));
+                }
+            }
+        }
+        assertSameAsLinearSearch(layers, 1500, 500);
+    }
+
+    @Test
+    void unalignedLayers() {
+        Random random = new Random(5);
+        List<WindLayer> layers = new ArrayList<>();
+        for (int t = 0; t < 30; t++) {
+            double timeStart = t * 10 + random.nextDouble();
+            for (int a = 0; a < 30; a++) {
+                double bottom = a * 7.5 + random.nextDouble();
+                layers.add(new WindLayer(1, 1, timeStart, timeStart + 5 + random.nextDouble() * 4, bottom, bottom + 3, 0));
+            }
+        }
+        layers.sort(WindLayerIndexTest::compareTimeStart);
+        assertSameAsLinearSearch(layers, 350, 250);
+    }
+
+    @Test
+    void tooManyCellsUsesLinearSearch() {
+        // Every layer adds new time and altitude borders, so the grid would get far too large
+        List<WindLayer> layers = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            layers.add(new WindLayer(1, 1, i * 10, i * 10 + 10, i * 10, i * 10 + 10, 0));
+        }
+        assertSameAsLinearSearch(layers, 26_000, 26_000);
+    }
+
+    @Test
+    void bordersAndOutside() {
+        List<WindLayer> layers = new ArrayList<>();
+        layers.add(new WindLayer(1, 1, 0, 10, 0, 10, 0));
+        layers.add(new WindLayer(1, 1, 10, 20, 10, 20, 0));
+        WindLayerIndex index = new WindLayerIndex(layers);
+
+        // Start and bottom are inclusive, end and top exclusive
+        assertSame(layers.get(0), index.find(0, 0));
+        assertSame(layers.get(1), index.find(10, 10));
+        assertNull(index.find(10, 0));
+        assertNull(index.find(0, 10));
+        assertNull(index.find(20, 15));
+        assertNull(index.find(15, 20));
+        assertNull(index.find(-1, 5));
+        assertNull(index.find(5, -1));
+        assertNull(index.find(Double.NaN, 5));
+    }
+
+    @Test
+    void emptyIndex() {
+        WindLayerIndex index = new WindLayerIndex(Collections.emptyList());
+        assertNull(index.find(0, 0));
+    }
+
+    private static void assertSameAsLinearSearch(List<WindLayer> layers, double maxTime, double maxAltitude) {
+        WindLayerIndex index = new WindLayerIndex(layers);
+        Random random = new Random(17);
+        int found = 0;
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            // Every second query exactly on the 5 m / 5 s grid to hit the borders
+            double time = random.nextDouble() * (maxTime + 20) - 10;
+            double altitude = random.nextDouble() * (maxAltitude + 20) - 10;
+            if (i % 2 == 0) {
+                time = Math.floor(time / 5) * 5;
+                altitude = Math.floor(altitude / 5) * 5;
+            }
+            WindLayer expected = linearSearch(layers, altitude, time);
+            assertSame(expected, index.find(altitude, time), "Wrong layer at time " + time + " altitude " + altitude);
+            found += expected != null ? 1 : 0;
+        }
+        assertTrue(found > 0, "No query hit a layer, the test setup is broken");
+    }
+
+    private static WindLayer linearSearch(List<WindLayer> layers, double altitude, double time) {
+        for (WindLayer layer : layers) {
+            if (layer.getAltitudeBottom() <= altitude
+                    && layer.getAltitudeTop() > altitude
+                    && layer.getTimeStart() <= time
+                    && layer.getTimeEnd() > time) {
+                return layer;
+            }
+        }
+        return null;
+    }
+
+    private static int compareTimeStart(WindLayer first, WindLayer second) {
+        return Double.compare(first.getTimeStart(), second.getTimeStart());
+    }
+}
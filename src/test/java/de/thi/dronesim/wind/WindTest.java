@@ -1,12 +1,14 @@
 package de.thi.dronesim.wind;
 
 import de.thi.dronesim.Simulation;
+import de.thi.dronesim.drone.DroneSwarm;
 import de.thi.dronesim.drone.Location;
 import de.thi.dronesim.persistence.entity.WindConfig;
 import org.junit.jupiter.api.*;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -943,4 +945,65 @@ class WindTest {
         assertEquals(270, wind.getWindDirection(), 1, "Wrong wind direction");
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void applyWind_swarm() {
+        windLayers.add(new WindLayer(10, 10, 0, 100, 0, 50, 30));
+        windLayers.add(new WindLayer(5, 5, 0, 100, 50, 100, 120));
+        windLayers.add(new WindLayer(8, 8, 100, 200, 0, 100, 300));
+        setupWind();
+
+        DroneSwarm swarm = new DroneSwarm();
+        for (int i = 0; i < 120; i++) {
+            swarm.addDrone(0, i, 0, 1);
+            swarm.setAirspeed(i, 10);
+            swarm.setHeading(i, 3 * i);
+        }
+        swarm.setCrashed(0, true);
+
+        for (double time : new double[]{20000, 97000, 150000}) {
+            wind.applyWind(swarm, time);
+            // Every drone gets the same wind as a single location
+            for (int i = 1; i < swarm.size(); i++) {
+                createLocation(i, 10, 3 * i);
+                wind.applyWind(location, time);
+                assertEquals(location.getTrack(), swarm.getTrack(i), 1e-9, "Wrong track at altitude " + i);
+                assertEquals(location.getGroundSpeed(), swarm.getGroundSpeed(i), 1e-9, "Wrong ground speed at altitude " + i);
+            }
+        }
+        // Crashed drones are skipped
+        assertEquals(0, swarm.getGroundSpeed(0));
+    }
+
+    @Test
+    void applyWind_seededGusts() {
+        double[] first = flyThroughGusts(42L);
+        double[] second = flyThroughGusts(42L);
+        double[] other = flyThroughGusts(43L);
+
+        // The same seed leads to the same gusts
+        assertArrayEquals(first, second);
+        assertFalse(Arrays.equals(first, other), "Different seeds should lead to different gusts");
+    }
+
+    /**
+     * @return The ground speed of every second in two gusty layers
+     */
+    private double[] flyThroughGusts(Long seed) {
+        simulation = new Simulation();
+        simulation.getConfig().setSeed(seed);
+        assertEquals(seed, simulation.getSeed());
+        windLayers.clear();
+        windLayers.add(new WindLayer(5, 15, 0, 1000, 0, 50, 135));
+        windLayers.add(new WindLayer(2, 12, 0, 1000, 50, 100, 200));
+        setupWind();
+
+        double[] groundSpeeds = new double[1000];
+        for (int t = 0; t < groundSpeeds.length; t++) {
+            createLocation(t % 2 == 0 ? 20 : 80, 10, 0);
+            wind.applyWind(location, t * 1000);
+            groundSpeeds[t] = location.getGroundSpeed();
+        }
+        return groundSpeeds;
+    }
+}